@@ -74,6 +74,26 @@ public class ReferenceFileChannel implements Closeable, Releasable {
 		return readTilEnd(-1);
 	}
 
+	/**
+	 * region of the given range, current position is not changed
+	 */
+	public ReferenceFileRegion readRegion(long position, long count) throws IOException {
+
+		increase();
+		return new ReferenceFileRegion(file.getFileChannel(), position, count, this);
+	}
+
+	/**
+	 * bytes already sent without reading file, move current position forward
+	 */
+	public void skip(long count) {
+		currentPos.addAndGet(count);
+	}
+
+	public long size() throws IOException {
+		return file.size();
+	}
+
 	private void increase() {
 		reference.incrementAndGet();
 	}
@@ -10,5 +10,7 @@ public enum ForwardType {
 	FORWARD,
 	MULTICASTING,
 	//when slot is moving
-	MOVING
+	MOVING,
+	//entries of many clusters in one request, receiver dispatches each entry to the server of its cluster
+	DISPATCHING
 }
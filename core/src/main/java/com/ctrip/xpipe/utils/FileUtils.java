@@ -3,9 +3,14 @@ package com.ctrip.xpipe.utils;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,6 +43,31 @@ public class FileUtils {
 		file.delete();
 	}
 
+	/**
+	 * write to temp file, fsync, then rename to file atomically.
+	 * after crash, file contains either old or new content, never partial
+	 */
+	public static void writeAtomically(File file, byte[] content) throws IOException {
+		
+		File tmpFile = new File(file.getParentFile(), file.getName() + ".tmp");
+		try (FileOutputStream fous = new FileOutputStream(tmpFile)) {
+			fous.write(content);
+			fous.getChannel().force(true);
+		}
+		Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		syncDirectory(file.getAbsoluteFile().getParentFile());
+	}
+
+	private static void syncDirectory(File dir) {
+		
+		try (FileChannel channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+			channel.force(true);
+		} catch (IOException e) {
+			//not supported on some platforms
+			logger.debug("[syncDirectory]" + dir, e);
+		}
+	}
+
 	public static String shortPath(String absolutePath) {
 		return shortPath(absolutePath, DEFAULT_SHORT_PATH_LEVEL);
 	}
@@ -1,11 +1,21 @@
 package com.ctrip.xpipe.utils;
 
+import java.util.LinkedList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 /**
  * @author marsqing
  *
  *         May 20, 2016 2:06:20 PM
  */
 public class OffsetNotifier {
+	
+	private static final Logger logger = LoggerFactory.getLogger(OffsetNotifier.class);
+	
 	private static final class Sync extends AbstractQueuedSynchronizer {
 		private static final long serialVersionUID = 4982264981922014374L;
 
@@ -23,9 +33,17 @@ public class OffsetNotifier {
 			setState(newOffset);
 			return true;
 		}
+		
+		long currentOffset() {
+			return getState();
+		}
 	}
 
 	private final Sync sync;
+	
+	private final PriorityQueue<OffsetCallback> callbacks = new PriorityQueue<>();
+	
+	private volatile long minCallbackOffset = Long.MAX_VALUE;
 
 	public OffsetNotifier(long offset) {
 		this.sync = new Sync(offset);
@@ -40,7 +58,76 @@ public class OffsetNotifier {
 		
 	}
 
+	/**
+	 * run callback once startOffset is reached, without holding a thread while waiting.<br/>
+	 * callback is run in the thread increasing offset, or in caller thread if already reached, so it should be short
+	 */
+	public void addCallback(long startOffset, Runnable callback) {
+		
+		synchronized (callbacks) {
+			callbacks.add(new OffsetCallback(startOffset, callback));
+			minCallbackOffset = callbacks.peek().startOffset;
+		}
+		// offset may be increased before minCallbackOffset is visible
+		runReachedCallbacks(sync.currentOffset());
+	}
+
+	/**
+	 * @return false if callback has already been run or removed
+	 */
+	public boolean removeCallback(Runnable callback) {
+		
+		synchronized (callbacks) {
+			for(OffsetCallback offsetCallback : callbacks){
+				if(offsetCallback.callback == callback){
+					callbacks.remove(offsetCallback);
+					minCallbackOffset = callbacks.isEmpty() ? Long.MAX_VALUE : callbacks.peek().startOffset;
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
 	public void offsetIncreased(long newOffset) {
 		sync.releaseShared(newOffset);
+		if(newOffset >= minCallbackOffset){
+			runReachedCallbacks(newOffset);
+		}
+	}
+	
+	private void runReachedCallbacks(long currentOffset) {
+		
+		List<Runnable> reached = new LinkedList<>();
+		synchronized (callbacks) {
+			while(!callbacks.isEmpty() && callbacks.peek().startOffset <= currentOffset){
+				reached.add(callbacks.poll().callback);
+			}
+			minCallbackOffset = callbacks.isEmpty() ? Long.MAX_VALUE : callbacks.peek().startOffset;
+		}
+		for(Runnable runnable : reached){
+			try{
+				runnable.run();
+			}catch(Throwable th){
+				logger.error("[runReachedCallbacks]" + runnable, th);
+			}
+		}
+	}
+	
+	private static final class OffsetCallback implements Comparable<OffsetCallback>{
+		
+		private final long startOffset;
+		
+		private final Runnable callback;
+		
+		OffsetCallback(long startOffset, Runnable callback) {
+			this.startOffset = startOffset;
+			this.callback = callback;
+		}
+
+		@Override
+		public int compareTo(OffsetCallback o) {
+			return Long.compare(startOffset, o.startOffset);
+		}
 	}
 }
@@ -19,6 +19,8 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
 
 import org.apache.commons.io.FileUtils;
 import org.slf4j.LoggerFactory;
@@ -232,6 +234,20 @@ public class AbstractTest {
 
 	}
 
+	/**
+	 * check condition every few milliseconds until it holds
+	 */
+	protected void waitConditionUntilTimeout(BooleanSupplier condition, int timeoutMilli) throws TimeoutException {
+
+		long until = System.currentTimeMillis() + timeoutMilli;
+		while (!condition.getAsBoolean()) {
+			if (System.currentTimeMillis() >= until) {
+				throw new TimeoutException("condition not met in " + timeoutMilli + "ms");
+			}
+			sleep(5);
+		}
+	}
+
 	protected void sleep(int miliSeconds) {
 
 		try {
@@ -48,6 +48,19 @@ public class FileUtilsTest extends AbstractTest{
 		Assert.assertNotNull(ins);
 	}
 	
+	@Test
+	public void testWriteAtomically() throws IOException{
+		
+		File file = new File(getTestFileDir(), getTestName() + ".txt");
+		file.getParentFile().mkdirs();
+		
+		FileUtils.writeAtomically(file, "first".getBytes());
+		FileUtils.writeAtomically(file, "second".getBytes());
+		
+		Assert.assertEquals("second", org.apache.commons.io.FileUtils.readFileToString(file));
+		Assert.assertFalse(new File(file.getParentFile(), file.getName() + ".tmp").exists());
+	}
+	
 	@Test
 	public void testShortPath(){
 		
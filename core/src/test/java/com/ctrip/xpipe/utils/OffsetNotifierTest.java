@@ -3,6 +3,7 @@ package com.ctrip.xpipe.utils;
 
 import java.io.IOException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -70,4 +71,34 @@ public class OffsetNotifierTest extends AbstractTest{
 		Assert.assertTrue(interrupted.get());
 	}
 
+	@Test
+	public void testCallback(){
+		
+		final AtomicInteger called = new AtomicInteger();
+		Runnable callback = new Runnable() {
+			
+			@Override
+			public void run() {
+				called.incrementAndGet();
+			}
+		};
+		
+		//already reached
+		offsetNotifier.addCallback(initPos, callback);
+		Assert.assertEquals(1, called.get());
+		
+		offsetNotifier.addCallback(initPos + 2, callback);
+		offsetNotifier.offsetIncreased(initPos + 1);
+		Assert.assertEquals(1, called.get());
+		
+		offsetNotifier.offsetIncreased(initPos + 2);
+		Assert.assertEquals(2, called.get());
+		Assert.assertFalse(offsetNotifier.removeCallback(callback));
+		
+		offsetNotifier.addCallback(initPos + 3, callback);
+		Assert.assertTrue(offsetNotifier.removeCallback(callback));
+		offsetNotifier.offsetIncreased(initPos + 3);
+		Assert.assertEquals(2, called.get());
+	}
+
 }
@@ -19,6 +19,7 @@ public class DefaultConsoleConfig extends AbstractCoreConfig implements ConsoleC
 	public static final String KEY_METASERVERS = "metaservers";
 	public static final String KEY_USER_ACCESS_WHITE_LIST = "user.access.white.list";
 	public static final String KEY_REDIS_REPLICATION_HEALTH_CHECK_INTERVAL = "redis.replication.health.check.interval";
+	public static final String KEY_HEALTH_HISTORY_MEMORY_MB = "console.health.history.memory.mb";
 
 	@Override
 	public String getDatasource() {
@@ -56,4 +57,9 @@ public class DefaultConsoleConfig extends AbstractCoreConfig implements ConsoleC
 		return getIntProperty(KEY_REDIS_REPLICATION_HEALTH_CHECK_INTERVAL, 10000);
 	}
 
+	@Override
+	public int getHealthHistoryMemoryMb() {
+		return getIntProperty(KEY_HEALTH_HISTORY_MEMORY_MB, 256);
+	}
+
 }
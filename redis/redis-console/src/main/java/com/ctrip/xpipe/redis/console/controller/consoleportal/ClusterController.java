@@ -2,9 +2,12 @@ package com.ctrip.xpipe.redis.console.controller.consoleportal;
 
 import com.ctrip.xpipe.redis.console.controller.AbstractConsoleController;
 import com.ctrip.xpipe.redis.console.model.ClusterModel;
+import com.ctrip.xpipe.redis.console.model.ClusterProvisionModel;
+import com.ctrip.xpipe.redis.console.model.ClusterSummary;
 import com.ctrip.xpipe.redis.console.model.ClusterTbl;
 import com.ctrip.xpipe.redis.console.model.DcClusterTbl;
 import com.ctrip.xpipe.redis.console.model.DcTbl;
+import com.ctrip.xpipe.redis.console.model.KeysetPage;
 import com.ctrip.xpipe.redis.console.service.ClusterService;
 import com.ctrip.xpipe.redis.console.service.DcClusterService;
 import com.ctrip.xpipe.redis.console.service.DcService;
@@ -92,12 +95,33 @@ public class ClusterController extends AbstractConsoleController{
 		return valueOrDefault(Long.class, clusterService.getAllCount());
 	}
 	
+	@RequestMapping(value = "/page/clusters", method = RequestMethod.GET)
+	public KeysetPage<ClusterSummary> findClustersPage(@RequestParam(defaultValue = "NAME") ClusterSummary.Sort sort,
+			@RequestParam(required = false) String next, @RequestParam(defaultValue = "50") int limit,
+			@RequestParam(required = false) String name, @RequestParam(required = false) String activeDcName) {
+		long activeDcId = 0L;
+		if(!StringUtil.isEmpty(activeDcName)) {
+			DcTbl dc = dcService.findByDcName(activeDcName);
+			if(dc == null) {
+				return new KeysetPage<ClusterSummary>();
+			}
+			activeDcId = dc.getId();
+		}
+		return clusterService.findClusterSummaries(sort, next, limit, name, activeDcId);
+	}
+	
 	@RequestMapping(value = "/clusters", method = RequestMethod.POST)
 	public ClusterTbl createCluster(@RequestBody ClusterModel cluster) {
 		logger.info("[Create Cluster]{}",cluster);
 		return clusterService.createCluster(cluster);
 	}
 
+	@RequestMapping(value = "/clusters/provision", method = RequestMethod.POST)
+	public ClusterTbl provisionCluster(@RequestBody ClusterProvisionModel provisionModel) {
+		logger.info("[Provision Cluster]{}", provisionModel);
+		return clusterService.provisionCluster(provisionModel);
+	}
+
 	@RequestMapping(value = "/clusters/{clusterName}", method = RequestMethod.PUT)
 	public void updateCluster(@PathVariable String clusterName, @RequestBody ClusterTbl cluster) {
 		logger.info("[Update Cluster]{},{}",clusterName, cluster);
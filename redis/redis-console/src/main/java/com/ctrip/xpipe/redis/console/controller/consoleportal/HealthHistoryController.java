@@ -0,0 +1,56 @@
+package com.ctrip.xpipe.redis.console.controller.consoleportal;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.ctrip.xpipe.metric.HostPort;
+import com.ctrip.xpipe.redis.console.controller.AbstractConsoleController;
+import com.ctrip.xpipe.redis.console.health.history.HealthHistoryService;
+import com.ctrip.xpipe.redis.console.health.history.HistoryPoint;
+import com.ctrip.xpipe.redis.console.health.history.Resolution;
+import com.ctrip.xpipe.redis.console.health.history.ShardLatency;
+
+/**
+ * latencies in micros, -1 means lost
+ * @author wenchao.meng
+ *
+ * Jan 25, 2017
+ */
+@RestController
+@RequestMapping("console")
+public class HealthHistoryController extends AbstractConsoleController {
+
+	@Autowired
+	private HealthHistoryService healthHistoryService;
+
+	@RequestMapping(value = "/health/delay/shards/worst", method = RequestMethod.GET)
+	public List<ShardLatency> worstDelayShards(@RequestParam(defaultValue = "600") int seconds,
+			@RequestParam(defaultValue = "99") double percentile, @RequestParam(defaultValue = "100") int limit) {
+		return healthHistoryService.worstDelayShards(seconds, percentile, limit);
+	}
+
+	@RequestMapping(value = "/health/delay/redises/{ip}/{port}", method = RequestMethod.GET)
+	public List<HistoryPoint> delayHistory(@PathVariable String ip, @PathVariable int port,
+			@RequestParam(required = false) Resolution resolution, @RequestParam(defaultValue = "3600") int seconds) {
+		return healthHistoryService.delayHistory(new HostPort(ip, port), resolution, seconds);
+	}
+
+	@RequestMapping(value = "/health/ping/shards/worst", method = RequestMethod.GET)
+	public List<ShardLatency> worstPingShards(@RequestParam(defaultValue = "600") int seconds,
+			@RequestParam(defaultValue = "100") double percentile, @RequestParam(defaultValue = "100") int limit) {
+		return healthHistoryService.worstPingShards(seconds, percentile, limit);
+	}
+
+	@RequestMapping(value = "/health/ping/redises/{ip}/{port}", method = RequestMethod.GET)
+	public List<HistoryPoint> pingHistory(@PathVariable String ip, @PathVariable int port,
+			@RequestParam(required = false) Resolution resolution, @RequestParam(defaultValue = "3600") int seconds) {
+		return healthHistoryService.pingHistory(new HostPort(ip, port), resolution, seconds);
+	}
+
+}
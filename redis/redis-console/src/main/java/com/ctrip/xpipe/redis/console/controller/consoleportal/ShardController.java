@@ -2,7 +2,9 @@ package com.ctrip.xpipe.redis.console.controller.consoleportal;
 
 
 import com.ctrip.xpipe.redis.console.controller.AbstractConsoleController;
+import com.ctrip.xpipe.redis.console.model.KeysetPage;
 import com.ctrip.xpipe.redis.console.model.ShardModel;
+import com.ctrip.xpipe.redis.console.model.ShardSummary;
 import com.ctrip.xpipe.redis.console.model.ShardTbl;
 import com.ctrip.xpipe.redis.console.service.ShardService;
 import com.ctrip.xpipe.redis.console.service.model.ShardModelService;
@@ -12,6 +14,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import java.util.ArrayList;
 import java.util.List;
@@ -38,6 +41,12 @@ public class ShardController extends AbstractConsoleController{
 	return valueOrEmptySet(ShardTbl.class, shardService.findAllByClusterName(clusterName));
   }
   
+  @RequestMapping(value = "/page/clusters/{clusterName}/shards", method = RequestMethod.GET)
+  public KeysetPage<ShardSummary> findShardsPage(@PathVariable String clusterName, @RequestParam(required = false) String next,
+		  @RequestParam(defaultValue = "50") int limit) {
+	  return shardService.findShardSummaries(clusterName, next, limit);
+  }
+  
   @RequestMapping("/clusters/{clusterName}/dcs/{dcName}/shards/{shardName}")
   public ShardModel findShardMeta(@PathVariable String clusterName, @PathVariable String dcName, @PathVariable String shardName) {
 	  return shardModelService.getShardModel(dcName, clusterName, shardName);
@@ -0,0 +1,234 @@
+package com.ctrip.xpipe.redis.console.dal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.unidal.dal.jdbc.DalException;
+
+import com.ctrip.xpipe.redis.console.query.DalQuery;
+
+/**
+ * bounded read through cache of one entity, keyed by index name and key, e.g. (name, cluster1).<br/>
+ * it is cleared whenever a table it depends on is written through dal ({@link DalTableVersions});
+ * a load is kept only if no write began or ended during it. reads in a transaction are not cached,
+ * so they see the transaction's own writes. entries expire after a while, bounding staleness of
+ * writes made by other console instances.<br/>
+ * copies are returned, callers may modify them; lists read by {@link #readThroughShared} are not copied
+ * @author wenchao.meng
+ *
+ * Jan 26, 2017
+ */
+public class DalEntityCache {
+
+	private static Logger logger = LoggerFactory.getLogger(DalEntityCache.class);
+
+	private static final long REPORT_INTERVAL_MILLI = 60 * 1000;
+
+	private final String name;
+
+	private final String[] tables;
+
+	private final int maxSize;
+
+	private final long expireMilli;
+
+	private final Map<CacheKey, CacheEntry> entries;
+
+	private long entriesStamp = -1;
+
+	private AtomicLong hits = new AtomicLong();
+
+	private AtomicLong misses = new AtomicLong();
+
+	private AtomicLong bypasses = new AtomicLong();
+
+	private AtomicLong invalidations = new AtomicLong();
+
+	private volatile long lastReportTime = System.currentTimeMillis();
+
+	public DalEntityCache(String name, String... tables) {
+		this(name, Integer.parseInt(System.getProperty("CONSOLE_DAL_CACHE_MAX_SIZE", "10000")),
+				Long.parseLong(System.getProperty("CONSOLE_DAL_CACHE_EXPIRE_MILLI", "3000")), tables);
+	}
+
+	public DalEntityCache(String name, final int maxSize, long expireMilli, String... tables) {
+		this.name = name;
+		this.tables = tables;
+		this.maxSize = maxSize;
+		this.expireMilli = expireMilli;
+		this.entries = new LinkedHashMap<CacheKey, CacheEntry>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<CacheKey, CacheEntry> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	public <V> DalQuery<V> readThrough(final String index, final Object key, final DalQuery<V> loader) {
+		return new DalQuery<V>() {
+
+			@Override
+			public V doQuery() throws DalException {
+				return get(new CacheKey(index, key), loader);
+			}
+		};
+	}
+
+	/**
+	 * for lists read often and only read: one unmodifiable copy is shared by all callers until it is invalidated,
+	 * callers must not modify its elements
+	 */
+	public <V> DalQuery<List<V>> readThroughShared(final String index, final Object key, final DalQuery<List<V>> loader) {
+		return new DalQuery<List<V>>() {
+
+			@Override
+			public List<V> doQuery() throws DalException {
+				return get(new CacheKey(index, key), loader, true);
+			}
+		};
+	}
+
+	protected <V> V get(CacheKey cacheKey, DalQuery<V> loader) throws DalException {
+		return get(cacheKey, loader, false);
+	}
+
+	@SuppressWarnings("unchecked")
+	protected <V> V get(CacheKey cacheKey, DalQuery<V> loader, boolean shared) throws DalException {
+
+		reportIfNecessary();
+		if (XpipeDalTransactionManager.isCurrentThreadInTransaction()) {
+			bypasses.incrementAndGet();
+			return loader.doQuery();
+		}
+
+		long stamp = DalTableVersions.stamp(tables);
+		synchronized (entries) {
+			if (stamp != entriesStamp) {
+				if (!entries.isEmpty()) {
+					invalidations.incrementAndGet();
+				}
+				entries.clear();
+				entriesStamp = stamp;
+			}
+			CacheEntry entry = entries.get(cacheKey);
+			if (entry != null && System.currentTimeMillis() - entry.loadTime < expireMilli) {
+				hits.incrementAndGet();
+				return shared ? (V) entry.value : (V) DataObjectCopier.copy(entry.value);
+			}
+		}
+
+		misses.incrementAndGet();
+		long loadTime = System.currentTimeMillis();
+		V value = loader.doQuery();
+		if (shared && value != null) {
+			value = (V) Collections.unmodifiableList(DataObjectCopier.copy((List<?>) value));
+		}
+		if (value != null) {
+			synchronized (entries) {
+				if (!DalTableVersions.hasPendingWrites(tables) && DalTableVersions.stamp(tables) == stamp
+						&& entriesStamp == stamp) {
+					entries.put(cacheKey, new CacheEntry(value, loadTime));
+				}
+			}
+		}
+		return shared ? value : DataObjectCopier.copy(value);
+	}
+
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public long getBypasses() {
+		return bypasses.get();
+	}
+
+	public long getInvalidations() {
+		return invalidations.get();
+	}
+
+	public double getHitRate() {
+		long total = hits.get() + misses.get();
+		return total == 0 ? 0 : (double) hits.get() / total;
+	}
+
+	private void reportIfNecessary() {
+
+		long current = System.currentTimeMillis();
+		if (current - lastReportTime < REPORT_INTERVAL_MILLI) {
+			return;
+		}
+		lastReportTime = current;
+		logger.info("[report]{}, hit rate:{}, hits:{}, misses:{}, bypasses:{}, invalidations:{}, size:{}/{}", name,
+				String.format("%.3f", getHitRate()), hits.get(), misses.get(), bypasses.get(), invalidations.get(), size(),
+				maxSize);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s%s", name, Arrays.toString(tables));
+	}
+
+	protected static class CacheKey {
+
+		private final String index;
+
+		private final Object key;
+
+		public CacheKey(String index, Object key) {
+			this.index = index;
+			this.key = key;
+		}
+
+		@Override
+		public int hashCode() {
+			return index.hashCode() * 31 + (key == null ? 0 : key.hashCode());
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof CacheKey)) {
+				return false;
+			}
+			CacheKey other = (CacheKey) obj;
+			return index.equals(other.index) && (key == null ? other.key == null : key.equals(other.key));
+		}
+	}
+
+	private static class CacheEntry {
+
+		private final Object value;
+
+		private final long loadTime;
+
+		public CacheEntry(Object value, long loadTime) {
+			this.value = value;
+			this.loadTime = loadTime;
+		}
+	}
+
+}
@@ -0,0 +1,84 @@
+package com.ctrip.xpipe.redis.console.dal;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * version and in flight writes of every table, maintained by {@link XpipeDalTransactionManager}:
+ * version is increased when a write begins and again when it is committed or rolled back.<br/>
+ * caches compare versions of the tables they depend on before and after loading
+ * @author wenchao.meng
+ *
+ * Jan 26, 2017
+ */
+public final class DalTableVersions {
+
+	private static final AtomicLong epoch = new AtomicLong();
+
+	private static final ConcurrentMap<String, TableVersion> tables = new ConcurrentHashMap<>();
+
+	private DalTableVersions() {
+	}
+
+	public static void writeBegin(String table) {
+		TableVersion tableVersion = tableVersion(table);
+		tableVersion.pendingWrites.incrementAndGet();
+		tableVersion.version.incrementAndGet();
+	}
+
+	public static void writeEnd(String table) {
+		TableVersion tableVersion = tableVersion(table);
+		// version first, a reader seeing no pending write sees the new version
+		tableVersion.version.incrementAndGet();
+		tableVersion.pendingWrites.decrementAndGet();
+	}
+
+	/**
+	 * for data changed without dal, e.g. sql scripts in tests
+	 */
+	public static void invalidateAll() {
+		epoch.incrementAndGet();
+	}
+
+	public static long stamp(String[] tableNames) {
+
+		long stamp = epoch.get();
+		for (String table : tableNames) {
+			stamp += tableVersion(table).version.get();
+		}
+		return stamp;
+	}
+
+	public static boolean hasPendingWrites(String[] tableNames) {
+
+		for (String table : tableNames) {
+			if (tableVersion(table).pendingWrites.get() > 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static TableVersion tableVersion(String table) {
+
+		TableVersion tableVersion = tables.get(table);
+		if (tableVersion == null) {
+			tableVersion = new TableVersion();
+			TableVersion previous = tables.putIfAbsent(table, tableVersion);
+			if (previous != null) {
+				tableVersion = previous;
+			}
+		}
+		return tableVersion;
+	}
+
+	private static class TableVersion {
+
+		private final AtomicLong version = new AtomicLong();
+
+		private final AtomicInteger pendingWrites = new AtomicInteger();
+	}
+
+}
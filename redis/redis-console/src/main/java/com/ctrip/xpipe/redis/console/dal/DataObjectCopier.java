@@ -0,0 +1,118 @@
+package com.ctrip.xpipe.redis.console.dal;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.unidal.dal.jdbc.DataObject;
+
+import com.ctrip.xpipe.redis.console.exception.ServerException;
+
+/**
+ * copies data objects field by field, sub objects and the elements of collection fields are copied too.<br/>
+ * callers modify entities they load, cached ones must never be handed out
+ * @author wenchao.meng
+ *
+ * Jan 26, 2017
+ */
+public final class DataObjectCopier {
+
+	private static final ConcurrentMap<Class<?>, List<Field>> fieldsCache = new ConcurrentHashMap<>();
+
+	private DataObjectCopier() {
+	}
+
+	@SuppressWarnings("unchecked")
+	public static <T> T copy(T value) {
+
+		if (value instanceof DataObject) {
+			return (T) copyDataObject((DataObject) value);
+		}
+		if (value instanceof List) {
+			List<Object> result = new ArrayList<>(((List<?>) value).size());
+			for (Object element : (List<?>) value) {
+				result.add(copy(element));
+			}
+			return (T) result;
+		}
+		return value;
+	}
+
+	private static DataObject copyDataObject(DataObject source) {
+
+		try {
+			DataObject target = source.getClass().newInstance();
+			for (Field field : fields(source.getClass())) {
+				field.set(target, copyField(field.get(source)));
+			}
+			return target;
+		} catch (InstantiationException | IllegalAccessException e) {
+			throw new ServerException("Copy data object failed.", e);
+		}
+	}
+
+	private static Object copyField(Object value) {
+
+		if (value instanceof DataObject) {
+			return copyDataObject((DataObject) value);
+		}
+		if (value instanceof BitSet) {
+			return ((BitSet) value).clone();
+		}
+		if (value instanceof Date) {
+			return ((Date) value).clone();
+		}
+		if (value instanceof List) {
+			List<Object> result = new LinkedList<>();
+			for (Object element : (List<?>) value) {
+				result.add(copyField(element));
+			}
+			return result;
+		}
+		if (value instanceof Set) {
+			Set<Object> result = new HashSet<>();
+			for (Object element : (Set<?>) value) {
+				result.add(copyField(element));
+			}
+			return result;
+		}
+		if (value instanceof Map) {
+			Map<Object, Object> result = new HashMap<>();
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				result.put(entry.getKey(), copyField(entry.getValue()));
+			}
+			return result;
+		}
+		return value;
+	}
+
+	private static List<Field> fields(Class<?> clazz) {
+
+		List<Field> fields = fieldsCache.get(clazz);
+		if (fields == null) {
+			fields = new ArrayList<>();
+			for (Class<?> current = clazz; current != null && current != Object.class; current = current.getSuperclass()) {
+				for (Field field : current.getDeclaredFields()) {
+					if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) {
+						continue;
+					}
+					field.setAccessible(true);
+					fields.add(field);
+				}
+			}
+			fieldsCache.put(clazz, fields);
+		}
+		return fields;
+	}
+
+}
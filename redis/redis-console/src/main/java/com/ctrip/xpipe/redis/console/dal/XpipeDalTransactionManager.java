@@ -2,10 +2,13 @@ package com.ctrip.xpipe.redis.console.dal;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.codehaus.plexus.logging.LogEnabled;
 import org.codehaus.plexus.logging.Logger;
 import org.unidal.dal.jdbc.DalRuntimeException;
+import org.unidal.dal.jdbc.QueryType;
 import org.unidal.dal.jdbc.datasource.DataSource;
 import org.unidal.dal.jdbc.datasource.DataSourceManager;
 import org.unidal.dal.jdbc.engine.QueryContext;
@@ -41,6 +44,10 @@ public class XpipeDalTransactionManager implements TransactionManager, LogEnable
 	   protected ThreadLocalTransactionInfo getThreadLocalTransactionInfo() {
 		   return m_threadLocalData;
 	   }
+
+	   public static boolean isCurrentThreadInTransaction() {
+		   return m_threadLocalData.get().isInTransaction();
+	   }
 	   
 	   @Override
 	   public void closeConnection() {
@@ -112,6 +119,11 @@ public class XpipeDalTransactionManager implements TransactionManager, LogEnable
 
 	      ctx.setDataSourceName(dataSourceName);
 
+	      if (ctx.getQuery() != null && ctx.getQuery().getType() != QueryType.SELECT) {
+	         // ended on commit, rollback or close, see TransactionInfo.reset()
+	         trxInfo.writeBegin(logicalName);
+	      }
+
 	      if (trxInfo.isInTransaction()) {
 	         if (dataSourceName.equals(trxInfo.getDataSourceName())) {
 	            return trxInfo.getConnection();
@@ -247,6 +259,8 @@ public class XpipeDalTransactionManager implements TransactionManager, LogEnable
 	      private boolean m_inTransaction;
 
 	      private int m_recursiveLayer;
+
+	      private Set<String> m_writtenTables;
 	      
 	      public Connection getConnection() {
 	         return m_connection;
@@ -272,7 +286,27 @@ public class XpipeDalTransactionManager implements TransactionManager, LogEnable
 	    	  return m_recursiveLayer;
 	      }
 
+	      public void writeBegin(String table) {
+	         if (m_writtenTables == null) {
+	            m_writtenTables = new HashSet<String>();
+	         }
+	         if (m_writtenTables.add(table)) {
+	            DalTableVersions.writeBegin(table);
+	         }
+	      }
+
+	      private void writeEnd() {
+	         if (m_writtenTables != null) {
+	            for (String table : m_writtenTables) {
+	               DalTableVersions.writeEnd(table);
+	            }
+	            m_writtenTables = null;
+	         }
+	      }
+
 	      public void reset() throws SQLException {
+	    		 // committed or rolled back already
+	    		 writeEnd();
 	    		 if (m_connection != null) {
 	 	            m_connection.close();
 	 	         }
@@ -1,5 +1,8 @@
 package com.ctrip.xpipe.redis.console.dao;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import com.ctrip.xpipe.redis.console.constant.XpipeConsoleConstant;
 import com.ctrip.xpipe.redis.console.query.DalQueryHandler;
 import com.ctrip.xpipe.redis.console.util.DataModifiedTimeGenerator;
@@ -24,5 +27,14 @@ public abstract class AbstractXpipeConsoleDAO {
 		String result = sb.toString();
 		return result.length() <= XpipeConsoleConstant.MAX_NAME_SIZE ? result : result.substring(0, XpipeConsoleConstant.MAX_NAME_SIZE - 1);
 	}
+	
+	protected void addRoleCount(Map<Long, Map<String, Long>> counts, long id, String role, long count) {
+		Map<String, Long> roleCounts = counts.get(id);
+		if(null == roleCounts) {
+			roleCounts = new HashMap<String, Long>();
+			counts.put(id, roleCounts);
+		}
+		roleCounts.put(role, count);
+	}
 
 }
@@ -1,7 +1,11 @@
 package com.ctrip.xpipe.redis.console.dao;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.annotation.PostConstruct;
 
@@ -12,6 +16,7 @@ import org.unidal.dal.jdbc.DalException;
 import org.unidal.lookup.ContainerLoader;
 
 import com.ctrip.xpipe.redis.console.annotation.DalTransaction;
+import com.ctrip.xpipe.redis.console.constant.XpipeConsoleConstant;
 import com.ctrip.xpipe.redis.console.exception.BadRequestException;
 import com.ctrip.xpipe.redis.console.exception.ServerException;
 import com.ctrip.xpipe.redis.console.model.ClusterTbl;
@@ -19,16 +24,24 @@ import com.ctrip.xpipe.redis.console.model.ClusterTblDao;
 import com.ctrip.xpipe.redis.console.model.ClusterTblEntity;
 import com.ctrip.xpipe.redis.console.model.DcClusterShardTbl;
 import com.ctrip.xpipe.redis.console.model.DcClusterShardTblDao;
+import com.ctrip.xpipe.redis.console.model.DcClusterShardTblEntity;
 import com.ctrip.xpipe.redis.console.model.DcClusterTbl;
 import com.ctrip.xpipe.redis.console.model.DcClusterTblDao;
 import com.ctrip.xpipe.redis.console.model.DcClusterTblEntity;
 import com.ctrip.xpipe.redis.console.model.DcTbl;
 import com.ctrip.xpipe.redis.console.model.DcTblDao;
 import com.ctrip.xpipe.redis.console.model.DcTblEntity;
+import com.ctrip.xpipe.redis.console.model.RedisTbl;
+import com.ctrip.xpipe.redis.console.model.RedisTblDao;
+import com.ctrip.xpipe.redis.console.model.RedisTblEntity;
+import com.ctrip.xpipe.redis.console.model.SetinelTbl;
+import com.ctrip.xpipe.redis.console.model.ShardModel;
+import com.ctrip.xpipe.redis.console.model.ShardProvisionModel;
 import com.ctrip.xpipe.redis.console.model.ShardTbl;
 import com.ctrip.xpipe.redis.console.model.ShardTblDao;
 import com.ctrip.xpipe.redis.console.model.ShardTblEntity;
 import com.ctrip.xpipe.redis.console.query.DalQuery;
+import com.ctrip.xpipe.redis.core.redis.RunidGenerator;
 
 
 /**
@@ -38,11 +51,13 @@ import com.ctrip.xpipe.redis.console.query.DalQuery;
  */
 @Repository
 public class ClusterDao extends AbstractXpipeConsoleDAO{
+	private RunidGenerator idGenerator = RunidGenerator.DEFAULT;
 	private DcTblDao dcTblDao;
 	private ClusterTblDao clusterTblDao;
 	private DcClusterTblDao dcClusterTblDao;
 	private ShardTblDao shardTblDao;
 	private DcClusterShardTblDao dcClusterShardTblDao;
+	private RedisTblDao redisTblDao;
 	
 	@Autowired
 	private ShardDao shardDao;
@@ -57,6 +72,7 @@ public class ClusterDao extends AbstractXpipeConsoleDAO{
 			dcClusterTblDao = ContainerLoader.getDefaultContainer().lookup(DcClusterTblDao.class);
 			shardTblDao = ContainerLoader.getDefaultContainer().lookup(ShardTblDao.class);
 			dcClusterShardTblDao = ContainerLoader.getDefaultContainer().lookup(DcClusterShardTblDao.class);
+			redisTblDao = ContainerLoader.getDefaultContainer().lookup(RedisTblDao.class);
 		} catch (ComponentLookupException e) {
 			throw new ServerException("Cannot construct dao.", e);
 		}
@@ -87,6 +103,114 @@ public class ClusterDao extends AbstractXpipeConsoleDAO{
 		return newCluster;
 	}
 	
+	/**
+	 * create cluster, dc-clusters, shards, dc-cluster-shards and redises with one batch insert per table,
+	 * generated ids are read back with one query per table (per dc for dc-cluster-shards)
+	 */
+	@DalTransaction
+	public ClusterTbl provisionCluster(final ClusterTbl cluster, List<DcTbl> dcs, List<ShardProvisionModel> shards) throws DalException {
+		// check for unique cluster name
+		ClusterTbl clusterWithSameName = queryHandler.handleQuery(new DalQuery<ClusterTbl>() {
+			@Override
+			public ClusterTbl doQuery() throws DalException {
+				return clusterTblDao.findClusterByClusterName(cluster.getClusterName(), ClusterTblEntity.READSET_FULL);
+			}
+		});
+		if(null != clusterWithSameName) throw new BadRequestException("Duplicated cluster name");
+		validateKeeperPorts(shards);
+		
+		// cluster meta
+		clusterTblDao.insert(cluster);
+		ClusterTbl newCluster = clusterTblDao.findClusterByClusterName(cluster.getClusterName(), ClusterTblEntity.READSET_FULL);
+		
+		// related dc-clusters
+		List<DcClusterTbl> protoDcClusters = new LinkedList<DcClusterTbl>();
+		for(DcTbl dc : dcs) {
+			DcClusterTbl protoDcCluster = dcClusterTblDao.createLocal();
+			protoDcCluster.setDcId(dc.getId())
+				.setClusterId(newCluster.getId());
+			protoDcClusters.add(protoDcCluster);
+		}
+		dcClusterTblDao.insertBatch(protoDcClusters.toArray(new DcClusterTbl[protoDcClusters.size()]));
+		Map<Long, DcClusterTbl> dcClusters = new HashMap<Long, DcClusterTbl>();
+		for(DcClusterTbl dcCluster : dcClusterTblDao.findAllByClusterId(newCluster.getId(), DcClusterTblEntity.READSET_FULL)) {
+			dcClusters.put(dcCluster.getDcId(), dcCluster);
+		}
+		
+		if(shards.isEmpty()) {
+			return newCluster;
+		}
+		
+		// shards
+		List<ShardTbl> protoShards = new LinkedList<ShardTbl>();
+		for(ShardProvisionModel shard : shards) {
+			protoShards.add(shard.getShardTbl().setClusterId(newCluster.getId()));
+		}
+		shardTblDao.insertBatch(protoShards.toArray(new ShardTbl[protoShards.size()]));
+		Map<String, Long> shardIds = new HashMap<String, Long>();
+		for(ShardTbl shard : shardTblDao.findAllByClusterId(newCluster.getId(), ShardTblEntity.READSET_FULL)) {
+			shardIds.put(shard.getShardName(), shard.getId());
+		}
+		
+		// dc-cluster-shards
+		Map<Long, SetinelTbl> setinels = shardDao.generateSetinelsMap();
+		List<DcClusterShardTbl> protoDcClusterShards = new LinkedList<DcClusterShardTbl>();
+		for(DcClusterTbl dcCluster : dcClusters.values()) {
+			for(ShardProvisionModel shard : shards) {
+				DcClusterShardTbl protoDcClusterShard = dcClusterShardTblDao.createLocal();
+				protoDcClusterShard.setDcClusterId(dcCluster.getDcClusterId())
+					.setShardId(shardIds.get(shard.getShardTbl().getShardName()));
+				if(null != setinels.get(dcCluster.getDcId())) {
+					protoDcClusterShard.setSetinelId(setinels.get(dcCluster.getDcId()).getSetinelId());
+				}
+				protoDcClusterShards.add(protoDcClusterShard);
+			}
+		}
+		dcClusterShardTblDao.insertBatch(protoDcClusterShards.toArray(new DcClusterShardTbl[protoDcClusterShards.size()]));
+		
+		// redises and keepers
+		List<RedisTbl> redises = new LinkedList<RedisTbl>();
+		for(DcTbl dc : dcs) {
+			DcClusterTbl dcCluster = dcClusters.get(dc.getId());
+			Map<Long, Long> dcClusterShardIds = new HashMap<Long, Long>();
+			for(DcClusterShardTbl dcClusterShard : dcClusterShardTblDao.findAllByDcClusterId(dcCluster.getDcClusterId(), DcClusterShardTblEntity.READSET_FULL)) {
+				dcClusterShardIds.put(dcClusterShard.getShardId(), dcClusterShard.getDcClusterShardId());
+			}
+			
+			for(ShardProvisionModel shard : shards) {
+				ShardModel shardModel = shard.getDcs().get(dc.getDcName());
+				if(null == shardModel) continue;
+				
+				long dcClusterShardId = dcClusterShardIds.get(shardIds.get(shard.getShardTbl().getShardName()));
+				for(RedisTbl redis : shardModel.getRedises()) {
+					RedisTbl proto = redisTblDao.createLocal();
+					proto.setRunId(null == redis.getRunId() ? "unknown" : redis.getRunId())
+						.setRedisIp(redis.getRedisIp()).setRedisPort(redis.getRedisPort())
+						.setRedisRole(XpipeConsoleConstant.ROLE_REDIS).setDcClusterShardId(dcClusterShardId);
+					proto.setMaster(redis.isMaster());
+					redises.add(proto);
+				}
+				
+				// keepers of a new dc-cluster-shard share a newly generated run id
+				String keeperId = shardModel.getKeepers().isEmpty() ? null : idGenerator.generateRunid();
+				for(RedisTbl keeper : shardModel.getKeepers()) {
+					RedisTbl proto = redisTblDao.createLocal();
+					proto.setRunId(keeperId)
+						.setRedisIp(keeper.getRedisIp()).setRedisPort(keeper.getRedisPort())
+						.setKeeperActive(keeper.isKeeperActive()).setKeepercontainerId(keeper.getKeepercontainerId())
+						.setRedisRole(XpipeConsoleConstant.ROLE_KEEPER)
+						.setDcClusterShardId(dcClusterShardId);
+					redises.add(proto);
+				}
+			}
+		}
+		if(!redises.isEmpty()) {
+			redisTblDao.insertBatch(redises.toArray(new RedisTbl[redises.size()]));
+		}
+		
+		return newCluster;
+	}
+	
 	@DalTransaction
 	public int updateCluster(ClusterTbl cluster) throws DalException {
 		return clusterTblDao.updateByPK(cluster, ClusterTblEntity.UPDATESET_FULL);
@@ -175,4 +299,80 @@ public class ClusterDao extends AbstractXpipeConsoleDAO{
 		
 		return 0;
 	}
+
+	/**
+	 * @return cluster id -> number of shards, one grouped query
+	 */
+	public Map<Long, Long> countShardsByClusterIds(final List<Long> clusterIds) {
+		Map<Long, Long> result = new HashMap<Long, Long>();
+		if(clusterIds.isEmpty()) return result;
+		
+		List<ShardTbl> counts = queryHandler.handleQuery(new DalQuery<List<ShardTbl>>() {
+			@Override
+			public List<ShardTbl> doQuery() throws DalException {
+				return shardTblDao.countByClusterIds(clusterIds, ShardTblEntity.READSET_CLUSTER_COUNT);
+			}
+		});
+		if(null != counts) {
+			for(ShardTbl count : counts) {
+				result.put(count.getClusterId(), count.getCount());
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * @return cluster id -> redis role -> number of instances over all dcs, one grouped query
+	 */
+	public Map<Long, Map<String, Long>> countInstancesByClusterIds(final List<Long> clusterIds) {
+		Map<Long, Map<String, Long>> result = new HashMap<Long, Map<String, Long>>();
+		if(clusterIds.isEmpty()) return result;
+		
+		List<RedisTbl> counts = queryHandler.handleQuery(new DalQuery<List<RedisTbl>>() {
+			@Override
+			public List<RedisTbl> doQuery() throws DalException {
+				return redisTblDao.countByClusterIds(clusterIds, RedisTblEntity.READSET_CLUSTER_ROLE_COUNT);
+			}
+		});
+		if(null != counts) {
+			for(RedisTbl count : counts) {
+				addRoleCount(result, count.getClusterId(), count.getRedisRole(), count.getCount());
+			}
+		}
+		return result;
+	}
+	
+	private void validateKeeperPorts(List<ShardProvisionModel> shards) throws DalException {
+		final List<String> keeperIps = new LinkedList<String>();
+		for(ShardProvisionModel shard : shards) {
+			for(ShardModel shardModel : shard.getDcs().values()) {
+				for(RedisTbl keeper : shardModel.getKeepers()) {
+					keeperIps.add(keeper.getRedisIp());
+				}
+			}
+		}
+		if(keeperIps.isEmpty()) return;
+		
+		List<RedisTbl> redisesWithSameIp = queryHandler.handleQuery(new DalQuery<List<RedisTbl>>() {
+			@Override
+			public List<RedisTbl> doQuery() throws DalException {
+				return redisTblDao.findAllByIps(keeperIps, RedisTblEntity.READSET_FULL);
+			}
+		});
+		if(null == redisesWithSameIp) return;
+		
+		Set<String> inUse = new HashSet<String>();
+		for(RedisTbl redis : redisesWithSameIp) {
+			inUse.add(redis.getRedisIp() + ":" + redis.getRedisPort());
+		}
+		for(ShardProvisionModel shard : shards) {
+			for(ShardModel shardModel : shard.getDcs().values()) {
+				for(RedisTbl keeper : shardModel.getKeepers()) {
+					if(inUse.contains(keeper.getRedisIp() + ":" + keeper.getRedisPort())) {
+						throw new BadRequestException("Already in use for keeper's port : " + String.valueOf(keeper.getRedisPort()));
+					}
+				}
+			}
+		}
+	}
 }
@@ -25,6 +25,9 @@ import com.ctrip.xpipe.redis.console.model.DcClusterShardTblEntity;
 import com.ctrip.xpipe.redis.console.model.DcClusterTbl;
 import com.ctrip.xpipe.redis.console.model.DcClusterTblDao;
 import com.ctrip.xpipe.redis.console.model.DcClusterTblEntity;
+import com.ctrip.xpipe.redis.console.model.RedisTbl;
+import com.ctrip.xpipe.redis.console.model.RedisTblDao;
+import com.ctrip.xpipe.redis.console.model.RedisTblEntity;
 import com.ctrip.xpipe.redis.console.model.SetinelTbl;
 import com.ctrip.xpipe.redis.console.model.SetinelTblDao;
 import com.ctrip.xpipe.redis.console.model.SetinelTblEntity;
@@ -46,6 +49,7 @@ public class ShardDao extends AbstractXpipeConsoleDAO{
 	private ShardTblDao shardTblDao;
 	private DcClusterShardTblDao dcClusterShardTblDao;
 	private SetinelTblDao setinelTblDao;
+	private RedisTblDao redisTblDao;
 	
 	@Autowired
 	private DcClusterShardDao dcClusterShardDao;
@@ -58,6 +62,7 @@ public class ShardDao extends AbstractXpipeConsoleDAO{
 			shardTblDao = ContainerLoader.getDefaultContainer().lookup(ShardTblDao.class);
 			dcClusterShardTblDao = ContainerLoader.getDefaultContainer().lookup(DcClusterShardTblDao.class);
 			setinelTblDao = ContainerLoader.getDefaultContainer().lookup(SetinelTblDao.class);
+			redisTblDao = ContainerLoader.getDefaultContainer().lookup(RedisTblDao.class);
 		} catch (ComponentLookupException e) {
 			throw new ServerException("Cannot construct dao.", e);
 		}
@@ -142,6 +147,48 @@ public class ShardDao extends AbstractXpipeConsoleDAO{
 		return shardTblDao.deleteShard(proto, ShardTblEntity.UPDATESET_FULL);
 	}
 	
+	/**
+	 * @return at most limit shards of the cluster named after lastShardName, ordered by name
+	 */
+	public List<ShardTbl> findShardsPage(final String clusterName, final String lastShardName, final int limit) {
+		final ClusterTbl cluster = queryHandler.handleQuery(new DalQuery<ClusterTbl>() {
+			@Override
+			public ClusterTbl doQuery() throws DalException {
+				return clusterTblDao.findClusterByClusterName(clusterName, ClusterTblEntity.READSET_FULL);
+			}
+		});
+		if(null == cluster) return new LinkedList<ShardTbl>();
+
+		return queryHandler.handleQuery(new DalQuery<List<ShardTbl>>() {
+			@Override
+			public List<ShardTbl> doQuery() throws DalException {
+				return shardTblDao.findShardsPage(cluster.getId(), null == lastShardName ? "" : lastShardName, limit,
+						ShardTblEntity.READSET_LIST);
+			}
+		});
+	}
+
+	/**
+	 * @return shard id -> redis role -> number of instances over all dcs, one grouped query
+	 */
+	public Map<Long, Map<String, Long>> countInstancesByShardIds(final List<Long> shardIds) {
+		Map<Long, Map<String, Long>> result = new HashMap<Long, Map<String, Long>>();
+		if(shardIds.isEmpty()) return result;
+		
+		List<RedisTbl> counts = queryHandler.handleQuery(new DalQuery<List<RedisTbl>>() {
+			@Override
+			public List<RedisTbl> doQuery() throws DalException {
+				return redisTblDao.countByShardIds(shardIds, RedisTblEntity.READSET_SHARD_ROLE_COUNT);
+			}
+		});
+		if(null != counts) {
+			for(RedisTbl count : counts) {
+				addRoleCount(result, count.getShardId(), count.getRedisRole(), count.getCount());
+			}
+		}
+		return result;
+	}
+	
 	private void validateShard(final String clusterName, ShardTbl shard) throws DalException {
 		// validate shard name
 		List<ShardTbl> shardNames = queryHandler.handleQuery(new DalQuery<List<ShardTbl>>(){
@@ -159,7 +206,7 @@ public class ShardDao extends AbstractXpipeConsoleDAO{
 		}
 	}
 	
-	private Map<Long, SetinelTbl> generateSetinelsMap() {
+	Map<Long, SetinelTbl> generateSetinelsMap() {
 		List<SetinelTbl> setinels = queryHandler.handleQuery(new DalQuery<List<SetinelTbl>>() {
 			@Override
 			public List<SetinelTbl> doQuery() throws DalException {
@@ -16,11 +16,15 @@ public class BaseInstanceResult<T> {
 		return rcvNanoTime.get() > 0;
 	}
 
-	public void done(long rcvNanoTime, T context) {
-		if (rcvNanoTime > 0) {
-			this.rcvNanoTime.set(rcvNanoTime);
+	/**
+	 * @return false if already done
+	 */
+	public boolean done(long rcvNanoTime, T context) {
+		if (rcvNanoTime > 0 && this.rcvNanoTime.compareAndSet(0, rcvNanoTime)) {
 			this.context = context;
+			return true;
 		}
+		return false;
 	}
 
 	public long calculateDelay(long publishNanoTime) {
@@ -1,20 +1,29 @@
 package com.ctrip.xpipe.redis.console.health;
 
-import java.util.Iterator;
-import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
-import com.ctrip.xpipe.redis.console.config.ConsoleConfig;
 import com.ctrip.xpipe.utils.XpipeThreadFactory;
 
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+
 /**
+ * samples are tracked in a hashed wheel timer: a sample is finished as soon as its last instance replies,
+ * or by its timeout when it expires, no scan over outstanding samples.<br/>
+ * collectors are notified in one thread, off the redis io threads
  * @author marsqing
  *
  *         Dec 6, 2016 5:02:16 PM
@@ -24,20 +33,47 @@ public abstract class BaseSampleMonitor<T extends BaseInstanceResult> {
 
 	private Logger log = LoggerFactory.getLogger(getClass());
 
-	@Autowired
-	private ConsoleConfig config;
+	private int timerTickMilli = Integer.parseInt(System.getProperty("SAMPLE_MONITOR_TIMER_TICK_MILLI", "10"));
+
+	private int timerTicksPerWheel = Integer.parseInt(System.getProperty("SAMPLE_MONITOR_TIMER_TICKS_PER_WHEEL", "512"));
+
+	protected int sampleExpireMilli = 2000;
 
 	@Autowired
 	private RedisSessionManager redisSessionManager;
 
 	protected ConcurrentMap<Long, Sample<T>> samples = new ConcurrentHashMap<>();
 
+	private Timer timer;
+
+	private ExecutorService notifyExecutor;
+
 	protected abstract void notifyCollectors(Sample<T> sample);
 
 	protected long recordSample(BaseSamplePlan<T> plan) {
+
 		long nanoTime = System.nanoTime();
-		samples.put(nanoTime, new Sample<>(System.currentTimeMillis(), nanoTime, plan, 2000));
-		return nanoTime;
+		Sample<T> sample = new Sample<>(System.currentTimeMillis(), nanoTime, plan, sampleExpireMilli);
+		// nanoTime identifies the sample, make it unique
+		while (samples.putIfAbsent(nanoTime, sample) != null) {
+			nanoTime++;
+			sample = new Sample<>(sample.getStartTime(), nanoTime, plan, sampleExpireMilli);
+		}
+
+		final long sampleId = nanoTime;
+		sample.setTimeout(timer.newTimeout(new TimerTask() {
+
+			@Override
+			public void run(Timeout timeout) throws Exception {
+				finishSample(sampleId);
+			}
+		}, sampleExpireMilli, TimeUnit.MILLISECONDS));
+
+		if (sample.isDone()) {
+			// no instance to wait for
+			finishSample(sampleId);
+		}
+		return sampleId;
 	}
 
 	protected RedisSession findRedisSession(String host, int port) {
@@ -46,50 +82,50 @@ public abstract class BaseSampleMonitor<T extends BaseInstanceResult> {
 
 	protected <C> void addInstanceResult(long nanoTime, String host, int port, C context) {
 		Sample<T> sample = samples.get(nanoTime);
-		if (sample != null) {
-			sample.addInstanceResult(host, port, context);
+		if (sample != null && sample.addInstanceResult(host, port, context)) {
+			finishSample(nanoTime);
 		}
 	}
 
-	@PostConstruct
-	public void scanSamples() {
-		XpipeThreadFactory.create("SampleMonitor-" + getClass().getSimpleName(), true).newThread(new Runnable() {
+	private void finishSample(long nanoTime) {
+
+		// removed exactly once, either by the last reply or by the timeout
+		final Sample<T> sample = samples.remove(nanoTime);
+		if (sample == null) {
+			return;
+		}
+		sample.cancelTimeout();
+
+		notifyExecutor.execute(new Runnable() {
 
 			@Override
 			public void run() {
-				while (!Thread.currentThread().isInterrupted()) {
-					try {
-						doScan();
-					} catch (Exception e) {
-						log.error("Unexpected error when scan", e);
-					} finally {
-						try {
-							Thread.sleep(config.getRedisReplicationHealthCheckInterval());
-						} catch (InterruptedException e) {
-							Thread.currentThread().interrupt();
-							break;
-						}
-					}
+				try {
+					notifyCollectors(sample);
+				} catch (Exception e) {
+					log.error("Exception caught from notified collectors", e);
 				}
 			}
+		});
+	}
 
-			private void doScan() {
-				Iterator<Entry<Long, Sample<T>>> iter = samples.entrySet().iterator();
+	@PostConstruct
+	public void postConstruct() {
 
-				while (iter.hasNext()) {
-					Sample<T> sample = iter.next().getValue();
+		String name = "SampleMonitor-" + getClass().getSimpleName();
+		timer = new HashedWheelTimer(XpipeThreadFactory.create(name + "-Timer", true), timerTickMilli,
+				TimeUnit.MILLISECONDS, timerTicksPerWheel);
+		notifyExecutor = Executors.newSingleThreadExecutor(XpipeThreadFactory.create(name, true));
+	}
 
-					if (sample.isDone() || sample.isExpired()) {
-						try {
-							notifyCollectors(sample);
-						} catch (Exception e) {
-							log.error("Exception caught from notified collectors", e);
-						}
-						iter.remove();
-					}
-				}
-			}
+	@PreDestroy
+	public void preDestroy() {
 
-		}).start();
+		if (timer != null) {
+			timer.stop();
+		}
+		if (notifyExecutor != null) {
+			notifyExecutor.shutdown();
+		}
 	}
 }
@@ -2,11 +2,16 @@ package com.ctrip.xpipe.redis.console.health;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
+import javax.annotation.PreDestroy;
+
 import org.springframework.stereotype.Component;
 
 import com.ctrip.xpipe.metric.HostPort;
+import com.ctrip.xpipe.utils.XpipeThreadFactory;
 import com.lambdaworks.redis.ClientOptions;
 import com.lambdaworks.redis.ClientOptions.DisconnectedBehavior;
 import com.lambdaworks.redis.RedisClient;
@@ -16,6 +21,7 @@ import com.lambdaworks.redis.resource.DefaultClientResources;
 import com.lambdaworks.redis.resource.Delay;
 
 /**
+ * one session per redis, sessions share client resources(event loops and timers)
  * @author marsqing
  *
  *         Dec 1, 2016 6:42:01 PM
@@ -27,6 +33,11 @@ public class DefaultRedisSessionManager implements RedisSessionManager {
 
 	private ClientResources clientResources;
 
+	// connects block up to the connect timeout, keep them away from threads of monitors
+	private ExecutorService connectExecutor = Executors.newFixedThreadPool(
+			Integer.parseInt(System.getProperty("REDIS_SESSION_CONNECT_THREADS", "8")),
+			XpipeThreadFactory.create("RedisSessionConnect", true));
+
 	public DefaultRedisSessionManager() {
 		// ClientResources better be shared among RedisClients
 		clientResources = DefaultClientResources.builder()//
@@ -43,7 +54,7 @@ public class DefaultRedisSessionManager implements RedisSessionManager {
 			synchronized (this) {
 				session = sessions.get(hostPort);
 				if (session == null) {
-					session = new RedisSession(findRedisConnection(host, port), hostPort);
+					session = new RedisSession(findRedisConnection(host, port), hostPort, connectExecutor);
 					sessions.put(hostPort, session);
 				}
 			}
@@ -52,6 +63,17 @@ public class DefaultRedisSessionManager implements RedisSessionManager {
 		return session;
 	}
 
+	@PreDestroy
+	public void destroy() {
+
+		for (RedisSession session : sessions.values()) {
+			session.close();
+		}
+		sessions.clear();
+		connectExecutor.shutdownNow();
+		clientResources.shutdown();
+	}
+
 	private RedisClient findRedisConnection(String host, int port) {
 		RedisURI redisUri = new RedisURI(host, port, 2, TimeUnit.SECONDS);
 
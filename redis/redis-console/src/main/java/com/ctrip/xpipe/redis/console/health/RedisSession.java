@@ -3,18 +3,24 @@ package com.ctrip.xpipe.redis.console.health;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.ctrip.xpipe.metric.HostPort;
 import com.lambdaworks.redis.RedisClient;
+import com.lambdaworks.redis.api.StatefulConnection;
 import com.lambdaworks.redis.api.StatefulRedisConnection;
 import com.lambdaworks.redis.pubsub.RedisPubSubListener;
 import com.lambdaworks.redis.pubsub.StatefulRedisPubSubConnection;
 
 /**
+ * at most two connections to a redis: one pub/sub connection shared by all subscribed channels,
+ * messages are dispatched to the listener of its channel; one connection for other commands
  * @author marsqing
  *
  *         Dec 1, 2016 2:28:43 PM
@@ -23,63 +29,269 @@ public class RedisSession {
 
 	private static Logger log = LoggerFactory.getLogger(RedisSession.class);
 
+	public static final long CONNECT_RETRY_INTERVAL_MILLI = Long.parseLong(System.getProperty("REDIS_SESSION_CONNECT_RETRY_INTERVAL_MILLI", "10000"));
+
 	private RedisClient redis;
 
 	private HostPort hostPort;
 
-	private ConcurrentMap<String, StatefulRedisPubSubConnection<String, String>> subscribConns = new ConcurrentHashMap<>();
+	private ConcurrentMap<String, RedisPubSubListener<String, String>> subscribeListeners = new ConcurrentHashMap<>();
+
+	private volatile CompletableFuture<StatefulRedisPubSubConnection<String, String>> subscribeConn;
+
+	private volatile CompletableFuture<StatefulRedisConnection<String, String>> nonSubscribeConn;
+
+	private volatile long subscribeConnectFailTime;
+
+	private volatile long nonSubscribeConnectFailTime;
 
-	private AtomicReference<StatefulRedisConnection<String, String>> nonSubscribeConn = new AtomicReference<>();
+	private volatile boolean closed = false;
 
-	public RedisSession(RedisClient redisClient, HostPort hostPort) {
+	private Executor connectExecutor;
+
+	public RedisSession(RedisClient redisClient, HostPort hostPort, Executor connectExecutor) {
 		this.redis = redisClient;
 		this.hostPort = hostPort;
+		this.connectExecutor = connectExecutor;
 	}
 
-	public synchronized void subscribeIfAbsent(String channel, RedisPubSubListener<String, String> listener) {
-		if (!subscribConns.containsKey(channel)) {
-			try {
-				StatefulRedisPubSubConnection<String, String> pubSub = redis.connectPubSub();
-				pubSub.addListener(listener);
-				pubSub.async().subscribe(channel);
-				subscribConns.put(channel, pubSub);
-			} catch (RuntimeException e) {
-				// connect* will throw exception if zk is down at first connect
-				log.warn("Error subscribe to redis {}", hostPort);
-			}
+	public synchronized void subscribeIfAbsent(final String channel, final RedisPubSubListener<String, String> listener) {
+		if (subscribeListeners.putIfAbsent(channel, listener) != null) {
+			return;
 		}
+
+		subscribeConnection().whenComplete(new BiConsumer<StatefulRedisPubSubConnection<String, String>, Throwable>() {
+
+			@Override
+			public void accept(StatefulRedisPubSubConnection<String, String> pubSub, Throwable th) {
+				if (th != null) {
+					// not connected, subscribe again next time
+					log.warn("Error subscribe to redis {}", hostPort);
+					subscribeListeners.remove(channel, listener);
+					return;
+				}
+				pubSub.async().subscribe(channel).toCompletableFuture().whenComplete(new BiConsumer<Void, Throwable>() {
+
+					@Override
+					public void accept(Void result, Throwable th) {
+						if (th != null) {
+							// not subscribed, so it will not be resubscribed on reconnect; subscribe again next time
+							log.warn("Error subscribe to redis {}, channel {}", hostPort, channel);
+							subscribeListeners.remove(channel, listener);
+						}
+					}
+				});
+			}
+		});
 	}
 
-	public synchronized void publish(String channel, String message) {
-		try {
-			findOrCreateNonSubscribeConnection().async().publish(channel, message);
-		} catch (RuntimeException e) {
-			// not connected, just ignore
-			log.warn("Error publish to redis {}", hostPort);
-		}
+	public void publish(final String channel, final String message) {
+		nonSubscribeConnection().whenComplete(new BiConsumer<StatefulRedisConnection<String, String>, Throwable>() {
+
+			@Override
+			public void accept(StatefulRedisConnection<String, String> conn, Throwable th) {
+				if (th != null) {
+					// not connected, just ignore
+					log.warn("Error publish to redis {}", hostPort);
+					return;
+				}
+				conn.async().publish(channel, message);
+			}
+		});
 	}
 
 	public void ping(final PingCallback callback) {
-		final CompletableFuture<String> future = findOrCreateNonSubscribeConnection().async().ping().toCompletableFuture();
-		future.thenRun(new Runnable() {
+		nonSubscribeConnection().whenComplete(new BiConsumer<StatefulRedisConnection<String, String>, Throwable>() {
 
 			@Override
-			public void run() {
-				if (future.isDone()) {
-					callback.pong(true, future.getNow(null));
-				} else {
+			public void accept(StatefulRedisConnection<String, String> conn, Throwable th) {
+				if (th != null) {
+					log.warn("Error ping redis {}, not connected", hostPort);
+					callback.pong(false, null);
+					return;
+				}
+				try {
+					conn.async().ping().toCompletableFuture().whenComplete(new BiConsumer<String, Throwable>() {
+
+						@Override
+						public void accept(String pong, Throwable th) {
+							if (th != null) {
+								log.warn("Error ping redis {}", hostPort);
+								callback.pong(false, null);
+							} else {
+								callback.pong(true, pong);
+							}
+						}
+					});
+				} catch (Exception e) {
+					log.warn("Error ping redis {}", hostPort, e);
 					callback.pong(false, null);
 				}
 			}
 		});
 	}
 
-	private StatefulRedisConnection<String, String> findOrCreateNonSubscribeConnection() {
-		if (nonSubscribeConn.get() == null) {
-			nonSubscribeConn.set(redis.connect());
+	public int connectionCount() {
+		return (connected(subscribeConn) ? 1 : 0) + (connected(nonSubscribeConn) ? 1 : 0);
+	}
+
+	public synchronized void close() {
+
+		closed = true;
+		subscribeListeners.clear();
+		closeWhenConnected(subscribeConn);
+		subscribeConn = null;
+		closeWhenConnected(nonSubscribeConn);
+		nonSubscribeConn = null;
+	}
+
+	private boolean connected(CompletableFuture<?> conn) {
+		return conn != null && conn.isDone() && !conn.isCompletedExceptionally();
+	}
+
+	private <T extends StatefulConnection<?, ?>> void closeWhenConnected(CompletableFuture<T> conn) {
+		if (conn != null) {
+			conn.thenAccept(new Consumer<T>() {
+
+				@Override
+				public void accept(T connection) {
+					connection.close();
+				}
+			});
+		}
+	}
+
+	/**
+	 * connections are created on the connect executor, callers never wait for a connect;
+	 * after a failed connect, the failure is returned until the retry interval passes
+	 */
+	private synchronized CompletableFuture<StatefulRedisPubSubConnection<String, String>> subscribeConnection() {
+
+		if (shouldConnect(subscribeConn, subscribeConnectFailTime)) {
+			subscribeConn = connect(new Supplier<StatefulRedisPubSubConnection<String, String>>() {
+
+				@Override
+				public StatefulRedisPubSubConnection<String, String> get() {
+					StatefulRedisPubSubConnection<String, String> pubSub = redis.connectPubSub();
+					pubSub.addListener(new ChannelDispatcher());
+					subscribeConnectFailTime = 0;
+					return pubSub;
+				}
+			}, new Runnable() {
+
+				@Override
+				public void run() {
+					subscribeConnectFailTime = System.currentTimeMillis();
+				}
+			});
+		}
+		return subscribeConn;
+	}
+
+	private synchronized CompletableFuture<StatefulRedisConnection<String, String>> nonSubscribeConnection() {
+
+		if (shouldConnect(nonSubscribeConn, nonSubscribeConnectFailTime)) {
+			nonSubscribeConn = connect(new Supplier<StatefulRedisConnection<String, String>>() {
+
+				@Override
+				public StatefulRedisConnection<String, String> get() {
+					StatefulRedisConnection<String, String> conn = redis.connect();
+					nonSubscribeConnectFailTime = 0;
+					return conn;
+				}
+			}, new Runnable() {
+
+				@Override
+				public void run() {
+					nonSubscribeConnectFailTime = System.currentTimeMillis();
+				}
+			});
+		}
+		return nonSubscribeConn;
+	}
+
+	private boolean shouldConnect(CompletableFuture<?> conn, long failTime) {
+
+		if (closed) {
+			return false;
+		}
+		if (conn == null) {
+			return true;
+		}
+		return conn.isCompletedExceptionally() && System.currentTimeMillis() - failTime >= CONNECT_RETRY_INTERVAL_MILLI;
+	}
+
+	private <T extends StatefulConnection<?, ?>> CompletableFuture<T> connect(final Supplier<T> connector, final Runnable onFail) {
+
+		final CompletableFuture<T> future = new CompletableFuture<>();
+		try {
+			connectExecutor.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						T conn = connector.get();
+						if (closed) {
+							conn.close();
+							future.completeExceptionally(new IllegalStateException("session closed " + hostPort));
+							return;
+						}
+						future.complete(conn);
+					} catch (RuntimeException e) {
+						// connect* will throw exception if redis is down at first connect
+						onFail.run();
+						future.completeExceptionally(e);
+					}
+				}
+			});
+		} catch (RuntimeException e) {
+			onFail.run();
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	private class ChannelDispatcher implements RedisPubSubListener<String, String> {
+
+		@Override
+		public void message(String channel, String message) {
+			RedisPubSubListener<String, String> listener = subscribeListeners.get(channel);
+			if (listener != null) {
+				listener.message(channel, message);
+			}
+		}
+
+		@Override
+		public void message(String pattern, String channel, String message) {
+			RedisPubSubListener<String, String> listener = subscribeListeners.get(channel);
+			if (listener != null) {
+				listener.message(pattern, channel, message);
+			}
+		}
+
+		@Override
+		public void subscribed(String channel, long count) {
+			RedisPubSubListener<String, String> listener = subscribeListeners.get(channel);
+			if (listener != null) {
+				listener.subscribed(channel, count);
+			}
+		}
+
+		@Override
+		public void psubscribed(String pattern, long count) {
 		}
 
-		return nonSubscribeConn.get();
+		@Override
+		public void unsubscribed(String channel, long count) {
+			RedisPubSubListener<String, String> listener = subscribeListeners.get(channel);
+			if (listener != null) {
+				listener.unsubscribed(channel, count);
+			}
+		}
+
+		@Override
+		public void punsubscribed(String pattern, long count) {
+		}
 	}
 
 }
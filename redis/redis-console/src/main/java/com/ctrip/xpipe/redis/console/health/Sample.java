@@ -4,6 +4,8 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import com.ctrip.xpipe.metric.HostPort;
 
+import io.netty.util.Timeout;
+
 /**
  * @author marsqing
  *
@@ -17,6 +19,7 @@ public class Sample<T extends BaseInstanceResult> {
 	private BaseSamplePlan<T> samplePlan;
 	private long startNanoTime;
 	private AtomicInteger remainingRedisCount;
+	private volatile Timeout timeout;
 
 	public Sample(long startTime, long startNanoTime, BaseSamplePlan<T> samplePlan, int expireDelayMillis) {
 		this.startTime = startTime;
@@ -26,13 +29,27 @@ public class Sample<T extends BaseInstanceResult> {
 		remainingRedisCount = new AtomicInteger(samplePlan.getHostPort2SampleResult().size());
 	}
 
+	/**
+	 * @return true if this result is the last one of the sample
+	 */
 	@SuppressWarnings("unchecked")
-	public <C> void addInstanceResult(String host, int port, C context) {
+	public <C> boolean addInstanceResult(String host, int port, C context) {
 		BaseInstanceResult<C> instanceResult = samplePlan.findInstanceResult(new HostPort(host, port));
 
-		if (instanceResult != null && !instanceResult.isDone()) {
-			instanceResult.done(System.nanoTime(), context);
-			remainingRedisCount.decrementAndGet();
+		if (instanceResult != null && instanceResult.done(System.nanoTime(), context)) {
+			return remainingRedisCount.decrementAndGet() == 0;
+		}
+		return false;
+	}
+
+	public void setTimeout(Timeout timeout) {
+		this.timeout = timeout;
+	}
+
+	public void cancelTimeout() {
+		Timeout current = timeout;
+		if (current != null) {
+			current.cancel();
 		}
 	}
 
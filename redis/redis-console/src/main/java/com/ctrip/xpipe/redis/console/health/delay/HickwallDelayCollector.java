@@ -1,8 +1,14 @@
 package com.ctrip.xpipe.redis.console.health.delay;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,6 +21,8 @@ import com.ctrip.xpipe.metric.MetricProxy;
 import com.ctrip.xpipe.utils.ServicesUtil;
 
 /**
+ * metric name and tags of every instance are built once and shared by all its points.<br/>
+ * they are dropped when the instance is no longer sampled with its shard, or the shard is not sampled for a while
  * @author marsqing
  *
  *         Dec 2, 2016 4:39:39 PM
@@ -24,22 +32,35 @@ public class HickwallDelayCollector implements DelayCollector {
 
 	private static Logger log = LoggerFactory.getLogger(HickwallDelayCollector.class);
 
+	private static final Map<String, String> META = buildMeta();
+
+	public static final long SHARD_IDLE_MILLI = Long.parseLong(System.getProperty("HICKWALL_DELAY_SHARD_IDLE_MILLI", "600000"));
+
 	private MetricProxy proxy = ServicesUtil.getMetricProxy();
 
+	private ConcurrentMap<HostPort, InstanceMetric> instanceMetrics = new ConcurrentHashMap<>();
+
+	private ConcurrentMap<String, ShardInstances> shardInstances = new ConcurrentHashMap<>();
+
+	private long shardIdleMilli = SHARD_IDLE_MILLI;
+
+	private volatile long lastEvictIdleTime = System.currentTimeMillis();
+
 	@Override
 	public void collect(DelaySampleResult result) {
-		String metricNamePrefix = toMetricNamePrefix(result);
 
 		try {
+			evictRemoved(result);
+			evictIdleShards();
+
 			MetricBinMultiDataPoint bmp = new MetricBinMultiDataPoint();
+			long timestamp = System.currentTimeMillis() * 1000000;
 
 			for (Entry<HostPort, Long> entry : result.getSlaveHostPort2Delay().entrySet()) {
-				String metricName = metricNamePrefix + "." + entry.getKey().getHost() + "." + entry.getKey().getPort();
-				addPoint(bmp, metricName, entry.getValue(), result);
+				addPoint(bmp, instanceMetric(entry.getKey(), result), entry.getValue(), timestamp);
 			}
 
-			HostPort masterHostPort = result.getMasterHostPort();
-			addPoint(bmp, metricNamePrefix + "." + masterHostPort.getHost() + "." + masterHostPort.getPort(), result.getMasterDelayNanos(), result);
+			addPoint(bmp, instanceMetric(result.getMasterHostPort(), result), result.getMasterDelayNanos(), timestamp);
 
 			proxy.writeBinMultiDataPoint(bmp);
 		} catch (Exception e) {
@@ -47,28 +68,138 @@ public class HickwallDelayCollector implements DelayCollector {
 		}
 	}
 
-	private void addPoint(MetricBinMultiDataPoint bmp, String metricName, long value, DelaySampleResult result) throws Exception {
+	private void addPoint(MetricBinMultiDataPoint bmp, InstanceMetric instanceMetric, long value, long timestamp) throws Exception {
 		MetricDataPoint dataPoint = new MetricDataPoint();
-		dataPoint.setMetric(metricName);
+		dataPoint.setMetric(instanceMetric.metricName);
 		dataPoint.setValue(value / 1000);
-		dataPoint.setTimestamp(System.currentTimeMillis() * 1000000);
+		dataPoint.setTimestamp(timestamp);
+		dataPoint.setTags(instanceMetric.tags);
+		dataPoint.setMeta(META);
+
+		bmp.addToPoints(dataPoint);
+	}
+
+	private InstanceMetric instanceMetric(HostPort hostPort, DelaySampleResult result) {
+
+		InstanceMetric instanceMetric = instanceMetrics.get(hostPort);
+		if (instanceMetric == null || !instanceMetric.belongsTo(result.getClusterId(), result.getShardId())) {
+			// new instance, or instance moved to another shard
+			instanceMetric = new InstanceMetric(hostPort, result.getClusterId(), result.getShardId());
+			instanceMetrics.put(hostPort, instanceMetric);
+		}
+		return instanceMetric;
+	}
+
+	/**
+	 * instances sampled with the shard last time but not this time are removed from the shard
+	 */
+	private void evictRemoved(DelaySampleResult result) {
+
+		Set<HostPort> current = new HashSet<>(result.getSlaveHostPort2Delay().keySet());
+		current.add(result.getMasterHostPort());
+
+		ShardInstances previous = shardInstances.put(shardKey(result.getClusterId(), result.getShardId()), 
+				new ShardInstances(result.getClusterId(), result.getShardId(), current, System.currentTimeMillis()));
+		if (previous == null) {
+			return;
+		}
+		for (HostPort hostPort : previous.hostPorts) {
+			if (!current.contains(hostPort)) {
+				removeInstanceMetric(hostPort, previous.clusterId, previous.shardId);
+			}
+		}
+	}
+
+	private void evictIdleShards() {
+
+		long current = System.currentTimeMillis();
+		if (current - lastEvictIdleTime < shardIdleMilli) {
+			return;
+		}
+		lastEvictIdleTime = current;
+
+		Iterator<ShardInstances> iterator = shardInstances.values().iterator();
+		while (iterator.hasNext()) {
+			ShardInstances shard = iterator.next();
+			if (current - shard.lastCollectTime < shardIdleMilli) {
+				continue;
+			}
+			iterator.remove();
+			for (HostPort hostPort : shard.hostPorts) {
+				removeInstanceMetric(hostPort, shard.clusterId, shard.shardId);
+			}
+		}
+	}
+
+	private void removeInstanceMetric(HostPort hostPort, String clusterId, String shardId) {
+
+		InstanceMetric instanceMetric = instanceMetrics.get(hostPort);
+		if (instanceMetric != null && instanceMetric.belongsTo(clusterId, shardId)) {
+			// instance moved to another shard is kept
+			instanceMetrics.remove(hostPort, instanceMetric);
+		}
+	}
+
+	// for test only
+	int instanceMetricCount() {
+		return instanceMetrics.size();
+	}
+
+	private static String shardKey(String clusterId, String shardId) {
+		return clusterId + "." + shardId;
+	}
 
-		Map<String, String> tags = new HashMap<>();
-		tags.put("cluster", result.getClusterId());
-		tags.put("shard", result.getShardId());
-		dataPoint.setTags(tags);
+	private static Map<String, String> buildMeta() {
 
 		Map<String, String> meta = new HashMap<>();
 		meta.put("stype", "fx");
 		meta.put("dtype", "float64");
 		meta.put("interval", "15s"); // one dot every 15 seconds
-		dataPoint.setMeta(meta);
+		return Collections.unmodifiableMap(meta);
+	}
 
-		bmp.addToPoints(dataPoint);
+	private static class ShardInstances {
+
+		private final String clusterId;
+
+		private final String shardId;
+
+		private final Set<HostPort> hostPorts;
+
+		private final long lastCollectTime;
+
+		public ShardInstances(String clusterId, String shardId, Set<HostPort> hostPorts, long lastCollectTime) {
+			this.clusterId = clusterId;
+			this.shardId = shardId;
+			this.hostPorts = hostPorts;
+			this.lastCollectTime = lastCollectTime;
+		}
 	}
 
-	private String toMetricNamePrefix(DelaySampleResult result) {
-		return "fx.xpipe.delay." + result.getClusterId() + "." + result.getShardId();
+	private static class InstanceMetric {
+
+		private final String clusterId;
+
+		private final String shardId;
+
+		private final String metricName;
+
+		private final Map<String, String> tags;
+
+		public InstanceMetric(HostPort hostPort, String clusterId, String shardId) {
+			this.clusterId = clusterId;
+			this.shardId = shardId;
+			this.metricName = "fx.xpipe.delay." + clusterId + "." + shardId + "." + hostPort.getHost() + "." + hostPort.getPort();
+
+			Map<String, String> tags = new HashMap<>();
+			tags.put("cluster", clusterId);
+			tags.put("shard", shardId);
+			this.tags = Collections.unmodifiableMap(tags);
+		}
+
+		public boolean belongsTo(String clusterId, String shardId) {
+			return this.clusterId.equals(clusterId) && this.shardId.equals(shardId);
+		}
 	}
 
 }
@@ -0,0 +1,201 @@
+package com.ctrip.xpipe.redis.console.health.history;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.ctrip.xpipe.metric.HostPort;
+import com.ctrip.xpipe.redis.console.config.ConsoleConfig;
+import com.ctrip.xpipe.redis.console.health.delay.DefaultDelayMonitor;
+import com.ctrip.xpipe.redis.console.health.delay.DelayCollector;
+import com.ctrip.xpipe.redis.console.health.delay.DelaySampleResult;
+import com.ctrip.xpipe.redis.console.health.ping.PingCollector;
+import com.ctrip.xpipe.redis.console.health.ping.PingSampleResult;
+
+/**
+ * delay and ping share the memory budget half and half; a ping is recorded as 0 if pong, else lost.
+ * delay samples lost are recorded as lost, whether the redis pongs or not
+ * @author wenchao.meng
+ *
+ * Jan 25, 2017
+ */
+@Component
+public class DefaultHealthHistoryService implements HealthHistoryService, DelayCollector, PingCollector {
+
+	private int secondSlots = Integer.parseInt(System.getProperty("HEALTH_HISTORY_SECOND_SLOTS", "720"));
+
+	private int minuteSlots = Integer.parseInt(System.getProperty("HEALTH_HISTORY_MINUTE_SLOTS", "180"));
+
+	private int hourSlots = Integer.parseInt(System.getProperty("HEALTH_HISTORY_HOUR_SLOTS", "72"));
+
+	private int unhealthyShardsLimit = Integer.parseInt(System.getProperty("HEALTH_HISTORY_UNHEALTHY_SHARDS_LIMIT", "1000"));
+
+	private long delayThresholdMicros = Long.parseLong(System.getProperty("HEALTH_HISTORY_DELAY_THRESHOLD_MICROS", "2000000"));
+
+	@Autowired
+	private ConsoleConfig config;
+
+	private HealthHistoryStore delayHistory;
+
+	private HealthHistoryStore pingHistory;
+
+	@PostConstruct
+	public void postConstruct() {
+
+		long budget = (long) config.getHealthHistoryMemoryMb() * 1024 * 1024 / 2;
+		delayHistory = new HealthHistoryStore("delay", budget, secondSlots, minuteSlots, hourSlots);
+		pingHistory = new HealthHistoryStore("ping", budget, secondSlots, minuteSlots, hourSlots);
+	}
+
+	@Override
+	public void collect(DelaySampleResult result) {
+
+		long time = result.getSampleStartTime();
+		for (Entry<HostPort, Long> entry : result.getSlaveHostPort2Delay().entrySet()) {
+			delayHistory.record(entry.getKey(), result.getClusterId(), result.getShardId(), time, delayMicros(entry.getValue()));
+		}
+		if (result.getMasterHostPort() != null) {
+			delayHistory.record(result.getMasterHostPort(), result.getClusterId(), result.getShardId(), time,
+					delayMicros(result.getMasterDelayNanos()));
+		}
+	}
+
+	private long delayMicros(long delayNanos) {
+
+		if (delayNanos < 0 || delayNanos == DefaultDelayMonitor.SAMPLE_LOST_BUT_PONG) {
+			return LatencyBuckets.LOST_VALUE;
+		}
+		return delayNanos / 1000;
+	}
+
+	@Override
+	public void collect(PingSampleResult result) {
+
+		long time = System.currentTimeMillis();
+		for (Entry<HostPort, Boolean> entry : result.getSlaveHostPort2Pong().entrySet()) {
+			pingHistory.record(entry.getKey(), result.getClusterId(), result.getShardId(), time,
+					entry.getValue() ? 0 : LatencyBuckets.LOST_VALUE);
+		}
+	}
+
+	@Override
+	public List<ShardLatency> worstDelayShards(int windowSeconds, double percentile, int limit) {
+		return delayHistory.worstShards(System.currentTimeMillis(), windowSeconds, percentile, limit);
+	}
+
+	@Override
+	public List<HistoryPoint> delayHistory(HostPort hostPort, Resolution resolution, int windowSeconds) {
+		return history(delayHistory, hostPort, resolution, windowSeconds);
+	}
+
+	@Override
+	public List<ShardLatency> worstPingShards(int windowSeconds, double percentile, int limit) {
+		return pingHistory.worstShards(System.currentTimeMillis(), windowSeconds, percentile, limit);
+	}
+
+	@Override
+	public List<HistoryPoint> pingHistory(HostPort hostPort, Resolution resolution, int windowSeconds) {
+		return history(pingHistory, hostPort, resolution, windowSeconds);
+	}
+
+	@Override
+	public Map<String, Map<String, HealthState>> unhealthyShards(int windowSeconds) {
+
+		Map<String, Map<String, HealthState>> result = new HashMap<>();
+		// worst first, stop at the first healthy one; down if most pings are lost
+		for (ShardLatency shard : worstPingShards(windowSeconds, 50, unhealthyShardsLimit)) {
+			if (shard.getLatency() != LatencyBuckets.LOST_VALUE) {
+				break;
+			}
+			addState(result, shard, HealthState.DOWN);
+		}
+		for (ShardLatency shard : worstDelayShards(windowSeconds, 99, unhealthyShardsLimit)) {
+			if (shard.getLatency() == LatencyBuckets.LOST_VALUE) {
+				addState(result, shard, HealthState.DOWN);
+			} else if (shard.getLatency() > delayThresholdMicros) {
+				addState(result, shard, HealthState.DELAYED);
+			} else {
+				break;
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public Map<String, HealthState> shardStates(String clusterId, Collection<String> shardIds, int windowSeconds) {
+
+		Map<String, HealthState> states = sampledShardStates(clusterId, windowSeconds);
+		Map<String, HealthState> result = new HashMap<>();
+		for (String shardId : shardIds) {
+			HealthState state = states.get(shardId);
+			result.put(shardId, state == null ? HealthState.UNKNOWN : state);
+		}
+		return result;
+	}
+
+	@Override
+	public Map<String, HealthState> clusterStates(Collection<String> clusterIds, int windowSeconds) {
+
+		Map<String, HealthState> result = new HashMap<>();
+		for (String clusterId : clusterIds) {
+			HealthState clusterState = null;
+			for (HealthState state : sampledShardStates(clusterId, windowSeconds).values()) {
+				clusterState = state.worse(clusterState);
+			}
+			result.put(clusterId, clusterState == null ? HealthState.UNKNOWN : clusterState);
+		}
+		return result;
+	}
+
+	/**
+	 * same rules as unhealthyShards: down if most pings are lost, delayed if p99 delay exceeds the threshold
+	 */
+	private Map<String, HealthState> sampledShardStates(String clusterId, int windowSeconds) {
+
+		long now = System.currentTimeMillis();
+		Map<String, HealthState> result = new HashMap<>();
+		for (Entry<String, Integer> entry : pingHistory.shardBuckets(clusterId, now, windowSeconds, 50).entrySet()) {
+			boolean lost = LatencyBuckets.value(entry.getValue()) == LatencyBuckets.LOST_VALUE;
+			result.put(entry.getKey(), lost ? HealthState.DOWN : HealthState.HEALTHY);
+		}
+		for (Entry<String, Integer> entry : delayHistory.shardBuckets(clusterId, now, windowSeconds, 99).entrySet()) {
+			long latency = LatencyBuckets.value(entry.getValue());
+			HealthState state = HealthState.HEALTHY;
+			if (latency == LatencyBuckets.LOST_VALUE) {
+				state = HealthState.DOWN;
+			} else if (latency > delayThresholdMicros) {
+				state = HealthState.DELAYED;
+			}
+			result.put(entry.getKey(), state.worse(result.get(entry.getKey())));
+		}
+		return result;
+	}
+
+	private void addState(Map<String, Map<String, HealthState>> result, ShardLatency shard, HealthState state) {
+
+		Map<String, HealthState> shards = result.get(shard.getClusterId());
+		if (shards == null) {
+			shards = new HashMap<>();
+			result.put(shard.getClusterId(), shards);
+		}
+		HealthState previous = shards.get(shard.getShardId());
+		shards.put(shard.getShardId(), state.worse(previous));
+	}
+
+	private List<HistoryPoint> history(HealthHistoryStore store, HostPort hostPort, Resolution resolution, int windowSeconds) {
+
+		if (resolution == null) {
+			resolution = store.resolutionFor(windowSeconds);
+		}
+		long now = System.currentTimeMillis();
+		return store.history(hostPort, resolution, now - windowSeconds * 1000L, now);
+	}
+
+}
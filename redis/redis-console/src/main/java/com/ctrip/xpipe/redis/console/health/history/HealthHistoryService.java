@@ -0,0 +1,44 @@
+package com.ctrip.xpipe.redis.console.health.history;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import com.ctrip.xpipe.metric.HostPort;
+
+/**
+ * recent delay and ping history kept in console memory
+ * @author wenchao.meng
+ *
+ * Jan 25, 2017
+ */
+public interface HealthHistoryService {
+
+	List<ShardLatency> worstDelayShards(int windowSeconds, double percentile, int limit);
+
+	/**
+	 * @param resolution null for the finest one covering the window
+	 */
+	List<HistoryPoint> delayHistory(HostPort hostPort, Resolution resolution, int windowSeconds);
+
+	List<ShardLatency> worstPingShards(int windowSeconds, double percentile, int limit);
+
+	List<HistoryPoint> pingHistory(HostPort hostPort, Resolution resolution, int windowSeconds);
+
+	/**
+	 * @return cluster id -> shard id -> state, shards not included are healthy or not sampled
+	 */
+	Map<String, Map<String, HealthState>> unhealthyShards(int windowSeconds);
+
+	/**
+	 * only instances of the given shards are looked at
+	 * @return shard id -> state for every given shard, UNKNOWN if not sampled in the window
+	 */
+	Map<String, HealthState> shardStates(String clusterId, Collection<String> shardIds, int windowSeconds);
+
+	/**
+	 * @return cluster id -> worst state of its sampled shards for every given cluster, UNKNOWN if none sampled
+	 */
+	Map<String, HealthState> clusterStates(Collection<String> clusterIds, int windowSeconds);
+
+}
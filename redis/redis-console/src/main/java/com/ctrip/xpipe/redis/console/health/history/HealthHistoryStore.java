@@ -0,0 +1,304 @@
+package com.ctrip.xpipe.redis.console.health.history;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ctrip.xpipe.metric.HostPort;
+
+/**
+ * in memory latency history of redis instances.<br/>
+ * memory is bounded by the budget: every instance takes a fixed size, instances beyond the budget are not recorded
+ * unless idle ones can be evicted.<br/>
+ * windows covered by the second ring are answered exactly (to bucket precision) by merging instances of a shard,
+ * longer windows are answered from rollups: worst per minute or per hour rank of the shard's instances.
+ * @author wenchao.meng
+ *
+ * Jan 25, 2017
+ */
+public class HealthHistoryStore {
+
+	private static Logger logger = LoggerFactory.getLogger(HealthHistoryStore.class);
+
+	private static final long EVICT_INTERVAL_MILLI = 60 * 1000;
+
+	private static final Comparator<ShardLatency> BY_BUCKET = new Comparator<ShardLatency>() {
+
+		@Override
+		public int compare(ShardLatency o1, ShardLatency o2) {
+			return Integer.compare(o1.getBucket(), o2.getBucket());
+		}
+	};
+
+	private final String name;
+
+	private final int secondSlots;
+
+	private final int minuteSlots;
+
+	private final int hourSlots;
+
+	private final int maxInstances;
+
+	private ConcurrentMap<HostPort, InstanceHistory> histories = new ConcurrentHashMap<>();
+
+	// cluster id -> instances of the cluster, so a cluster is looked up without scanning all instances
+	private ConcurrentMap<String, Set<InstanceHistory>> clusterIndex = new ConcurrentHashMap<>();
+
+	private AtomicLong rejected = new AtomicLong();
+
+	private volatile long lastEvictTime;
+
+	public HealthHistoryStore(String name, long memoryBudgetBytes, int secondSlots, int minuteSlots, int hourSlots) {
+		this.name = name;
+		this.secondSlots = secondSlots;
+		this.minuteSlots = minuteSlots;
+		this.hourSlots = hourSlots;
+		this.maxInstances = (int) Math.min(Integer.MAX_VALUE,
+				memoryBudgetBytes / InstanceHistory.estimatedBytes(secondSlots, minuteSlots, hourSlots));
+		logger.info("[HealthHistoryStore]{}, budget:{} bytes, max instances:{}", name, memoryBudgetBytes, maxInstances);
+	}
+
+	/**
+	 * @param latencyMicros negative means lost
+	 */
+	public void record(HostPort hostPort, String clusterId, String shardId, long timeMilli, long latencyMicros) {
+
+		InstanceHistory history = histories.get(hostPort);
+		if (history == null) {
+			if (histories.size() >= maxInstances && !evictIdle(timeMilli)) {
+				if (rejected.incrementAndGet() % 1000 == 1) {
+					logger.warn("[record][memory budget exceeded, not recorded]{}, instances:{}, rejected:{}", name,
+							histories.size(), rejected.get());
+				}
+				return;
+			}
+			history = new InstanceHistory(secondSlots, minuteSlots, hourSlots);
+			InstanceHistory previous = histories.putIfAbsent(hostPort, history);
+			if (previous != null) {
+				history = previous;
+			}
+		}
+		String previousClusterId = history.getClusterId();
+		history.setShard(clusterId, shardId);
+		if (!clusterId.equals(previousClusterId)) {
+			unindex(previousClusterId, history);
+			index(clusterId, history);
+		}
+		history.record(timeMilli / 1000, LatencyBuckets.bucket(latencyMicros));
+	}
+
+	/**
+	 * @return shard id -> bucket of the percentile, shards of the cluster without data in the window are not included
+	 */
+	public Map<String, Integer> shardBuckets(String clusterId, long nowMilli, int windowSeconds, double percentile) {
+
+		Map<String, Integer> result = new HashMap<>();
+		Set<InstanceHistory> instances = clusterIndex.get(clusterId);
+		if (instances == null) {
+			return result;
+		}
+
+		Map<String, List<InstanceHistory>> shards = new HashMap<>();
+		for (InstanceHistory history : instances) {
+			if (!clusterId.equals(history.getClusterId())) {
+				continue;
+			}
+			List<InstanceHistory> shardInstances = shards.get(history.getShardId());
+			if (shardInstances == null) {
+				shardInstances = new LinkedList<>();
+				shards.put(history.getShardId(), shardInstances);
+			}
+			shardInstances.add(history);
+		}
+
+		long toSecond = nowMilli / 1000;
+		long fromSecond = toSecond - windowSeconds + 1;
+		Resolution resolution = resolutionFor(windowSeconds);
+		RollupRing.Rank rank = RollupRing.Rank.of(percentile);
+		int[] histogram = new int[LatencyBuckets.BUCKET_COUNT];
+		for (Map.Entry<String, List<InstanceHistory>> entry : shards.entrySet()) {
+			int bucket = shardBucket(entry.getValue(), resolution, fromSecond, toSecond, percentile, rank, histogram);
+			if (bucket != LatencyBuckets.EMPTY) {
+				result.put(entry.getKey(), bucket);
+			}
+		}
+		return result;
+	}
+
+	public List<ShardLatency> worstShards(long nowMilli, int windowSeconds, double percentile, int limit) {
+
+		if (limit <= 0) {
+			return new LinkedList<>();
+		}
+
+		long toSecond = nowMilli / 1000;
+		long fromSecond = toSecond - windowSeconds + 1;
+
+		Map<String, List<InstanceHistory>> shards = new HashMap<>();
+		for (InstanceHistory history : histories.values()) {
+			String shardKey = history.getShardKey();
+			if (shardKey == null) {
+				continue;
+			}
+			List<InstanceHistory> instances = shards.get(shardKey);
+			if (instances == null) {
+				instances = new LinkedList<>();
+				shards.put(shardKey, instances);
+			}
+			instances.add(history);
+		}
+
+		PriorityQueue<ShardLatency> worst = new PriorityQueue<>(limit + 1, BY_BUCKET);
+
+		Resolution resolution = resolutionFor(windowSeconds);
+		RollupRing.Rank rank = RollupRing.Rank.of(percentile);
+		int[] histogram = new int[LatencyBuckets.BUCKET_COUNT];
+		for (List<InstanceHistory> instances : shards.values()) {
+
+			int bucket = shardBucket(instances, resolution, fromSecond, toSecond, percentile, rank, histogram);
+			if (bucket == LatencyBuckets.EMPTY) {
+				continue;
+			}
+
+			if (worst.size() < limit || bucket > worst.peek().getBucket()) {
+				InstanceHistory first = instances.get(0);
+				worst.offer(new ShardLatency(first.getClusterId(), first.getShardId(), bucket));
+				if (worst.size() > limit) {
+					worst.poll();
+				}
+			}
+		}
+
+		List<ShardLatency> result = new LinkedList<>(worst);
+		Collections.sort(result, Collections.reverseOrder(BY_BUCKET));
+		return result;
+	}
+
+	/**
+	 * @param histogram all zero, left all zero
+	 */
+	private int shardBucket(List<InstanceHistory> instances, Resolution resolution, long fromSecond, long toSecond,
+			double percentile, RollupRing.Rank rank, int[] histogram) {
+
+		int bucket = LatencyBuckets.EMPTY;
+		if (resolution == Resolution.SECOND) {
+			long total = 0;
+			for (InstanceHistory history : instances) {
+				total += history.addSeconds(fromSecond, toSecond, histogram);
+			}
+			bucket = LatencyBuckets.percentile(histogram, total, percentile);
+			if (total > 0) {
+				Arrays.fill(histogram, 0);
+			}
+		} else {
+			for (InstanceHistory history : instances) {
+				bucket = Math.max(bucket, history.worst(resolution, fromSecond, toSecond, rank));
+			}
+		}
+		return bucket;
+	}
+
+	private void index(String clusterId, InstanceHistory history) {
+
+		Set<InstanceHistory> instances = clusterIndex.get(clusterId);
+		if (instances == null) {
+			clusterIndex.putIfAbsent(clusterId, Collections.newSetFromMap(new ConcurrentHashMap<InstanceHistory, Boolean>()));
+			instances = clusterIndex.get(clusterId);
+		}
+		instances.add(history);
+	}
+
+	private void unindex(String clusterId, InstanceHistory history) {
+
+		if (clusterId == null) {
+			return;
+		}
+		Set<InstanceHistory> instances = clusterIndex.get(clusterId);
+		if (instances != null) {
+			instances.remove(history);
+		}
+	}
+
+	public List<HistoryPoint> history(HostPort hostPort, Resolution resolution, long fromMilli, long toMilli) {
+
+		InstanceHistory history = histories.get(hostPort);
+		if (history == null) {
+			return new LinkedList<>();
+		}
+		return history.points(resolution, fromMilli / 1000, toMilli / 1000);
+	}
+
+	/**
+	 * the finest resolution covering the window
+	 */
+	public Resolution resolutionFor(int windowSeconds) {
+
+		if (windowSeconds <= secondSlots) {
+			return Resolution.SECOND;
+		}
+		if (windowSeconds <= minuteSlots * Resolution.MINUTE.getSeconds()) {
+			return Resolution.MINUTE;
+		}
+		return Resolution.HOUR;
+	}
+
+	/**
+	 * instances without data for longer than minute rollups keep are evicted, at most once a minute
+	 * @return true if there is room for new instances
+	 */
+	private boolean evictIdle(long nowMilli) {
+
+		if (nowMilli - lastEvictTime >= EVICT_INTERVAL_MILLI) {
+			lastEvictTime = nowMilli;
+
+			long idleBefore = nowMilli / 1000 - (long) minuteSlots * Resolution.MINUTE.getSeconds();
+			int evicted = 0;
+			Iterator<InstanceHistory> iterator = histories.values().iterator();
+			while (iterator.hasNext()) {
+				InstanceHistory history = iterator.next();
+				if (history.getLastSecond() < idleBefore) {
+					iterator.remove();
+					unindex(history.getClusterId(), history);
+					evicted++;
+				}
+			}
+			logger.info("[evictIdle]{}, evicted:{}, instances:{}", name, evicted, histories.size());
+		}
+		return histories.size() < maxInstances;
+	}
+
+	public void remove(HostPort hostPort) {
+
+		InstanceHistory history = histories.remove(hostPort);
+		if (history != null) {
+			unindex(history.getClusterId(), history);
+		}
+	}
+
+	public int size() {
+		return histories.size();
+	}
+
+	public int getMaxInstances() {
+		return maxInstances;
+	}
+
+	public long getRejected() {
+		return rejected.get();
+	}
+
+}
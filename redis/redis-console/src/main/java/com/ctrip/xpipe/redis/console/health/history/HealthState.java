@@ -0,0 +1,24 @@
+package com.ctrip.xpipe.redis.console.health.history;
+
+/**
+ * ordered by severity
+ * @author wenchao.meng
+ *
+ * Jan 29, 2017
+ */
+public enum HealthState {
+
+	HEALTHY,
+
+	// not sampled in the window
+	UNKNOWN,
+
+	DELAYED,
+
+	DOWN;
+
+	public HealthState worse(HealthState other) {
+		return other != null && other.ordinal() > ordinal() ? other : this;
+	}
+
+}
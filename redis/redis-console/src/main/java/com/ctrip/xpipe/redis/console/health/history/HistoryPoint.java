@@ -0,0 +1,57 @@
+package com.ctrip.xpipe.redis.console.health.history;
+
+/**
+ * latencies are in micros, -1 means lost
+ * @author wenchao.meng
+ *
+ * Jan 25, 2017
+ */
+public class HistoryPoint {
+
+	private long time;
+
+	private int count;
+
+	private long p50;
+
+	private long p99;
+
+	private long max;
+
+	public HistoryPoint() {
+	}
+
+	public HistoryPoint(long time, int count, long p50, long p99, long max) {
+		this.time = time;
+		this.count = count;
+		this.p50 = p50;
+		this.p99 = p99;
+		this.max = max;
+	}
+
+	public long getTime() {
+		return time;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public long getP50() {
+		return p50;
+	}
+
+	public long getP99() {
+		return p99;
+	}
+
+	public long getMax() {
+		return max;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("time:%d, count:%d, p50:%d, p99:%d, max:%d", time, count, p50, p99, max);
+	}
+
+}
@@ -0,0 +1,129 @@
+package com.ctrip.xpipe.redis.console.health.history;
+
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * latency history of one redis: a ring of one bucket per second, rolled up into minutes and hours
+ * @author wenchao.meng
+ *
+ * Jan 25, 2017
+ */
+class InstanceHistory {
+
+	private volatile String clusterId;
+
+	private volatile String shardId;
+
+	private volatile String shardKey;
+
+	private final byte[] seconds;
+
+	private volatile long lastSecond = -1;
+
+	private final RollupRing minutes;
+
+	private final RollupRing hours;
+
+	public InstanceHistory(int secondSlots, int minuteSlots, int hourSlots) {
+		this.seconds = new byte[secondSlots];
+		this.minutes = new RollupRing(Resolution.MINUTE, minuteSlots);
+		this.hours = new RollupRing(Resolution.HOUR, hourSlots);
+	}
+
+	public static long estimatedBytes(int secondSlots, int minuteSlots, int hourSlots) {
+		// arrays, plus objects and map entry
+		return secondSlots + RollupRing.estimatedBytes(minuteSlots) + RollupRing.estimatedBytes(hourSlots) + 256;
+	}
+
+	public void setShard(String clusterId, String shardId) {
+
+		if (clusterId.equals(this.clusterId) && shardId.equals(this.shardId)) {
+			return;
+		}
+		this.clusterId = clusterId;
+		this.shardId = shardId;
+		this.shardKey = clusterId + " " + shardId;
+	}
+
+	public synchronized void record(long second, int bucket) {
+
+		if (lastSecond >= 0 && second <= lastSecond - seconds.length) {
+			return;
+		}
+		if (second > lastSecond) {
+			// clear seconds skipped without data
+			for (long skipped = Math.max(lastSecond + 1, second - seconds.length + 1); skipped <= second; skipped++) {
+				seconds[index(skipped)] = LatencyBuckets.EMPTY;
+			}
+			lastSecond = second;
+		}
+		int index = index(second);
+		// the worst one if more than one in a second
+		seconds[index] = (byte) Math.max(seconds[index] & 0xff, bucket);
+		minutes.add(second, bucket);
+		hours.add(second, bucket);
+	}
+
+	/**
+	 * @return number of seconds added
+	 */
+	public synchronized int addSeconds(long fromSecond, long toSecond, int[] histogram) {
+
+		int added = 0;
+		for (long second = Math.max(fromSecond, lastSecond - seconds.length + 1); second <= Math.min(toSecond, lastSecond); second++) {
+			int bucket = seconds[index(second)] & 0xff;
+			if (bucket != LatencyBuckets.EMPTY) {
+				histogram[bucket]++;
+				added++;
+			}
+		}
+		return added;
+	}
+
+	public synchronized int worst(Resolution resolution, long fromSecond, long toSecond, RollupRing.Rank rank) {
+		return rollup(resolution).worst(fromSecond, toSecond, rank);
+	}
+
+	public synchronized List<HistoryPoint> points(Resolution resolution, long fromSecond, long toSecond) {
+
+		List<HistoryPoint> points = new LinkedList<>();
+		if (resolution != Resolution.SECOND) {
+			rollup(resolution).points(fromSecond, toSecond, points);
+			return points;
+		}
+		for (long second = Math.max(fromSecond, lastSecond - seconds.length + 1); second <= Math.min(toSecond, lastSecond); second++) {
+			int bucket = seconds[index(second)] & 0xff;
+			if (bucket != LatencyBuckets.EMPTY) {
+				long value = LatencyBuckets.value(bucket);
+				points.add(new HistoryPoint(second * 1000, 1, value, value, value));
+			}
+		}
+		return points;
+	}
+
+	private RollupRing rollup(Resolution resolution) {
+		return resolution == Resolution.HOUR ? hours : minutes;
+	}
+
+	private int index(long second) {
+		return (int) (second % seconds.length);
+	}
+
+	public String getClusterId() {
+		return clusterId;
+	}
+
+	public String getShardId() {
+		return shardId;
+	}
+
+	public String getShardKey() {
+		return shardKey;
+	}
+
+	public long getLastSecond() {
+		return lastSecond;
+	}
+
+}
@@ -0,0 +1,83 @@
+package com.ctrip.xpipe.redis.console.health.history;
+
+/**
+ * hdr style log-linear buckets: 8 sub buckets per power of two, at most 12.5% error,
+ * a latency fits in one byte. bucket order is severity order, lost is the worst.
+ * @author wenchao.meng
+ *
+ * Jan 25, 2017
+ */
+public final class LatencyBuckets {
+
+	public static final int EMPTY = 0;
+
+	public static final int LOST = 255;
+
+	public static final int BUCKET_COUNT = 256;
+
+	public static final long LOST_VALUE = -1;
+
+	private static final int SUB_BUCKET_BITS = 3;
+
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	private static final int MAX_VALUE_BUCKET = LOST - 1;
+
+	private LatencyBuckets() {
+	}
+
+	/**
+	 * @param micros negative means lost
+	 */
+	public static int bucket(long micros) {
+
+		if (micros < 0) {
+			return LOST;
+		}
+		if (micros < SUB_BUCKETS) {
+			return 1 + (int) micros;
+		}
+		int msb = 63 - Long.numberOfLeadingZeros(micros);
+		int octave = msb - SUB_BUCKET_BITS + 1;
+		int sub = (int) (micros >>> (msb - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return Math.min(1 + octave * SUB_BUCKETS + sub, MAX_VALUE_BUCKET);
+	}
+
+	/**
+	 * @return highest latency of the bucket in micros, {@link #LOST_VALUE} for lost or empty
+	 */
+	public static long value(int bucket) {
+
+		if (bucket == EMPTY || bucket == LOST) {
+			return LOST_VALUE;
+		}
+		int index = bucket - 1;
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int shift = index / SUB_BUCKETS - 1;
+		int sub = index % SUB_BUCKETS;
+		return ((long) (SUB_BUCKETS + sub) << shift) + (1L << shift) - 1;
+	}
+
+	/**
+	 * @param histogram count of every bucket
+	 * @return bucket at the percentile, {@link #EMPTY} if no data
+	 */
+	public static int percentile(int[] histogram, long total, double percentile) {
+
+		if (total <= 0) {
+			return EMPTY;
+		}
+		long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+		long seen = 0;
+		for (int bucket = 1; bucket < BUCKET_COUNT; bucket++) {
+			seen += histogram[bucket];
+			if (seen >= rank) {
+				return bucket;
+			}
+		}
+		return LOST;
+	}
+
+}
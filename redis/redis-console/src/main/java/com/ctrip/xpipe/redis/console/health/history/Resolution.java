@@ -0,0 +1,26 @@
+package com.ctrip.xpipe.redis.console.health.history;
+
+/**
+ * @author wenchao.meng
+ *
+ * Jan 25, 2017
+ */
+public enum Resolution {
+
+	SECOND(1), MINUTE(60), HOUR(3600);
+
+	private final int seconds;
+
+	private Resolution(int seconds) {
+		this.seconds = seconds;
+	}
+
+	public int getSeconds() {
+		return seconds;
+	}
+
+	public long unitOf(long second) {
+		return second / seconds;
+	}
+
+}
@@ -0,0 +1,168 @@
+package com.ctrip.xpipe.redis.console.health.history;
+
+import java.util.List;
+
+/**
+ * ring of per minute or per hour summaries: count, p50, p99 and max bucket.<br/>
+ * the open unit is accumulated in a sparse histogram and written to the ring when the next unit begins
+ * @author wenchao.meng
+ *
+ * Jan 25, 2017
+ */
+class RollupRing {
+
+	public static enum Rank {
+
+		P50, P99, MAX;
+
+		/**
+		 * @return the smallest stored rank not lower than percentile
+		 */
+		public static Rank of(double percentile) {
+			if (percentile <= 50) {
+				return P50;
+			}
+			if (percentile <= 99) {
+				return P99;
+			}
+			return MAX;
+		}
+	}
+
+	private final Resolution resolution;
+
+	private final short[] counts;
+
+	private final byte[] p50s;
+
+	private final byte[] p99s;
+
+	private final byte[] maxs;
+
+	private long last = -1;
+
+	private long currentUnit = -1;
+
+	private final SparseHistogram current = new SparseHistogram();
+
+	public RollupRing(Resolution resolution, int slots) {
+		this.resolution = resolution;
+		this.counts = new short[slots];
+		this.p50s = new byte[slots];
+		this.p99s = new byte[slots];
+		this.maxs = new byte[slots];
+	}
+
+	public static long estimatedBytes(int slots) {
+		return 5L * slots + 128;
+	}
+
+	public void add(long second, int bucket) {
+
+		long unit = resolution.unitOf(second);
+		if (unit > currentUnit) {
+			flush();
+			currentUnit = unit;
+		}
+		if (unit == currentUnit) {
+			current.add(bucket);
+		}
+		// older ones are already rolled up, only kept in finer resolution
+	}
+
+	public int worst(long fromSecond, long toSecond, Rank rank) {
+
+		long fromUnit = resolution.unitOf(fromSecond);
+		long toUnit = resolution.unitOf(toSecond);
+
+		int worst = LatencyBuckets.EMPTY;
+		if (currentUnit >= fromUnit && currentUnit <= toUnit && current.total() > 0) {
+			worst = rankOf(current, rank);
+		}
+		for (long unit = Math.max(fromUnit, last - counts.length + 1); unit <= Math.min(toUnit, last); unit++) {
+			int index = index(unit);
+			if (counts[index] > 0) {
+				worst = Math.max(worst, rankOf(index, rank));
+			}
+		}
+		return worst;
+	}
+
+	public void points(long fromSecond, long toSecond, List<HistoryPoint> points) {
+
+		long fromUnit = resolution.unitOf(fromSecond);
+		long toUnit = resolution.unitOf(toSecond);
+
+		for (long unit = Math.max(fromUnit, last - counts.length + 1); unit <= Math.min(toUnit, last); unit++) {
+			int index = index(unit);
+			if (counts[index] > 0) {
+				points.add(new HistoryPoint(unit * resolution.getSeconds() * 1000, counts[index], value(p50s[index]),
+						value(p99s[index]), value(maxs[index])));
+			}
+		}
+		if (currentUnit >= fromUnit && currentUnit <= toUnit && current.total() > 0) {
+			points.add(new HistoryPoint(currentUnit * resolution.getSeconds() * 1000, current.total(),
+					LatencyBuckets.value(current.percentile(50)), LatencyBuckets.value(current.percentile(99)),
+					LatencyBuckets.value(current.max())));
+		}
+	}
+
+	private void flush() {
+
+		if (current.total() == 0) {
+			return;
+		}
+		advance(currentUnit);
+		int index = index(currentUnit);
+		counts[index] = (short) Math.min(current.total(), Short.MAX_VALUE);
+		p50s[index] = (byte) current.percentile(50);
+		p99s[index] = (byte) current.percentile(99);
+		maxs[index] = (byte) current.max();
+		current.reset();
+	}
+
+	private void advance(long unit) {
+
+		if (unit <= last) {
+			return;
+		}
+		// clear units skipped without data
+		for (long skipped = Math.max(last + 1, unit - counts.length + 1); skipped <= unit; skipped++) {
+			counts[index(skipped)] = 0;
+		}
+		last = unit;
+	}
+
+	private int rankOf(SparseHistogram histogram, Rank rank) {
+
+		switch (rank) {
+			case P50:
+				return histogram.percentile(50);
+			case P99:
+				return histogram.percentile(99);
+			default:
+				return histogram.max();
+		}
+	}
+
+	private int rankOf(int index, Rank rank) {
+
+		switch (rank) {
+			case P50:
+				return p50s[index] & 0xff;
+			case P99:
+				return p99s[index] & 0xff;
+			default:
+				return maxs[index] & 0xff;
+		}
+	}
+
+	private long value(byte bucket) {
+		return LatencyBuckets.value(bucket & 0xff);
+	}
+
+	private int index(long unit) {
+		return (int) (unit % counts.length);
+	}
+
+}
@@ -0,0 +1,52 @@
+package com.ctrip.xpipe.redis.console.health.history;
+
+/**
+ * @author wenchao.meng
+ *
+ * Jan 25, 2017
+ */
+public class ShardLatency {
+
+	private String clusterId;
+
+	private String shardId;
+
+	/**
+	 * micros, -1 means lost
+	 */
+	private long latency;
+
+	private int bucket;
+
+	public ShardLatency() {
+	}
+
+	public ShardLatency(String clusterId, String shardId, int bucket) {
+		this.clusterId = clusterId;
+		this.shardId = shardId;
+		this.bucket = bucket;
+		this.latency = LatencyBuckets.value(bucket);
+	}
+
+	public String getClusterId() {
+		return clusterId;
+	}
+
+	public String getShardId() {
+		return shardId;
+	}
+
+	public long getLatency() {
+		return latency;
+	}
+
+	int getBucket() {
+		return bucket;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s %s: %d", clusterId, shardId, latency);
+	}
+
+}
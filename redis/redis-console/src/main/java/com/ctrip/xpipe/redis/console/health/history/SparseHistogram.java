@@ -0,0 +1,70 @@
+package com.ctrip.xpipe.redis.console.health.history;
+
+import java.util.Arrays;
+
+/**
+ * counts of the buckets seen, sorted by bucket; latencies of an instance fall into a few buckets,
+ * so it stays much smaller than a full histogram
+ * @author wenchao.meng
+ *
+ * Jan 25, 2017
+ */
+class SparseHistogram {
+
+	private int[] buckets = new int[4];
+
+	private int[] counts = new int[4];
+
+	private int size;
+
+	private int total;
+
+	public void add(int bucket) {
+
+		int index = Arrays.binarySearch(buckets, 0, size, bucket);
+		if (index < 0) {
+			index = -index - 1;
+			if (size == buckets.length) {
+				buckets = Arrays.copyOf(buckets, size * 2);
+				counts = Arrays.copyOf(counts, size * 2);
+			}
+			System.arraycopy(buckets, index, buckets, index + 1, size - index);
+			System.arraycopy(counts, index, counts, index + 1, size - index);
+			buckets[index] = bucket;
+			counts[index] = 0;
+			size++;
+		}
+		counts[index]++;
+		total++;
+	}
+
+	public int total() {
+		return total;
+	}
+
+	public int percentile(double percentile) {
+
+		if (total == 0) {
+			return LatencyBuckets.EMPTY;
+		}
+		long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+		long seen = 0;
+		for (int i = 0; i < size; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return buckets[i];
+			}
+		}
+		return buckets[size - 1];
+	}
+
+	public int max() {
+		return size == 0 ? LatencyBuckets.EMPTY : buckets[size - 1];
+	}
+
+	public void reset() {
+		size = 0;
+		total = 0;
+	}
+
+}
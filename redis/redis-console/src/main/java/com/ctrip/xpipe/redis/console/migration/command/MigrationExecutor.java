@@ -0,0 +1,185 @@
+package com.ctrip.xpipe.redis.console.migration.command;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ctrip.xpipe.api.command.CommandFuture;
+import com.ctrip.xpipe.api.command.CommandFutureListener;
+import com.ctrip.xpipe.utils.XpipeThreadFactory;
+
+/**
+ * console wide executor of migrations, the number of threads stays the same whatever the number of migrations.<br/>
+ * tasks bound to a dc run at most dcConcurrency at once, the others wait in the queue of the dc without holding a thread
+ * @author wenchao.meng
+ *
+ * Jan 29, 2017
+ */
+public class MigrationExecutor {
+
+	public static final MigrationExecutor DEFAULT = new MigrationExecutor(
+			Integer.parseInt(System.getProperty("MIGRATION_EXECUTOR_THREADS", "32")),
+			Integer.parseInt(System.getProperty("MIGRATION_EXECUTOR_DC_CONCURRENCY", "8")));
+
+	private Logger logger = LoggerFactory.getLogger(getClass());
+
+	private int dcConcurrency;
+
+	private ExecutorService executors;
+
+	private ConcurrentMap<String, DcQueue> dcQueues = new ConcurrentHashMap<>();
+
+	public MigrationExecutor(int threads, int dcConcurrency) {
+		this.dcConcurrency = dcConcurrency;
+		this.executors = Executors.newFixedThreadPool(threads, XpipeThreadFactory.create("MigrationExecutor", true));
+	}
+
+	public void execute(Runnable task) {
+		executors.execute(new LogExceptionTask(task));
+	}
+
+	public void execute(String dc, final Runnable task) {
+		submit(dc, new Callable<CommandFuture<?>>() {
+
+			@Override
+			public CommandFuture<?> call() throws Exception {
+				task.run();
+				return null;
+			}
+
+			@Override
+			public String toString() {
+				return task.toString();
+			}
+		});
+	}
+
+	/**
+	 * the slot of the dc is held until the returned future completes, so remote calls in flight are bounded as well
+	 */
+	public void submit(String dc, Callable<CommandFuture<?>> task) {
+		DcQueue dcQueue = dcQueues.get(dc);
+		if (dcQueue == null) {
+			dcQueues.putIfAbsent(dc, new DcQueue());
+			dcQueue = dcQueues.get(dc);
+		}
+		dcQueue.offer(task);
+	}
+
+	/**
+	 * tasks not started by the pool yet are run by the caller, so waiting from a thread of the pool never deadlocks
+	 */
+	public <T> List<T> invokeAll(List<Callable<T>> tasks) throws InterruptedException, ExecutionException {
+		List<FutureTask<T>> futures = new LinkedList<>();
+		for (Callable<T> task : tasks) {
+			FutureTask<T> future = new FutureTask<>(task);
+			futures.add(future);
+			executors.execute(future);
+		}
+
+		List<T> result = new LinkedList<>();
+		for (FutureTask<T> future : futures) {
+			future.run();
+			result.add(future.get());
+		}
+		return result;
+	}
+
+	public void shutdown() {
+		executors.shutdownNow();
+	}
+
+	private class DcQueue {
+
+		private Queue<Callable<CommandFuture<?>>> pending = new ConcurrentLinkedQueue<>();
+
+		private AtomicInteger running = new AtomicInteger();
+
+		public void offer(Callable<CommandFuture<?>> task) {
+			pending.offer(task);
+			drain();
+		}
+
+		private void drain() {
+			while (!pending.isEmpty()) {
+				int current = running.get();
+				if (current >= dcConcurrency) {
+					// a running task drains again when done
+					return;
+				}
+				if (!running.compareAndSet(current, current + 1)) {
+					continue;
+				}
+
+				final Callable<CommandFuture<?>> task = pending.poll();
+				if (task == null) {
+					running.decrementAndGet();
+					continue;
+				}
+				executors.execute(new Runnable() {
+
+					@Override
+					public void run() {
+						CommandFuture<?> future = null;
+						try {
+							future = task.call();
+						} catch (Exception e) {
+							logger.error("[run]{}", task, e);
+						}
+
+						if (future == null) {
+							done();
+							return;
+						}
+						addDoneListener(future);
+					}
+				});
+			}
+		}
+
+		private <V> void addDoneListener(CommandFuture<V> future) {
+			future.addListener(new CommandFutureListener<V>() {
+
+				@Override
+				public void operationComplete(CommandFuture<V> commandFuture) throws Exception {
+					done();
+				}
+			});
+		}
+
+		private void done() {
+			running.decrementAndGet();
+			drain();
+		}
+	}
+
+	private class LogExceptionTask implements Runnable {
+
+		private Runnable task;
+
+		public LogExceptionTask(Runnable task) {
+			this.task = task;
+		}
+
+		@Override
+		public void run() {
+			try {
+				task.run();
+			} catch (Exception e) {
+				logger.error("[run]{}", task, e);
+			}
+		}
+	}
+}
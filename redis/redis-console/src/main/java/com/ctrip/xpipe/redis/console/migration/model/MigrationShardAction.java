@@ -1,12 +1,15 @@
 package com.ctrip.xpipe.redis.console.migration.model;
 
+import com.ctrip.xpipe.api.command.CommandFuture;
+import com.ctrip.xpipe.redis.core.metaserver.MetaServerConsoleService.PrimaryDcCheckMessage;
+
 /**
  * @author shyin
  *
  * Dec 8, 2016
  */
 public interface MigrationShardAction {
-    void doCheck();
+    CommandFuture<PrimaryDcCheckMessage> doCheck();
     void doMigrate();
 
 }
@@ -7,6 +7,7 @@ import com.ctrip.xpipe.api.observer.Observable;
 import com.ctrip.xpipe.observer.AbstractObservable;
 import com.ctrip.xpipe.redis.console.migration.command.MigrationCommandBuilder;
 import com.ctrip.xpipe.redis.console.migration.command.MigrationCommandBuilderImpl;
+import com.ctrip.xpipe.redis.console.migration.command.MigrationExecutor;
 import com.ctrip.xpipe.redis.console.migration.command.result.ShardMigrationResult;
 import com.ctrip.xpipe.redis.console.migration.command.result.ShardMigrationResult.ShardMigrationResultStatus;
 import com.ctrip.xpipe.redis.console.migration.command.result.ShardMigrationResult.ShardMigrationStep;
@@ -50,6 +51,8 @@ public class DefaultMigrationShard extends AbstractObservable implements Migrati
 
 	private MigrationCommandBuilder commandBuilder;
 
+	private MigrationExecutor migrationExecutor = MigrationExecutor.DEFAULT;
+
 	public DefaultMigrationShard(MigrationCluster parent, MigrationShardTbl migrationShard, ShardTbl currentShard,Map<Long, DcTbl> dcs,
 			MigrationService migrationService) {
 		this(parent, migrationShard, currentShard, dcs, migrationService, MigrationCommandBuilderImpl.INSTANCE);
@@ -97,7 +100,7 @@ public class DefaultMigrationShard extends AbstractObservable implements Migrati
 	}
 	
 	@Override
-	public void doCheck() {
+	public CommandFuture<PrimaryDcCheckMessage> doCheck() {
 		String cluster = parent.getCurrentCluster().getClusterName();
 		String shard = currentShard.getShardName();
 		String newPrimaryDc = dcs.get(parent.getMigrationCluster().getDestinationDcId()).getDcName();
@@ -123,36 +126,56 @@ public class DefaultMigrationShard extends AbstractObservable implements Migrati
 				notifyObservers(this);
 			}
 		});
+		return checkResult;
 	}
 	
 	@Override
 	public void doMigrate() {
-		String cluster = parent.getCurrentCluster().getClusterName();
-		String shard = currentShard.getShardName();
-		String newPrimaryDc = dcs.get(parent.getMigrationCluster().getDestinationDcId()).getDcName();
+		final String cluster = parent.getCurrentCluster().getClusterName();
+		final String shard = currentShard.getShardName();
+		final String newPrimaryDc = dcs.get(parent.getMigrationCluster().getDestinationDcId()).getDcName();
 		String prevPrimaryDc = dcs.get(parent.getCurrentCluster().getActivedcId()).getDcName();
 		
 		logger.info("[doMigrate]{}-{}, {}->{}", cluster, shard, prevPrimaryDc, newPrimaryDc);
+		// steps are chained by listeners, no thread waits for meta servers
 		try {
-			doPrevPrimaryDcMigrate(cluster, shard, prevPrimaryDc, newPrimaryDc).get();
-		} catch (InterruptedException | ExecutionException e) {
+			doPrevPrimaryDcMigrate(cluster, shard, prevPrimaryDc, newPrimaryDc).addListener(new CommandFutureListener<PrimaryDcChangeMessage>() {
+				@Override
+				public void operationComplete(CommandFuture<PrimaryDcChangeMessage> commandFuture) throws Exception {
+					// result of previous primary dc is ignored
+					doNewPrimaryDcMigrateThenOthers(cluster, shard, newPrimaryDc);
+				}
+			});
+		} catch (Exception e) {
+			logger.error("[doMigrate][prev primary dc]", e);
 			shardMigrationResult.updateStepResult(ShardMigrationStep.MIGRATE_PREVIOUS_PRIMARY_DC, true, "Ignore:" + e.getMessage());
+			doNewPrimaryDcMigrateThenOthers(cluster, shard, newPrimaryDc);
 		}
-		
+	}
+	
+	private void doNewPrimaryDcMigrateThenOthers(final String cluster, final String shard, final String newPrimaryDc) {
 		try {
-			doNewPrimaryDcMigrate(cluster, shard, newPrimaryDc).get();
-			
-			if(shardMigrationResult.stepSuccess(ShardMigrationStep.MIGRATE_NEW_PRIMARY_DC)) {
-				for(DcTbl dc : dcs.values()) {
-					if(!(dc.getDcName().equals(newPrimaryDc))) {
-						doOtherDcMigrate(cluster, shard, dc.getDcName(), newPrimaryDc);
+			doNewPrimaryDcMigrate(cluster, shard, newPrimaryDc).addListener(new CommandFutureListener<PrimaryDcChangeMessage>() {
+				@Override
+				public void operationComplete(CommandFuture<PrimaryDcChangeMessage> commandFuture) throws Exception {
+					if(shardMigrationResult.stepSuccess(ShardMigrationStep.MIGRATE_NEW_PRIMARY_DC)) {
+						for(DcTbl dc : dcs.values()) {
+							if(!(dc.getDcName().equals(newPrimaryDc))) {
+								doOtherDcMigrate(cluster, shard, dc.getDcName(), newPrimaryDc);
+							}
+						}
 					}
+					migrateDone();
 				}
-			}
-		} catch (InterruptedException | ExecutionException e) {
+			});
+		} catch (Exception e) {
+			logger.error("[doMigrate][new primary dc]", e);
 			shardMigrationResult.updateStepResult(ShardMigrationStep.MIGRATE_NEW_PRIMARY_DC, false, e.getMessage());
+			migrateDone();
 		}
-		
+	}
+	
+	private void migrateDone() {
 		if(shardMigrationResult.stepSuccess(ShardMigrationStep.MIGRATE_NEW_PRIMARY_DC)) {
 			shardMigrationResult.updateStepResult(ShardMigrationStep.MIGRATE, true, "Success");
 			shardMigrationResult.setStatus(ShardMigrationResultStatus.SUCCESS);
@@ -233,7 +256,7 @@ public class DefaultMigrationShard extends AbstractObservable implements Migrati
 	}
 	
 	private void updateRedisMaster(final String ip, final int port) {
-		new Thread(new Runnable() {
+		migrationExecutor.execute(new Runnable() {
 			@Override
 			public void run() {
 				List<RedisTbl> toUpdate = new LinkedList<>();
@@ -260,6 +283,6 @@ public class DefaultMigrationShard extends AbstractObservable implements Migrati
 				parent.getRedisService().batchUpdate(toUpdate);
 				
 			}
-		}).start();
+		});
 	}
 }
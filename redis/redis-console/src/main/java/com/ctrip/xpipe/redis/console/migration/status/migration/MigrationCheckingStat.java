@@ -1,14 +1,15 @@
 package com.ctrip.xpipe.redis.console.migration.status.migration;
 
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Callable;
 
+import com.ctrip.xpipe.api.command.CommandFuture;
+import com.ctrip.xpipe.redis.console.migration.command.MigrationExecutor;
 import com.ctrip.xpipe.redis.console.migration.command.result.ShardMigrationResult.ShardMigrationStep;
 import com.ctrip.xpipe.redis.console.migration.model.MigrationCluster;
 import com.ctrip.xpipe.redis.console.migration.model.MigrationShard;
+import com.ctrip.xpipe.redis.console.model.DcTbl;
 import com.ctrip.xpipe.redis.console.model.MigrationClusterTbl;
-import com.ctrip.xpipe.utils.XpipeThreadFactory;
 
 /**
  * @author shyin
@@ -17,14 +18,11 @@ import com.ctrip.xpipe.utils.XpipeThreadFactory;
  */
 public class MigrationCheckingStat extends AbstractMigrationStat {
 
-	private ExecutorService fixedThreadPool;
+	private MigrationExecutor migrationExecutor = MigrationExecutor.DEFAULT;
 
 	public MigrationCheckingStat(MigrationCluster holder) {
 		super(holder, MigrationStatus.Checking);
 		this.setNextAfterSuccess(new MigrationMigratingStat(getHolder())).setNextAfterFail(this);
-
-		int threadSize = holder.getMigrationShards().size() == 0 ? 1 : holder.getMigrationShards().size();
-		fixedThreadPool = Executors.newFixedThreadPool(threadSize, XpipeThreadFactory.create("MigrationChecking"));
 	}
 
 	@Override
@@ -37,12 +35,16 @@ public class MigrationCheckingStat extends AbstractMigrationStat {
 		migrationClusterTbl.setStatus(MigrationStatus.Checking.toString());
 		getHolder().getMigrationService().updateMigrationCluster(migrationClusterTbl);
 
+		// checks go to the meta server of the new primary dc, bounded per dc
+		DcTbl destinationDc = migrationCluster.getClusterDcs().get(migrationClusterTbl.getDestinationDcId());
+		String dcName = null == destinationDc ? String.valueOf(migrationClusterTbl.getDestinationDcId()) : destinationDc.getDcName();
 		for (final MigrationShard migrationShard : migrationShards) {
-			fixedThreadPool.submit(new Runnable() {
+			// the slot of the dc is held until meta server answers
+			migrationExecutor.submit(dcName, new Callable<CommandFuture<?>>() {
 
 				@Override
-				public void run() {
-					migrationShard.doCheck();
+				public CommandFuture<?> call() throws Exception {
+					return migrationShard.doCheck();
 				}
 			});
 		}
@@ -1,15 +1,12 @@
 package com.ctrip.xpipe.redis.console.migration.status.migration;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-
 import com.ctrip.xpipe.redis.console.annotation.DalTransaction;
+import com.ctrip.xpipe.redis.console.migration.command.MigrationExecutor;
 import com.ctrip.xpipe.redis.console.migration.model.MigrationCluster;
 import com.ctrip.xpipe.redis.console.migration.model.MigrationShard;
 import com.ctrip.xpipe.redis.console.migration.status.cluster.ClusterStatus;
 import com.ctrip.xpipe.redis.console.model.ClusterTbl;
 import com.ctrip.xpipe.redis.console.model.MigrationClusterTbl;
-import com.ctrip.xpipe.utils.XpipeThreadFactory;
 
 /**
  * @author shyin
@@ -18,16 +15,12 @@ import com.ctrip.xpipe.utils.XpipeThreadFactory;
  */
 public class MigrationMigratingStat extends AbstractMigrationMigratingStat {
 
-	private ExecutorService fixedThreadPool;
+	private MigrationExecutor migrationExecutor = MigrationExecutor.DEFAULT;
 	
 	public MigrationMigratingStat(MigrationCluster holder) {
 		super(holder, MigrationStatus.Migrating);
 		this.setNextAfterSuccess(new MigrationPublishStat(getHolder()))
 			.setNextAfterFail(new MigrationPartialSuccessStat(getHolder()));
-		
-		int threadSize = holder.getMigrationShards().size() == 0 ? 1 : holder.getMigrationShards().size();
-		fixedThreadPool = Executors.newFixedThreadPool(threadSize, 
-					XpipeThreadFactory.create("MigrationMigrating"));
 	}
 
 	@Override
@@ -35,7 +28,7 @@ public class MigrationMigratingStat extends AbstractMigrationMigratingStat {
 		updateDB();
 		
 		for(final MigrationShard shard : getHolder().getMigrationShards()) {
-			fixedThreadPool.submit(new Runnable() {
+			migrationExecutor.execute(new Runnable() {
 				
 				@Override
 				public void run() {
@@ -4,10 +4,13 @@ import java.net.InetSocketAddress;
 import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 import com.ctrip.xpipe.api.migration.MigrationPublishService;
 import com.ctrip.xpipe.api.migration.MigrationPublishService.MigrationPublishResult;
 import com.ctrip.xpipe.redis.console.annotation.DalTransaction;
+import com.ctrip.xpipe.redis.console.migration.command.MigrationExecutor;
 import com.ctrip.xpipe.redis.console.migration.model.MigrationCluster;
 import com.ctrip.xpipe.redis.console.migration.status.cluster.ClusterStatus;
 import com.ctrip.xpipe.redis.console.model.ClusterTbl;
@@ -24,6 +27,8 @@ public class MigrationPublishStat extends AbstractMigrationStat {
 	
 	private MigrationPublishService publishService = MigrationPublishService.DEFAULT;
 	
+	private MigrationExecutor migrationExecutor = MigrationExecutor.DEFAULT;
+	
 	public MigrationPublishStat(MigrationCluster holder) {
 		super(holder, MigrationStatus.Publish);
 		this.setNextAfterSuccess(new MigrationSuccessStat(getHolder()))
@@ -62,14 +67,30 @@ public class MigrationPublishStat extends AbstractMigrationStat {
 	}
 	
 	private boolean publish() {
-		String cluster = getHolder().getCurrentCluster().getClusterName();
-		String newPrimaryDc = getHolder().getClusterDcs().get(getHolder().getMigrationCluster().getDestinationDcId()).getDcName();
+		final String cluster = getHolder().getCurrentCluster().getClusterName();
+		final String newPrimaryDc = getHolder().getClusterDcs().get(getHolder().getMigrationCluster().getDestinationDcId()).getDcName();
+		
+		// shards are looked up in parallel, not one after another
+		List<Callable<InetSocketAddress>> lookups = new LinkedList<>();
+		for(final ShardTbl shard : getHolder().getClusterShards().values()) {
+			lookups.add(new Callable<InetSocketAddress>() {
+				@Override
+				public InetSocketAddress call() throws Exception {
+					return getMasterAddress(getHolder().getRedisService().findAllByDcClusterShard(newPrimaryDc, cluster, shard.getShardName()));
+				}
+			});
+		}
+		
 		List<InetSocketAddress> newMasters = new LinkedList<>();
-		for(ShardTbl shard : getHolder().getClusterShards().values()) {
-			InetSocketAddress addr = getMasterAddress(getHolder().getRedisService().findAllByDcClusterShard(newPrimaryDc, cluster, shard.getShardName()));
-			if(null != addr) {
-				newMasters.add(addr);
+		try {
+			for(InetSocketAddress addr : migrationExecutor.invokeAll(lookups)) {
+				if(null != addr) {
+					newMasters.add(addr);
+				}
 			}
+		} catch (InterruptedException | ExecutionException e) {
+			logger.error("[MigrationPublish][fail to find new masters]{}", cluster, e);
+			return false;
 		}
 		
 		boolean ret = false;
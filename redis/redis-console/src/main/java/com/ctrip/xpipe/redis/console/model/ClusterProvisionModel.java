@@ -0,0 +1,54 @@
+package com.ctrip.xpipe.redis.console.model;
+
+import java.util.List;
+
+/**
+ * whole topology of a cluster to be created at once
+ * @author wenchao.meng
+ *
+ * Jan 27, 2017
+ */
+public class ClusterProvisionModel implements java.io.Serializable{
+	private static final long serialVersionUID = 1L;
+	
+	private ClusterTbl clusterTbl;
+	private List<DcTbl> slaveDcs;
+	private List<ShardProvisionModel> shards;
+	
+	public ClusterProvisionModel() {
+		
+	}
+	
+	public ClusterTbl getClusterTbl() {
+		return this.clusterTbl;
+	}
+	
+	public ClusterProvisionModel setClusterTbl(ClusterTbl clusterTbl) {
+		this.clusterTbl = clusterTbl;
+		return this;
+	}
+	
+	public List<DcTbl> getSlaveDcs() {
+		return this.slaveDcs;
+	}
+	
+	public ClusterProvisionModel setSlaveDcs(List<DcTbl> slaveDcs) {
+		this.slaveDcs = slaveDcs;
+		return this;
+	}
+
+	public List<ShardProvisionModel> getShards() {
+		return shards;
+	}
+
+	public ClusterProvisionModel setShards(List<ShardProvisionModel> shards) {
+		this.shards = shards;
+		return this;
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("cluster:%s, slaveDcs:%d, shards:%d", clusterTbl == null ? null : clusterTbl.getClusterName(),
+				slaveDcs == null ? 0 : slaveDcs.size(), shards == null ? 0 : shards.size());
+	}
+}
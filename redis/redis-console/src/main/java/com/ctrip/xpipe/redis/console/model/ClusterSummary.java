@@ -0,0 +1,97 @@
+package com.ctrip.xpipe.redis.console.model;
+
+import com.ctrip.xpipe.redis.console.health.history.HealthState;
+
+/**
+ * cluster row of the paged listing, with aggregated counts over all dcs
+ * @author wenchao.meng
+ *
+ * Jan 29, 2017
+ */
+public class ClusterSummary implements java.io.Serializable{
+	private static final long serialVersionUID = 1L;
+	
+	public static enum Sort {
+		NAME,
+		NEWEST
+	}
+	
+	private long id;
+	private String clusterName;
+	private long activedcId;
+	private String clusterDescription;
+	private String status;
+	private long shardCount;
+	private long redisCount;
+	private long keeperCount;
+	private HealthState health = HealthState.UNKNOWN;
+	
+	public ClusterSummary() {
+		
+	}
+	
+	public ClusterSummary(ClusterTbl cluster) {
+		this.id = cluster.getId();
+		this.clusterName = cluster.getClusterName();
+		this.activedcId = cluster.getActivedcId();
+		this.clusterDescription = cluster.getClusterDescription();
+		this.status = cluster.getStatus();
+	}
+	
+	public long getId() {
+		return id;
+	}
+	
+	public String getClusterName() {
+		return clusterName;
+	}
+	
+	public long getActivedcId() {
+		return activedcId;
+	}
+	
+	public String getClusterDescription() {
+		return clusterDescription;
+	}
+	
+	public String getStatus() {
+		return status;
+	}
+	
+	public long getShardCount() {
+		return shardCount;
+	}
+	
+	public ClusterSummary setShardCount(long shardCount) {
+		this.shardCount = shardCount;
+		return this;
+	}
+	
+	public long getRedisCount() {
+		return redisCount;
+	}
+	
+	public ClusterSummary setRedisCount(long redisCount) {
+		this.redisCount = redisCount;
+		return this;
+	}
+	
+	public long getKeeperCount() {
+		return keeperCount;
+	}
+	
+	public ClusterSummary setKeeperCount(long keeperCount) {
+		this.keeperCount = keeperCount;
+		return this;
+	}
+	
+	public HealthState getHealth() {
+		return health;
+	}
+	
+	public ClusterSummary setHealth(HealthState health) {
+		this.health = health;
+		return this;
+	}
+	
+}
@@ -0,0 +1,35 @@
+package com.ctrip.xpipe.redis.console.model;
+
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * one page of a listing; next is the cursor of the following page, null on the last page
+ * @author wenchao.meng
+ *
+ * Jan 29, 2017
+ */
+public class KeysetPage<T> implements java.io.Serializable{
+	private static final long serialVersionUID = 1L;
+	
+	private List<T> items = new LinkedList<T>();
+	private String next;
+	
+	public KeysetPage() {
+		
+	}
+	
+	public KeysetPage(List<T> items, String next) {
+		this.items = items;
+		this.next = next;
+	}
+	
+	public List<T> getItems() {
+		return items;
+	}
+	
+	public String getNext() {
+		return next;
+	}
+	
+}
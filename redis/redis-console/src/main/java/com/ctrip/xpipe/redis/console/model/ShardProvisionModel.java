@@ -0,0 +1,48 @@
+package com.ctrip.xpipe.redis.console.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * a shard and its redises and keepers in each dc, keyed by dc name
+ * @author wenchao.meng
+ *
+ * Jan 27, 2017
+ */
+public class ShardProvisionModel implements java.io.Serializable{
+	private static final long serialVersionUID = 1L;
+	
+	private ShardTbl shardTbl;
+	private Map<String, ShardModel> dcs = new HashMap<String, ShardModel>();
+	
+	public ShardProvisionModel() {
+		
+	}
+	
+	public ShardProvisionModel(ShardTbl shardTbl) {
+		this.shardTbl = shardTbl;
+	}
+	
+	public ShardTbl getShardTbl() {
+		return shardTbl;
+	}
+	
+	public ShardProvisionModel setShardTbl(ShardTbl shardTbl) {
+		this.shardTbl = shardTbl;
+		return this;
+	}
+	
+	public Map<String, ShardModel> getDcs() {
+		return dcs;
+	}
+	
+	public ShardProvisionModel setDcs(Map<String, ShardModel> dcs) {
+		this.dcs = dcs;
+		return this;
+	}
+	
+	public ShardProvisionModel addDc(String dcName, ShardModel shardModel) {
+		dcs.put(dcName, shardModel);
+		return this;
+	}
+}
@@ -0,0 +1,64 @@
+package com.ctrip.xpipe.redis.console.model;
+
+import com.ctrip.xpipe.redis.console.health.history.HealthState;
+
+/**
+ * shard row of the paged listing, with aggregated counts over all dcs
+ * @author wenchao.meng
+ *
+ * Jan 29, 2017
+ */
+public class ShardSummary implements java.io.Serializable{
+	private static final long serialVersionUID = 1L;
+	
+	private long id;
+	private String shardName;
+	private long redisCount;
+	private long keeperCount;
+	private HealthState health = HealthState.UNKNOWN;
+	
+	public ShardSummary() {
+		
+	}
+	
+	public ShardSummary(ShardTbl shard) {
+		this.id = shard.getId();
+		this.shardName = shard.getShardName();
+	}
+	
+	public long getId() {
+		return id;
+	}
+	
+	public String getShardName() {
+		return shardName;
+	}
+	
+	public long getRedisCount() {
+		return redisCount;
+	}
+	
+	public ShardSummary setRedisCount(long redisCount) {
+		this.redisCount = redisCount;
+		return this;
+	}
+	
+	public long getKeeperCount() {
+		return keeperCount;
+	}
+	
+	public ShardSummary setKeeperCount(long keeperCount) {
+		this.keeperCount = keeperCount;
+		return this;
+	}
+	
+	public HealthState getHealth() {
+		return health;
+	}
+	
+	public ShardSummary setHealth(HealthState health) {
+		this.health = health;
+		return this;
+	}
+	
+}
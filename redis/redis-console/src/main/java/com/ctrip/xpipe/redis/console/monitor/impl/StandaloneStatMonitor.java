@@ -4,11 +4,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
-import java.lang.Thread.UncaughtExceptionHandler;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -16,6 +16,9 @@ import org.xml.sax.SAXException;
 
 import com.ctrip.xpipe.api.codec.Codec;
 import com.ctrip.xpipe.redis.console.exception.LinkRouteBrokenException;
+import com.ctrip.xpipe.redis.console.health.DefaultRedisSessionManager;
+import com.ctrip.xpipe.redis.console.health.RedisSession;
+import com.ctrip.xpipe.redis.console.health.RedisSessionManager;
 import com.ctrip.xpipe.redis.console.monitor.AbstractStatMonitor;
 import com.ctrip.xpipe.redis.console.monitor.StatMonitor;
 import com.ctrip.xpipe.redis.console.monitor.statmodel.StandaloneStatModel;
@@ -23,21 +26,29 @@ import com.ctrip.xpipe.redis.console.monitor.statmodel.StandaloneStatModel.Stand
 import com.ctrip.xpipe.redis.console.monitor.statmodel.StandaloneStatModel.StandaloneRedisStat;
 import com.ctrip.xpipe.redis.console.monitor.statmodel.StandaloneStatModel.StandaloneShardStat;
 import com.ctrip.xpipe.utils.FileUtils;
+import com.ctrip.xpipe.utils.XpipeThreadFactory;
 import com.dianping.cat.Cat;
 import com.google.common.io.CharStreams;
+import com.lambdaworks.redis.pubsub.RedisPubSubAdapter;
 
-import redis.clients.jedis.Jedis;
-import redis.clients.jedis.JedisPubSub;
-
+/**
+ * every round publishes the round number to all masters at once, slaves keep one subscription each through
+ * redis sessions; each shard is checked by its own deadline, ALERT_INTERVAL_MILLS after its publish.<br/>
+ * nothing blocks, connections are created by the session manager, so a round takes about one alert interval
+ * whatever the number of shards and unreachable redises
+ */
 public class StandaloneStatMonitor extends AbstractStatMonitor implements StatMonitor, Runnable {
 	public static final String TEST_KEY = "xpipe-test";
 
 	private StandaloneStatModel standaloneStat;
-	private ScheduledExecutorService scheduled = Executors.newScheduledThreadPool(1);
-	private ExecutorService fixedThreadPool = Executors.newFixedThreadPool(20);
+	private RedisSessionManager sessionManager;
+	private ScheduledExecutorService scheduled = Executors.newScheduledThreadPool(1, XpipeThreadFactory.create("StandaloneStatMonitor"));
+	// checks are not delayed by publishing rounds
+	private ScheduledExecutorService checkScheduled = Executors.newScheduledThreadPool(1, XpipeThreadFactory.create("StandaloneStatMonitorCheck"));
 	private Long ALERT_INTERVAL_MILLS = Long.parseLong(System.getProperty("alert-interval", "5000"));
 
-	private ConcurrentHashMap<StandaloneRedisStat, Boolean> redisStatCheckResult = new ConcurrentHashMap<>();
+	private volatile long round = 0;
+	private ConcurrentMap<String, SlaveState> slaveStates = new ConcurrentHashMap<>();
 
 	public StandaloneStatMonitor(String configFile) throws UnsupportedEncodingException, IOException {
 		this(configFile, 5000L, TimeUnit.MILLISECONDS);
@@ -45,11 +56,16 @@ public class StandaloneStatMonitor extends AbstractStatMonitor implements StatMo
 
 	public StandaloneStatMonitor(String configFile, long period, TimeUnit timeUnit)
 			throws UnsupportedEncodingException, IOException {
-		standaloneStat = loadStatModel(configFile);
+		this(loadStatModel(configFile), new DefaultRedisSessionManager(), period, timeUnit);
+	}
+
+	public StandaloneStatMonitor(StandaloneStatModel standaloneStat, RedisSessionManager sessionManager, long period, TimeUnit timeUnit) {
+		this.standaloneStat = standaloneStat;
+		this.sessionManager = sessionManager;
 		scheduled.scheduleAtFixedRate(this, 0, period, timeUnit);
 	}
 
-	protected StandaloneStatModel loadStatModel(String configFile) throws UnsupportedEncodingException, IOException {
+	protected static StandaloneStatModel loadStatModel(String configFile) throws UnsupportedEncodingException, IOException {
 		InputStream ins = FileUtils.getFileInputStream(configFile);
 		return Codec.DEFAULT.decode(CharStreams.toString(new InputStreamReader(ins, "UTF-8")),
 				StandaloneStatModel.class);
@@ -57,95 +73,146 @@ public class StandaloneStatMonitor extends AbstractStatMonitor implements StatMo
 
 	@Override
 	public void run() {
-		Jedis master = null;
-		List<Jedis> jedisSlaves = new LinkedList<>();
-		
-		for(StandaloneClusterStat cluster : standaloneStat.getClusterStats().values()) {
-			for(StandaloneShardStat shard : cluster.getShardStats().values()) {
+		final long currentRound = ++round;
+
+		for(final StandaloneClusterStat cluster : standaloneStat.getClusterStats().values()) {
+			for(final StandaloneShardStat shard : cluster.getShardStats().values()) {
 				try {
-					master = new Jedis(shard.getRedisMaster().getIp(), shard.getRedisMaster().getPort());
-					for(StandaloneRedisStat redis : shard.getRedisSlaves()) {
-						if(null == redisStatCheckResult.get(redis)) {
-							redisStatCheckResult.put(redis, Boolean.FALSE);
-						}
-						
-						Jedis slave = new Jedis(redis.getIp(), redis.getPort());
-						fixedThreadPool.submit(new SlaveListenJob(shard.getRedisMaster(), redis, slave));
-						jedisSlaves.add(slave);
+					StandaloneRedisStat master = shard.getRedisMaster();
+					String channel = generateURL(master.getIp(), master.getPort());
+
+					// slaves not subscribed yet at publish are not expected to receive it
+					final List<StandaloneRedisStat> slaves = shard.getRedisSlaves();
+					final List<Boolean> subscribedBeforePublish = new LinkedList<>();
+					for(StandaloneRedisStat redis : slaves) {
+						SlaveState state = subscribe(redis, channel, currentRound);
+						subscribedBeforePublish.add(state.subscribed);
 					}
-					TimeUnit.MILLISECONDS.sleep(500);
-					
-					master.publish(generateURL(shard.getRedisMaster().getIp(), shard.getRedisMaster().getPort()),
-							TEST_KEY);
-					logger.debug("[Master][publish]{}-{},{}:{}",cluster.getClusterId(), shard.getShardId(), shard.getRedisMaster().getIp(), shard.getRedisMaster().getPort());
-					
-					TimeUnit.MILLISECONDS.sleep(ALERT_INTERVAL_MILLS);
-					for(StandaloneRedisStat redis : shard.getRedisSlaves()) {
-						if(redisStatCheckResult.get(redis).equals(Boolean.FALSE)) {
-							logger.error("[Fail]Fail on cluster:{}, shard:{}, redis:{}:{}",cluster.getClusterId(), shard.getShardId(),
-									redis.getIp(), redis.getPort());
-							Cat.logError(new LinkRouteBrokenException(String.format("LinkRouteBroken:%s-%s-%s:%s", 
-									cluster.getClusterId(), shard.getShardId(), redis.getIp(), redis.getPort()) ));
-							
-						} else {
-							logger.info("[Success]Success on cluster:{}, shard:{}, redis:{}:{}", cluster.getClusterId(), shard.getShardId(),
-									redis.getIp(), redis.getPort());
-							redisStatCheckResult.put(redis, Boolean.FALSE);
+
+					sessionManager.findOrCreateSession(master.getIp(), master.getPort()).publish(channel, String.valueOf(currentRound));
+					logger.debug("[Master][publish]{}-{},{}:{}",cluster.getClusterId(), shard.getShardId(), master.getIp(), master.getPort());
+
+					checkScheduled.schedule(new Runnable() {
+						@Override
+						public void run() {
+							check(cluster, shard, slaves, subscribedBeforePublish, currentRound);
 						}
-					}
+					}, ALERT_INTERVAL_MILLS, TimeUnit.MILLISECONDS);
 				} catch (Exception ex) {
 					logger.error("[Unexpected error]cluster:{}, shard:{}",cluster.getClusterId(), shard.getShardId(), ex);
-					Cat.logError(new LinkRouteBrokenException(String.format("[Unknown redis]LinkRouteBroken:%s-%s", 
+					Cat.logError(new LinkRouteBrokenException(String.format("[Unknown redis]LinkRouteBroken:%s-%s",
 							cluster.getClusterId(), shard.getShardId())));
-				} finally {
-					if(null != master) master.close();
-					for(Jedis slave : jedisSlaves) {
-						if(null != slave) slave.close();
-					}
-					jedisSlaves.clear();
 				}
 			}
 		}
 	}
 
-	private class SlaveListenJob implements Runnable {
-		private StandaloneRedisStat masterRedis;
-		private StandaloneRedisStat slaveRedis;
-		private Jedis slave;
+	public void stop() {
+		scheduled.shutdownNow();
+		checkScheduled.shutdownNow();
+		if(sessionManager instanceof DefaultRedisSessionManager) {
+			((DefaultRedisSessionManager) sessionManager).destroy();
+		}
+	}
 
-		public SlaveListenJob(StandaloneRedisStat masterRedis,StandaloneRedisStat slaveRedis, Jedis slave) {
-			logger.debug("[SlaveListenerJob]{}:{}", slaveRedis.getIp(), slaveRedis.getPort());
-			this.masterRedis = masterRedis;
-			this.slaveRedis = slaveRedis;
-			this.slave = slave;
+	private SlaveState subscribe(StandaloneRedisStat redis, String channel, long currentRound) {
+		String key = generateURL(redis.getIp(), redis.getPort());
+		SlaveState state = slaveStates.get(key);
+		if(null == state) {
+			SlaveState newState = new SlaveState(currentRound);
+			state = slaveStates.putIfAbsent(key, newState);
+			if(null == state) {
+				state = newState;
+			}
 		}
 
-		@SuppressWarnings("static-access")
-		@Override
-		public void run() {
-			Thread.currentThread().setDefaultUncaughtExceptionHandler(new UncaughtExceptionHandler() {
-				@Override
-				public void uncaughtException(Thread arg0, Throwable arg1) {
-					logger.error("[error]{}:{}",slaveRedis.getIp(), slaveRedis.getPort(), arg1);
-					Cat.logError(arg1);
-					redisStatCheckResult.put(slaveRedis, Boolean.FALSE);
-					if (null != slave) {
-						slave.close();
+		final SlaveState slaveState = state;
+		RedisSession session = sessionManager.findOrCreateSession(redis.getIp(), redis.getPort());
+		session.subscribeIfAbsent(channel, new RedisPubSubAdapter<String, String>() {
+			@Override
+			public void subscribed(String channel, long count) {
+				slaveState.subscribed = true;
+			}
+
+			@Override
+			public void unsubscribed(String channel, long count) {
+				slaveState.subscribed = false;
+			}
+
+			@Override
+			public void message(String channel, String message) {
+				try {
+					long received = Long.parseLong(message);
+					if(received > round) {
+						// not published by this monitor, e.g. another console on the same channel
+						logger.debug("[OnMessage][unknown round]{} > {}", received, round);
+						return;
 					}
+					slaveState.received(received);
+				} catch (NumberFormatException e) {
+					logger.debug("[OnMessage][not a round]{}", message);
 				}
-			});
-
-			logger.debug("[Psubscribe]{}:{}", slaveRedis.getIp(), slaveRedis.getPort());
-			slave.psubscribe(new JedisPubSub() {
-				@Override
-				public void onPMessage(String pattern, String channel, String msg) {
-					logger.debug("[OnPMessage]{}:{}", slaveRedis.getIp(), slaveRedis.getPort());
-					redisStatCheckResult.put(slaveRedis, Boolean.TRUE);
-				}
-			}, generateURL(masterRedis.getIp(), masterRedis.getPort()));
+			}
+		});
+		return state;
+	}
+
+	private void check(StandaloneClusterStat cluster, StandaloneShardStat shard, List<StandaloneRedisStat> slaves,
+			List<Boolean> subscribedBeforePublish, long currentRound) {
+		for(int i = 0; i < slaves.size(); i++) {
+			StandaloneRedisStat redis = slaves.get(i);
+			SlaveState state = slaveStates.get(generateURL(redis.getIp(), redis.getPort()));
+			if(state.checkReceived(currentRound)) {
+				state.missedRounds = 0;
+				report(cluster, shard, redis, true);
+			} else if(!subscribedBeforePublish.get(i) && state.firstRound == currentRound) {
+				logger.debug("[Skip][subscribing]{}:{}", redis.getIp(), redis.getPort());
+			} else {
+				state.missedRounds++;
+				logger.info("[Missed]{}:{}, round:{}, continuous missed rounds:{}", redis.getIp(), redis.getPort(), currentRound, state.missedRounds);
+				report(cluster, shard, redis, false);
+			}
 		}
 	}
-	
+
+	protected void report(StandaloneClusterStat cluster, StandaloneShardStat shard, StandaloneRedisStat redis, boolean success) {
+		if(success) {
+			logger.info("[Success]Success on cluster:{}, shard:{}, redis:{}:{}", cluster.getClusterId(), shard.getShardId(),
+					redis.getIp(), redis.getPort());
+		} else {
+			logger.error("[Fail]Fail on cluster:{}, shard:{}, redis:{}:{}",cluster.getClusterId(), shard.getShardId(),
+					redis.getIp(), redis.getPort());
+			Cat.logError(new LinkRouteBrokenException(String.format("LinkRouteBroken:%s-%s-%s:%s",
+					cluster.getClusterId(), shard.getShardId(), redis.getIp(), redis.getPort()) ));
+		}
+	}
+
+	/**
+	 * a round passes only if that exact round was received, a later round does not cover a missed one
+	 */
+	private static class SlaveState {
+		private final long firstRound;
+		private volatile boolean subscribed = false;
+		private final ConcurrentSkipListSet<Long> receivedRounds = new ConcurrentSkipListSet<>();
+		// only touched by the check thread
+		private long missedRounds = 0;
+
+		public SlaveState(long firstRound) {
+			this.firstRound = firstRound;
+		}
+
+		public void received(long round) {
+			receivedRounds.add(round);
+		}
+
+		public boolean checkReceived(long round) {
+			boolean received = receivedRounds.remove(round);
+			// rounds before are checked already, late ones are dropped
+			receivedRounds.headSet(round).clear();
+			return received;
+		}
+	}
+
 	private String generateURL(String ip, int port) {
 		return ip + ":" + String.valueOf(port);
 	}
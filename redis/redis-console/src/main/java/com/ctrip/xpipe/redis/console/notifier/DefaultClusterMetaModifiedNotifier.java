@@ -1,8 +1,16 @@
 package com.ctrip.xpipe.redis.console.notifier;
 
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.annotation.PostConstruct;
 
@@ -15,9 +23,13 @@ import com.ctrip.xpipe.redis.console.config.ConsoleConfig;
 import com.ctrip.xpipe.redis.console.model.DcTbl;
 import com.ctrip.xpipe.redis.console.service.meta.ClusterMetaService;
 import com.ctrip.xpipe.redis.console.util.MetaServerConsoleServiceManagerWrapper;
+import com.ctrip.xpipe.redis.core.entity.ClusterMeta;
+import com.ctrip.xpipe.redis.core.metaserver.MetaServerConsoleService.ClusterChangeInfo;
 import com.ctrip.xpipe.utils.XpipeThreadFactory;
 
 /**
+ * changes are queued per dc and coalesced per cluster, only the latest change of a cluster is sent.<br/>
+ * a dc's queue is flushed as one batch request after a short window; batches of one dc are sent one by one
  * @author shyin
  *
  *         Sep 6, 2016
@@ -26,6 +38,10 @@ import com.ctrip.xpipe.utils.XpipeThreadFactory;
 public class DefaultClusterMetaModifiedNotifier implements ClusterMetaModifiedNotifier {
 	private Logger logger = LoggerFactory.getLogger(getClass());
 
+	private int flushIntervalMilli = Integer.parseInt(System.getProperty("CONSOLE_NOTIFY_FLUSH_INTERVAL_MILLI", "100"));
+
+	private int maxBatchSize = Integer.parseInt(System.getProperty("CONSOLE_NOTIFY_MAX_BATCH_SIZE", "200"));
+
 	@Autowired
 	private ConsoleConfig config;
 	@Autowired
@@ -34,50 +50,157 @@ public class DefaultClusterMetaModifiedNotifier implements ClusterMetaModifiedNo
 	private MetaServerConsoleServiceManagerWrapper metaServerConsoleServiceManagerWrapper;
 
 	private ExecutorService fixedThreadPool;
+	private ScheduledExecutorService scheduled;
 	private MetaNotifyRetryPolicy retryPolicy;
 
+	private Map<String, DcNotifier> dcNotifiers = new ConcurrentHashMap<>();
+
 	@PostConstruct
 	public void postConstruct() {
 		fixedThreadPool = Executors.newFixedThreadPool(config.getConsoleNotifyThreads(),
 				XpipeThreadFactory.create("ConsoleNotifierThreadPool"));
+		scheduled = Executors.newScheduledThreadPool(1, XpipeThreadFactory.create("ConsoleNotifierScheduled"));
 		retryPolicy = new MetaNotifyRetryPolicy(config.getConsoleNotifyRetryInterval());
 	}
 
 	@Override
 	public void notifyClusterUpdate(final String dcName, final String clusterName) {
-		submitNotifyTask(new MetaNotifyTask<Void>("notifyClusterUpdate", config.getConsoleNotifyRetryTimes(),
-				retryPolicy) {
-
-			@Override
-			public Void doNotify() {
-				logger.info("[notifyClusterUpdate]{},{}", dcName, clusterName);
-				metaServerConsoleServiceManagerWrapper.get(dcName).clusterModified(clusterName,
-						clusterMetaService.getClusterMeta(dcName, clusterName));
-				return null;
-			}
-		});
+		getDcNotifier(dcName).offer(clusterName, false);
 	}
 
 	@Override
 	public void notifyClusterDelete(final String clusterName, List<DcTbl> dcs) {
 		if (null != dcs) {
 			for (final DcTbl dc : dcs) {
-				submitNotifyTask(new MetaNotifyTask<Void>("notifyClusterDelete", config.getConsoleNotifyRetryTimes(),
-						retryPolicy) {
-
-					@Override
-					public Void doNotify() {
-						logger.info("[notifyClusterDelete]{},{}", clusterName, dc.getDcName());
-						metaServerConsoleServiceManagerWrapper.get(dc.getDcName()).clusterDeleted(clusterName);
-						return null;
-					}
-				});
+				getDcNotifier(dc.getDcName()).offer(clusterName, true);
 			}
 		}
 	}
 
+	private DcNotifier getDcNotifier(String dcName) {
+
+		DcNotifier dcNotifier = dcNotifiers.get(dcName);
+		if (dcNotifier == null) {
+			synchronized (dcNotifiers) {
+				dcNotifier = dcNotifiers.get(dcName);
+				if (dcNotifier == null) {
+					dcNotifier = new DcNotifier(dcName);
+					dcNotifiers.put(dcName, dcNotifier);
+				}
+			}
+		}
+		return dcNotifier;
+	}
+
 	@SuppressWarnings("rawtypes")
 	protected void submitNotifyTask(MetaNotifyTask task) {
 		fixedThreadPool.submit(task);
 	}
+
+	private class DcNotifier {
+
+		private final String dcName;
+
+		/**
+		 * cluster name -> deleted
+		 */
+		private final Map<String, Boolean> pending = new ConcurrentHashMap<>();
+
+		private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+		public DcNotifier(String dcName) {
+			this.dcName = dcName;
+		}
+
+		public void offer(String clusterName, boolean deleted) {
+			pending.put(clusterName, deleted);
+			scheduleFlush();
+		}
+
+		private void scheduleFlush() {
+
+			if (!flushScheduled.compareAndSet(false, true)) {
+				return;
+			}
+			scheduled.schedule(new Runnable() {
+
+				@Override
+				public void run() {
+					flush();
+				}
+			}, flushIntervalMilli, TimeUnit.MILLISECONDS);
+		}
+
+		private void flush() {
+
+			final List<String> modified = new LinkedList<>();
+			final List<String> deleted = new LinkedList<>();
+			Iterator<Entry<String, Boolean>> iterator = pending.entrySet().iterator();
+			while (iterator.hasNext() && modified.size() + deleted.size() < maxBatchSize) {
+				Entry<String, Boolean> entry = iterator.next();
+				if (!pending.remove(entry.getKey(), entry.getValue())) {
+					// changed again, send the newer one next time
+					continue;
+				}
+				if (entry.getValue()) {
+					deleted.add(entry.getKey());
+				} else {
+					modified.add(entry.getKey());
+				}
+			}
+
+			if (modified.isEmpty() && deleted.isEmpty()) {
+				flushDone();
+				return;
+			}
+
+			submitNotifyTask(new MetaNotifyTask<Void>("notifyClusterChanges", config.getConsoleNotifyRetryTimes(),
+					retryPolicy) {
+
+				@Override
+				public Void doNotify() {
+					logger.info("[notifyClusterChanges]{}, modified:{}, deleted:{}", dcName, modified, deleted);
+					metaServerConsoleServiceManagerWrapper.get(dcName).clusterChanges(clusterChanges(modified, deleted));
+					return null;
+				}
+
+				@Override
+				public void run() {
+					try {
+						super.run();
+					} finally {
+						flushDone();
+					}
+				}
+			});
+		}
+
+		/**
+		 * cluster meta is read when sending, so the latest version is sent
+		 */
+		private List<ClusterChangeInfo> clusterChanges(List<String> modified, List<String> deleted) {
+
+			List<ClusterChangeInfo> clusterChanges = new LinkedList<>();
+			for (String clusterName : modified) {
+				ClusterMeta clusterMeta = clusterMetaService.getClusterMeta(dcName, clusterName);
+				if (clusterMeta == null) {
+					// removed from this dc after being marked modified, null meta means deleted for meta server
+					logger.warn("[clusterChanges][meta not found, send as deleted]{},{}", dcName, clusterName);
+				}
+				clusterChanges.add(new ClusterChangeInfo(clusterName, clusterMeta));
+			}
+			for (String clusterName : deleted) {
+				clusterChanges.add(new ClusterChangeInfo(clusterName, null));
+			}
+			return clusterChanges;
+		}
+
+		private void flushDone() {
+
+			flushScheduled.set(false);
+			if (!pending.isEmpty()) {
+				scheduleFlush();
+			}
+		}
+	}
 }
@@ -3,16 +3,27 @@ package com.ctrip.xpipe.redis.console.service;
 import java.util.List;
 
 import com.ctrip.xpipe.redis.console.model.ClusterModel;
+import com.ctrip.xpipe.redis.console.model.ClusterProvisionModel;
+import com.ctrip.xpipe.redis.console.model.ClusterSummary;
 import com.ctrip.xpipe.redis.console.model.ClusterTbl;
+import com.ctrip.xpipe.redis.console.model.KeysetPage;
 
 public interface ClusterService {
 	ClusterTbl find(String clusterName);
 	ClusterTbl find(long clusterId);
+	/**
+	 * shared with other callers, must not be modified
+	 */
 	List<ClusterTbl> findAllClusters();
 	List<ClusterTbl> findClustersByActiveDcId(long activeDc);
+	/**
+	 * shared with other callers, must not be modified
+	 */
 	List<ClusterTbl> findAllClusterNames();
 	Long getAllCount();
+	KeysetPage<ClusterSummary> findClusterSummaries(ClusterSummary.Sort sort, String next, int limit, String nameFilter, long activeDcId);
 	ClusterTbl createCluster(ClusterModel clusterModel);
+	ClusterTbl provisionCluster(ClusterProvisionModel provisionModel);
 	void updateCluster(String clusterName, ClusterTbl cluster);
 	void deleteCluster(String clusterName);
 	void bindDc(String clusterName, String dcName);
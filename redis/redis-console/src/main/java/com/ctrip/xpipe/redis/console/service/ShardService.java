@@ -2,6 +2,8 @@ package com.ctrip.xpipe.redis.console.service;
 
 import java.util.List;
 
+import com.ctrip.xpipe.redis.console.model.KeysetPage;
+import com.ctrip.xpipe.redis.console.model.ShardSummary;
 import com.ctrip.xpipe.redis.console.model.ShardTbl;
 
 public interface ShardService {
@@ -9,6 +11,7 @@ public interface ShardService {
 	ShardTbl find(String clusterName, String shardName);
 	List<ShardTbl> findAllByClusterName(String clusterName);
 	List<ShardTbl> findAllShardNamesByClusterName(String clusterName);
+	KeysetPage<ShardSummary> findShardSummaries(String clusterName, String next, int limit);
 	ShardTbl createShard(String clusterName, ShardTbl shard);
 	void deleteShard(String clusterName, String shardName);
 }
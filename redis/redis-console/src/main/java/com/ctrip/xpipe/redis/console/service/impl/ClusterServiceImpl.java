@@ -1,7 +1,13 @@
 package com.ctrip.xpipe.redis.console.service.impl;
 
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -9,22 +15,34 @@ import org.unidal.dal.jdbc.DalException;
 
 import com.ctrip.xpipe.redis.console.annotation.DalTransaction;
 import com.ctrip.xpipe.redis.console.constant.XpipeConsoleConstant;
+import com.ctrip.xpipe.redis.console.dal.DalEntityCache;
 import com.ctrip.xpipe.redis.console.dao.ClusterDao;
 import com.ctrip.xpipe.redis.console.exception.BadRequestException;
+import com.ctrip.xpipe.redis.console.health.history.HealthHistoryService;
+import com.ctrip.xpipe.redis.console.health.history.HealthState;
 import com.ctrip.xpipe.redis.console.migration.status.cluster.ClusterStatus;
 import com.ctrip.xpipe.redis.console.model.ClusterModel;
+import com.ctrip.xpipe.redis.console.model.ClusterProvisionModel;
+import com.ctrip.xpipe.redis.console.model.ClusterSummary;
 import com.ctrip.xpipe.redis.console.model.ClusterTbl;
 import com.ctrip.xpipe.redis.console.model.ClusterTblDao;
 import com.ctrip.xpipe.redis.console.model.ClusterTblEntity;
 import com.ctrip.xpipe.redis.console.model.DcTbl;
+import com.ctrip.xpipe.redis.console.model.KeepercontainerTbl;
+import com.ctrip.xpipe.redis.console.model.KeysetPage;
+import com.ctrip.xpipe.redis.console.model.RedisTbl;
+import com.ctrip.xpipe.redis.console.model.ShardModel;
+import com.ctrip.xpipe.redis.console.model.ShardProvisionModel;
 import com.ctrip.xpipe.redis.console.model.ShardTbl;
 import com.ctrip.xpipe.redis.console.notifier.ClusterMetaModifiedNotifier;
 import com.ctrip.xpipe.redis.console.query.DalQuery;
 import com.ctrip.xpipe.redis.console.service.AbstractConsoleService;
 import com.ctrip.xpipe.redis.console.service.ClusterService;
 import com.ctrip.xpipe.redis.console.service.DcService;
+import com.ctrip.xpipe.redis.console.service.KeepercontainerService;
 import com.ctrip.xpipe.redis.console.service.ShardService;
 import com.ctrip.xpipe.redis.console.util.DataModifiedTimeGenerator;
+import com.ctrip.xpipe.utils.StringUtil;
 
 @Service
 public class ClusterServiceImpl extends AbstractConsoleService<ClusterTblDao> implements ClusterService {
@@ -37,68 +55,161 @@ public class ClusterServiceImpl extends AbstractConsoleService<ClusterTblDao> im
 	private ClusterMetaModifiedNotifier notifier;
 	@Autowired
 	private ShardService shardService;
+	@Autowired
+	private KeepercontainerService keepercontainerService;
+	@Autowired
+	private HealthHistoryService healthHistoryService;
+	
+	public static final int MAX_PAGE_SIZE = 500;
+	
+	private int healthWindowSeconds = Integer.parseInt(System.getProperty("CLUSTER_LIST_HEALTH_WINDOW_SECONDS", "60"));
+
+	private DalEntityCache clusterCache = new DalEntityCache("cluster", "cluster-tbl");
 	
 	@Override
 	public ClusterTbl find(final String clusterName) {
-		return queryHandler.handleQuery(new DalQuery<ClusterTbl>() {
+		return queryHandler.handleQuery(clusterCache.readThrough("name", clusterName, new DalQuery<ClusterTbl>() {
 			@Override
 			public ClusterTbl doQuery() throws DalException {
 				return dao.findClusterByClusterName(clusterName, ClusterTblEntity.READSET_FULL);
 			}
     		
-    	});
+    	}));
 	}
 
 	@Override
 	public ClusterTbl find(final long clusterId) {
-		return queryHandler.handleQuery(new DalQuery<ClusterTbl>() {
+		return queryHandler.handleQuery(clusterCache.readThrough("id", clusterId, new DalQuery<ClusterTbl>() {
 			@Override
 			public ClusterTbl doQuery() throws DalException {
 				return dao.findByPK(clusterId, ClusterTblEntity.READSET_FULL);
 			}
     		
-    	});
+    	}));
 	}
 
 	@Override
 	public List<ClusterTbl> findAllClusters() {
-		return queryHandler.handleQuery(new DalQuery<List<ClusterTbl>>() {
+		return queryHandler.handleQuery(clusterCache.readThroughShared("all", null, new DalQuery<List<ClusterTbl>>() {
 			@Override
 			public List<ClusterTbl> doQuery() throws DalException {
 				return dao.findAllClusters(ClusterTblEntity.READSET_FULL);
 			}
-    	});
+    	}));
 	}
 	
 	@Override
 	public List<ClusterTbl> findClustersByActiveDcId(final long activeDcId) {
-		return queryHandler.handleQuery(new DalQuery<List<ClusterTbl>>() {
+		return queryHandler.handleQuery(clusterCache.readThrough("activeDcId", activeDcId, new DalQuery<List<ClusterTbl>>() {
 			@Override
 			public List<ClusterTbl> doQuery() throws DalException {
 				return dao.findClustersByActiveDcId(activeDcId, ClusterTblEntity.READSET_FULL);
 			}
-		});
+		}));
 	}
 
 
 	@Override
 	public List<ClusterTbl> findAllClusterNames() {
-		return queryHandler.handleQuery(new DalQuery<List<ClusterTbl>>() {
+		return queryHandler.handleQuery(clusterCache.readThroughShared("allNames", null, new DalQuery<List<ClusterTbl>>() {
 			@Override
 			public List<ClusterTbl> doQuery() throws DalException {
 				return dao.findAllClusters(ClusterTblEntity.READSET_NAME);
 			}
-    	});
+    	}));
 	}
 
 	@Override
 	public Long getAllCount() {
-		return queryHandler.handleQuery(new DalQuery<Long>() {
+		return queryHandler.handleQuery(clusterCache.readThrough("count", null, new DalQuery<Long>() {
 			@Override
 			public Long doQuery() throws DalException {
 				return dao.totalCount(ClusterTblEntity.READSET_COUNT).getCount();
 			}
-    	});
+    	}));
+	}
+
+	@Override
+	public KeysetPage<ClusterSummary> findClusterSummaries(ClusterSummary.Sort sort, final String next, int limit,
+			String nameFilter, final long activeDcId) {
+		final int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+		final String namePattern = "%" + escapeLike(null == nameFilter ? "" : nameFilter) + "%";
+
+		List<ClusterTbl> clusters;
+		if(ClusterSummary.Sort.NEWEST == sort) {
+			final long lastId = parseLastId(next);
+			clusters = queryHandler.handleQuery(new DalQuery<List<ClusterTbl>>() {
+				@Override
+				public List<ClusterTbl> doQuery() throws DalException {
+					return dao.findClustersPageByIdDesc(namePattern, activeDcId, lastId, pageSize, ClusterTblEntity.READSET_LIST);
+				}
+			});
+		} else {
+			clusters = queryHandler.handleQuery(new DalQuery<List<ClusterTbl>>() {
+				@Override
+				public List<ClusterTbl> doQuery() throws DalException {
+					return dao.findClustersPageByName(namePattern, activeDcId, null == next ? "" : next, pageSize,
+							ClusterTblEntity.READSET_LIST);
+				}
+			});
+		}
+		if(null == clusters || clusters.isEmpty()) {
+			return new KeysetPage<ClusterSummary>();
+		}
+
+		List<Long> clusterIds = new LinkedList<Long>();
+		List<String> clusterNames = new LinkedList<String>();
+		for(ClusterTbl cluster : clusters) {
+			clusterIds.add(cluster.getId());
+			clusterNames.add(cluster.getClusterName());
+		}
+		Map<Long, Long> shardCounts = clusterDao.countShardsByClusterIds(clusterIds);
+		Map<Long, Map<String, Long>> instanceCounts = clusterDao.countInstancesByClusterIds(clusterIds);
+		// only clusters on the page are looked up
+		Map<String, HealthState> clusterStates = healthHistoryService.clusterStates(clusterNames, healthWindowSeconds);
+
+		List<ClusterSummary> summaries = new LinkedList<ClusterSummary>();
+		for(ClusterTbl cluster : clusters) {
+			Map<String, Long> roleCounts = instanceCounts.get(cluster.getId());
+			summaries.add(new ClusterSummary(cluster)
+					.setShardCount(countOf(shardCounts, cluster.getId()))
+					.setRedisCount(countOf(roleCounts, XpipeConsoleConstant.ROLE_REDIS))
+					.setKeeperCount(countOf(roleCounts, XpipeConsoleConstant.ROLE_KEEPER))
+					.setHealth(healthOf(clusterStates, cluster.getClusterName())));
+		}
+
+		String nextCursor = null;
+		if(clusters.size() == pageSize) {
+			ClusterTbl last = clusters.get(clusters.size() - 1);
+			nextCursor = ClusterSummary.Sort.NEWEST == sort ? String.valueOf(last.getId()) : last.getClusterName();
+		}
+		return new KeysetPage<ClusterSummary>(summaries, nextCursor);
+	}
+
+	private long parseLastId(String next) {
+		if(StringUtil.isEmpty(next)) {
+			return Long.MAX_VALUE;
+		}
+		try {
+			return Long.parseLong(next);
+		} catch(NumberFormatException e) {
+			throw new BadRequestException("Invalid page cursor: " + next);
+		}
+	}
+
+	private String escapeLike(String value) {
+		return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+	}
+
+	private <K> long countOf(Map<K, Long> counts, K key) {
+		if(null == counts) return 0L;
+		Long count = counts.get(key);
+		return null == count ? 0L : count;
+	}
+
+	static HealthState healthOf(Map<String, HealthState> states, String name) {
+		HealthState health = null == states ? null : states.get(name);
+		return null == health ? HealthState.UNKNOWN : health;
 	}
 
 	@Override
@@ -138,6 +249,155 @@ public class ClusterServiceImpl extends AbstractConsoleService<ClusterTblDao> im
     	return result;
 	}
 
+	@Override
+	public ClusterTbl provisionCluster(ClusterProvisionModel provisionModel) {
+		if(null == provisionModel || null == provisionModel.getClusterTbl()) {
+			throw new BadRequestException("RequestBody cannot be null.");
+		}
+		ClusterTbl cluster = provisionModel.getClusterTbl();
+		final List<ShardProvisionModel> shards = null == provisionModel.getShards() ? 
+				new LinkedList<ShardProvisionModel>() : provisionModel.getShards();
+		final List<DcTbl> dcs = validateProvisionDcs(cluster, provisionModel.getSlaveDcs());
+		validateProvisionShards(dcs, shards);
+		
+		ClusterTbl proto = dao.createLocal();
+		proto.setClusterName(cluster.getClusterName());
+		proto.setActivedcId(cluster.getActivedcId());
+		proto.setClusterDescription(cluster.getClusterDescription());
+		proto.setStatus(ClusterStatus.Normal.toString());
+		proto.setClusterLastModifiedTime(DataModifiedTimeGenerator.generateModifiedTime());
+		proto.setIsXpipeInterested(hasInstances(shards));
+		
+		final ClusterTbl queryProto = proto;
+		ClusterTbl result = queryHandler.handleQuery(new DalQuery<ClusterTbl>(){
+			@Override
+			public ClusterTbl doQuery() throws DalException {
+				return clusterDao.provisionCluster(queryProto, dcs, shards);
+			}
+		});
+		
+		/** Notify meta server, once per dc **/
+		for(DcTbl dc : dcs) {
+			notifier.notifyClusterUpdate(dc.getDcName(), cluster.getClusterName());
+		}
+		
+		return result;
+	}
+	
+	private List<DcTbl> validateProvisionDcs(ClusterTbl cluster, List<DcTbl> slaveDcs) {
+		if(StringUtil.isEmpty(cluster.getClusterName())) {
+			throw new BadRequestException("Cluster name cannot be empty.");
+		}
+		if(XpipeConsoleConstant.NO_ACTIVE_DC_TAG == cluster.getActivedcId()) {
+			throw new BadRequestException("No active dc assigned.");
+		}
+		
+		Map<String, DcTbl> dcsByName = new HashMap<>();
+		DcTbl activeDc = null;
+		for(DcTbl dc : dcService.findAllDcs()) {
+			dcsByName.put(dc.getDcName(), dc);
+			if(dc.getId() == cluster.getActivedcId()) {
+				activeDc = dc;
+			}
+		}
+		if(null == activeDc) {
+			throw new BadRequestException("Cannot find active dc.");
+		}
+		
+		Map<String, DcTbl> clusterDcs = new LinkedHashMap<>();
+		clusterDcs.put(activeDc.getDcName(), activeDc);
+		if(null != slaveDcs) {
+			for(DcTbl slaveDc : slaveDcs) {
+				DcTbl dc = dcsByName.get(slaveDc.getDcName());
+				if(null == dc) {
+					throw new BadRequestException("Cannot find dc " + slaveDc.getDcName());
+				}
+				clusterDcs.put(dc.getDcName(), dc);
+			}
+		}
+		return new LinkedList<>(clusterDcs.values());
+	}
+	
+	private void validateProvisionShards(List<DcTbl> dcs, List<ShardProvisionModel> shards) {
+		Map<String, Map<Long, KeepercontainerTbl>> keepercontainers = new HashMap<>();
+		for(DcTbl dc : dcs) {
+			Map<Long, KeepercontainerTbl> dcKeepercontainers = new HashMap<>();
+			List<KeepercontainerTbl> found = keepercontainerService.findAllByDcName(dc.getDcName());
+			if(null != found) {
+				for(KeepercontainerTbl keepercontainer : found) {
+					dcKeepercontainers.put(keepercontainer.getKeepercontainerId(), keepercontainer);
+				}
+			}
+			keepercontainers.put(dc.getDcName(), dcKeepercontainers);
+		}
+		
+		Set<String> shardNames = new HashSet<>();
+		Set<String> addresses = new HashSet<>();
+		for(ShardProvisionModel shard : shards) {
+			if(null == shard || null == shard.getShardTbl() || StringUtil.isEmpty(shard.getShardTbl().getShardName())) {
+				throw new BadRequestException("Shard name cannot be empty.");
+			}
+			if(!shardNames.add(shard.getShardTbl().getShardName())) {
+				throw new BadRequestException("Duplicated shard name under same cluster.");
+			}
+			if(null == shard.getDcs()) {
+				shard.setDcs(new HashMap<String, ShardModel>());
+			}
+			
+			for(Map.Entry<String, ShardModel> entry : shard.getDcs().entrySet()) {
+				Map<Long, KeepercontainerTbl> dcKeepercontainers = keepercontainers.get(entry.getKey());
+				if(null == dcKeepercontainers) {
+					throw new BadRequestException("Dc " + entry.getKey() + " is not related to cluster.");
+				}
+				ShardModel shardModel = entry.getValue();
+				if(null == shardModel) {
+					throw new BadRequestException("RequestBody cannot be null.");
+				}
+				
+				for(RedisTbl redis : shardModel.getRedises()) {
+					validateAddress(addresses, redis);
+				}
+				List<RedisTbl> keepers = shardModel.getKeepers();
+				if(0 != keepers.size() && 2 != keepers.size()) {
+					throw new BadRequestException("Keepers' size must be 0 or 2");
+				}
+				if(2 == keepers.size() && keepers.get(0).getKeepercontainerId() == keepers.get(1).getKeepercontainerId()) {
+					throw new BadRequestException("Keepers should be assigned to different keepercontainer");
+				}
+				for(RedisTbl keeper : keepers) {
+					validateAddress(addresses, keeper);
+					KeepercontainerTbl keepercontainer = dcKeepercontainers.get(keeper.getKeepercontainerId());
+					if(null == keepercontainer) {
+						throw new BadRequestException("Cannot find related keepercontainer");
+					}
+					if(!keeper.getRedisIp().equals(keepercontainer.getKeepercontainerIp())) {
+						throw new BadRequestException("Keeper's ip should be equal to keepercontainer's ip");
+					}
+				}
+			}
+		}
+	}
+	
+	private void validateAddress(Set<String> addresses, RedisTbl redis) {
+		if(StringUtil.isEmpty(redis.getRedisIp())) {
+			throw new BadRequestException("Redis ip cannot be empty.");
+		}
+		if(!addresses.add(redis.getRedisIp() + ":" + redis.getRedisPort())) {
+			throw new BadRequestException("Duplicated address : " + redis.getRedisIp() + ":" + redis.getRedisPort());
+		}
+	}
+	
+	private boolean hasInstances(List<ShardProvisionModel> shards) {
+		for(ShardProvisionModel shard : shards) {
+			for(ShardModel shardModel : shard.getDcs().values()) {
+				if(!shardModel.getRedises().isEmpty() || !shardModel.getKeepers().isEmpty()) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
 	@Override
 	public void updateCluster(String clusterName, ClusterTbl cluster) {
 		ClusterTbl proto = find(clusterName);
@@ -1,10 +1,12 @@
 package com.ctrip.xpipe.redis.console.service.impl;
 
+import java.util.Arrays;
 import java.util.List;
 
 import org.springframework.stereotype.Service;
 import org.unidal.dal.jdbc.DalException;
 
+import com.ctrip.xpipe.redis.console.dal.DalEntityCache;
 import com.ctrip.xpipe.redis.console.model.DcClusterShardTbl;
 import com.ctrip.xpipe.redis.console.model.DcClusterShardTblDao;
 import com.ctrip.xpipe.redis.console.model.DcClusterShardTblEntity;
@@ -15,44 +17,47 @@ import com.ctrip.xpipe.redis.console.service.DcClusterShardService;
 @Service
 public class DcClusterShardServiceImpl extends AbstractConsoleService<DcClusterShardTblDao> implements DcClusterShardService {
 
+	private DalEntityCache dcClusterShardCache = new DalEntityCache("dcClusterShard", "dc-cluster-shard-tbl", "dc-cluster-tbl",
+			"dc-tbl", "cluster-tbl", "shard-tbl");
+
 	@Override
 	public DcClusterShardTbl find(final long dcClusterId, final long shardId) {
-		return queryHandler.handleQuery(new DalQuery<DcClusterShardTbl>() {
+		return queryHandler.handleQuery(dcClusterShardCache.readThrough("dcClusterIdShardId", Arrays.asList(dcClusterId, shardId), new DalQuery<DcClusterShardTbl>() {
 			@Override
 			public DcClusterShardTbl doQuery() throws DalException {
 				return dao.findDcClusterShard(shardId, dcClusterId, DcClusterShardTblEntity.READSET_FULL);
 			}
-    	});
+    	}));
 	}
 
 	@Override
 	public DcClusterShardTbl find(final String dcName, final String clusterName, final String shardName) {
-		return queryHandler.handleQuery(new DalQuery<DcClusterShardTbl>(){
+		return queryHandler.handleQuery(dcClusterShardCache.readThrough("name", Arrays.asList(dcName, clusterName, shardName), new DalQuery<DcClusterShardTbl>(){
 			@Override
 			public DcClusterShardTbl doQuery() throws DalException {
 				return dao.findDcCluserShardByName(dcName, clusterName, shardName, DcClusterShardTblEntity.READSET_FULL);
 			}
-    	});
+    	}));
 	}
 
 	@Override
 	public List<DcClusterShardTbl> findAllByDcCluster(final long dcClusterId) {
-		return queryHandler.handleQuery(new DalQuery<List<DcClusterShardTbl>>() {
+		return queryHandler.handleQuery(dcClusterShardCache.readThrough("dcClusterId", dcClusterId, new DalQuery<List<DcClusterShardTbl>>() {
 			@Override
 			public List<DcClusterShardTbl> doQuery() throws DalException {
 				return dao.findAllByDcClusterId(dcClusterId, DcClusterShardTblEntity.READSET_FULL);
 			}
-    	});
+    	}));
 	}
 
 	@Override
 	public List<DcClusterShardTbl> findAllByDcCluster(final String dcName, final String clusterName) {
-		return queryHandler.handleQuery(new DalQuery<List<DcClusterShardTbl>>() {
+		return queryHandler.handleQuery(dcClusterShardCache.readThrough("dcClusterName", Arrays.asList(dcName, clusterName), new DalQuery<List<DcClusterShardTbl>>() {
 			@Override
 			public List<DcClusterShardTbl> doQuery() throws DalException {
 				return dao.findAllByDcClusterNames(dcName, clusterName, DcClusterShardTblEntity.READSET_FULL);
 			}
-    	});
+    	}));
 	}
 
 }
@@ -9,6 +9,7 @@ import org.springframework.stereotype.Service;
 import org.unidal.dal.jdbc.DalException;
 
 import com.ctrip.xpipe.redis.console.constant.XpipeConsoleConstant;
+import com.ctrip.xpipe.redis.console.dal.DalEntityCache;
 import com.ctrip.xpipe.redis.console.dao.RedisDao;
 import com.ctrip.xpipe.redis.console.exception.BadRequestException;
 import com.ctrip.xpipe.redis.console.model.ClusterTbl;
@@ -39,6 +40,8 @@ public class RedisServiceImpl extends AbstractConsoleService<RedisTblDao> implem
 	private KeepercontainerService keepercontainerService;
 	@Autowired
 	private ClusterMetaModifiedNotifier notifier;
+
+	private DalEntityCache redisCache = new DalEntityCache("redis", "redis-tbl");
 	
 	private Comparator<RedisTbl> redisComparator = new Comparator<RedisTbl>() {
 		@Override
@@ -52,22 +55,22 @@ public class RedisServiceImpl extends AbstractConsoleService<RedisTblDao> implem
 	
 	@Override
 	public RedisTbl find(final long id) {
-		return queryHandler.handleQuery(new DalQuery<RedisTbl>() {
+		return queryHandler.handleQuery(redisCache.readThrough("id", id, new DalQuery<RedisTbl>() {
 			@Override
 			public RedisTbl doQuery() throws DalException {
 				return dao.findByPK(id, RedisTblEntity.READSET_FULL);
 			}
-		});
+		}));
 	}
 
 	@Override
 	public List<RedisTbl> findAllByDcClusterShard(final long dcClusterShardId) {
-		return queryHandler.handleQuery(new DalQuery<List<RedisTbl>>() {
+		return queryHandler.handleQuery(redisCache.readThrough("dcClusterShardId", dcClusterShardId, new DalQuery<List<RedisTbl>>() {
 			@Override
 			public List<RedisTbl> doQuery() throws DalException {
 				return dao.findAllByDcClusterShardId(dcClusterShardId, RedisTblEntity.READSET_FULL);
 			}
-		});
+		}));
 	}
 
 	@Override
@@ -77,14 +80,7 @@ public class RedisServiceImpl extends AbstractConsoleService<RedisTblDao> implem
 			throw new BadRequestException("DcClusterShard not exist");
 		}
 
-		List<RedisTbl> redisTbls = queryHandler.handleQuery(new DalQuery<List<RedisTbl>>() {
-			@Override
-			public List<RedisTbl> doQuery() throws DalException {
-				return dao.findAllByDcClusterShardId(dcClusterShardTbl.getDcClusterShardId(), RedisTblEntity.READSET_FULL);
-			}
-		});
-
-		return redisTbls;
+		return findAllByDcClusterShard(dcClusterShardTbl.getDcClusterShardId());
 	}
 
 	@Override
@@ -1,13 +1,22 @@
 package com.ctrip.xpipe.redis.console.service.impl;
 
+import java.util.Arrays;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.unidal.dal.jdbc.DalException;
 
+import com.ctrip.xpipe.redis.console.constant.XpipeConsoleConstant;
+import com.ctrip.xpipe.redis.console.dal.DalEntityCache;
 import com.ctrip.xpipe.redis.console.dao.ShardDao;
+import com.ctrip.xpipe.redis.console.health.history.HealthHistoryService;
+import com.ctrip.xpipe.redis.console.health.history.HealthState;
 import com.ctrip.xpipe.redis.console.model.DcTbl;
+import com.ctrip.xpipe.redis.console.model.KeysetPage;
+import com.ctrip.xpipe.redis.console.model.ShardSummary;
 import com.ctrip.xpipe.redis.console.model.ShardTbl;
 import com.ctrip.xpipe.redis.console.model.ShardTblDao;
 import com.ctrip.xpipe.redis.console.model.ShardTblEntity;
@@ -26,45 +35,88 @@ public class ShardServiceImpl extends AbstractConsoleService<ShardTblDao> implem
 	private ShardDao shardDao;
 	@Autowired
 	private ClusterMetaModifiedNotifier notifier;
+	@Autowired
+	private HealthHistoryService healthHistoryService;
+	
+	private int healthWindowSeconds = Integer.parseInt(System.getProperty("CLUSTER_LIST_HEALTH_WINDOW_SECONDS", "60"));
+
+	private DalEntityCache shardCache = new DalEntityCache("shard", "shard-tbl", "cluster-tbl");
 	
 	@Override
 	public ShardTbl find(final long shardId) {
-		return queryHandler.handleQuery(new DalQuery<ShardTbl>() {
+		return queryHandler.handleQuery(shardCache.readThrough("id", shardId, new DalQuery<ShardTbl>() {
 			@Override
 			public ShardTbl doQuery() throws DalException {
 				return dao.findByPK(shardId, ShardTblEntity.READSET_FULL);
 			}
-    	});
+    	}));
 	}
 
 	@Override
 	public ShardTbl find(final String clusterName, final String shardName) {
-		return queryHandler.handleQuery(new DalQuery<ShardTbl>() {
+		return queryHandler.handleQuery(shardCache.readThrough("name", Arrays.asList(clusterName, shardName), new DalQuery<ShardTbl>() {
 			@Override
 			public ShardTbl doQuery() throws DalException {
 				return dao.findShard(clusterName, shardName, ShardTblEntity.READSET_FULL);
 			}
-    	});
+    	}));
 	}
 
 	@Override
 	public List<ShardTbl> findAllByClusterName(final String clusterName) {
-		return queryHandler.handleQuery(new DalQuery<List<ShardTbl>>() {
+		return queryHandler.handleQuery(shardCache.readThrough("clusterName", clusterName, new DalQuery<List<ShardTbl>>() {
 			@Override
 			public List<ShardTbl> doQuery() throws DalException {
 				return dao.findAllByClusterName(clusterName, ShardTblEntity.READSET_FULL);
 			}
-    	});
+    	}));
 	}
 
 	@Override
 	public List<ShardTbl> findAllShardNamesByClusterName(final String clusterName) {
-		return queryHandler.handleQuery(new DalQuery<List<ShardTbl>>() {
+		return queryHandler.handleQuery(shardCache.readThrough("clusterNameNames", clusterName, new DalQuery<List<ShardTbl>>() {
 			@Override
 			public List<ShardTbl> doQuery() throws DalException {
 				return dao.findAllByClusterName(clusterName, ShardTblEntity.READSET_NAME);
 			}
-    	});
+    	}));
+	}
+
+	@Override
+	public KeysetPage<ShardSummary> findShardSummaries(String clusterName, String next, int limit) {
+		int pageSize = Math.max(1, Math.min(limit, ClusterServiceImpl.MAX_PAGE_SIZE));
+		List<ShardTbl> shards = shardDao.findShardsPage(clusterName, next, pageSize);
+		if(null == shards || shards.isEmpty()) {
+			return new KeysetPage<ShardSummary>();
+		}
+
+		List<Long> shardIds = new LinkedList<Long>();
+		List<String> shardNames = new LinkedList<String>();
+		for(ShardTbl shard : shards) {
+			shardIds.add(shard.getId());
+			shardNames.add(shard.getShardName());
+		}
+		Map<Long, Map<String, Long>> instanceCounts = shardDao.countInstancesByShardIds(shardIds);
+		// only shards on the page are looked up
+		Map<String, HealthState> shardStates = healthHistoryService.shardStates(clusterName, shardNames, healthWindowSeconds);
+
+		List<ShardSummary> summaries = new LinkedList<ShardSummary>();
+		for(ShardTbl shard : shards) {
+			Map<String, Long> roleCounts = instanceCounts.get(shard.getId());
+			summaries.add(new ShardSummary(shard)
+					.setRedisCount(countOf(roleCounts, XpipeConsoleConstant.ROLE_REDIS))
+					.setKeeperCount(countOf(roleCounts, XpipeConsoleConstant.ROLE_KEEPER))
+					.setHealth(ClusterServiceImpl.healthOf(shardStates, shard.getShardName())));
+		}
+
+		String nextCursor = shards.size() == pageSize ? shards.get(shards.size() - 1).getShardName() : null;
+		return new KeysetPage<ShardSummary>(summaries, nextCursor);
+	}
+
+	private long countOf(Map<String, Long> roleCounts, String role) {
+		if(null == roleCounts) return 0L;
+		Long count = roleCounts.get(role);
+		return null == count ? 0L : count;
 	}
 
 	@Override
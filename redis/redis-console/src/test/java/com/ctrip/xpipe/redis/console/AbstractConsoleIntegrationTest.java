@@ -18,6 +18,7 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.unidal.dal.jdbc.datasource.DataSourceManager;
 import org.unidal.lookup.ContainerLoader;
 
+import com.ctrip.xpipe.redis.console.dal.DalTableVersions;
 import com.ctrip.xpipe.spring.AbstractProfile;
 import com.ctrip.xpipe.utils.FileUtils;
 
@@ -35,6 +36,8 @@ public abstract class AbstractConsoleIntegrationTest extends AbstractConsoleTest
 	@Before
 	public void before() throws ComponentLookupException, SQLException {
 		setUpTestDataSource();
+		// data written without dal
+		DalTableVersions.invalidateAll();
 	}
 	
 	@After
@@ -3,6 +3,7 @@ package com.ctrip.xpipe.redis.console;
 
 import com.ctrip.xpipe.redis.console.migration.MultiShardMigrationTest;
 import com.ctrip.xpipe.redis.console.migration.SingleShardMigrationTest;
+import com.ctrip.xpipe.redis.console.migration.command.MigrationExecutorTest;
 import com.ctrip.xpipe.redis.console.migration.model.DefaultMigrationShardTest;
 import com.ctrip.xpipe.redis.console.migration.status.MigrationPublishStatTest;
 import com.ctrip.xpipe.redis.console.migration.status.MigrationStatTest;
@@ -10,7 +11,14 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 import com.ctrip.xpipe.redis.console.dal.ConcurrentDalTransactionTest;
+import com.ctrip.xpipe.redis.console.dal.DalEntityCacheTest;
 import com.ctrip.xpipe.redis.console.dal.DalTransactionManagerTest;
+import com.ctrip.xpipe.redis.console.health.BaseSampleMonitorTest;
+import com.ctrip.xpipe.redis.console.health.RedisSessionTest;
+import com.ctrip.xpipe.redis.console.health.delay.HickwallDelayCollectorTest;
+import com.ctrip.xpipe.redis.console.health.history.DefaultHealthHistoryServiceTest;
+import com.ctrip.xpipe.redis.console.health.history.HealthHistoryStoreTest;
+import com.ctrip.xpipe.redis.console.monitor.StandaloneStatMonitorTest;
 import com.ctrip.xpipe.redis.console.notifier.ClusterMetaModifiedNotifierTest;
 import com.ctrip.xpipe.redis.console.notifier.MetaNotifyTaskTest;
 import com.ctrip.xpipe.redis.console.service.BasicServiceTest;
@@ -29,6 +37,7 @@ import org.junit.runner.RunWith;
 @SuiteClasses({
 	ConcurrentDalTransactionTest.class,
 	DalTransactionManagerTest.class,
+	DalEntityCacheTest.class,
 	ClusterMetaModifiedNotifierTest.class,
 	BasicServiceTest.class,
 	MetaServiceTest.class,
@@ -39,7 +48,14 @@ import org.junit.runner.RunWith;
 	MigrationStatTest.class,
 	MigrationPublishStatTest.class,
 	SingleShardMigrationTest.class,
-	MultiShardMigrationTest.class
+	MultiShardMigrationTest.class,
+	MigrationExecutorTest.class,
+	RedisSessionTest.class,
+	BaseSampleMonitorTest.class,
+	HealthHistoryStoreTest.class,
+	DefaultHealthHistoryServiceTest.class,
+	HickwallDelayCollectorTest.class,
+	StandaloneStatMonitorTest.class
 })
 public class AllTests {
 
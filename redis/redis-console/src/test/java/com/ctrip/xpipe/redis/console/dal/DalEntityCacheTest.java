@@ -0,0 +1,286 @@
+package com.ctrip.xpipe.redis.console.dal;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.unidal.dal.jdbc.DalException;
+import org.unidal.dal.jdbc.datasource.DataSource;
+import org.unidal.dal.jdbc.datasource.DataSourceManager;
+import org.unidal.dal.jdbc.mapping.TableProviderManager;
+
+import com.ctrip.xpipe.redis.console.AbstractConsoleTest;
+import com.ctrip.xpipe.redis.console.model.ClusterTbl;
+import com.ctrip.xpipe.redis.console.model.DcClusterTbl;
+import com.ctrip.xpipe.redis.console.query.DalQuery;
+
+/**
+ * @author wenchao.meng
+ *
+ * Jan 26, 2017
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class DalEntityCacheTest extends AbstractConsoleTest {
+
+	private static final String TABLE = "dal-entity-cache-test-tbl";
+
+	@Mock
+	private TableProviderManager m_tableProviderManager;
+	@Mock
+	private DataSourceManager m_dataSourceManager;
+	@InjectMocks
+	private XpipeDalTransactionManager dalTM;
+
+	private DalEntityCache cache = new DalEntityCache("test", 100, 60000, TABLE);
+
+	private AtomicLong database = new AtomicLong(1);
+
+	private AtomicInteger loads = new AtomicInteger();
+
+	@Test
+	public void testReadThrough() throws DalException {
+
+		Assert.assertEquals(1, find().getId());
+		Assert.assertEquals(1, find().getId());
+		Assert.assertEquals(1, loads.get());
+		Assert.assertEquals(1, cache.getHits());
+		Assert.assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	public void testCopyReturned() throws DalException {
+
+		ClusterTbl first = find();
+		first.setClusterName("modified");
+		first.setId(100);
+
+		ClusterTbl second = find();
+		Assert.assertEquals("cluster", second.getClusterName());
+		Assert.assertEquals(1, second.getId());
+		Assert.assertNotSame(first, second);
+	}
+
+	@Test
+	public void testCollectionFieldsCopied() throws DalException {
+
+		DalQuery<ClusterTbl> loader = new DalQuery<ClusterTbl>() {
+			@Override
+			public ClusterTbl doQuery() throws DalException {
+				ClusterTbl result = load();
+				result.getDcClusterInfo().add(new DcClusterTbl().setDcId(1));
+				return result;
+			}
+		};
+
+		ClusterTbl first = cache.readThrough("name", "cluster", loader).doQuery();
+		first.getDcClusterInfo().get(0).setDcId(100);
+		first.getDcClusterInfo().add(new DcClusterTbl().setDcId(2));
+
+		ClusterTbl second = cache.readThrough("name", "cluster", loader).doQuery();
+		Assert.assertEquals(1, second.getDcClusterInfo().size());
+		Assert.assertEquals(1, second.getDcClusterInfo().get(0).getDcId());
+		Assert.assertEquals(1, cache.getHits());
+	}
+
+	@Test
+	public void testSharedListCopiedOncePerLoad() throws DalException {
+
+		List<ClusterTbl> first = findAll();
+		List<ClusterTbl> second = findAll();
+		Assert.assertSame(first, second);
+		Assert.assertEquals(1, loads.get());
+		try {
+			first.add(new ClusterTbl());
+			Assert.fail();
+		} catch (UnsupportedOperationException e) {
+		}
+
+		DalTableVersions.writeBegin(TABLE);
+		database.set(2);
+		DalTableVersions.writeEnd(TABLE);
+		List<ClusterTbl> third = findAll();
+		Assert.assertNotSame(first, third);
+		Assert.assertEquals(2, third.get(0).getId());
+		Assert.assertEquals(1, first.get(0).getId());
+	}
+
+	@Test
+	public void testInvalidatedOnWrite() throws DalException {
+
+		find();
+		DalTableVersions.writeBegin(TABLE);
+		database.set(2);
+		// not committed yet, not cached
+		find();
+		find();
+		Assert.assertEquals(3, loads.get());
+
+		DalTableVersions.writeEnd(TABLE);
+		Assert.assertEquals(2, find().getId());
+		Assert.assertEquals(2, find().getId());
+		Assert.assertEquals(4, loads.get());
+		Assert.assertEquals(1, cache.getInvalidations());
+	}
+
+	@Test
+	public void testWriteDuringLoadNotCached() throws DalException {
+
+		DalQuery<ClusterTbl> loader = new DalQuery<ClusterTbl>() {
+			@Override
+			public ClusterTbl doQuery() throws DalException {
+				ClusterTbl result = load();
+				// committed by another thread while loading
+				DalTableVersions.writeBegin(TABLE);
+				database.incrementAndGet();
+				DalTableVersions.writeEnd(TABLE);
+				return result;
+			}
+		};
+		Assert.assertEquals(1, cache.readThrough("name", "cluster", loader).doQuery().getId());
+		Assert.assertEquals(2, find().getId());
+	}
+
+	@Test
+	public void testInvalidateAll() throws DalException {
+
+		find();
+		database.set(2);
+		DalTableVersions.invalidateAll();
+		Assert.assertEquals(2, find().getId());
+	}
+
+	@Test
+	public void testExpired() throws Exception {
+
+		cache = new DalEntityCache("test", 100, 10, TABLE);
+		find();
+		database.set(2);
+		sleep(20);
+		Assert.assertEquals(2, find().getId());
+	}
+
+	@Test
+	public void testBounded() throws DalException {
+
+		for (int i = 0; i < 200; i++) {
+			cache.readThrough("id", i, new DalQuery<ClusterTbl>() {
+				@Override
+				public ClusterTbl doQuery() throws DalException {
+					return load();
+				}
+			}).doQuery();
+		}
+		Assert.assertEquals(100, cache.size());
+	}
+
+	@Test
+	public void testBypassedInTransaction() throws Exception {
+
+		DataSource ds = mock(DataSource.class);
+		when(ds.getConnection()).thenReturn(mock(Connection.class));
+		when(m_dataSourceManager.getDataSource("")).thenReturn(ds);
+
+		find();
+		dalTM.startTransaction("");
+		try {
+			find();
+			Assert.assertEquals(1, cache.getBypasses());
+			Assert.assertEquals(2, loads.get());
+		} finally {
+			dalTM.commitTransaction();
+		}
+		find();
+		Assert.assertEquals(2, loads.get());
+	}
+
+	@Test
+	public void testConsistency() throws Exception {
+
+		final int writes = 2000;
+		final AtomicLong committed = new AtomicLong(database.get());
+		final AtomicInteger stale = new AtomicInteger();
+		ExecutorService executors = Executors.newFixedThreadPool(5);
+
+		try {
+			List<Future<?>> futures = new LinkedList<>();
+			futures.add(executors.submit(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < writes; i++) {
+						DalTableVersions.writeBegin(TABLE);
+						long version = database.incrementAndGet();
+						DalTableVersions.writeEnd(TABLE);
+						committed.set(version);
+					}
+				}
+			}));
+			for (int reader = 0; reader < 4; reader++) {
+				futures.add(executors.submit(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							while (committed.get() < writes) {
+								long before = committed.get();
+								if (find().getId() < before) {
+									stale.incrementAndGet();
+								}
+							}
+						} catch (DalException e) {
+							throw new IllegalStateException(e);
+						}
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executors.shutdownNow();
+		}
+
+		logger.info("[testConsistency]hits:{}, misses:{}, invalidations:{}", cache.getHits(), cache.getMisses(),
+				cache.getInvalidations());
+		Assert.assertEquals(0, stale.get());
+		Assert.assertEquals(database.get(), find().getId());
+	}
+
+	private ClusterTbl find() throws DalException {
+		return cache.readThrough("name", "cluster", new DalQuery<ClusterTbl>() {
+			@Override
+			public ClusterTbl doQuery() throws DalException {
+				return load();
+			}
+		}).doQuery();
+	}
+
+	private List<ClusterTbl> findAll() throws DalException {
+		return cache.readThroughShared("all", null, new DalQuery<List<ClusterTbl>>() {
+			@Override
+			public List<ClusterTbl> doQuery() throws DalException {
+				List<ClusterTbl> result = new LinkedList<>();
+				result.add(load());
+				return result;
+			}
+		}).doQuery();
+	}
+
+	private ClusterTbl load() {
+		loads.incrementAndGet();
+		return new ClusterTbl().setId(database.get()).setClusterName("cluster");
+	}
+
+}
@@ -0,0 +1,163 @@
+package com.ctrip.xpipe.redis.console.health;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ctrip.xpipe.metric.HostPort;
+import com.ctrip.xpipe.redis.console.AbstractConsoleTest;
+import com.ctrip.xpipe.redis.console.health.ping.InstancePingResult;
+import com.ctrip.xpipe.redis.console.health.ping.PingSamplePlan;
+import com.ctrip.xpipe.redis.core.entity.RedisMeta;
+
+/**
+ * @author wenchao.meng
+ *
+ * Jan 24, 2017
+ */
+public class BaseSampleMonitorTest extends AbstractConsoleTest {
+
+	private int instanceCount = Integer.parseInt(System.getProperty("SAMPLE_MONITOR_TEST_INSTANCE_COUNT", "1000"));
+
+	private int instancesPerPlan = 5;
+
+	private int expireMilli = 500;
+
+	private TestSampleMonitor monitor;
+
+	@Before
+	public void beforeBaseSampleMonitorTest() {
+		monitor = new TestSampleMonitor();
+		monitor.sampleExpireMilli = expireMilli;
+		monitor.postConstruct();
+	}
+
+	@Test
+	public void testFinishedOnLastReply() throws Exception {
+
+		PingSamplePlan plan = createPlan(0);
+		long sampleId = monitor.recordSample(plan);
+
+		List<HostPort> hostPorts = new LinkedList<>(plan.getHostPort2SampleResult().keySet());
+		for (int i = 0; i < hostPorts.size() - 1; i++) {
+			monitor.addInstanceResult(sampleId, hostPorts.get(i).getHost(), hostPorts.get(i).getPort(), null);
+		}
+		// duplicated reply is not counted
+		monitor.addInstanceResult(sampleId, hostPorts.get(0).getHost(), hostPorts.get(0).getPort(), null);
+		sleep(50);
+		Assert.assertEquals(0, monitor.notified.size());
+
+		HostPort last = hostPorts.get(hostPorts.size() - 1);
+		monitor.addInstanceResult(sampleId, last.getHost(), last.getPort(), null);
+		Assert.assertTrue(monitor.await(1, 1000));
+		Assert.assertTrue(monitor.notified.get(sampleId).getSamplePlan().getHostPort2SampleResult().get(last).isDone());
+	}
+
+	@Test
+	public void testExpired() throws Exception {
+
+		long sampleId = monitor.recordSample(createPlan(0));
+
+		Assert.assertTrue(monitor.await(1, expireMilli * 3));
+		Assert.assertFalse(monitor.notified.get(sampleId).isDone());
+	}
+
+	@Test
+	public void testManySamples() throws Exception {
+
+		int scaleExpireMilli = 2000;
+		monitor.sampleExpireMilli = scaleExpireMilli;
+		int planCount = instanceCount / instancesPerPlan;
+		List<Long> sampleIds = new LinkedList<>();
+		List<PingSamplePlan> plans = new LinkedList<>();
+
+		for (int i = 0; i < planCount; i++) {
+			PingSamplePlan plan = createPlan(i);
+			plans.add(plan);
+			sampleIds.add(monitor.recordSample(plan));
+		}
+
+		// one in ten plans never replies
+		ConcurrentMap<Long, Long> lastReplyNanos = new ConcurrentHashMap<>();
+		for (int i = 0; i < planCount; i++) {
+			if (i % 10 == 0) {
+				continue;
+			}
+			long sampleId = sampleIds.get(i);
+			for (HostPort hostPort : plans.get(i).getHostPort2SampleResult().keySet()) {
+				lastReplyNanos.put(sampleId, System.nanoTime());
+				monitor.addInstanceResult(sampleId, hostPort.getHost(), hostPort.getPort(), null);
+			}
+		}
+
+		Assert.assertTrue(monitor.await(planCount, scaleExpireMilli * 5));
+		Assert.assertEquals(planCount, monitor.notified.size());
+
+		int doneCount = 0;
+		for (int i = 0; i < planCount; i++) {
+			long sampleId = sampleIds.get(i);
+			Sample<InstancePingResult> sample = monitor.notified.get(sampleId);
+			long notifyNanos = monitor.notifyNanos.get(sampleId);
+			if (i % 10 == 0) {
+				// notified on expiration, not before (timer ticks may round it slightly)
+				Assert.assertFalse(sample.isDone());
+				Assert.assertTrue(notifyNanos - sampleId >= TimeUnit.MILLISECONDS.toNanos(scaleExpireMilli * 9 / 10));
+			} else {
+				// notified on last reply, without waiting for expiration
+				Assert.assertTrue(sample.isDone());
+				Assert.assertTrue(notifyNanos - lastReplyNanos.get(sampleId) < TimeUnit.MILLISECONDS.toNanos(scaleExpireMilli));
+				for (InstancePingResult result : sample.getSamplePlan().getHostPort2SampleResult().values()) {
+					Assert.assertTrue(result.isDone());
+				}
+				doneCount++;
+			}
+		}
+		Assert.assertEquals(planCount - planCount / 10, doneCount);
+	}
+
+	private PingSamplePlan createPlan(int index) {
+
+		PingSamplePlan plan = new PingSamplePlan("cluster" + index, "shard" + index);
+		for (int i = 0; i < instancesPerPlan; i++) {
+			RedisMeta redisMeta = new RedisMeta();
+			redisMeta.setIp("127.0.0.1");
+			redisMeta.setPort(10000 + index * instancesPerPlan + i);
+			plan.addRedis("dc", redisMeta, new InstancePingResult());
+		}
+		return plan;
+	}
+
+	@After
+	public void afterBaseSampleMonitorTest() {
+		monitor.preDestroy();
+	}
+
+	public static class TestSampleMonitor extends BaseSampleMonitor<InstancePingResult> {
+
+		private ConcurrentMap<Long, Sample<InstancePingResult>> notified = new ConcurrentHashMap<>();
+
+		private ConcurrentMap<Long, Long> notifyNanos = new ConcurrentHashMap<>();
+
+		@Override
+		protected void notifyCollectors(Sample<InstancePingResult> sample) {
+			notifyNanos.put(sample.getStartNanoTime(), System.nanoTime());
+			notified.put(sample.getStartNanoTime(), sample);
+		}
+
+		public boolean await(int count, int timeoutMilli) throws InterruptedException {
+
+			long until = System.currentTimeMillis() + timeoutMilli;
+			while (notified.size() < count && System.currentTimeMillis() < until) {
+				TimeUnit.MILLISECONDS.sleep(5);
+			}
+			return notified.size() >= count;
+		}
+	}
+}
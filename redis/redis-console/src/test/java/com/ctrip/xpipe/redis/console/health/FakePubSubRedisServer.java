@@ -0,0 +1,220 @@
+package com.ctrip.xpipe.redis.console.health;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ctrip.xpipe.api.codec.Codec;
+import com.ctrip.xpipe.lifecycle.AbstractLifecycle;
+import com.ctrip.xpipe.payload.ByteArrayOutputStreamPayload;
+import com.ctrip.xpipe.redis.core.protocal.RedisClientProtocol;
+import com.ctrip.xpipe.redis.core.protocal.protocal.ArrayParser;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.util.concurrent.GlobalEventExecutor;
+
+/**
+ * redis speaking just enough protocol for health check: PING, PUBLISH, SUBSCRIBE, others are answered with +OK.<br/>
+ * counts connections and commands
+ * @author wenchao.meng
+ *
+ * Jan 22, 2017
+ */
+public class FakePubSubRedisServer extends AbstractLifecycle {
+
+	private static Logger logger = LoggerFactory.getLogger(FakePubSubRedisServer.class);
+
+	private final int port;
+
+	private final EventLoopGroup eventLoopGroup;
+
+	private final boolean shareEventLoop;
+
+	private Channel serverChannel;
+
+	private ChannelGroup channels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+
+	private ConcurrentMap<String, Set<Channel>> subscribers = new ConcurrentHashMap<>();
+
+	private AtomicInteger totalConnections = new AtomicInteger();
+
+	private AtomicLong commands = new AtomicLong();
+
+	public FakePubSubRedisServer(int port) {
+		this(port, null);
+	}
+
+	/**
+	 * @param eventLoopGroup shared by many servers, not closed on dispose
+	 */
+	public FakePubSubRedisServer(int port, EventLoopGroup eventLoopGroup) {
+		this.port = port;
+		this.shareEventLoop = eventLoopGroup != null;
+		this.eventLoopGroup = eventLoopGroup != null ? eventLoopGroup : new NioEventLoopGroup(1);
+	}
+
+	@Override
+	protected void doStart() throws Exception {
+
+		ServerBootstrap b = new ServerBootstrap();
+		b.group(eventLoopGroup, eventLoopGroup).channel(NioServerSocketChannel.class)
+				.childHandler(new ChannelInitializer<SocketChannel>() {
+					@Override
+					public void initChannel(SocketChannel ch) throws Exception {
+						ch.pipeline().addLast(new FakeRedisHandler());
+					}
+				});
+		serverChannel = b.bind(port).sync().channel();
+	}
+
+	@Override
+	protected void doStop() throws Exception {
+
+		channels.close().sync();
+		if (serverChannel != null) {
+			serverChannel.close().sync();
+		}
+	}
+
+	@Override
+	protected void doDispose() throws Exception {
+
+		if (!shareEventLoop) {
+			eventLoopGroup.shutdownGracefully();
+		}
+	}
+
+	public int getPort() {
+		return port;
+	}
+
+	public int getCurrentConnections() {
+		return channels.size();
+	}
+
+	public int getTotalConnections() {
+		return totalConnections.get();
+	}
+
+	public long getCommands() {
+		return commands.get();
+	}
+
+	private void handle(Channel channel, String[] command) {
+
+		String name = command[0].toLowerCase();
+		switch (name) {
+			case "ping":
+				channel.writeAndFlush(simpleString("PONG"));
+				break;
+			case "subscribe":
+				for (int i = 1; i < command.length; i++) {
+					Set<Channel> channelSubscribers = subscribers.get(command[i]);
+					if (channelSubscribers == null) {
+						channelSubscribers = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+						Set<Channel> previous = subscribers.putIfAbsent(command[i], channelSubscribers);
+						if (previous != null) {
+							channelSubscribers = previous;
+						}
+					}
+					channelSubscribers.add(channel);
+					channel.writeAndFlush(array("subscribe", command[i], i));
+				}
+				break;
+			case "publish":
+				Set<Channel> channelSubscribers = subscribers.get(command[1]);
+				int count = 0;
+				if (channelSubscribers != null) {
+					for (Channel subscriber : channelSubscribers) {
+						subscriber.writeAndFlush(array("message", command[1], command[2]));
+						count++;
+					}
+				}
+				channel.writeAndFlush(integer(count));
+				break;
+			default:
+				logger.debug("[handle][unsupported, reply ok]{}", name);
+				channel.writeAndFlush(simpleString("OK"));
+		}
+		commands.incrementAndGet();
+	}
+
+	private ByteBuf simpleString(String value) {
+		return Unpooled.wrappedBuffer(("+" + value + "\r\n").getBytes());
+	}
+
+	private ByteBuf integer(long value) {
+		return Unpooled.wrappedBuffer((":" + value + "\r\n").getBytes());
+	}
+
+	private ByteBuf array(Object... items) {
+
+		StringBuilder sb = new StringBuilder();
+		sb.append("*").append(items.length).append("\r\n");
+		for (Object item : items) {
+			if (item instanceof String) {
+				byte[] bytes = ((String) item).getBytes(Codec.defaultCharset);
+				sb.append("$").append(bytes.length).append("\r\n").append(item).append("\r\n");
+			} else {
+				sb.append(":").append(item).append("\r\n");
+			}
+		}
+		return Unpooled.wrappedBuffer(sb.toString().getBytes(Codec.defaultCharset));
+	}
+
+	private class FakeRedisHandler extends ByteToMessageDecoder {
+
+		private ArrayParser parser = new ArrayParser();
+
+		@Override
+		public void channelActive(ChannelHandlerContext ctx) throws Exception {
+			channels.add(ctx.channel());
+			totalConnections.incrementAndGet();
+			super.channelActive(ctx);
+		}
+
+		@Override
+		protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+
+			while (in.readableBytes() > 0) {
+				RedisClientProtocol<Object[]> result = parser.read(in);
+				if (result == null) {
+					return;
+				}
+				parser = new ArrayParser();
+				handle(ctx.channel(), toStrings(result.getPayload()));
+			}
+		}
+
+		private String[] toStrings(Object[] payload) {
+
+			String[] result = new String[payload.length];
+			for (int i = 0; i < payload.length; i++) {
+				if (payload[i] instanceof ByteArrayOutputStreamPayload) {
+					result[i] = new String(((ByteArrayOutputStreamPayload) payload[i]).getBytes(), Codec.defaultCharset);
+				} else {
+					result[i] = String.valueOf(payload[i]);
+				}
+			}
+			return result;
+		}
+	}
+}
@@ -0,0 +1,189 @@
+package com.ctrip.xpipe.redis.console.health;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ctrip.xpipe.redis.console.AbstractConsoleTest;
+import com.lambdaworks.redis.pubsub.RedisPubSubAdapter;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+
+/**
+ * @author wenchao.meng
+ *
+ * Jan 22, 2017
+ */
+public class RedisSessionTest extends AbstractConsoleTest {
+
+	private int redisCount = Integer.parseInt(System.getProperty("REDIS_SESSION_TEST_REDIS_COUNT", "20"));
+
+	private int rounds = Integer.parseInt(System.getProperty("REDIS_SESSION_TEST_ROUNDS", "5"));
+
+	private String[] channels = new String[] { "channel1", "channel2", "channel3" };
+
+	private DefaultRedisSessionManager sessionManager;
+
+	private EventLoopGroup serverEventLoopGroup;
+
+	@Before
+	public void beforeRedisSessionTest() {
+		sessionManager = new DefaultRedisSessionManager();
+		serverEventLoopGroup = new NioEventLoopGroup(2);
+	}
+
+	@Test
+	public void testChannelsShareConnection() throws Exception {
+
+		FakePubSubRedisServer server = startFakePubSubRedisServer();
+		RedisSession session = sessionManager.findOrCreateSession("localhost", server.getPort());
+
+		final ConcurrentMap<String, String> received = new ConcurrentHashMap<>();
+		final CountDownLatch latch = new CountDownLatch(channels.length);
+		for (final String channel : channels) {
+			session.subscribeIfAbsent(channel, new RedisPubSubAdapter<String, String>() {
+
+				@Override
+				public void message(String messageChannel, String message) {
+					received.put(channel, messageChannel + ":" + message);
+					latch.countDown();
+				}
+			});
+		}
+		waitSubscribed(server, channels.length);
+
+		for (String channel : channels) {
+			session.publish(channel, "message-" + channel);
+		}
+		Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+		for (String channel : channels) {
+			Assert.assertEquals(channel + ":message-" + channel, received.get(channel));
+		}
+
+		final CountDownLatch pong = new CountDownLatch(1);
+		session.ping(new PingCallback() {
+
+			@Override
+			public void pong(boolean success, String pongMsg) {
+				if (success && "PONG".equals(pongMsg)) {
+					pong.countDown();
+				}
+			}
+		});
+		Assert.assertTrue(pong.await(5, TimeUnit.SECONDS));
+
+		Assert.assertEquals(2, session.connectionCount());
+		Assert.assertEquals(2, server.getCurrentConnections());
+	}
+
+	@Test
+	public void testPingFailWhenNotConnected() throws Exception {
+
+		RedisSession session = sessionManager.findOrCreateSession("localhost", randomPort());
+
+		final CountDownLatch pong = new CountDownLatch(1);
+		session.ping(new PingCallback() {
+
+			@Override
+			public void pong(boolean success, String pongMsg) {
+				if (!success && pongMsg == null) {
+					pong.countDown();
+				}
+			}
+		});
+		Assert.assertTrue(pong.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testConnectionsAtScale() throws Exception {
+
+		List<FakePubSubRedisServer> servers = new LinkedList<>();
+		List<RedisSession> sessions = new LinkedList<>();
+		for (int i = 0; i < redisCount; i++) {
+			FakePubSubRedisServer server = startFakePubSubRedisServer();
+			servers.add(server);
+			sessions.add(sessionManager.findOrCreateSession("localhost", server.getPort()));
+		}
+
+		final CountDownLatch messages = new CountDownLatch(redisCount * channels.length * rounds);
+		final CountDownLatch pongs = new CountDownLatch(redisCount * rounds);
+		for (int round = 0; round < rounds; round++) {
+			for (RedisSession session : sessions) {
+				for (String channel : channels) {
+					session.subscribeIfAbsent(channel, new RedisPubSubAdapter<String, String>() {
+
+						@Override
+						public void message(String messageChannel, String message) {
+							messages.countDown();
+						}
+					});
+				}
+			}
+			if (round == 0) {
+				for (FakePubSubRedisServer server : servers) {
+					waitSubscribed(server, channels.length);
+				}
+			}
+			for (RedisSession session : sessions) {
+				session.ping(new PingCallback() {
+
+					@Override
+					public void pong(boolean pong, String pongMsg) {
+						pongs.countDown();
+					}
+				});
+				for (String channel : channels) {
+					session.publish(channel, String.valueOf(System.nanoTime()));
+				}
+			}
+		}
+
+		Assert.assertTrue(pongs.await(30, TimeUnit.SECONDS));
+		Assert.assertTrue(messages.await(30, TimeUnit.SECONDS));
+
+		int totalConnections = 0;
+		for (FakePubSubRedisServer server : servers) {
+			Assert.assertEquals(2, server.getCurrentConnections());
+			totalConnections += server.getTotalConnections();
+		}
+		Assert.assertEquals(2 * redisCount, totalConnections);
+	}
+
+	private void waitSubscribed(final FakePubSubRedisServer server, final int expectedCommands) throws Exception {
+
+		long until = System.currentTimeMillis() + 5000;
+		while (server.getCommands() < expectedCommands && System.currentTimeMillis() < until) {
+			TimeUnit.MILLISECONDS.sleep(10);
+		}
+		Assert.assertTrue(server.getCommands() >= expectedCommands);
+	}
+
+	private FakePubSubRedisServer startFakePubSubRedisServer() throws Exception {
+
+		FakePubSubRedisServer server = new FakePubSubRedisServer(randomPort(), serverEventLoopGroup);
+		server.initialize();
+		server.start();
+		add(server);
+		return server;
+	}
+
+	@After
+	public void afterRedisSessionTest() {
+		sessionManager.destroy();
+	}
+
+	@Override
+	protected void doAfterAbstractTest() throws Exception {
+		// servers are stopped by then
+		serverEventLoopGroup.shutdownGracefully();
+	}
+}
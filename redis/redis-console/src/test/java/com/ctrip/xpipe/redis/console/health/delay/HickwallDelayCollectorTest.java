@@ -0,0 +1,73 @@
+package com.ctrip.xpipe.redis.console.health.delay;
+
+import static org.mockito.Mockito.mock;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.ctrip.xpipe.metric.HostPort;
+import com.ctrip.xpipe.metric.MetricProxy;
+import com.ctrip.xpipe.redis.console.AbstractConsoleTest;
+
+/**
+ * @author wenchao.meng
+ *
+ * Jan 29, 2017
+ */
+public class HickwallDelayCollectorTest extends AbstractConsoleTest {
+
+	private HickwallDelayCollector collector;
+
+	@Before
+	public void beforeHickwallDelayCollectorTest() {
+
+		collector = new HickwallDelayCollector();
+		ReflectionTestUtils.setField(collector, "proxy", mock(MetricProxy.class));
+	}
+
+	@Test
+	public void testRemovedInstanceEvicted() {
+
+		collector.collect(result("cluster", "shard", 6379, 6380, 6381));
+		Assert.assertEquals(3, collector.instanceMetricCount());
+
+		collector.collect(result("cluster", "shard", 6379, 6380));
+		Assert.assertEquals(2, collector.instanceMetricCount());
+	}
+
+	@Test
+	public void testMovedInstanceKept() {
+
+		collector.collect(result("cluster", "shard1", 6379, 6380));
+		collector.collect(result("cluster", "shard2", 6479, 6380));
+		Assert.assertEquals(3, collector.instanceMetricCount());
+
+		//6380 belongs to shard2 now
+		collector.collect(result("cluster", "shard1", 6379));
+		Assert.assertEquals(3, collector.instanceMetricCount());
+	}
+
+	@Test
+	public void testIdleShardEvicted() {
+
+		ReflectionTestUtils.setField(collector, "shardIdleMilli", 50L);
+		collector.collect(result("cluster", "shard1", 6379, 6380));
+
+		sleep(100);
+		collector.collect(result("cluster", "shard2", 6479));
+		Assert.assertEquals(1, collector.instanceMetricCount());
+	}
+
+	private DelaySampleResult result(String clusterId, String shardId, int masterPort, int... slavePorts) {
+
+		DelaySampleResult result = new DelaySampleResult(System.currentTimeMillis(), clusterId, shardId);
+		result.setMasterDelayNanos(new HostPort("127.0.0.1", masterPort), 1000);
+		for (int slavePort : slavePorts) {
+			result.addSlaveDelayNanos(new HostPort("127.0.0.1", slavePort), 1000);
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,60 @@
+package com.ctrip.xpipe.redis.console.health.history;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.ctrip.xpipe.metric.HostPort;
+import com.ctrip.xpipe.redis.console.AbstractConsoleTest;
+import com.ctrip.xpipe.redis.console.config.ConsoleConfig;
+import com.ctrip.xpipe.redis.console.health.delay.DefaultDelayMonitor;
+import com.ctrip.xpipe.redis.console.health.delay.DelaySampleResult;
+
+/**
+ * @author wenchao.meng
+ *
+ * Jan 29, 2017
+ */
+public class DefaultHealthHistoryServiceTest extends AbstractConsoleTest {
+
+	private DefaultHealthHistoryService historyService;
+
+	@Before
+	public void beforeDefaultHealthHistoryServiceTest() {
+
+		ConsoleConfig config = mock(ConsoleConfig.class);
+		when(config.getHealthHistoryMemoryMb()).thenReturn(16);
+
+		historyService = new DefaultHealthHistoryService();
+		ReflectionTestUtils.setField(historyService, "config", config);
+		historyService.postConstruct();
+	}
+
+	@Test
+	public void testLostSamplesRecordedAsLost() {
+
+		historyService.collect(result("shard1", 6379, 1000L * 1000));
+		historyService.collect(result("shard2", 6380, DefaultDelayMonitor.SAMPLE_LOST_BUT_PONG));
+		historyService.collect(result("shard3", 6381, DefaultDelayMonitor.SAMPLE_LOST_AND_NO_PONG));
+
+		Map<String, HealthState> states = historyService.shardStates("cluster", Arrays.asList("shard1", "shard2", "shard3"), 60);
+		Assert.assertEquals(HealthState.HEALTHY, states.get("shard1"));
+		Assert.assertEquals(HealthState.DOWN, states.get("shard2"));
+		Assert.assertEquals(HealthState.DOWN, states.get("shard3"));
+	}
+
+	private DelaySampleResult result(String shardId, int masterPort, long masterDelayNanos) {
+
+		DelaySampleResult result = new DelaySampleResult(System.currentTimeMillis(), "cluster", shardId);
+		result.setMasterDelayNanos(new HostPort("127.0.0.1", masterPort), masterDelayNanos);
+		return result;
+	}
+
+}
@@ -0,0 +1,179 @@
+package com.ctrip.xpipe.redis.console.health.history;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ctrip.xpipe.metric.HostPort;
+import com.ctrip.xpipe.redis.console.AbstractConsoleTest;
+
+/**
+ * @author wenchao.meng
+ *
+ * Jan 25, 2017
+ */
+public class HealthHistoryStoreTest extends AbstractConsoleTest {
+
+	// 50000 needs a larger heap than surefire default
+	private int instanceCount = Integer.parseInt(System.getProperty("HEALTH_HISTORY_TEST_INSTANCE_COUNT", "20000"));
+
+	private long budget = 256L * 1024 * 1024;
+
+	private long now = 1485302400000L;
+
+	@Test
+	public void testBuckets() {
+
+		int previous = LatencyBuckets.EMPTY;
+		for (long micros = 0; micros < 100000000L; micros = micros * 11 / 10 + 1) {
+			int bucket = LatencyBuckets.bucket(micros);
+			Assert.assertTrue(bucket >= previous);
+			long value = LatencyBuckets.value(bucket);
+			Assert.assertTrue(value >= micros);
+			Assert.assertTrue(value <= micros + micros / 8 + 1);
+			previous = bucket;
+		}
+		Assert.assertEquals(LatencyBuckets.LOST, LatencyBuckets.bucket(-1));
+		Assert.assertEquals(LatencyBuckets.LOST_VALUE, LatencyBuckets.value(LatencyBuckets.LOST));
+	}
+
+	@Test
+	public void testWorstShards() {
+
+		HealthHistoryStore store = new HealthHistoryStore("test", budget, 720, 180, 72);
+		for (int second = 0; second < 600; second += 10) {
+			long time = now - second * 1000L;
+			for (int shard = 0; shard < 10; shard++) {
+				store.record(new HostPort("127.0.0.1", 6000 + shard * 2), "cluster", "shard" + shard, time, 1000 * shard);
+				store.record(new HostPort("127.0.0.1", 6001 + shard * 2), "cluster", "shard" + shard, time, 1000);
+			}
+		}
+		store.record(new HostPort("127.0.0.1", 7000), "cluster", "lost", now, -1);
+
+		List<ShardLatency> worst = store.worstShards(now, 600, 99, 3);
+		Assert.assertEquals(3, worst.size());
+		Assert.assertEquals("lost", worst.get(0).getShardId());
+		Assert.assertEquals(LatencyBuckets.LOST_VALUE, worst.get(0).getLatency());
+		Assert.assertEquals("shard9", worst.get(1).getShardId());
+		Assert.assertEquals(LatencyBuckets.value(LatencyBuckets.bucket(9000)), worst.get(1).getLatency());
+		Assert.assertEquals("shard8", worst.get(2).getShardId());
+
+		// half of shard9 is 1ms
+		List<ShardLatency> median = store.worstShards(now, 600, 50, 20);
+		Assert.assertEquals(11, median.size());
+		Assert.assertEquals(LatencyBuckets.value(LatencyBuckets.bucket(1000)), median.get(1).getLatency());
+	}
+
+	@Test
+	public void testShardBucketsOfCluster() {
+
+		HealthHistoryStore store = new HealthHistoryStore("test", budget, 720, 180, 72);
+		HostPort moved = new HostPort("127.0.0.1", 6000);
+		store.record(moved, "cluster1", "shard1", now, 1000);
+		store.record(new HostPort("127.0.0.1", 6001), "cluster1", "shard2", now, -1);
+		store.record(new HostPort("127.0.0.1", 6002), "cluster2", "shard1", now, 5000);
+
+		Map<String, Integer> buckets = store.shardBuckets("cluster1", now, 60, 99);
+		Assert.assertEquals(2, buckets.size());
+		Assert.assertEquals(LatencyBuckets.bucket(1000), buckets.get("shard1").intValue());
+		Assert.assertEquals(LatencyBuckets.LOST, buckets.get("shard2").intValue());
+		Assert.assertTrue(store.shardBuckets("cluster3", now, 60, 99).isEmpty());
+
+		// instance moved to another cluster
+		store.record(moved, "cluster2", "shard3", now, 1000);
+		Assert.assertEquals(1, store.shardBuckets("cluster1", now, 60, 99).size());
+		Assert.assertEquals(2, store.shardBuckets("cluster2", now, 60, 99).size());
+
+		store.remove(moved);
+		Assert.assertEquals(1, store.shardBuckets("cluster2", now, 60, 99).size());
+	}
+
+	@Test
+	public void testRollup() {
+
+		HealthHistoryStore store = new HealthHistoryStore("test", budget, 120, 180, 72);
+		HostPort hostPort = new HostPort("127.0.0.1", 6379);
+		long begin = now / 3600000 * 3600000;
+		for (int second = 0; second < 3 * 3600; second += 10) {
+			long latency = second < 3600 ? 500 : 5000;
+			store.record(hostPort, "cluster", "shard", begin + second * 1000L, latency);
+		}
+		long end = begin + 3 * 3600 * 1000L;
+
+		List<HistoryPoint> seconds = store.history(hostPort, Resolution.SECOND, end - 120 * 1000, end);
+		Assert.assertEquals(12, seconds.size());
+
+		List<HistoryPoint> minutes = store.history(hostPort, Resolution.MINUTE, begin, end);
+		Assert.assertEquals(180, minutes.size());
+		Assert.assertEquals(6, minutes.get(0).getCount());
+		Assert.assertEquals(LatencyBuckets.value(LatencyBuckets.bucket(500)), minutes.get(0).getP99());
+		Assert.assertEquals(LatencyBuckets.value(LatencyBuckets.bucket(5000)), minutes.get(179).getMax());
+
+		List<HistoryPoint> hours = store.history(hostPort, Resolution.HOUR, begin, end);
+		Assert.assertEquals(3, hours.size());
+		Assert.assertEquals(360, hours.get(0).getCount());
+		Assert.assertEquals(LatencyBuckets.value(LatencyBuckets.bucket(500)), hours.get(0).getP99());
+
+		// window longer than seconds kept, served by minute rollups
+		Assert.assertEquals(Resolution.MINUTE, store.resolutionFor(3600));
+		Assert.assertEquals(LatencyBuckets.value(LatencyBuckets.bucket(5000)),
+				store.worstShards(end, 3600, 99, 1).get(0).getLatency());
+	}
+
+	@Test
+	public void testMemoryBudget() {
+
+		long instanceBytes = InstanceHistory.estimatedBytes(720, 180, 72);
+		HealthHistoryStore store = new HealthHistoryStore("test", instanceBytes * 10, 720, 180, 72);
+		for (int i = 0; i < 20; i++) {
+			store.record(new HostPort("127.0.0.1", 6000 + i), "cluster", "shard", now, 1000);
+		}
+		Assert.assertEquals(10, store.size());
+		Assert.assertEquals(10, store.getRejected());
+
+		// idle ones are evicted for new instances
+		long later = now + 181 * 60 * 1000L;
+		store.record(new HostPort("127.0.0.1", 7000), "cluster", "shard", later, 1000);
+		Assert.assertEquals(1, store.size());
+	}
+
+	@Test
+	public void testQueryAtScale() {
+
+		HealthHistoryStore store = new HealthHistoryStore("test", budget, 600, 60, 24);
+		int instancesPerShard = 5;
+		HostPort[] hostPorts = new HostPort[instanceCount];
+		for (int i = 0; i < instanceCount; i++) {
+			hostPorts[i] = new HostPort("10.0." + (i / 10000) + "." + (i % 250), 6000 + i % 10000);
+		}
+
+		long begin = System.nanoTime();
+		long records = 0;
+		for (int second = 600; second > 0; second -= 10) {
+			long time = now - second * 1000L;
+			for (int i = 0; i < instanceCount; i++) {
+				int shard = i / instancesPerShard;
+				store.record(hostPorts[i], "cluster" + shard % 100, "shard" + shard, time, 1000 + (i * 31 + second) % 5000);
+				records++;
+			}
+		}
+		long recordNanos = System.nanoTime() - begin;
+
+		Assert.assertEquals(instanceCount, store.size());
+
+		List<ShardLatency> worst = null;
+		long queryNanos = Long.MAX_VALUE;
+		for (int i = 0; i < 5; i++) {
+			begin = System.nanoTime();
+			worst = store.worstShards(now, 600, 99, 100);
+			queryNanos = Math.min(queryNanos, System.nanoTime() - begin);
+		}
+		Assert.assertEquals(100, worst.size());
+
+		logger.info("[testQueryAtScale]instances:{}, max instances:{}, record:{} ns/point, worst 100 shards by p99 in 10 min:{} ms",
+				instanceCount, store.getMaxInstances(), recordNanos / records, queryNanos / 1000000);
+	}
+
+}
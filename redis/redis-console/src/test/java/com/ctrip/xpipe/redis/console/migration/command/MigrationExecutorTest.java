@@ -0,0 +1,147 @@
+package com.ctrip.xpipe.redis.console.migration.command;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ctrip.xpipe.api.command.CommandFuture;
+import com.ctrip.xpipe.command.DefaultCommandFuture;
+import com.ctrip.xpipe.redis.console.AbstractConsoleTest;
+
+/**
+ * @author wenchao.meng
+ *
+ * Jan 29, 2017
+ */
+public class MigrationExecutorTest extends AbstractConsoleTest {
+
+	private int threads = 4;
+
+	private int dcConcurrency = 2;
+
+	private MigrationExecutor migrationExecutor;
+
+	@Before
+	public void beforeMigrationExecutorTest() {
+		migrationExecutor = new MigrationExecutor(threads, dcConcurrency);
+	}
+
+	@Test
+	public void testDcConcurrency() throws Exception {
+
+		int taskCount = 20;
+		final CountDownLatch done = new CountDownLatch(taskCount * 2);
+		final AtomicInteger runningA = new AtomicInteger(), maxRunningA = new AtomicInteger();
+		final AtomicInteger runningB = new AtomicInteger(), maxRunningB = new AtomicInteger();
+
+		for (int i = 0; i < taskCount; i++) {
+			migrationExecutor.execute("dc-a", new CountingTask(runningA, maxRunningA, done));
+			migrationExecutor.execute("dc-b", new CountingTask(runningB, maxRunningB, done));
+		}
+
+		Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+		Assert.assertEquals(dcConcurrency, maxRunningA.get());
+		Assert.assertEquals(dcConcurrency, maxRunningB.get());
+	}
+
+	@Test
+	public void testDcSlotHeldUntilFutureDone() throws Exception {
+
+		final List<DefaultCommandFuture<Void>> futures = new LinkedList<>();
+		final AtomicInteger started = new AtomicInteger();
+		for (int i = 0; i < dcConcurrency + 1; i++) {
+			final DefaultCommandFuture<Void> future = new DefaultCommandFuture<>();
+			futures.add(future);
+			migrationExecutor.submit("dc-a", new Callable<CommandFuture<?>>() {
+
+				@Override
+				public CommandFuture<?> call() throws Exception {
+					started.incrementAndGet();
+					return future;
+				}
+			});
+		}
+
+		sleep(100);
+		// tasks returned, but their futures are not done yet
+		Assert.assertEquals(dcConcurrency, started.get());
+
+		futures.get(0).setSuccess(null);
+		sleep(100);
+		Assert.assertEquals(dcConcurrency + 1, started.get());
+	}
+
+	@Test
+	public void testInvokeAllFromPoolThreads() throws Exception {
+
+		// every thread of the pool waits for tasks of the same pool
+		final CountDownLatch done = new CountDownLatch(threads);
+		for (int i = 0; i < threads; i++) {
+			migrationExecutor.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					List<Callable<Integer>> tasks = new LinkedList<>();
+					for (int j = 0; j < 10; j++) {
+						final int value = j;
+						tasks.add(new Callable<Integer>() {
+
+							@Override
+							public Integer call() throws Exception {
+								return value;
+							}
+						});
+					}
+					try {
+						if (migrationExecutor.invokeAll(tasks).size() == 10) {
+							done.countDown();
+						}
+					} catch (Exception e) {
+						logger.error("[testInvokeAllFromPoolThreads]", e);
+					}
+				}
+			});
+		}
+
+		Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+	}
+
+	@After
+	public void afterMigrationExecutorTest() {
+		migrationExecutor.shutdown();
+	}
+
+	private class CountingTask implements Runnable {
+
+		private AtomicInteger running;
+
+		private AtomicInteger maxRunning;
+
+		private CountDownLatch done;
+
+		public CountingTask(AtomicInteger running, AtomicInteger maxRunning, CountDownLatch done) {
+			this.running = running;
+			this.maxRunning = maxRunning;
+			this.done = done;
+		}
+
+		@Override
+		public void run() {
+			int current = running.incrementAndGet();
+			synchronized (maxRunning) {
+				maxRunning.set(Math.max(maxRunning.get(), current));
+			}
+			sleep(20);
+			running.decrementAndGet();
+			done.countDown();
+		}
+	}
+}
@@ -0,0 +1,265 @@
+package com.ctrip.xpipe.redis.console.monitor;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.ctrip.xpipe.redis.console.AbstractConsoleTest;
+import com.ctrip.xpipe.redis.console.health.DefaultRedisSessionManager;
+import com.ctrip.xpipe.redis.console.health.FakePubSubRedisServer;
+import com.ctrip.xpipe.redis.console.health.RedisSession;
+import com.ctrip.xpipe.redis.console.health.RedisSessionManager;
+import com.ctrip.xpipe.redis.console.monitor.impl.StandaloneStatMonitor;
+import com.ctrip.xpipe.redis.console.monitor.statmodel.StandaloneStatModel;
+import com.ctrip.xpipe.redis.console.monitor.statmodel.StandaloneStatModel.StandaloneClusterStat;
+import com.ctrip.xpipe.redis.console.monitor.statmodel.StandaloneStatModel.StandaloneRedisStat;
+import com.ctrip.xpipe.redis.console.monitor.statmodel.StandaloneStatModel.StandaloneShardStat;
+import com.lambdaworks.redis.pubsub.RedisPubSubListener;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+
+/**
+ * a linked shard has its master and slave on the same fake redis, so the slave receives what the master publishes
+ * @author wenchao.meng
+ *
+ * Jan 28, 2017
+ */
+public class StandaloneStatMonitorTest extends AbstractConsoleTest {
+
+	private int shardCount = Integer.parseInt(System.getProperty("STANDALONE_MONITOR_TEST_SHARD_COUNT", "50"));
+
+	private long alertIntervalMilli = 300;
+
+	private long periodMilli = 1000;
+
+	private static final String UNREACHABLE_IP = "10.255.255.1";
+
+	private EventLoopGroup serverEventLoopGroup;
+
+	private TestStandaloneStatMonitor monitor;
+
+	private long idGenerator = 0;
+
+	@Before
+	public void beforeStandaloneStatMonitorTest() {
+		System.setProperty("alert-interval", String.valueOf(alertIntervalMilli));
+		serverEventLoopGroup = new NioEventLoopGroup(2);
+	}
+
+	@Test
+	public void testRoundTakesOneAlertInterval() throws Exception {
+
+		StandaloneClusterStat cluster = new StandaloneClusterStat();
+		cluster.setClusterId("cluster1");
+		for (int i = 0; i < shardCount; i++) {
+			int port = startFakePubSubRedisServer().getPort();
+			cluster.addShardStats(createShard("shard" + i, port, port));
+		}
+		cluster.addShardStats(createShard("broken", startFakePubSubRedisServer().getPort(), startFakePubSubRedisServer().getPort()));
+		StandaloneStatModel model = new StandaloneStatModel();
+		model.addClusterStats(cluster);
+
+		long begin = System.currentTimeMillis();
+		monitor = new TestStandaloneStatMonitor(model);
+		waitReports(shardCount, periodMilli + alertIntervalMilli * 3);
+		long firstRoundMilli = System.currentTimeMillis() - begin;
+
+		// let subscriptions of the first round settle
+		TimeUnit.MILLISECONDS.sleep(periodMilli * 2 + alertIntervalMilli);
+
+		logger.info("[testRoundTakesOneAlertInterval]shards:{}, all shards checked after:{} ms", shardCount + 1, firstRoundMilli);
+		Assert.assertTrue(firstRoundMilli < periodMilli + alertIntervalMilli * 3);
+		for (int i = 0; i < shardCount; i++) {
+			List<Boolean> results = monitor.reports.get("shard" + i);
+			Assert.assertTrue(results.size() >= 2);
+			Assert.assertFalse(results.contains(Boolean.FALSE));
+		}
+		List<Boolean> broken = monitor.reports.get("broken");
+		Assert.assertTrue(broken.contains(Boolean.FALSE));
+		Assert.assertFalse(broken.contains(Boolean.TRUE));
+	}
+
+	@Test
+	public void testUnreachableRedisNotDelayRound() throws Exception {
+
+		int healthyCount = 10;
+		StandaloneClusterStat cluster = new StandaloneClusterStat();
+		cluster.setClusterId("cluster1");
+		for (int i = 0; i < healthyCount; i++) {
+			int port = startFakePubSubRedisServer().getPort();
+			cluster.addShardStats(createShard("shard" + i, port, port));
+		}
+		// connects to a non routable address wait for the connect timeout, or fail at once without network
+		cluster.addShardStats(createShard("unreachable", UNREACHABLE_IP, 6379, UNREACHABLE_IP, 6380));
+		StandaloneStatModel model = new StandaloneStatModel();
+		model.addClusterStats(cluster);
+
+		long begin = System.currentTimeMillis();
+		monitor = new TestStandaloneStatMonitor(model);
+		waitReports(healthyCount, alertIntervalMilli * 3);
+		long firstRoundMilli = System.currentTimeMillis() - begin;
+
+		TimeUnit.MILLISECONDS.sleep(periodMilli * 2 + alertIntervalMilli);
+
+		logger.info("[testUnreachableRedisNotDelayRound]healthy shards checked after:{} ms", firstRoundMilli);
+		Assert.assertTrue(firstRoundMilli < alertIntervalMilli * 3);
+		for (int i = 0; i < healthyCount; i++) {
+			List<Boolean> results = monitor.reports.get("shard" + i);
+			Assert.assertTrue(results.size() >= 2);
+			Assert.assertFalse(results.contains(Boolean.FALSE));
+		}
+		List<Boolean> unreachable = monitor.reports.get("unreachable");
+		Assert.assertNotNull(unreachable);
+		Assert.assertFalse(unreachable.contains(Boolean.TRUE));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testLaterRoundNotCoverMissedRound() throws Exception {
+
+		final long missedRound = 2;
+		final AtomicReference<RedisPubSubListener<String, String>> slaveListener = new AtomicReference<>();
+
+		RedisSession slaveSession = mock(RedisSession.class);
+		doAnswer(new Answer<Void>() {
+
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				RedisPubSubListener<String, String> listener = (RedisPubSubListener<String, String>) invocation.getArguments()[1];
+				slaveListener.set(listener);
+				listener.subscribed((String) invocation.getArguments()[0], 1);
+				return null;
+			}
+		}).when(slaveSession).subscribeIfAbsent(anyString(), any(RedisPubSubListener.class));
+
+		RedisSession masterSession = mock(RedisSession.class);
+		doAnswer(new Answer<Void>() {
+
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				String channel = (String) invocation.getArguments()[0];
+				String message = (String) invocation.getArguments()[1];
+				if (Long.parseLong(message) != missedRound) {
+					slaveListener.get().message(channel, message);
+				}
+				return null;
+			}
+		}).when(masterSession).publish(anyString(), anyString());
+
+		RedisSessionManager sessionManager = mock(RedisSessionManager.class);
+		when(sessionManager.findOrCreateSession("127.0.0.1", 6379)).thenReturn(masterSession);
+		when(sessionManager.findOrCreateSession("127.0.0.1", 6380)).thenReturn(slaveSession);
+
+		StandaloneClusterStat cluster = new StandaloneClusterStat();
+		cluster.setClusterId("cluster1");
+		cluster.addShardStats(createShard("shard", 6379, 6380));
+		StandaloneStatModel model = new StandaloneStatModel();
+		model.addClusterStats(cluster);
+
+		// later rounds are received before the missed round is checked
+		long shortPeriodMilli = alertIntervalMilli / 3;
+		monitor = new TestStandaloneStatMonitor(model, sessionManager, shortPeriodMilli);
+		TimeUnit.MILLISECONDS.sleep(alertIntervalMilli + shortPeriodMilli * 6);
+
+		List<Boolean> results = monitor.reports.get("shard");
+		logger.info("[testLaterRoundNotCoverMissedRound]{}", results);
+		Assert.assertTrue(results.size() >= 4);
+		for (int i = 0; i < results.size(); i++) {
+			Assert.assertEquals(i + 1 != missedRound, results.get(i));
+		}
+	}
+
+	private StandaloneShardStat createShard(String shardId, int masterPort, int slavePort) {
+		return createShard(shardId, "127.0.0.1", masterPort, "127.0.0.1", slavePort);
+	}
+
+	private StandaloneShardStat createShard(String shardId, String masterIp, int masterPort, String slaveIp, int slavePort) {
+
+		StandaloneShardStat shard = new StandaloneShardStat();
+		shard.setShardId(shardId);
+		shard.addRedisStats(createRedis(masterIp, masterPort, true));
+		shard.addRedisStats(createRedis(slaveIp, slavePort, false));
+		return shard;
+	}
+
+	private StandaloneRedisStat createRedis(String ip, int port, boolean master) {
+
+		StandaloneRedisStat redis = new StandaloneRedisStat();
+		redis.setId(++idGenerator);
+		redis.setIp(ip);
+		redis.setPort(port);
+		redis.setMaster(master);
+		return redis;
+	}
+
+	private void waitReports(int shards, long timeoutMilli) throws InterruptedException {
+
+		long until = System.currentTimeMillis() + timeoutMilli;
+		while (monitor.reports.size() < shards && System.currentTimeMillis() < until) {
+			TimeUnit.MILLISECONDS.sleep(5);
+		}
+	}
+
+	private FakePubSubRedisServer startFakePubSubRedisServer() throws Exception {
+
+		FakePubSubRedisServer server = new FakePubSubRedisServer(randomPort(), serverEventLoopGroup);
+		server.initialize();
+		server.start();
+		add(server);
+		return server;
+	}
+
+	@After
+	public void afterStandaloneStatMonitorTest() {
+		System.clearProperty("alert-interval");
+		if (monitor != null) {
+			monitor.stop();
+		}
+	}
+
+	@Override
+	protected void doAfterAbstractTest() throws Exception {
+		serverEventLoopGroup.shutdownGracefully();
+	}
+
+	public class TestStandaloneStatMonitor extends StandaloneStatMonitor {
+
+		private ConcurrentMap<String, List<Boolean>> reports = new ConcurrentHashMap<>();
+
+		public TestStandaloneStatMonitor(StandaloneStatModel model) {
+			this(model, new DefaultRedisSessionManager(), periodMilli);
+		}
+
+		public TestStandaloneStatMonitor(StandaloneStatModel model, RedisSessionManager sessionManager, long periodMilli) {
+			super(model, sessionManager, periodMilli, TimeUnit.MILLISECONDS);
+		}
+
+		@Override
+		protected void report(StandaloneClusterStat cluster, StandaloneShardStat shard, StandaloneRedisStat redis,
+				boolean success) {
+			List<Boolean> results = reports.get(shard.getShardId());
+			if (results == null) {
+				reports.putIfAbsent(shard.getShardId(), new CopyOnWriteArrayList<Boolean>());
+				results = reports.get(shard.getShardId());
+			}
+			results.add(success);
+		}
+	}
+}
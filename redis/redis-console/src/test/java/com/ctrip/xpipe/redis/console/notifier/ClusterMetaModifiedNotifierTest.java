@@ -3,20 +3,25 @@ package com.ctrip.xpipe.redis.console.notifier;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.springframework.web.client.ResourceAccessException;
 
-import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.anyObject;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.doThrow;
 import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import com.ctrip.xpipe.redis.console.AbstractConsoleTest;
@@ -28,6 +33,7 @@ import com.ctrip.xpipe.redis.console.service.meta.ClusterMetaService;
 import com.ctrip.xpipe.redis.console.util.MetaServerConsoleServiceManagerWrapper;
 import com.ctrip.xpipe.redis.core.entity.ClusterMeta;
 import com.ctrip.xpipe.redis.core.metaserver.MetaServerConsoleService;
+import com.ctrip.xpipe.redis.core.metaserver.MetaServerConsoleService.ClusterChangeInfo;
 
 /**
  * @author shyin
@@ -74,6 +80,8 @@ public class ClusterMetaModifiedNotifierTest extends AbstractConsoleTest {
 		doThrow(new ResourceAccessException("test")).when(mockedMetaServerConsoleService).clusterDeleted(clusterName);
 		doThrow(new ResourceAccessException("test")).when(mockedMetaServerConsoleService).clusterModified(clusterName,
 				mockedClusterMeta);
+		doThrow(new ResourceAccessException("test")).when(mockedMetaServerConsoleService)
+				.clusterChanges(anyListOf(ClusterChangeInfo.class));
 		when(clusterMetaService.getClusterMeta(dcName, clusterName)).thenReturn(mockedClusterMeta);
 	}
 
@@ -82,7 +90,7 @@ public class ClusterMetaModifiedNotifierTest extends AbstractConsoleTest {
 		notifier.notifyClusterUpdate(dcName, clusterName);
 		TimeUnit.SECONDS.sleep(3);
 		verify(metaServerConsoleServiceManagerWrapper, times(retryTimes)).get(dcName);
-		verify(mockedMetaServerConsoleService, times(retryTimes)).clusterModified(clusterName, mockedClusterMeta);
+		verify(mockedMetaServerConsoleService, times(retryTimes)).clusterChanges(anyListOf(ClusterChangeInfo.class));
 		verify(notifier, times(1)).submitNotifyTask((MetaNotifyTask<?>) anyObject());
 		
 		assertEquals(metaServerConsoleServiceManagerWrapper.get(dcName), mockedMetaServerConsoleService);
@@ -94,12 +102,60 @@ public class ClusterMetaModifiedNotifierTest extends AbstractConsoleTest {
 		notifier.notifyClusterDelete(clusterName, Arrays.asList(new DcTbl[] { mockedDcTbl }));
 		TimeUnit.SECONDS.sleep(3);
 		verify(metaServerConsoleServiceManagerWrapper, times(retryTimes)).get(dcName);
-		verify(mockedMetaServerConsoleService, times(retryTimes)).clusterDeleted(clusterName);
-		verify(mockedMetaServerConsoleService, times(retryTimes)).clusterDeleted(anyString());
+		verify(mockedMetaServerConsoleService, times(retryTimes)).clusterChanges(anyListOf(ClusterChangeInfo.class));
 		verify(notifier, times(1)).submitNotifyTask((MetaNotifyTask<?>) anyObject());
 		
 		assertEquals(metaServerConsoleServiceManagerWrapper.get(dcName), mockedMetaServerConsoleService);
 		assertEquals(clusterMetaService.getClusterMeta(dcName, clusterName), mockedClusterMeta);
 	}
 
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Test
+	public void testNotifyCoalesced() throws InterruptedException {
+
+		String otherDc = "otherDc";
+		String otherCluster = "otherCluster";
+		ClusterMeta otherClusterMeta = new ClusterMeta().setId(otherCluster).setActiveDc(otherDc);
+		MetaServerConsoleService otherMetaServerConsoleService = mock(MetaServerConsoleService.class);
+		when(metaServerConsoleServiceManagerWrapper.get(otherDc)).thenReturn(otherMetaServerConsoleService);
+		when(clusterMetaService.getClusterMeta(otherDc, otherCluster)).thenReturn(otherClusterMeta);
+
+		for (int i = 0; i < 10; i++) {
+			notifier.notifyClusterUpdate(otherDc, clusterName);
+			notifier.notifyClusterUpdate(otherDc, otherCluster);
+		}
+		notifier.notifyClusterDelete(clusterName, Arrays.asList(new DcTbl().setDcName(otherDc)));
+		TimeUnit.SECONDS.sleep(1);
+
+		ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+		verify(otherMetaServerConsoleService, times(1)).clusterChanges(captor.capture());
+		verify(notifier, times(1)).submitNotifyTask((MetaNotifyTask<?>) anyObject());
+
+		List<ClusterChangeInfo> clusterChanges = captor.getValue();
+		assertEquals(2, clusterChanges.size());
+		assertEquals(otherCluster, clusterChanges.get(0).getClusterId());
+		assertEquals(otherClusterMeta, clusterChanges.get(0).getClusterMeta());
+		assertEquals(clusterName, clusterChanges.get(1).getClusterId());
+		assertNull(clusterChanges.get(1).getClusterMeta());
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Test
+	public void testModifiedWithoutMetaSentAsDeleted() {
+
+		String otherDc = "otherDc";
+		MetaServerConsoleService otherMetaServerConsoleService = mock(MetaServerConsoleService.class);
+		when(metaServerConsoleServiceManagerWrapper.get(otherDc)).thenReturn(otherMetaServerConsoleService);
+
+		notifier.notifyClusterUpdate(otherDc, clusterName);
+
+		ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+		verify(otherMetaServerConsoleService, timeout(2000)).clusterChanges(captor.capture());
+
+		List<ClusterChangeInfo> clusterChanges = captor.getValue();
+		assertEquals(1, clusterChanges.size());
+		assertEquals(clusterName, clusterChanges.get(0).getClusterId());
+		assertNull(clusterChanges.get(0).getClusterMeta());
+	}
+
 }
@@ -1,8 +1,18 @@
 package com.ctrip.xpipe.redis.console.service;
 
 import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -10,9 +20,23 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import com.ctrip.xpipe.redis.console.AbstractConsoleTest;
+import com.ctrip.xpipe.redis.console.dao.ClusterDao;
+import com.ctrip.xpipe.redis.console.exception.BadRequestException;
+import com.ctrip.xpipe.redis.console.health.history.HealthHistoryService;
+import com.ctrip.xpipe.redis.console.health.history.HealthState;
+import com.ctrip.xpipe.redis.console.model.ClusterProvisionModel;
+import com.ctrip.xpipe.redis.console.model.ClusterSummary;
 import com.ctrip.xpipe.redis.console.model.ClusterTbl;
 import com.ctrip.xpipe.redis.console.model.ClusterTblDao;
 import com.ctrip.xpipe.redis.console.model.ClusterTblEntity;
+import com.ctrip.xpipe.redis.console.model.DcTbl;
+import com.ctrip.xpipe.redis.console.model.KeepercontainerTbl;
+import com.ctrip.xpipe.redis.console.model.KeysetPage;
+import com.ctrip.xpipe.redis.console.model.RedisTbl;
+import com.ctrip.xpipe.redis.console.model.ShardModel;
+import com.ctrip.xpipe.redis.console.model.ShardProvisionModel;
+import com.ctrip.xpipe.redis.console.model.ShardTbl;
+import com.ctrip.xpipe.redis.console.notifier.ClusterMetaModifiedNotifier;
 import com.ctrip.xpipe.redis.console.service.impl.ClusterServiceImpl;
 
 /**
@@ -24,6 +48,16 @@ import com.ctrip.xpipe.redis.console.service.impl.ClusterServiceImpl;
 public class ClusterServiceTest extends AbstractConsoleTest {
 	@Mock
 	private ClusterTblDao mockedClusterTblDao;
+	@Mock
+	private ClusterDao mockedClusterDao;
+	@Mock
+	private DcService mockedDcService;
+	@Mock
+	private KeepercontainerService mockedKeepercontainerService;
+	@Mock
+	private ClusterMetaModifiedNotifier mockedNotifier;
+	@Mock
+	private HealthHistoryService mockedHealthHistoryService;
 	@InjectMocks
 	private ClusterServiceImpl clusterService;
 
@@ -36,9 +70,126 @@ public class ClusterServiceTest extends AbstractConsoleTest {
 		assertEquals(clusterService.find("cluster1").getClusterName(), target_result.getClusterName());
 	}
 
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testProvisionCluster() throws Exception {
+		ClusterProvisionModel provisionModel = createProvisionModel(100);
+		
+		clusterService.provisionCluster(provisionModel);
+		
+		verify(mockedClusterDao, times(1)).provisionCluster(any(ClusterTbl.class), anyListOf(DcTbl.class), 
+				(List<ShardProvisionModel>) any(List.class));
+		verify(mockedNotifier, times(1)).notifyClusterUpdate("jq", "cluster2");
+		verify(mockedNotifier, times(1)).notifyClusterUpdate("oy", "cluster2");
+	}
+	
+	@Test(expected = BadRequestException.class)
+	public void testProvisionDuplicatedShard() {
+		ClusterProvisionModel provisionModel = createProvisionModel(2);
+		provisionModel.getShards().get(1).getShardTbl().setShardName("shard0");
+		
+		clusterService.provisionCluster(provisionModel);
+	}
+	
+	@Test(expected = BadRequestException.class)
+	public void testProvisionDuplicatedAddress() {
+		ClusterProvisionModel provisionModel = createProvisionModel(2);
+		provisionModel.getShards().get(1).getDcs().get("jq").getRedises().get(0).setRedisPort(6379);
+		
+		clusterService.provisionCluster(provisionModel);
+	}
+	
+	@Test(expected = BadRequestException.class)
+	public void testProvisionKeeperNotInKeepercontainer() {
+		ClusterProvisionModel provisionModel = createProvisionModel(2);
+		provisionModel.getShards().get(0).getDcs().get("oy").getKeepers().get(0).setRedisIp("127.0.0.2");
+		
+		clusterService.provisionCluster(provisionModel);
+	}
+	
+	@Test(expected = BadRequestException.class)
+	public void testProvisionUnrelatedDc() {
+		ClusterProvisionModel provisionModel = createProvisionModel(2);
+		provisionModel.setSlaveDcs(null);
+		
+		clusterService.provisionCluster(provisionModel);
+	}
+	
+	@Test
+	public void testFindClusterSummaries() throws Exception {
+		when(mockedClusterTblDao.findClustersPageByName(eq("%a\\_b%"), eq(0L), eq(""), eq(2), eq(ClusterTblEntity.READSET_LIST)))
+				.thenReturn(Arrays.asList(new ClusterTbl().setId(1).setClusterName("a_b1"), new ClusterTbl().setId(2).setClusterName("a_b2")));
+		when(mockedClusterDao.countShardsByClusterIds(Arrays.asList(1L, 2L))).thenReturn(createCounts(1L, 3L));
+		Map<Long, Map<String, Long>> instanceCounts = new HashMap<Long, Map<String, Long>>();
+		Map<String, Long> roleCounts = new HashMap<String, Long>();
+		roleCounts.put("redis", 6L);
+		roleCounts.put("keeper", 4L);
+		instanceCounts.put(1L, roleCounts);
+		when(mockedClusterDao.countInstancesByClusterIds(Arrays.asList(1L, 2L))).thenReturn(instanceCounts);
+		Map<String, HealthState> clusterStates = new HashMap<String, HealthState>();
+		clusterStates.put("a_b2", HealthState.DOWN);
+		when(mockedHealthHistoryService.clusterStates(Arrays.asList("a_b1", "a_b2"), 60)).thenReturn(clusterStates);
+		
+		KeysetPage<ClusterSummary> page = clusterService.findClusterSummaries(ClusterSummary.Sort.NAME, null, 2, "a_b", 0L);
+		
+		assertEquals("a_b2", page.getNext());
+		assertEquals(2, page.getItems().size());
+		ClusterSummary first = page.getItems().get(0);
+		assertEquals(3L, first.getShardCount());
+		assertEquals(6L, first.getRedisCount());
+		assertEquals(4L, first.getKeeperCount());
+		// not sampled is never reported healthy
+		assertEquals(HealthState.UNKNOWN, first.getHealth());
+		ClusterSummary second = page.getItems().get(1);
+		assertEquals(0L, second.getShardCount());
+		assertEquals(HealthState.DOWN, second.getHealth());
+	}
+	
+	@Test(expected = BadRequestException.class)
+	public void testFindClusterSummariesInvalidCursor() {
+		clusterService.findClusterSummaries(ClusterSummary.Sort.NEWEST, "cluster1", 10, null, 0L);
+	}
+	
+	private Map<Long, Long> createCounts(long id, long count) {
+		Map<Long, Long> counts = new HashMap<Long, Long>();
+		counts.put(id, count);
+		return counts;
+	}
+	
+	private ClusterProvisionModel createProvisionModel(int shardCount) {
+		ShardProvisionModel[] shards = new ShardProvisionModel[shardCount];
+		int port = 6379;
+		for(int i = 0; i < shardCount; i++) {
+			shards[i] = new ShardProvisionModel(new ShardTbl().setShardName("shard" + i));
+			for(String dcName : new String[]{"jq", "oy"}) {
+				ShardModel shardModel = new ShardModel();
+				shardModel.addRedis(new RedisTbl().setRedisIp("127.0.0.1").setRedisPort(port++).setMaster("jq".equals(dcName)));
+				shardModel.addRedis(new RedisTbl().setRedisIp("127.0.0.1").setRedisPort(port++));
+				long keepercontainerId = "jq".equals(dcName) ? 1 : 3;
+				shardModel.addKeeper(new RedisTbl().setRedisIp("127.0.0.1").setRedisPort(port++).setKeepercontainerId(keepercontainerId));
+				shardModel.addKeeper(new RedisTbl().setRedisIp("127.0.0.1").setRedisPort(port++).setKeepercontainerId(keepercontainerId + 1));
+				shards[i].addDc(dcName, shardModel);
+			}
+		}
+		return new ClusterProvisionModel().setClusterTbl(new ClusterTbl().setClusterName("cluster2").setActivedcId(1))
+				.setSlaveDcs(Arrays.asList(new DcTbl().setDcName("oy"))).setShards(Arrays.asList(shards));
+	}
+
 	@Before
 	public void initMockData() throws Exception {
+		// generic dao field cannot be told apart from other mocks by type
+		clusterService.dao = mockedClusterTblDao;
 		when(mockedClusterTblDao.findClusterByClusterName("cluster1", ClusterTblEntity.READSET_FULL))
 				.thenReturn(new ClusterTbl().setId(1).setClusterName("cluster1").setClusterLastModifiedTime("1234567"));
+		when(mockedClusterTblDao.createLocal()).thenReturn(new ClusterTbl());
+		
+		when(mockedDcService.findAllDcs()).thenReturn(Arrays.asList(new DcTbl().setId(1).setDcName("jq"),
+				new DcTbl().setId(2).setDcName("oy"), new DcTbl().setId(3).setDcName("fq")));
+		when(mockedKeepercontainerService.findAllByDcName("jq")).thenReturn(Arrays.asList(
+				new KeepercontainerTbl().setKeepercontainerId(1).setKeepercontainerIp("127.0.0.1"),
+				new KeepercontainerTbl().setKeepercontainerId(2).setKeepercontainerIp("127.0.0.1")));
+		when(mockedKeepercontainerService.findAllByDcName("oy")).thenReturn(Arrays.asList(
+				new KeepercontainerTbl().setKeepercontainerId(3).setKeepercontainerIp("127.0.0.1"),
+				new KeepercontainerTbl().setKeepercontainerId(4).setKeepercontainerIp("127.0.0.1")));
 	}
 }
@@ -1,19 +1,252 @@
 package com.ctrip.xpipe.redis.core.meta;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
 
 import org.apache.commons.lang3.SerializationUtils;
 
+import com.ctrip.xpipe.redis.core.entity.ClusterMeta;
+import com.ctrip.xpipe.redis.core.entity.DcMeta;
+import com.ctrip.xpipe.redis.core.entity.KeeperContainerMeta;
+import com.ctrip.xpipe.redis.core.entity.KeeperMeta;
+import com.ctrip.xpipe.redis.core.entity.MetaServerMeta;
+import com.ctrip.xpipe.redis.core.entity.RedisMeta;
+import com.ctrip.xpipe.redis.core.entity.SentinelMeta;
+import com.ctrip.xpipe.redis.core.entity.ShardMeta;
+import com.ctrip.xpipe.redis.core.entity.XpipeMeta;
+import com.ctrip.xpipe.redis.core.entity.ZkServerMeta;
+
 /**
+ * meta model is copied structurally, other objects are cloned through serialization.<br/>
+ * parent of children points to copied parent, parents of the copied root are detached copies,
+ * so nothing reachable from the copy belongs to the original
  * @author wenchao.meng
  *
  * Aug 5, 2016
  */
 public class MetaClone {
-	
+
+	@SuppressWarnings("unchecked")
 	public static <T extends Serializable> T clone(T obj){
-		
+
+		if(obj == null){
+			return null;
+		}
+
+		Object copy = copyMeta(obj);
+		if(copy != null){
+			return (T) copy;
+		}
+
+		if(obj instanceof ArrayList || obj instanceof LinkedList){
+
+			List<Object> source = (List<Object>) obj;
+			List<Object> result = obj instanceof ArrayList ? new ArrayList<>(source.size()) : new LinkedList<>();
+			for(Object element : source){
+
+				Object elementCopy = copyMeta(element);
+				if(elementCopy == null && element != null){
+					return SerializationUtils.clone(obj);
+				}
+				result.add(elementCopy);
+			}
+			return (T) result;
+		}
 		return SerializationUtils.clone(obj);
-	} 
+	}
+
+	private static Object copyMeta(Object obj){
+
+		if(obj instanceof XpipeMeta){
+			return copy((XpipeMeta) obj);
+		}
+		if(obj instanceof DcMeta){
+			DcMeta dcMeta = (DcMeta) obj;
+			return copy(dcMeta, detach(dcMeta.parent()));
+		}
+		if(obj instanceof ClusterMeta){
+			ClusterMeta clusterMeta = (ClusterMeta) obj;
+			return copy(clusterMeta, detach(clusterMeta.parent()));
+		}
+		if(obj instanceof ShardMeta){
+			ShardMeta shardMeta = (ShardMeta) obj;
+			return copy(shardMeta, detach(shardMeta.parent()));
+		}
+		if(obj instanceof KeeperMeta){
+			KeeperMeta keeperMeta = (KeeperMeta) obj;
+			return copy(keeperMeta, detach(keeperMeta.parent()));
+		}
+		if(obj instanceof RedisMeta){
+			RedisMeta redisMeta = (RedisMeta) obj;
+			return copy(redisMeta, detach(redisMeta.parent()));
+		}
+		if(obj instanceof MetaServerMeta){
+			MetaServerMeta metaServerMeta = (MetaServerMeta) obj;
+			return copy(metaServerMeta, detach(metaServerMeta.parent()));
+		}
+		if(obj instanceof ZkServerMeta){
+			ZkServerMeta zkServerMeta = (ZkServerMeta) obj;
+			return copy(zkServerMeta, detach(zkServerMeta.parent()));
+		}
+		if(obj instanceof SentinelMeta){
+			SentinelMeta sentinelMeta = (SentinelMeta) obj;
+			return copy(sentinelMeta, detach(sentinelMeta.parent()));
+		}
+		if(obj instanceof KeeperContainerMeta){
+			KeeperContainerMeta keeperContainerMeta = (KeeperContainerMeta) obj;
+			return copy(keeperContainerMeta, detach(keeperContainerMeta.parent()));
+		}
+		return null;
+	}
+
+	/**
+	 * parents of a copied root are copied with their attributes only, without children,
+	 * so ids of the parents are still reachable and nothing of the original is shared
+	 */
+	private static XpipeMeta detach(XpipeMeta source){
+		return source == null ? null : new XpipeMeta();
+	}
+
+	private static DcMeta detach(DcMeta source){
+
+		if(source == null){
+			return null;
+		}
+		DcMeta result = new DcMeta().setId(source.getId());
+		result.mergeAttributes(source);
+		result.setParent(detach(source.parent()));
+		return result;
+	}
+
+	private static ClusterMeta detach(ClusterMeta source){
+
+		if(source == null){
+			return null;
+		}
+		ClusterMeta result = new ClusterMeta().setId(source.getId());
+		result.mergeAttributes(source);
+		result.setParent(detach(source.parent()));
+		return result;
+	}
+
+	private static ShardMeta detach(ShardMeta source){
+
+		if(source == null){
+			return null;
+		}
+		ShardMeta result = new ShardMeta().setId(source.getId());
+		result.mergeAttributes(source);
+		result.setParent(detach(source.parent()));
+		return result;
+	}
+
+	public static XpipeMeta copy(XpipeMeta source){
+
+		XpipeMeta result = new XpipeMeta();
+		for(DcMeta dcMeta : source.getDcs().values()){
+			result.addDc(copy(dcMeta, result));
+		}
+		return result;
+	}
+
+	public static DcMeta copy(DcMeta source, XpipeMeta parent){
+
+		DcMeta result = new DcMeta().setId(source.getId());
+		result.mergeAttributes(source);
+		result.setParent(parent);
+
+		for(MetaServerMeta metaServerMeta : source.getMetaServers()){
+			result.addMetaServer(copy(metaServerMeta, result));
+		}
+		if(source.getZkServer() != null){
+			result.setZkServer(copy(source.getZkServer(), result));
+		}
+		for(KeeperContainerMeta keeperContainerMeta : source.getKeeperContainers()){
+			result.addKeeperContainer(copy(keeperContainerMeta, result));
+		}
+		for(SentinelMeta sentinelMeta : source.getSentinels().values()){
+			result.addSentinel(copy(sentinelMeta, result));
+		}
+		for(ClusterMeta clusterMeta : source.getClusters().values()){
+			result.addCluster(copy(clusterMeta, result));
+		}
+		return result;
+	}
+
+	public static ClusterMeta copy(ClusterMeta source, DcMeta parent){
+
+		ClusterMeta result = new ClusterMeta().setId(source.getId());
+		result.mergeAttributes(source);
+		result.setParent(parent);
+
+		for(ShardMeta shardMeta : source.getShards().values()){
+			result.addShard(copy(shardMeta, result));
+		}
+		return result;
+	}
+
+	public static ShardMeta copy(ShardMeta source, ClusterMeta parent){
+
+		ShardMeta result = new ShardMeta().setId(source.getId());
+		result.mergeAttributes(source);
+		result.setParent(parent);
+
+		for(KeeperMeta keeperMeta : source.getKeepers()){
+			result.addKeeper(copy(keeperMeta, result));
+		}
+		for(RedisMeta redisMeta : source.getRedises()){
+			result.addRedis(copy(redisMeta, result));
+		}
+		return result;
+	}
+
+	public static KeeperMeta copy(KeeperMeta source, ShardMeta parent){
+
+		KeeperMeta result = new KeeperMeta();
+		result.mergeAttributes(source);
+		result.setParent(parent);
+		return result;
+	}
+
+	public static RedisMeta copy(RedisMeta source, ShardMeta parent){
+
+		RedisMeta result = new RedisMeta();
+		result.mergeAttributes(source);
+		result.setParent(parent);
+		return result;
+	}
+
+	public static MetaServerMeta copy(MetaServerMeta source, DcMeta parent){
+
+		MetaServerMeta result = new MetaServerMeta();
+		result.mergeAttributes(source);
+		result.setParent(parent);
+		return result;
+	}
+
+	public static ZkServerMeta copy(ZkServerMeta source, DcMeta parent){
+
+		ZkServerMeta result = new ZkServerMeta();
+		result.mergeAttributes(source);
+		result.setParent(parent);
+		return result;
+	}
+
+	public static SentinelMeta copy(SentinelMeta source, DcMeta parent){
+
+		SentinelMeta result = new SentinelMeta().setId(source.getId());
+		result.mergeAttributes(source);
+		result.setParent(parent);
+		return result;
+	}
+
+	public static KeeperContainerMeta copy(KeeperContainerMeta source, DcMeta parent){
 
+		KeeperContainerMeta result = new KeeperContainerMeta();
+		result.mergeAttributes(source);
+		result.setParent(parent);
+		return result;
+	}
 }
@@ -6,11 +6,13 @@ import java.util.Set;
 
 import org.unidal.tuple.Pair;
 
+import com.ctrip.xpipe.metric.HostPort;
 import com.ctrip.xpipe.redis.core.entity.ClusterMeta;
 import com.ctrip.xpipe.redis.core.entity.DcMeta;
 import com.ctrip.xpipe.redis.core.entity.KeeperContainerMeta;
 import com.ctrip.xpipe.redis.core.entity.KeeperMeta;
 import com.ctrip.xpipe.redis.core.entity.MetaServerMeta;
+import com.ctrip.xpipe.redis.core.entity.Redis;
 import com.ctrip.xpipe.redis.core.entity.RedisMeta;
 import com.ctrip.xpipe.redis.core.entity.SentinelMeta;
 import com.ctrip.xpipe.redis.core.entity.ShardMeta;
@@ -48,6 +50,20 @@ public interface XpipeMetaManager extends MetaUpdateOperation{
 	 */
 	Pair<String, RedisMeta> getRedisMaster(String clusterId, String shardId);
 	
+	/**
+	 * @param hostPort address of redis or keeper
+	 * @return clusterId and shardId, null if not found
+	 */
+	Pair<String, String> findClusterShard(HostPort hostPort);
+
+	/**
+	 * @param hostPort address of redis or keeper
+	 * @return RedisMeta or KeeperMeta, null if not found
+	 */
+	Redis findInstance(HostPort hostPort);
+
+	List<KeeperMeta> getKeeperContainerKeepers(String dc, Long keeperContainerId);
+	
 	List<MetaServerMeta> getMetaServers(String dc);
 	
 	SentinelMeta getSentinel(String dc, String clusterId, String shardId);
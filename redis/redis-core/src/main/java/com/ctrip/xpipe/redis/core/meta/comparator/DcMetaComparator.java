@@ -1,5 +1,6 @@
 package com.ctrip.xpipe.redis.core.meta.comparator;
 
+import java.util.List;
 import java.util.Set;
 
 import org.unidal.tuple.Triple;
@@ -44,6 +45,37 @@ public class DcMetaComparator extends AbstractMetaComparator<ClusterMeta, DcChan
 		return dcMetaComparator;
 	}
 
+	/**
+	 * many clusters changed at once, currents.get(i) is changed to futures.get(i)<br/>
+	 * null current means added, null future means removed
+	 */
+	public static DcMetaComparator buildClustersChanged(List<ClusterMeta> currents, List<ClusterMeta> futures){
+		
+		if(currents.size() != futures.size()){
+			throw new IllegalArgumentException("size not match:" + currents.size() + "," + futures.size());
+		}
+		
+		DcMetaComparator dcMetaComparator = new DcMetaComparator();
+		for(int i = 0; i < currents.size(); i++){
+			
+			ClusterMeta current = currents.get(i);
+			ClusterMeta future = futures.get(i);
+			if(current == null && future == null){
+				continue;
+			}
+			if(current == null){
+				dcMetaComparator.added.add(future);
+			}else if(future == null){
+				dcMetaComparator.removed.add(current);
+			}else if(!dcMetaComparator.reflectionEquals(current, future)){
+				ClusterMetaComparator clusterMetaComparator = new ClusterMetaComparator(current, future);
+				clusterMetaComparator.compare();
+				dcMetaComparator.modified.add(clusterMetaComparator);
+			}
+		}
+		return dcMetaComparator;
+	}
+
 	private DcMetaComparator(){
 		
 	}
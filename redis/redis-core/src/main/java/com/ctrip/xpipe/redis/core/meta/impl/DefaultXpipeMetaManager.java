@@ -11,11 +11,13 @@ import java.util.Set;
 import org.unidal.tuple.Pair;
 import org.xml.sax.SAXException;
 
+import com.ctrip.xpipe.metric.HostPort;
 import com.ctrip.xpipe.redis.core.entity.ClusterMeta;
 import com.ctrip.xpipe.redis.core.entity.DcMeta;
 import com.ctrip.xpipe.redis.core.entity.KeeperContainerMeta;
 import com.ctrip.xpipe.redis.core.entity.KeeperMeta;
 import com.ctrip.xpipe.redis.core.entity.MetaServerMeta;
+import com.ctrip.xpipe.redis.core.entity.Redis;
 import com.ctrip.xpipe.redis.core.entity.RedisMeta;
 import com.ctrip.xpipe.redis.core.entity.SentinelMeta;
 import com.ctrip.xpipe.redis.core.entity.ShardMeta;
@@ -26,12 +28,14 @@ import com.ctrip.xpipe.redis.core.meta.MetaClone;
 import com.ctrip.xpipe.redis.core.meta.MetaException;
 import com.ctrip.xpipe.redis.core.meta.MetaUtils;
 import com.ctrip.xpipe.redis.core.meta.XpipeMetaManager;
+import com.ctrip.xpipe.redis.core.meta.impl.XpipeMetaIndex.InstanceIndex;
 import com.ctrip.xpipe.redis.core.transform.DefaultSaxParser;
 import com.ctrip.xpipe.utils.FileUtils;
 import com.ctrip.xpipe.utils.StringUtil;
 import com.google.common.base.Joiner;
 
 /**
+ * lookups go through XpipeMetaIndex, which is built on load and updated in place when entities are added or removed
  * @author wenchao.meng
  *
  * Jul 7, 2016
@@ -40,6 +44,7 @@ public class DefaultXpipeMetaManager extends AbstractMetaManager implements Xpip
 	
 	private String fileName = null;
 	protected XpipeMeta xpipeMeta;
+	private volatile XpipeMetaIndex metaIndex;
 	
 	protected DefaultXpipeMetaManager(){
 		
@@ -47,6 +52,7 @@ public class DefaultXpipeMetaManager extends AbstractMetaManager implements Xpip
 	
 	private DefaultXpipeMetaManager(XpipeMeta xpipeMeta){
 		this.xpipeMeta = xpipeMeta;
+		rebuildIndex();
 	}
 
 	public static XpipeMetaManager buildFromFile(String fileName){
@@ -67,20 +73,31 @@ public class DefaultXpipeMetaManager extends AbstractMetaManager implements Xpip
 		try {
 			InputStream ins = FileUtils.getFileInputStream(fileName);
 			xpipeMeta = DefaultSaxParser.parse(ins);
+			rebuildIndex();
 		} catch (SAXException | IOException e) {
 			logger.error("[load]" + fileName, e);
 			throw new IllegalStateException("load " + fileName + " failed!", e);
 		}
 	}
 	
+	protected synchronized void rebuildIndex() {
+		metaIndex = new XpipeMetaIndex(xpipeMeta);
+	}
+	
+	protected XpipeMetaIndex getMetaIndex() {
+		
+		XpipeMetaIndex result = metaIndex;
+		if(result == null){
+			rebuildIndex();
+			result = metaIndex;
+		}
+		return result;
+	}
+	
 	@Override
 	public String getActiveDc(String clusterId, String shardId){
 		
-		for(DcMeta dcMeta : xpipeMeta.getDcs().values()){
-			ClusterMeta clusterMeta = dcMeta.getClusters().get(clusterId);
-			if(clusterMeta == null){
-				continue;
-			}
+		for(ClusterMeta clusterMeta : getMetaIndex().getClusters(clusterId)){
 			String activeDc = clusterMeta.getActiveDc();
 			if(activeDc == null){
 				logger.info("[getActiveDc][activeDc null]{}", clusterMeta);
@@ -96,16 +113,12 @@ public class DefaultXpipeMetaManager extends AbstractMetaManager implements Xpip
 
 		boolean found = false;
 		
-		for(DcMeta dcMeta : xpipeMeta.getDcs().values()){
-			ClusterMeta clusterMeta = dcMeta.getClusters().get(clusterId);
-			if(clusterMeta == null){
-				continue;
-			}
+		for(ClusterMeta clusterMeta : getMetaIndex().getClusters(clusterId)){
 			
 			found = true;
 			
 			if(StringUtil.isEmpty(clusterMeta.getBackupDcs())){
-				logger.info("[getBackupDcs][backup dcs empty]{}, {}", dcMeta.getId(), clusterMeta);
+				logger.info("[getBackupDcs][backup dcs empty]{}", clusterMeta);
 				continue;
 			}
 			
@@ -244,26 +257,46 @@ public class DefaultXpipeMetaManager extends AbstractMetaManager implements Xpip
 	@Override
 	public Pair<String, RedisMeta> getRedisMaster(String clusterId, String shardId) {
 		
-		for(DcMeta dcMeta : xpipeMeta.getDcs().values()){
-			for(ClusterMeta clusterMeta : dcMeta.getClusters().values()){
-				if(!clusterId.equals(clusterMeta.getId())){
-					continue;
-				}
-				for(ShardMeta shardMeta : clusterMeta.getShards().values()){
-					if(!shardId.equals(shardMeta.getId())){
-						continue;
-					}
-					for(RedisMeta redisMeta : shardMeta.getRedises()){
-						if(redisMeta.isMaster()){
-							return new Pair<String, RedisMeta>(dcMeta.getId(), clone(redisMeta));
-						}
-					}
+		for(Pair<String, ShardMeta> dcShard : getMetaIndex().getShards(clusterId, shardId)){
+			for(RedisMeta redisMeta : dcShard.getValue().getRedises()){
+				if(redisMeta.isMaster()){
+					return new Pair<String, RedisMeta>(dcShard.getKey(), clone(redisMeta));
 				}
 			}
 		}
 		return null;
 	}
 
+	@Override
+	public Pair<String, String> findClusterShard(HostPort hostPort) {
+		
+		InstanceIndex instanceIndex = getMetaIndex().getInstance(hostPort);
+		if(instanceIndex == null){
+			return null;
+		}
+		return new Pair<>(instanceIndex.getClusterId(), instanceIndex.getShardId());
+	}
+
+	@Override
+	public Redis findInstance(HostPort hostPort) {
+		
+		InstanceIndex instanceIndex = getMetaIndex().getInstance(hostPort);
+		if(instanceIndex == null){
+			return null;
+		}
+		return (Redis) clone((Serializable)instanceIndex.getRedis());
+	}
+
+	@Override
+	public List<KeeperMeta> getKeeperContainerKeepers(String dc, Long keeperContainerId) {
+		
+		List<KeeperMeta> result = new LinkedList<>();
+		for(KeeperMeta keeperMeta : getMetaIndex().getKeeperContainerKeepers(dc, keeperContainerId)){
+			result.add(clone(keeperMeta));
+		}
+		return result;
+	}
+
 	
 	
 	@Override
@@ -346,6 +379,7 @@ public class DefaultXpipeMetaManager extends AbstractMetaManager implements Xpip
 			activeKeeper.setActive(true);
 			activeKeeper.setParent(shardMeta);
 			keepers.add(activeKeeper);
+			getMetaIndex().instanceAdded(dc, clusterId, shardId, activeKeeper);
 		}
 		return changed;
 	}
@@ -444,6 +478,7 @@ public class DefaultXpipeMetaManager extends AbstractMetaManager implements Xpip
 			redisMaster.setParent(shardMeta);
 			shardMeta.getRedises().add(redisMaster);
 			changed = true;
+			getMetaIndex().instanceAdded(dc, clusterId, shardId, redisMaster);
 		}
 		return changed;
 	}
@@ -476,11 +511,9 @@ public class DefaultXpipeMetaManager extends AbstractMetaManager implements Xpip
 	@Override
 	public KeeperContainerMeta getKeeperContainer(String dc, KeeperMeta keeperMeta) {
 		
-		DcMeta dcMeta = getDirectDcMeta(dc);
-		for(KeeperContainerMeta keeperContainerMeta : dcMeta.getKeeperContainers()){
-			if(keeperContainerMeta.getId().equals(keeperMeta.getKeeperContainerId())){
-				return clone(keeperContainerMeta);
-			}
+		KeeperContainerMeta keeperContainerMeta = getMetaIndex().getKeeperContainer(dc, keeperMeta.getKeeperContainerId());
+		if(keeperContainerMeta != null){
+			return clone(keeperContainerMeta);
 		}
 		throw new IllegalArgumentException(String.format("[getKeeperContainer][unfound keepercontainer]%s, %s", dc, keeperMeta));
 	}
@@ -488,21 +521,38 @@ public class DefaultXpipeMetaManager extends AbstractMetaManager implements Xpip
 	@Override
 	public void update(DcMeta dcMeta) {
 		
-		xpipeMeta.addDc(clone(dcMeta));
+		XpipeMetaIndex index = getMetaIndex();
+		synchronized (index) {
+			DcMeta old = xpipeMeta.getDcs().get(dcMeta.getId());
+			DcMeta current = clone(dcMeta);
+			xpipeMeta.addDc(current);
+			index.dcUpdated(old, current);
+		}
 	}
 
 	@Override
 	public void update(String dcId, ClusterMeta clusterMeta) {
 		
-		DcMeta dcMeta = xpipeMeta.getDcs().get(dcId);
-		dcMeta.addCluster(clone(clusterMeta));
+		XpipeMetaIndex index = getMetaIndex();
+		synchronized (index) {
+			DcMeta dcMeta = xpipeMeta.getDcs().get(dcId);
+			ClusterMeta old = dcMeta.getClusters().get(clusterMeta.getId());
+			ClusterMeta current = clone(clusterMeta);
+			dcMeta.addCluster(current);
+			index.clusterUpdated(dcId, old, current);
+		}
 	}
 
 	@Override
 	public ClusterMeta removeCluster(String dcId, String clusterId) {
 		
-		DcMeta dcMeta = xpipeMeta.getDcs().get(dcId);
-		return dcMeta.removeCluster(clusterId);
+		XpipeMetaIndex index = getMetaIndex();
+		synchronized (index) {
+			DcMeta dcMeta = xpipeMeta.getDcs().get(dcId);
+			ClusterMeta removed = dcMeta.removeCluster(clusterId);
+			index.clusterUpdated(dcId, removed, null);
+			return removed;
+		}
 	}
 
 
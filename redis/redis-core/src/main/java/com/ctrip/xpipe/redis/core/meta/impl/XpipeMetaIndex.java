@@ -0,0 +1,339 @@
+package com.ctrip.xpipe.redis.core.meta.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.unidal.tuple.Pair;
+
+import com.ctrip.xpipe.metric.HostPort;
+import com.ctrip.xpipe.redis.core.entity.ClusterMeta;
+import com.ctrip.xpipe.redis.core.entity.DcMeta;
+import com.ctrip.xpipe.redis.core.entity.KeeperContainerMeta;
+import com.ctrip.xpipe.redis.core.entity.KeeperMeta;
+import com.ctrip.xpipe.redis.core.entity.Redis;
+import com.ctrip.xpipe.redis.core.entity.RedisMeta;
+import com.ctrip.xpipe.redis.core.entity.ShardMeta;
+import com.ctrip.xpipe.redis.core.entity.XpipeMeta;
+
+/**
+ * hash indexes of xpipe meta.<br/>
+ * entities are referenced directly, so attribute changes(active dc, keeper active...) are seen without rebuild,
+ * while entries of added or removed entities are updated in place by the owner, under its lock.
+ * lists returned are never modified, changed entries get new lists so lookups need no lock
+ * @author wenchao.meng
+ *
+ * Jan 6, 2017
+ */
+public class XpipeMetaIndex {
+
+	private final XpipeMeta xpipeMeta;
+
+	private Map<String, List<ClusterMeta>> clusters = new ConcurrentHashMap<>();
+
+	private Map<Pair<String, String>, List<Pair<String, ShardMeta>>> shards = new ConcurrentHashMap<>();
+
+	private Map<HostPort, InstanceIndex> instances = new ConcurrentHashMap<>();
+
+	private Map<Pair<String, Long>, KeeperContainerMeta> keeperContainers = new ConcurrentHashMap<>();
+
+	private Map<Pair<String, Long>, List<KeeperMeta>> keeperContainerKeepers = new ConcurrentHashMap<>();
+
+	public XpipeMetaIndex(XpipeMeta xpipeMeta) {
+
+		this.xpipeMeta = xpipeMeta;
+		Set<String> clusterIds = new HashSet<>();
+		Map<Pair<String, Long>, List<KeeperMeta>> containerKeepers = new HashMap<>();
+		for(DcMeta dcMeta : xpipeMeta.getDcs().values()){
+
+			String dcId = dcMeta.getId();
+			addKeeperContainers(dcMeta);
+			for(ClusterMeta clusterMeta : dcMeta.getClusters().values()){
+
+				clusterIds.add(clusterMeta.getId());
+				for(ShardMeta shardMeta : clusterMeta.getShards().values()){
+					for(KeeperMeta keeperMeta : shardMeta.getKeepers()){
+						addInstance(dcId, clusterMeta.getId(), shardMeta.getId(), keeperMeta);
+						if(keeperMeta.getKeeperContainerId() != null){
+							getOrCreate(containerKeepers, new Pair<>(dcId, keeperMeta.getKeeperContainerId())).add(keeperMeta);
+						}
+					}
+					for(RedisMeta redisMeta : shardMeta.getRedises()){
+						addInstance(dcId, clusterMeta.getId(), shardMeta.getId(), redisMeta);
+					}
+				}
+			}
+		}
+
+		for(Map.Entry<Pair<String, Long>, List<KeeperMeta>> entry : containerKeepers.entrySet()){
+			put(keeperContainerKeepers, entry.getKey(), entry.getValue());
+		}
+		for(String clusterId : clusterIds){
+			refreshClusterAndShards(clusterId);
+		}
+	}
+
+	/**
+	 * called after the dc is replaced in xpipe meta
+	 */
+	public synchronized void dcUpdated(DcMeta oldDcMeta, DcMeta newDcMeta) {
+
+		Set<String> clusterIds = new HashSet<>();
+		if(oldDcMeta != null){
+			removeKeeperContainers(oldDcMeta);
+			for(ClusterMeta clusterMeta : oldDcMeta.getClusters().values()){
+				clusterIds.add(clusterMeta.getId());
+				removeInstances(oldDcMeta.getId(), clusterMeta);
+			}
+		}
+		if(newDcMeta != null){
+			addKeeperContainers(newDcMeta);
+			for(ClusterMeta clusterMeta : newDcMeta.getClusters().values()){
+				clusterIds.add(clusterMeta.getId());
+				addInstances(newDcMeta.getId(), clusterMeta);
+			}
+		}
+		for(String clusterId : clusterIds){
+			refreshClusterAndShards(clusterId);
+		}
+	}
+
+	/**
+	 * called after the cluster is added, replaced or removed in the dc
+	 */
+	public synchronized void clusterUpdated(String dcId, ClusterMeta oldClusterMeta, ClusterMeta newClusterMeta) {
+
+		String clusterId = null;
+		if(oldClusterMeta != null){
+			clusterId = oldClusterMeta.getId();
+			removeInstances(dcId, oldClusterMeta);
+		}
+		if(newClusterMeta != null){
+			clusterId = newClusterMeta.getId();
+			addInstances(dcId, newClusterMeta);
+		}
+		if(clusterId != null){
+			refreshClusterAndShards(clusterId);
+		}
+	}
+
+	/**
+	 * called after a keeper or redis is added to the shard
+	 */
+	public synchronized void instanceAdded(String dcId, String clusterId, String shardId, Redis redis) {
+
+		addInstance(dcId, clusterId, shardId, redis);
+		if(redis instanceof KeeperMeta){
+			addKeeperContainerKeeper(dcId, (KeeperMeta) redis);
+		}
+	}
+
+	/**
+	 * entries of the cluster and its shards, before and after the change, are built again from all dcs
+	 */
+	private void refreshClusterAndShards(String clusterId) {
+
+		Set<String> shardIds = new HashSet<>();
+		for(ClusterMeta clusterMeta : getClusters(clusterId)){
+			// still entities before the change
+			shardIds.addAll(clusterMeta.getShards().keySet());
+		}
+
+		List<ClusterMeta> clusterMetas = new ArrayList<>();
+		for(DcMeta dcMeta : xpipeMeta.getDcs().values()){
+			ClusterMeta clusterMeta = dcMeta.getClusters().get(clusterId);
+			if(clusterMeta != null){
+				clusterMetas.add(clusterMeta);
+				shardIds.addAll(clusterMeta.getShards().keySet());
+			}
+		}
+		put(clusters, clusterId, clusterMetas);
+
+		for(String shardId : shardIds){
+			List<Pair<String, ShardMeta>> shardMetas = new ArrayList<>();
+			for(DcMeta dcMeta : xpipeMeta.getDcs().values()){
+				ClusterMeta clusterMeta = dcMeta.getClusters().get(clusterId);
+				ShardMeta shardMeta = clusterMeta == null ? null : clusterMeta.getShards().get(shardId);
+				if(shardMeta != null){
+					shardMetas.add(new Pair<>(dcMeta.getId(), shardMeta));
+				}
+			}
+			put(shards, new Pair<>(clusterId, shardId), shardMetas);
+		}
+	}
+
+	private void addKeeperContainers(DcMeta dcMeta) {
+		for(KeeperContainerMeta keeperContainerMeta : dcMeta.getKeeperContainers()){
+			keeperContainers.put(new Pair<>(dcMeta.getId(), keeperContainerMeta.getId()), keeperContainerMeta);
+		}
+	}
+
+	private void removeKeeperContainers(DcMeta dcMeta) {
+		for(KeeperContainerMeta keeperContainerMeta : dcMeta.getKeeperContainers()){
+			keeperContainers.remove(new Pair<>(dcMeta.getId(), keeperContainerMeta.getId()));
+		}
+	}
+
+	private void addInstances(String dcId, ClusterMeta clusterMeta) {
+
+		for(ShardMeta shardMeta : clusterMeta.getShards().values()){
+			for(KeeperMeta keeperMeta : shardMeta.getKeepers()){
+				addInstance(dcId, clusterMeta.getId(), shardMeta.getId(), keeperMeta);
+				addKeeperContainerKeeper(dcId, keeperMeta);
+			}
+			for(RedisMeta redisMeta : shardMeta.getRedises()){
+				addInstance(dcId, clusterMeta.getId(), shardMeta.getId(), redisMeta);
+			}
+		}
+	}
+
+	private void removeInstances(String dcId, ClusterMeta clusterMeta) {
+
+		for(ShardMeta shardMeta : clusterMeta.getShards().values()){
+			for(KeeperMeta keeperMeta : shardMeta.getKeepers()){
+				removeInstance(keeperMeta);
+				removeKeeperContainerKeeper(dcId, keeperMeta);
+			}
+			for(RedisMeta redisMeta : shardMeta.getRedises()){
+				removeInstance(redisMeta);
+			}
+		}
+	}
+
+	private void addInstance(String dcId, String clusterId, String shardId, Redis redis) {
+
+		if(redis.getIp() == null || redis.getPort() == null){
+			return;
+		}
+		HostPort hostPort = new HostPort(redis.getIp(), redis.getPort());
+		if(!instances.containsKey(hostPort)){
+			instances.put(hostPort, new InstanceIndex(dcId, clusterId, shardId, redis));
+		}
+	}
+
+	private void removeInstance(Redis redis) {
+
+		if(redis.getIp() == null || redis.getPort() == null){
+			return;
+		}
+		HostPort hostPort = new HostPort(redis.getIp(), redis.getPort());
+		InstanceIndex instanceIndex = instances.get(hostPort);
+		if(instanceIndex != null && instanceIndex.getRedis() == redis){
+			instances.remove(hostPort);
+		}
+	}
+
+	private void addKeeperContainerKeeper(String dcId, KeeperMeta keeperMeta) {
+
+		if(keeperMeta.getKeeperContainerId() == null){
+			return;
+		}
+		Pair<String, Long> key = new Pair<>(dcId, keeperMeta.getKeeperContainerId());
+		List<KeeperMeta> keepers = new ArrayList<>(getKeeperContainerKeepers(dcId, keeperMeta.getKeeperContainerId()));
+		keepers.add(keeperMeta);
+		put(keeperContainerKeepers, key, keepers);
+	}
+
+	private void removeKeeperContainerKeeper(String dcId, KeeperMeta keeperMeta) {
+
+		if(keeperMeta.getKeeperContainerId() == null){
+			return;
+		}
+		Pair<String, Long> key = new Pair<>(dcId, keeperMeta.getKeeperContainerId());
+		List<KeeperMeta> keepers = new ArrayList<>();
+		for(KeeperMeta current : getKeeperContainerKeepers(dcId, keeperMeta.getKeeperContainerId())){
+			if(current != keeperMeta){
+				keepers.add(current);
+			}
+		}
+		put(keeperContainerKeepers, key, keepers);
+	}
+
+	private <K, V> List<V> getOrCreate(Map<K, List<V>> map, K key) {
+
+		List<V> result = map.get(key);
+		if(result == null){
+			result = new ArrayList<>();
+			map.put(key, result);
+		}
+		return result;
+	}
+
+	private <K, V> void put(Map<K, List<V>> map, K key, List<V> list) {
+
+		if(list.isEmpty()){
+			map.remove(key);
+		}else{
+			map.put(key, Collections.unmodifiableList(list));
+		}
+	}
+
+	/**
+	 * @return cluster metas in all dcs, in dc order
+	 */
+	public List<ClusterMeta> getClusters(String clusterId) {
+		return emptyIfNull(clusters.get(clusterId));
+	}
+
+	/**
+	 * @return (dc, shard meta) in all dcs, in dc order
+	 */
+	public List<Pair<String, ShardMeta>> getShards(String clusterId, String shardId) {
+		return emptyIfNull(shards.get(new Pair<>(clusterId, shardId)));
+	}
+
+	public InstanceIndex getInstance(HostPort hostPort) {
+		return instances.get(hostPort);
+	}
+
+	public KeeperContainerMeta getKeeperContainer(String dc, Long keeperContainerId) {
+		return keeperContainers.get(new Pair<>(dc, keeperContainerId));
+	}
+
+	public List<KeeperMeta> getKeeperContainerKeepers(String dc, Long keeperContainerId) {
+		return emptyIfNull(keeperContainerKeepers.get(new Pair<>(dc, keeperContainerId)));
+	}
+
+	private <T> List<T> emptyIfNull(List<T> list) {
+		if(list == null){
+			return Collections.emptyList();
+		}
+		return list;
+	}
+
+	public static class InstanceIndex {
+
+		private String dcId;
+		private String clusterId;
+		private String shardId;
+		private Redis redis;
+
+		public InstanceIndex(String dcId, String clusterId, String shardId, Redis redis) {
+			this.dcId = dcId;
+			this.clusterId = clusterId;
+			this.shardId = shardId;
+			this.redis = redis;
+		}
+
+		public String getDcId() {
+			return dcId;
+		}
+
+		public String getClusterId() {
+			return clusterId;
+		}
+
+		public String getShardId() {
+			return shardId;
+		}
+
+		public Redis getRedis() {
+			return redis;
+		}
+	}
+}
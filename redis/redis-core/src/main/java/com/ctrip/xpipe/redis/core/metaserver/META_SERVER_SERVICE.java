@@ -18,6 +18,7 @@ public enum META_SERVER_SERVICE {
 	
 	//console
 	CLUSTER_CHANGE(PATH.PATH_CLUSTER_CHANGE, ForwardType.MULTICASTING),
+	CLUSTER_CHANGE_BATCH(PATH.PATH_CLUSTER_CHANGE_BATCH, ForwardType.MULTICASTING),
 	CHANGE_PRIMARY_DC_CHECK(PATH.PATH_CHANGE_PRIMARY_DC_CHECK, ForwardType.FORWARD),
 	CHANGE_PRIMARY_DC(PATH.PATH_CHANGE_PRIMARY_DC, ForwardType.MULTICASTING),
 	MAKE_MASTER_READONLY(PATH.PATH_MAKE_MASTER_READONLY, ForwardType.FORWARD),
@@ -25,7 +26,8 @@ public enum META_SERVER_SERVICE {
 	//keeper
 	
 	//multi dc
-	UPSTREAM_CHANGE(PATH.PATH_UPSTREAM_CHANGE, ForwardType.FORWARD)
+	UPSTREAM_CHANGE(PATH.PATH_UPSTREAM_CHANGE, ForwardType.FORWARD),
+	UPSTREAM_CHANGE_BATCH(PATH.PATH_UPSTREAM_CHANGE_BATCH, ForwardType.DISPATCHING)
 	;	
 	
 	private String path;
@@ -106,12 +108,14 @@ public enum META_SERVER_SERVICE {
 		
 		//console
 		public static final String PATH_CLUSTER_CHANGE = "/clusterchange/{clusterId}";
+		public static final String PATH_CLUSTER_CHANGE_BATCH = "/clusterchanges";
 		public static final String PATH_CHANGE_PRIMARY_DC_CHECK = "/changeprimarydc/check/{clusterId}/{shardId}/{newPrimaryDc}";
 		public static final String PATH_CHANGE_PRIMARY_DC = "/changeprimarydc/{clusterId}/{shardId}/{newPrimaryDc}";
 		public static final String PATH_MAKE_MASTER_READONLY = "/masterreadonly/{clusterId}/{shardId}/{readOnly}";
 		
 		//multi dc
 		public static final String PATH_UPSTREAM_CHANGE = "/upstreamchange/{clusterId}/{shardId}/{ip}/{port}";
+		public static final String PATH_UPSTREAM_CHANGE_BATCH = "/upstreamchanges";
 
 	}
 	
@@ -1,5 +1,7 @@
 package com.ctrip.xpipe.redis.core.metaserver;
 
+import java.util.List;
+
 import com.ctrip.xpipe.exception.ErrorMessage;
 import com.ctrip.xpipe.redis.core.entity.ClusterMeta;
 import com.ctrip.xpipe.redis.core.entity.DcMeta;
@@ -18,6 +20,12 @@ public interface MetaServerConsoleService extends MetaServerService{
 	void clusterModified(String clusterId, ClusterMeta clusterMeta);
 
 	void clusterDeleted(String clusterId);
+
+	/**
+	 * send modifications and deletions of many clusters in one request
+	 * @param clusterChanges
+	 */
+	void clusterChanges(List<ClusterChangeInfo> clusterChanges);
 	
 	/**
 	 * @param clusterId
@@ -50,6 +58,44 @@ public interface MetaServerConsoleService extends MetaServerService{
 
 	DcMeta getDynamicInfo();
 	
+	public static class ClusterChangeInfo{
+		
+		private String clusterId;
+		
+		/**
+		 * null if cluster is deleted
+		 */
+		private ClusterMeta clusterMeta;
+		
+		public ClusterChangeInfo(){}
+		
+		public ClusterChangeInfo(String clusterId, ClusterMeta clusterMeta){
+			this.clusterId = clusterId;
+			this.clusterMeta = clusterMeta;
+		}
+
+		public String getClusterId() {
+			return clusterId;
+		}
+
+		public void setClusterId(String clusterId) {
+			this.clusterId = clusterId;
+		}
+
+		public ClusterMeta getClusterMeta() {
+			return clusterMeta;
+		}
+
+		public void setClusterMeta(ClusterMeta clusterMeta) {
+			this.clusterMeta = clusterMeta;
+		}
+		
+		@Override
+		public String toString() {
+			return String.format("%s,%s", clusterId, clusterMeta == null ? "deleted" : "modified");
+		}
+	}
+	
 	public static enum PRIMARY_DC_CHECK_RESULT{
 		
 		SUCCESS,
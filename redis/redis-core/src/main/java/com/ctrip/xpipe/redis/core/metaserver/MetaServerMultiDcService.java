@@ -1,5 +1,7 @@
 package com.ctrip.xpipe.redis.core.metaserver;
 
+import java.util.List;
+
 /**
  * @author wenchao.meng
  *
@@ -16,5 +18,67 @@ public interface MetaServerMultiDcService extends MetaServerService{
 	 */
 	void upstreamChange(String clusterId, String shardId, String ip, int port);
 	
+	/**
+	 * used by backup dc, send many upstream changes in one request
+	 * @param upstreamChanges
+	 */
+	void upstreamChanges(List<UpstreamChangeInfo> upstreamChanges);
+	
+	public static class UpstreamChangeInfo{
+		
+		private String clusterId;
+		
+		private String shardId;
+		
+		private String ip;
+		
+		private int port;
+		
+		public UpstreamChangeInfo(){}
+		
+		public UpstreamChangeInfo(String clusterId, String shardId, String ip, int port){
+			this.clusterId = clusterId;
+			this.shardId = shardId;
+			this.ip = ip;
+			this.port = port;
+		}
+
+		public String getClusterId() {
+			return clusterId;
+		}
+
+		public void setClusterId(String clusterId) {
+			this.clusterId = clusterId;
+		}
+
+		public String getShardId() {
+			return shardId;
+		}
+
+		public void setShardId(String shardId) {
+			this.shardId = shardId;
+		}
+
+		public String getIp() {
+			return ip;
+		}
+
+		public void setIp(String ip) {
+			this.ip = ip;
+		}
+
+		public int getPort() {
+			return port;
+		}
+
+		public void setPort(int port) {
+			this.port = port;
+		}
+		
+		@Override
+		public String toString() {
+			return String.format("%s,%s,%s:%d", clusterId, shardId, ip, port);
+		}
+	}
 
 }
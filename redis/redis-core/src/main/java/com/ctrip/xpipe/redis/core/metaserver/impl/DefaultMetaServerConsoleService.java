@@ -6,6 +6,8 @@ import java.util.List;
 
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
 
 import com.ctrip.xpipe.redis.core.entity.ClusterMeta;
 import com.ctrip.xpipe.redis.core.entity.DcMeta;
@@ -23,17 +25,21 @@ public class DefaultMetaServerConsoleService extends AbstractMetaService impleme
 	private int RETRY_TIMES = Integer.parseInt(System.getProperty("retry-times", "8"));
 	private int CONNECT_TIMEOUT = Integer.parseInt(System.getProperty("connect-timeout", "8000"));
 	private int SO_TIMEOUT = Integer.parseInt(System.getProperty("so-timeout", "8000"));
+	private long BATCH_RETRY_INTERVAL_MILLI = Long.parseLong(System.getProperty("cluster-change-batch-retry-interval", "300000"));
 	
 	private String  metaServerAddress;
 	private String  changeClusterPath;
+	private String  changeClusterBatchPath;
 	private String  changePrimaryDcCheckPath; 
 	private String  makeMasterReadonlyPath;
 	private String  changePrimaryDcPath;
+	private volatile long batchUnsupportedUntil = 0;
 
 	
 	public DefaultMetaServerConsoleService(String metaServerAddress) {
 		this.metaServerAddress = metaServerAddress;
 		changeClusterPath = META_SERVER_SERVICE.CLUSTER_CHANGE.getRealPath(metaServerAddress);
+		changeClusterBatchPath = META_SERVER_SERVICE.CLUSTER_CHANGE_BATCH.getRealPath(metaServerAddress);
 		changePrimaryDcCheckPath = META_SERVER_SERVICE.CHANGE_PRIMARY_DC_CHECK.getRealPath(metaServerAddress);
 		makeMasterReadonlyPath = META_SERVER_SERVICE.MAKE_MASTER_READONLY.getRealPath(metaServerAddress);
 		changePrimaryDcPath = META_SERVER_SERVICE.CHANGE_PRIMARY_DC.getRealPath(metaServerAddress);
@@ -59,6 +65,32 @@ public class DefaultMetaServerConsoleService extends AbstractMetaService impleme
 		restTemplate.delete(changeClusterPath, clusterId);
 	}
 
+	@Override
+	public void clusterChanges(List<ClusterChangeInfo> clusterChanges) {
+		
+		if(System.currentTimeMillis() >= batchUnsupportedUntil){
+			try{
+				restTemplate.put(changeClusterBatchPath, clusterChanges);
+				return;
+			}catch(HttpClientErrorException e){
+				if(e.getStatusCode() != HttpStatus.NOT_FOUND && e.getStatusCode() != HttpStatus.METHOD_NOT_ALLOWED){
+					throw e;
+				}
+				//meta server not upgraded yet, try batch again later
+				logger.warn("[clusterChanges][batch not supported, fall back to per cluster]{}, {}", metaServerAddress, e.getStatusCode());
+				batchUnsupportedUntil = System.currentTimeMillis() + BATCH_RETRY_INTERVAL_MILLI;
+			}
+		}
+		
+		for(ClusterChangeInfo clusterChange : clusterChanges){
+			if(clusterChange.getClusterMeta() == null){
+				clusterDeleted(clusterChange.getClusterId());
+			}else{
+				clusterModified(clusterChange.getClusterId(), clusterChange.getClusterMeta());
+			}
+		}
+	}
+
 
 	@Override
 	public DcMeta getDynamicInfo() {
@@ -14,6 +14,7 @@ import com.ctrip.xpipe.redis.core.metaserver.MetaServerMultiDcService;
 public class DefaultMetaServerMultiDcService extends AbstractMetaService implements MetaServerMultiDcService{
 
 	private String  upstreamchangePath;
+	private String  upstreamchangeBatchPath;
 	private String  metaServerAddress;
 	
 	public DefaultMetaServerMultiDcService(String metaServerAddress) {
@@ -24,6 +25,7 @@ public class DefaultMetaServerMultiDcService extends AbstractMetaService impleme
 		super(retryTimes, retryIntervalMilli);
 		this.metaServerAddress = metaServerAddress;
 		upstreamchangePath = META_SERVER_SERVICE.UPSTREAM_CHANGE.getRealPath(metaServerAddress);
+		upstreamchangeBatchPath = META_SERVER_SERVICE.UPSTREAM_CHANGE_BATCH.getRealPath(metaServerAddress);
 	}
 
 	@Override
@@ -32,6 +34,12 @@ public class DefaultMetaServerMultiDcService extends AbstractMetaService impleme
 		restTemplate.put(upstreamchangePath, null, clusterId, shardId, ip, port);
 	}
 
+	@Override
+	public void upstreamChanges(List<UpstreamChangeInfo> upstreamChanges) {
+		
+		restTemplate.put(upstreamchangeBatchPath, upstreamChanges);
+	}
+
 	@Override
 	protected List<String> getMetaServerList() {
 		
@@ -7,13 +7,21 @@ package com.ctrip.xpipe.redis.core.protocal;
  */
 public enum CAPA {
 	
-	EOF;
+	EOF,
+	
+	/**
+	 * keeper to keeper compressed stream
+	 */
+	XCOMPRESS;
 
 	public static CAPA of(String capaString) {
 
 		if ("eof".equalsIgnoreCase(capaString)) {
 			return EOF;
 		}
+		if ("xcompress".equalsIgnoreCase(capaString)) {
+			return XCOMPRESS;
+		}
 		throw new IllegalArgumentException("unsupported capa type:" + capaString);
 	}
 	
@@ -0,0 +1,75 @@
+package com.ctrip.xpipe.redis.core.protocal.cmd;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.unidal.tuple.Pair;
+
+import com.ctrip.xpipe.api.pool.SimpleObjectPool;
+import com.ctrip.xpipe.netty.commands.NettyClient;
+import com.ctrip.xpipe.redis.core.protocal.protocal.BulkStringParser;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * partial sync from offset, success with exactly length bytes of commands.<br/>
+ * fail if master answers full sync
+ * @author wenchao.meng
+ *
+ * Jan 18, 2017
+ */
+public class RangePsync extends AbstractPsync{
+
+	private String requestMasterId;
+
+	private long requestMasterOffset;
+
+	private byte[] commands;
+
+	private int received = 0;
+
+	public RangePsync(SimpleObjectPool<NettyClient> clientPool, String requestMasterId, long requestMasterOffset, int length, ScheduledExecutorService scheduled) {
+		super(clientPool, true, scheduled);
+		this.requestMasterId = requestMasterId;
+		this.requestMasterOffset = requestMasterOffset;
+		this.commands = new byte[length];
+	}
+
+	@Override
+	protected Pair<String, Long> getRequestMasterInfo() {
+		return new Pair<String, Long>(requestMasterId, requestMasterOffset);
+	}
+
+	@Override
+	protected void doOnFullSync() throws IOException {
+		throw new IOException("[doOnFullSync][partial sync refused by master]" + requestMasterId + ":" + requestMasterOffset);
+	}
+
+	@Override
+	protected void appendCommands(ByteBuf byteBuf) throws IOException {
+
+		if(future().isDone()){
+			byteBuf.skipBytes(byteBuf.readableBytes());
+			return;
+		}
+
+		int length = Math.min(byteBuf.readableBytes(), commands.length - received);
+		byteBuf.readBytes(commands, received, length);
+		received += length;
+		byteBuf.skipBytes(byteBuf.readableBytes());
+
+		if(received == commands.length){
+			future().setSuccess(commands);
+		}
+	}
+
+	@Override
+	protected BulkStringParser createRdbReader() {
+		throw new IllegalStateException("rdb not expected:" + this);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s %s:%d, length:%d", getName(), requestMasterId, requestMasterOffset, commands.length);
+	}
+}
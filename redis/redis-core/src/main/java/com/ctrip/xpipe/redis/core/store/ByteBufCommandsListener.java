@@ -0,0 +1,23 @@
+package com.ctrip.xpipe.redis.core.store;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFuture;
+
+/**
+ * listener able to send commands from buffer shared with other listeners at the same offset
+ * @author wenchao.meng
+ *
+ * Jan 19, 2017
+ */
+public interface ByteBufCommandsListener extends CommandsListener {
+
+	/**
+	 * @param byteBuf retained slice of shared buffer, listener owns it and releases it(or the channel it is written to does)
+	 */
+	ChannelFuture onCommand(ByteBuf byteBuf);
+
+	/**
+	 * @return false if downstream can not take more now, nothing is sent to it until writable again
+	 */
+	boolean isWritable();
+}
@@ -15,6 +15,16 @@ public interface CommandStore extends Closeable, Destroyable{
 
 	boolean awaitCommandsOffset(long offset, int timeMilli) throws InterruptedException;
 	
+	/**
+	 * callback is run without blocking any thread once commands until offset are written
+	 */
+	void addCommandsOffsetCallback(long offset, Runnable callback);
+	
+	/**
+	 * @return false if callback already run
+	 */
+	boolean removeCommandsOffsetCallback(Runnable callback);
+	
 	long totalLength();
 	
 	/**
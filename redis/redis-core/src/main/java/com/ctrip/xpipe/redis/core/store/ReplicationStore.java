@@ -28,6 +28,13 @@ public interface ReplicationStore extends Closeable, Destroyable {
 	int appendCommands(ByteBuf byteBuf) throws IOException;
 
 	boolean awaitCommandsOffset(long offset, int timeMilli) throws InterruptedException;
+	
+	/**
+	 * @param offset offset of command store
+	 */
+	void addCommandsOffsetCallback(long offset, Runnable callback);
+	
+	boolean removeCommandsOffsetCallback(Runnable callback);
 
 	// full sync
 	boolean fullSyncIfPossible(FullSyncListener fullSyncListener) throws IOException;
@@ -47,5 +54,10 @@ public interface ReplicationStore extends Closeable, Destroyable {
 
 	long nextNonOverlappingKeeperBeginOffset();
 
+	/**
+	 * offset acked or requested by slave, commands after it are retained if possible
+	 */
+	void slaveOffsetObserved(long keeperOffset);
+
 	boolean gc();
 }
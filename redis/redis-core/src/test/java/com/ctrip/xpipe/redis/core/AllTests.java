@@ -11,6 +11,7 @@ import com.ctrip.xpipe.redis.core.meta.comparator.DcMetaComparatorTest;
 import com.ctrip.xpipe.redis.core.meta.comparator.ShardMetaComparatorTest;
 import com.ctrip.xpipe.redis.core.meta.impl.DefaultXpipeMetaManagerTest;
 import com.ctrip.xpipe.redis.core.metaserver.META_SERVER_SERVICETest;
+import com.ctrip.xpipe.redis.core.metaserver.impl.DefaultMetaServerConsoleServiceTest;
 import com.ctrip.xpipe.redis.core.protocal.cmd.DefaultPsyncTest;
 import com.ctrip.xpipe.redis.core.protocal.cmd.RoleCommandTest;
 import com.ctrip.xpipe.redis.core.protocal.protocal.ArrayParserTest;
@@ -41,6 +42,7 @@ import com.ctrip.xpipe.redis.core.store.ReplicationStoreMetaTest;
 	DcInfoTest.class,
 	DefaultPsyncTest.class,
 	META_SERVER_SERVICETest.class,
+	DefaultMetaServerConsoleServiceTest.class,
 	BulkStringEofJudgerTest.class,
 	BulkStringEofJuderManagerTest.class,
 	RoleCommandTest.class
@@ -0,0 +1,64 @@
+package com.ctrip.xpipe.redis.core.meta;
+
+import java.io.Serializable;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ctrip.xpipe.redis.core.AbstractRedisTest;
+import com.ctrip.xpipe.redis.core.entity.ClusterMeta;
+import com.ctrip.xpipe.redis.core.entity.DcMeta;
+
+/**
+ * compare structural copy with serialization, run by hand, not included in AllTests
+ * @author wenchao.meng
+ *
+ * Jan 29, 2017
+ */
+public class MetaCloneBenchmark extends AbstractRedisTest{
+
+	private int clusterCount = Integer.parseInt(System.getProperty("META_CLONE_BENCHMARK_CLUSTERS", "2000"));
+
+	private int rounds = Integer.parseInt(System.getProperty("META_CLONE_BENCHMARK_ROUNDS", "20"));
+
+	@Test
+	public void testCompareWithSerialization(){
+
+		DcMeta dcMeta = getXpipeMeta().getDcs().get("jq");
+		ClusterMeta template = dcMeta.getClusters().get("cluster1");
+		for(int i=0; i < clusterCount; i++){
+			dcMeta.addCluster(MetaClone.clone(template).setId("cluster-perf-" + i));
+		}
+
+		//warm up
+		runClone(dcMeta, rounds, true);
+		runClone(dcMeta, rounds, false);
+
+		long copyNanos = runClone(dcMeta, rounds, true);
+		long serializeNanos = runClone(dcMeta, rounds, false);
+		logger.info("[testCompareWithSerialization][{} clusters]copy:{} micros/op, serialize:{} micros/op",
+				dcMeta.getClusters().size(), copyNanos/rounds/1000, serializeNanos/rounds/1000);
+
+		Assert.assertEquals(SerializationUtils.clone(dcMeta).toString(), MetaClone.clone(dcMeta).toString());
+	}
+
+	private long runClone(Serializable meta, int round, boolean copy) {
+
+		long begin = System.nanoTime();
+		for(int i=0; i < round; i++){
+			if(copy){
+				MetaClone.clone(meta);
+			}else{
+				SerializationUtils.clone(meta);
+			}
+		}
+		return System.nanoTime() - begin;
+	}
+
+	@Override
+	protected String getXpipeMetaConfigFile() {
+		return "keeper.xml";
+	}
+
+}
@@ -1,10 +1,18 @@
 package com.ctrip.xpipe.redis.core.meta;
 
+import java.util.LinkedList;
+import java.util.List;
+
+import org.apache.commons.lang3.SerializationUtils;
 import org.junit.Assert;
 import org.junit.Test;
 
 import com.ctrip.xpipe.redis.core.AbstractRedisTest;
+import com.ctrip.xpipe.redis.core.entity.ClusterMeta;
 import com.ctrip.xpipe.redis.core.entity.DcMeta;
+import com.ctrip.xpipe.redis.core.entity.KeeperMeta;
+import com.ctrip.xpipe.redis.core.entity.RedisMeta;
+import com.ctrip.xpipe.redis.core.entity.ShardMeta;
 import com.ctrip.xpipe.redis.core.entity.XpipeMeta;
 
 
@@ -14,23 +22,103 @@ import com.ctrip.xpipe.redis.core.entity.XpipeMeta;
  * Aug 6, 2016
  */
 public class MetaCloneTest extends AbstractRedisTest{
-	
-	
+
+
 	@Test
 	public void testClone(){
-		
+
 		XpipeMeta xpipeMeta = getXpipeMeta();
-		
+
 		DcMeta dcMeta = xpipeMeta.getDcs().values().iterator().next();
-		
+
 		DcMeta clone = MetaClone.clone(dcMeta);
-		
+
 		Assert.assertEquals(dcMeta, clone);
-		
+
 		clone.setId(randomString());
 		Assert.assertNotEquals(dcMeta, clone);
 	}
-	
+
+	@Test
+	public void testCopySameAsSerialization(){
+
+		XpipeMeta xpipeMeta = getXpipeMeta();
+
+		XpipeMeta copy = MetaClone.clone(xpipeMeta);
+		XpipeMeta serialize = SerializationUtils.clone(xpipeMeta);
+
+		Assert.assertEquals(serialize.toString(), copy.toString());
+		Assert.assertEquals(xpipeMeta.toString(), copy.toString());
+	}
+
+	@Test
+	public void testCopyIndependent(){
+
+		DcMeta dcMeta = getDcMeta("jq");
+		DcMeta copy = MetaClone.clone(dcMeta);
+
+		ClusterMeta clusterMeta = copy.getClusters().get("cluster1");
+		ShardMeta shardMeta = clusterMeta.getShards().get("shard1");
+		KeeperMeta keeperMeta = shardMeta.getKeepers().get(0);
+
+		Assert.assertTrue(clusterMeta.parent() == copy);
+		Assert.assertTrue(shardMeta.parent() == clusterMeta);
+		Assert.assertTrue(keeperMeta.parent() == shardMeta);
+		Assert.assertTrue(copy.parent() != dcMeta.parent());
+
+		String original = dcMeta.toString();
+		String originalXpipe = dcMeta.parent().toString();
+		keeperMeta.setActive(!keeperMeta.isActive());
+		shardMeta.getRedises().clear();
+		clusterMeta.setActiveDc(randomString());
+		copy.addCluster(new ClusterMeta().setId(randomString()));
+		copy.parent().addDc(new DcMeta().setId(randomString()));
+		Assert.assertEquals(original, dcMeta.toString());
+		Assert.assertEquals(originalXpipe, dcMeta.parent().toString());
+	}
+
+	@Test
+	public void testCopyParentChainIndependent(){
+
+		ShardMeta shardMeta = getDcMeta("jq").getClusters().get("cluster1").getShards().get("shard1");
+		KeeperMeta keeperMeta = shardMeta.getKeepers().get(0);
+		String originalShard = shardMeta.toString();
+		String originalCluster = shardMeta.parent().toString();
+		String originalDc = shardMeta.parent().parent().toString();
+
+		KeeperMeta copy = MetaClone.clone(keeperMeta);
+
+		Assert.assertTrue(copy.parent() != shardMeta);
+		Assert.assertTrue(copy.parent().parent() != shardMeta.parent());
+		Assert.assertTrue(copy.parent().parent().parent() != shardMeta.parent().parent());
+		Assert.assertEquals(shardMeta.getId(), copy.parent().getId());
+		Assert.assertEquals(shardMeta.parent().getId(), copy.parent().parent().getId());
+		Assert.assertEquals(shardMeta.parent().getActiveDc(), copy.parent().parent().getActiveDc());
+		Assert.assertEquals(shardMeta.parent().parent().getId(), copy.parent().parent().parent().getId());
+
+		copy.setActive(!copy.isActive());
+		copy.parent().addKeeper(new KeeperMeta());
+		copy.parent().parent().setActiveDc(randomString());
+		copy.parent().parent().parent().addCluster(new ClusterMeta().setId(randomString()));
+
+		Assert.assertEquals(originalShard, shardMeta.toString());
+		Assert.assertEquals(originalCluster, shardMeta.parent().toString());
+		Assert.assertEquals(originalDc, shardMeta.parent().parent().toString());
+	}
+
+	@Test
+	public void testCopyList(){
+
+		List<RedisMeta> redises = getDcMeta("jq").getClusters().get("cluster1").getShards().get("shard1").getRedises();
+		LinkedList<RedisMeta> copy = MetaClone.clone(new LinkedList<>(redises));
+
+		Assert.assertEquals(redises.size(), copy.size());
+		for(int i=0; i < redises.size(); i++){
+			Assert.assertEquals(redises.get(i).toString(), copy.get(i).toString());
+			Assert.assertTrue(redises.get(i) != copy.get(i));
+		}
+	}
+
 	@Override
 	protected String getXpipeMetaConfigFile() {
 		return "keeper.xml";
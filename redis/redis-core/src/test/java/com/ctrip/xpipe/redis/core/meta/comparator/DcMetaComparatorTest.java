@@ -1,5 +1,7 @@
 package com.ctrip.xpipe.redis.core.meta.comparator;
 
+import java.util.Arrays;
+
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -92,6 +94,27 @@ public class DcMetaComparatorTest extends AbstractComparatorTest{
 		
 	}
 
-	
+	@Test
+	public void testClustersChanged(){
+		
+		ClusterMeta added = differentCluster(current);
+		ClusterMeta removed = differentCluster(current);
+		ClusterMeta unchanged = (ClusterMeta) current.getClusters().values().toArray()[0];
+		ClusterMeta modified = MetaClone.copy(unchanged, current);
+		modified.addShard(differentShard(modified));
+		
+		DcMetaComparator dcMetaComparator = DcMetaComparator.buildClustersChanged(
+				Arrays.asList(null, removed, unchanged, unchanged), 
+				Arrays.asList(added, null, MetaClone.copy(unchanged, current), modified));
+
+		Assert.assertEquals(1, dcMetaComparator.getAdded().size());
+		Assert.assertEquals(added, dcMetaComparator.getAdded().toArray()[0]);
+		Assert.assertEquals(1, dcMetaComparator.getRemoved().size());
+		Assert.assertEquals(removed, dcMetaComparator.getRemoved().toArray()[0]);
+		Assert.assertEquals(1, dcMetaComparator.getMofified().size());
+		
+		ClusterMetaComparator comparator = (ClusterMetaComparator) dcMetaComparator.getMofified().toArray()[0];
+		Assert.assertEquals(1, comparator.getAdded().size());
+	}
 
 }
@@ -9,10 +9,14 @@ import org.junit.Before;
 import org.junit.Test;
 import org.unidal.tuple.Pair;
 
+import com.ctrip.xpipe.metric.HostPort;
 import com.ctrip.xpipe.redis.core.AbstractRedisTest;
+import com.ctrip.xpipe.redis.core.entity.ClusterMeta;
 import com.ctrip.xpipe.redis.core.entity.KeeperMeta;
+import com.ctrip.xpipe.redis.core.entity.Redis;
 import com.ctrip.xpipe.redis.core.entity.RedisMeta;
 import com.ctrip.xpipe.redis.core.entity.SentinelMeta;
+import com.ctrip.xpipe.redis.core.entity.ShardMeta;
 import com.ctrip.xpipe.redis.core.meta.MetaException;
 import com.ctrip.xpipe.redis.core.meta.impl.DefaultXpipeMetaManager;
 
@@ -195,4 +199,115 @@ public class DefaultXpipeMetaManagerTest extends AbstractRedisTest {
 			}
 		}
 	}
+
+	@Test
+	public void testFindClusterShard(){
+
+		Pair<String, String> clusterShard = metaManager.findClusterShard(new HostPort("127.0.0.1", 6001));
+		Assert.assertEquals(clusterId, clusterShard.getKey());
+		Assert.assertEquals(shardId, clusterShard.getValue());
+
+		clusterShard = metaManager.findClusterShard(new HostPort("127.0.0.1", 8101));
+		Assert.assertEquals(clusterId, clusterShard.getKey());
+		Assert.assertEquals(shardId, clusterShard.getValue());
+
+		Assert.assertNull(metaManager.findClusterShard(new HostPort("127.0.0.1", 1)));
+	}
+
+	@Test
+	public void testFindInstance(){
+
+		Redis redis = metaManager.findInstance(new HostPort("127.0.0.1", 8000));
+		Assert.assertTrue(redis instanceof RedisMeta);
+		Assert.assertTrue(((RedisMeta)redis).isMaster());
+
+		Redis keeper = metaManager.findInstance(new HostPort("127.0.0.1", 6000));
+		Assert.assertTrue(keeper instanceof KeeperMeta);
+		Assert.assertTrue(((KeeperMeta)keeper).isActive());
+
+		//clone returned
+		((KeeperMeta)keeper).setActive(false);
+		Assert.assertTrue(metaManager.getKeeperActive(dc, clusterId, shardId).getPort() == 6000);
+	}
+
+	@Test
+	public void testGetKeeperContainerKeepers(){
+
+		Long keeperContainerId = 1L;
+		Assert.assertEquals(0, metaManager.getKeeperContainerKeepers(dc, keeperContainerId).size());
+
+		ClusterMeta clusterMeta = new ClusterMeta().setId(randomString(10)).setActiveDc(dc);
+		ShardMeta shardMeta = new ShardMeta().setId(shardId);
+		shardMeta.addKeeper(new KeeperMeta().setIp("127.0.0.1").setPort(16000).setKeeperContainerId(keeperContainerId));
+		shardMeta.addKeeper(new KeeperMeta().setIp("127.0.0.1").setPort(16001).setKeeperContainerId(keeperContainerId));
+		clusterMeta.addShard(shardMeta);
+		metaManager.update(dc, clusterMeta);
+
+		List<KeeperMeta> keepers = metaManager.getKeeperContainerKeepers(dc, keeperContainerId);
+		Assert.assertEquals(2, keepers.size());
+		Assert.assertEquals(0, metaManager.getKeeperContainerKeepers(randomString(), keeperContainerId).size());
+	}
+
+	@Test
+	public void testIndexRebuild(){
+
+		String newClusterId = randomString(10);
+		ClusterMeta clusterMeta = new ClusterMeta().setId(newClusterId).setActiveDc(dc);
+		ShardMeta shardMeta = new ShardMeta().setId(shardId);
+		shardMeta.addRedis(new RedisMeta().setIp("127.0.0.1").setPort(16379).setMaster(""));
+		clusterMeta.addShard(shardMeta);
+
+		Assert.assertNull(metaManager.getRedisMaster(newClusterId, shardId));
+
+		metaManager.update(dc, clusterMeta);
+		Assert.assertEquals(dc, metaManager.getActiveDc(newClusterId, shardId));
+		Assert.assertEquals(dc, metaManager.getRedisMaster(newClusterId, shardId).getKey());
+		Assert.assertEquals(newClusterId, metaManager.findClusterShard(new HostPort("127.0.0.1", 16379)).getKey());
+
+		metaManager.removeCluster(dc, newClusterId);
+		Assert.assertNull(metaManager.getRedisMaster(newClusterId, shardId));
+		Assert.assertNull(metaManager.findClusterShard(new HostPort("127.0.0.1", 16379)));
+	}
+
+	@Test
+	public void testIndexUpdatedInPlace(){
+
+		Long keeperContainerId = 1L;
+		String newClusterId = randomString(10);
+		ClusterMeta clusterMeta = new ClusterMeta().setId(newClusterId).setActiveDc(dc);
+		ShardMeta shardMeta = new ShardMeta().setId("shard-old");
+		shardMeta.addRedis(new RedisMeta().setIp("127.0.0.1").setPort(16379).setMaster(""));
+		shardMeta.addKeeper(new KeeperMeta().setIp("127.0.0.1").setPort(16000).setKeeperContainerId(keeperContainerId));
+		clusterMeta.addShard(shardMeta);
+		metaManager.update(dc, clusterMeta);
+
+		XpipeMetaIndex index = metaManager.getMetaIndex();
+		Assert.assertEquals(1, index.getShards(newClusterId, "shard-old").size());
+		Assert.assertEquals(1, metaManager.getKeeperContainerKeepers(dc, keeperContainerId).size());
+
+		//cluster replaced: entries of old shard and instances are removed
+		ClusterMeta modified = new ClusterMeta().setId(newClusterId).setActiveDc(dc);
+		ShardMeta newShardMeta = new ShardMeta().setId("shard-new");
+		newShardMeta.addRedis(new RedisMeta().setIp("127.0.0.1").setPort(16380).setMaster(""));
+		modified.addShard(newShardMeta);
+		metaManager.update(dc, modified);
+
+		Assert.assertSame(index, metaManager.getMetaIndex());
+		Assert.assertEquals(0, index.getShards(newClusterId, "shard-old").size());
+		Assert.assertEquals(1, index.getShards(newClusterId, "shard-new").size());
+		Assert.assertEquals(1, index.getClusters(newClusterId).size());
+		Assert.assertNull(metaManager.findClusterShard(new HostPort("127.0.0.1", 16379)));
+		Assert.assertEquals("shard-new", metaManager.findClusterShard(new HostPort("127.0.0.1", 16380)).getValue());
+		Assert.assertEquals(0, metaManager.getKeeperContainerKeepers(dc, keeperContainerId).size());
+
+		//instances added to shards
+		metaManager.updateRedisMaster(dc, newClusterId, "shard-new", new RedisMeta().setIp("127.0.0.1").setPort(16381));
+		Assert.assertEquals("shard-new", metaManager.findClusterShard(new HostPort("127.0.0.1", 16381)).getValue());
+
+		//whole dc replaced, other clusters kept
+		metaManager.update(metaManager.getDcMeta(dc));
+		Assert.assertEquals(dc, metaManager.getActiveDc(clusterId, shardId));
+		Assert.assertEquals(newClusterId, metaManager.findClusterShard(new HostPort("127.0.0.1", 16380)).getKey());
+		Assert.assertEquals(1, index.getClusters(newClusterId).size());
+	}
 }
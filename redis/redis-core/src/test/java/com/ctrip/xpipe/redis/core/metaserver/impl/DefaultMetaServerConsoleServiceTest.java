@@ -0,0 +1,94 @@
+package com.ctrip.xpipe.redis.core.metaserver.impl;
+
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestOperations;
+
+import com.ctrip.xpipe.redis.core.AbstractRedisTest;
+import com.ctrip.xpipe.redis.core.entity.ClusterMeta;
+import com.ctrip.xpipe.redis.core.metaserver.META_SERVER_SERVICE;
+import com.ctrip.xpipe.redis.core.metaserver.MetaServerConsoleService.ClusterChangeInfo;
+
+/**
+ * @author wenchao.meng
+ *
+ *         Jan 29, 2017
+ */
+public class DefaultMetaServerConsoleServiceTest extends AbstractRedisTest {
+
+	private String metaServerAddress = "http://localhost:9747";
+	private String changeClusterPath = META_SERVER_SERVICE.CLUSTER_CHANGE.getRealPath(metaServerAddress);
+	private String changeClusterBatchPath = META_SERVER_SERVICE.CLUSTER_CHANGE_BATCH.getRealPath(metaServerAddress);
+
+	private DefaultMetaServerConsoleService consoleService;
+	private RestOperations restOperations;
+
+	private ClusterMeta clusterMeta = new ClusterMeta().setId("cluster1");
+	private List<ClusterChangeInfo> clusterChanges = new LinkedList<>();
+
+	@Before
+	public void beforeDefaultMetaServerConsoleServiceTest() {
+
+		consoleService = new DefaultMetaServerConsoleService(metaServerAddress);
+		restOperations = mock(RestOperations.class);
+		consoleService.restTemplate = restOperations;
+
+		clusterChanges.add(new ClusterChangeInfo("cluster1", clusterMeta));
+		clusterChanges.add(new ClusterChangeInfo("cluster2", null));
+	}
+
+	@Test
+	public void testBatch() {
+
+		consoleService.clusterChanges(clusterChanges);
+
+		verify(restOperations).put(changeClusterBatchPath, clusterChanges);
+		verify(restOperations, never()).put(changeClusterPath, clusterMeta, "cluster1");
+		verify(restOperations, never()).delete(changeClusterPath, "cluster2");
+	}
+
+	@Test
+	public void testFallbackWhenBatchNotFound() {
+
+		doThrow(new HttpClientErrorException(HttpStatus.NOT_FOUND)).when(restOperations).put(changeClusterBatchPath,
+				clusterChanges);
+
+		consoleService.clusterChanges(clusterChanges);
+		consoleService.clusterChanges(clusterChanges);
+
+		// batch is not tried again until retry interval passes
+		verify(restOperations, times(1)).put(changeClusterBatchPath, clusterChanges);
+		verify(restOperations, times(2)).put(changeClusterPath, clusterMeta, "cluster1");
+		verify(restOperations, times(2)).delete(changeClusterPath, "cluster2");
+	}
+
+	@Test
+	public void testOtherErrorNotFallback() {
+
+		doThrow(new HttpClientErrorException(HttpStatus.BAD_REQUEST)).when(restOperations).put(changeClusterBatchPath,
+				clusterChanges);
+
+		try {
+			consoleService.clusterChanges(clusterChanges);
+			Assert.fail();
+		} catch (HttpClientErrorException e) {
+			Assert.assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+		}
+
+		verify(restOperations, never()).put(changeClusterPath, clusterMeta, "cluster1");
+		verify(restOperations, never()).delete(changeClusterPath, "cluster2");
+	}
+
+}
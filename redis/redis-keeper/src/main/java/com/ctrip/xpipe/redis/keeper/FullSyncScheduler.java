@@ -0,0 +1,92 @@
+package com.ctrip.xpipe.redis.keeper;
+
+/**
+ * admission control of full syncs and rdb dumps for all keepers in one keeper container
+ * @author wenchao.meng
+ *
+ * Jan 11, 2017
+ */
+public interface FullSyncScheduler {
+
+	/**
+	 * block until slave is admitted to receive rdb
+	 * @return null if slave closed while waiting
+	 */
+	Permit acquireFullSync(RedisSlave redisSlave, Priority priority, long estimatedBytes) throws InterruptedException;
+
+	/**
+	 * block until rdb dump for slave is admitted
+	 * @return null if slave closed while waiting
+	 */
+	Permit acquireRdbDump(RedisSlave redisSlave, Priority priority, long estimatedBytes) throws InterruptedException;
+
+	Snapshot snapshot();
+
+	public static enum Priority{
+		HIGH, LOW
+	}
+
+	public static class Snapshot{
+
+		private final int queueDepth;
+		private final int runningFullSyncCount;
+		private final long runningFullSyncBytes;
+		private final int runningRdbDumpCount;
+		private final long runningRdbDumpBytes;
+		private final long waitCount;
+		private final long totalWaitMilli;
+		private final long maxWaitMilli;
+
+		public Snapshot(int queueDepth, int runningFullSyncCount, long runningFullSyncBytes, int runningRdbDumpCount,
+				long runningRdbDumpBytes, long waitCount, long totalWaitMilli, long maxWaitMilli) {
+			this.queueDepth = queueDepth;
+			this.runningFullSyncCount = runningFullSyncCount;
+			this.runningFullSyncBytes = runningFullSyncBytes;
+			this.runningRdbDumpCount = runningRdbDumpCount;
+			this.runningRdbDumpBytes = runningRdbDumpBytes;
+			this.waitCount = waitCount;
+			this.totalWaitMilli = totalWaitMilli;
+			this.maxWaitMilli = maxWaitMilli;
+		}
+
+		public int getQueueDepth() {
+			return queueDepth;
+		}
+
+		public int getRunningFullSyncCount() {
+			return runningFullSyncCount;
+		}
+
+		public long getRunningFullSyncBytes() {
+			return runningFullSyncBytes;
+		}
+
+		public int getRunningRdbDumpCount() {
+			return runningRdbDumpCount;
+		}
+
+		public long getRunningRdbDumpBytes() {
+			return runningRdbDumpBytes;
+		}
+
+		public long getWaitCount() {
+			return waitCount;
+		}
+
+		public long getTotalWaitMilli() {
+			return totalWaitMilli;
+		}
+
+		public long getMaxWaitMilli() {
+			return maxWaitMilli;
+		}
+	}
+
+	public static interface Permit{
+
+		/**
+		 * release more than once takes no effect
+		 */
+		void release();
+	}
+}
@@ -12,6 +12,7 @@ import com.ctrip.xpipe.redis.core.store.ReplicationStore;
 import com.ctrip.xpipe.redis.keeper.config.KeeperConfig;
 import com.ctrip.xpipe.redis.keeper.exception.RedisSlavePromotionException;
 import com.ctrip.xpipe.redis.keeper.impl.SetRdbDumperException;
+import com.ctrip.xpipe.redis.keeper.monitor.ReplicationStats;
 
 import io.netty.channel.Channel;
 
@@ -41,6 +42,8 @@ public interface RedisKeeperServer extends RedisServer, PsyncObserver, Destroyab
 	Set<RedisSlave> slaves();
 		
 	ReplicationStore getReplicationStore();
+	
+	ReplicationStats getReplicationStats();
 		
 	String getClusterId();
 	
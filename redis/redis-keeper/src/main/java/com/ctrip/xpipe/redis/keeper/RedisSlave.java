@@ -3,7 +3,7 @@ package com.ctrip.xpipe.redis.keeper;
 import com.ctrip.xpipe.api.server.PartialAware;
 import com.ctrip.xpipe.netty.filechannel.ReferenceFileRegion;
 import com.ctrip.xpipe.redis.core.protocal.protocal.EofType;
-import com.ctrip.xpipe.redis.core.store.CommandsListener;
+import com.ctrip.xpipe.redis.core.store.ByteBufCommandsListener;
 
 import io.netty.channel.ChannelFuture;
 
@@ -13,7 +13,7 @@ import io.netty.channel.ChannelFuture;
  *
  * May 20, 2016 3:55:37 PM
  */
-public interface RedisSlave extends RedisClient, PartialAware, CommandsListener{
+public interface RedisSlave extends RedisClient, PartialAware, ByteBufCommandsListener{
 	
 	void waitForRdbDumping();
 	
@@ -33,6 +33,12 @@ public interface RedisSlave extends RedisClient, PartialAware, CommandsListener{
 
 	void rdbWriteComplete();
 
+	/**
+	 * run once all rdb bytes queued to the channel have been sent, or once the slave is closed;
+	 * run at once if that already happened
+	 */
+	void onRdbTransferDone(Runnable task);
+
 	void partialSync();
 	
 	void processPsyncSequentially(Runnable runnable);
@@ -2,7 +2,9 @@ package com.ctrip.xpipe.redis.keeper.container;
 
 import com.ctrip.xpipe.redis.core.entity.KeeperInstanceMeta;
 import com.ctrip.xpipe.redis.core.entity.KeeperTransMeta;
+import com.ctrip.xpipe.redis.keeper.FullSyncScheduler;
 import com.ctrip.xpipe.redis.keeper.RedisKeeperServer;
+import com.ctrip.xpipe.redis.keeper.monitor.ReplicationStats;
 import com.ctrip.xpipe.spring.AbstractController;
 import com.google.common.base.Function;
 import com.google.common.collect.FluentIterable;
@@ -46,6 +48,18 @@ public class KeeperContainerController extends AbstractController{
         return keepers;
     }
 
+    @RequestMapping(value = "/clusters/{cluster}/shards/{shard}/stats", method = RequestMethod.GET)
+    public ReplicationStats.Snapshot stats(@PathVariable String cluster, @PathVariable String shard) {
+
+        return keeperContainerService.stats(cluster, shard);
+    }
+
+    @RequestMapping(value = "/fullsync/stats", method = RequestMethod.GET)
+    public FullSyncScheduler.Snapshot fullSyncStats() {
+
+        return keeperContainerService.fullSyncStats();
+    }
+
     @RequestMapping(value = "/clusters/{cluster}/shards/{shard}", method = RequestMethod.DELETE)
     public void remove(@PathVariable String cluster, @PathVariable String shard) {
     	
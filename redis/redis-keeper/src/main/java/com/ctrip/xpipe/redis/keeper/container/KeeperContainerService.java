@@ -10,12 +10,15 @@ import com.ctrip.xpipe.redis.core.entity.KeeperTransMeta;
 import com.ctrip.xpipe.redis.core.entity.ShardMeta;
 import com.ctrip.xpipe.redis.core.keeper.container.KeeperContainerErrorCode;
 import com.ctrip.xpipe.redis.core.metaserver.MetaServerKeeperService;
+import com.ctrip.xpipe.redis.keeper.FullSyncScheduler;
 import com.ctrip.xpipe.redis.keeper.RedisKeeperServer;
 import com.ctrip.xpipe.redis.keeper.config.KeeperConfig;
 import com.ctrip.xpipe.redis.keeper.config.KeeperContainerConfig;
 import com.ctrip.xpipe.redis.keeper.exception.RedisKeeperRuntimeException;
 import com.ctrip.xpipe.redis.keeper.impl.DefaultRedisKeeperServer;
 import com.ctrip.xpipe.redis.keeper.monitor.KeeperMonitorManager;
+import com.ctrip.xpipe.redis.keeper.monitor.ReplicationStats;
+import com.ctrip.xpipe.redis.keeper.store.ReplicationStoreQuota;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.common.collect.Lists;
@@ -44,6 +47,10 @@ public class KeeperContainerService {
     private KeeperContainerConfig keeperContainerConfig;
     @Autowired
     private KeeperMonitorManager keeperMonitorManager;
+    @Autowired
+    private FullSyncScheduler fullSyncScheduler;
+    @Autowired
+    private ReplicationStoreQuota replicationStoreQuota;
 
     private Set<Integer> runningPorts = Sets.newConcurrentHashSet();
     private Map<String, RedisKeeperServer> redisKeeperServers = Maps.newConcurrentMap();
@@ -99,6 +106,25 @@ public class KeeperContainerService {
         return Lists.newArrayList(redisKeeperServers.values());
     }
 
+    public ReplicationStats.Snapshot stats(String clusterId, String shardId) {
+        String keeperServerKey = assembleKeeperServerKey(clusterId, shardId);
+
+        RedisKeeperServer keeperServer = redisKeeperServers.get(keeperServerKey);
+
+        if (keeperServer == null) {
+            throw new RedisKeeperRuntimeException(
+                    new ErrorMessage<>(KeeperContainerErrorCode.KEEPER_NOT_EXIST,
+                            String.format("Keeper for cluster %s shard %s doesn't exist",
+                                    clusterId, shardId)), null);
+        }
+
+        return keeperServer.getReplicationStats().snapshot();
+    }
+
+    public FullSyncScheduler.Snapshot fullSyncStats() {
+        return fullSyncScheduler.snapshot();
+    }
+
     public void start(String clusterId, String shardId) {
         String keeperServerKey = assembleKeeperServerKey(clusterId, shardId);
 
@@ -214,7 +240,8 @@ public class KeeperContainerService {
                                                       MetaServerKeeperService metaService) throws Exception {
 
         RedisKeeperServer redisKeeperServer = new DefaultRedisKeeperServer(keeper, keeperConfig,
-                baseDir, metaService, leaderElectorManager, keeperMonitorManager);
+                baseDir, metaService, leaderElectorManager, keeperMonitorManager, fullSyncScheduler,
+                replicationStoreQuota);
 
         register(redisKeeperServer);
         return redisKeeperServer;
@@ -9,6 +9,7 @@ import com.ctrip.xpipe.redis.keeper.RedisClient;
 import com.ctrip.xpipe.redis.keeper.RedisKeeperServer;
 import com.ctrip.xpipe.redis.keeper.RedisMaster;
 import com.ctrip.xpipe.redis.keeper.RedisSlave;
+import com.ctrip.xpipe.redis.keeper.monitor.ReplicationStats;
 import com.ctrip.xpipe.utils.StringUtil;
 
 /**
@@ -42,7 +43,7 @@ public class InfoHandler extends AbstractCommandHandler{
 			isDefault = true;
 		}
 
-		if(args.length == 1){
+		if(args.length >= 1){
 
 			if(args[0].equalsIgnoreCase("all")){
 				isAll = true;
@@ -50,12 +51,15 @@ public class InfoHandler extends AbstractCommandHandler{
 				section = args[0];
 			}
 		}
+		// INFO replication_stats reset: latencies since last reset
+		boolean reset = args.length == 2 && "reset".equalsIgnoreCase(args[1]);
 
 		StringBuilder sb = new StringBuilder();
 		RedisKeeperServer redisKeeperServer = redisClient.getRedisKeeperServer();
 
 		server(isDefault, isAll, section, sb, redisKeeperServer);
 		replication(isDefault, isAll, section, sb, redisKeeperServer);
+		replicationStats(isAll, section, reset, sb, redisKeeperServer);
 
 		redisClient.sendMessage(new BulkStringParser(sb.toString()).format());
 	}
@@ -72,6 +76,28 @@ public class InfoHandler extends AbstractCommandHandler{
 
 	}
 
+	/**
+	 * not in default section, sentinel parses slave lines of replication section
+	 */
+	private void replicationStats(boolean isAll, String section, boolean reset, StringBuilder sb, RedisKeeperServer redisKeeperServer) {
+
+		ReplicationStats replicationStats = redisKeeperServer.getReplicationStats();
+		if(replicationStats == null || !(isAll || "replication_stats".equalsIgnoreCase(section))){
+			return;
+		}
+
+		ReplicationStats.Snapshot snapshot = reset ? replicationStats.snapshotAndReset() : replicationStats.snapshot();
+		sb.append("# Replication_stats" + RedisProtocol.CRLF);
+		sb.append("appended_offset:" + snapshot.getAppendedOffset() + RedisProtocol.CRLF);
+		sb.append(String.format("append_bytes_per_sec:%.0f" + RedisProtocol.CRLF, snapshot.getAppendBytesPerSecond()));
+		sb.append("append_latency_micro:" + snapshot.getAppendLatencyMicro() + RedisProtocol.CRLF);
+		int slaveIndex = 0;
+		for(ReplicationStats.SlaveSnapshot slaveSnapshot : snapshot.getSlaves()){
+			sb.append(String.format("slave%d:%s" + RedisProtocol.CRLF, slaveIndex, slaveSnapshot.info()));
+			slaveIndex++;
+		}
+	}
+
 	private void replication(boolean isDefault, boolean isAll, String section, StringBuilder sb, RedisKeeperServer redisKeeperServer) {
 
 		if(isDefault || isAll || "replication".equalsIgnoreCase(section)){
@@ -3,7 +3,11 @@ package com.ctrip.xpipe.redis.keeper.handler;
 
 
 import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import com.ctrip.xpipe.concurrent.AbstractExceptionLogTask;
 import com.ctrip.xpipe.redis.core.protocal.cmd.DefaultPsync;
 import com.ctrip.xpipe.redis.core.protocal.protocal.SimpleStringParser;
 import com.ctrip.xpipe.redis.core.store.ReplicationStore;
@@ -13,6 +17,9 @@ import com.ctrip.xpipe.redis.keeper.RedisKeeperServer;
 import com.ctrip.xpipe.redis.keeper.RedisSlave;
 import com.ctrip.xpipe.redis.keeper.config.KeeperConfig;
 
+import io.netty.channel.EventLoop;
+import io.netty.util.concurrent.ScheduledFuture;
+
 /**
  * @author wenchao.meng
  *
@@ -22,6 +29,8 @@ public class PsyncHandler extends AbstractCommandHandler{
 	
 	public static final int WAIT_OFFSET_TIME_MILLI = 60 * 1000;
 	
+	protected int waitOffsetTimeMilli = WAIT_OFFSET_TIME_MILLI;
+	
 	@Override
 	protected void doHandle(final String[] args, final RedisClient redisClient) {
 		// in non-psync executor
@@ -80,6 +89,7 @@ public class PsyncHandler extends AbstractCommandHandler{
 				logger.info("[innerDoHandle][wait for offset]{}, {} > {} + 1", redisSlave, offsetRequest, endOffset);
 				waitForoffset(args, redisSlave, offsetRequest);
 			}else{
+				redisKeeperServer.getReplicationStore().slaveOffsetObserved(offsetRequest);
 				if(endOffset - offsetRequest < keeperConfig.getReplicationStoreMaxCommandsToTransferBeforeCreateRdb()) {
 					doPartialSync(redisSlave, offsetRequest);
 				} else {
@@ -93,39 +103,103 @@ public class PsyncHandler extends AbstractCommandHandler{
 	}
 
 	/**
-	 * wait until the request offset received
-	 * @param redisClient 
-	 * @param args 
-	 * @param offset
+	 * wait until the request offset received, no thread is held while waiting:
+	 * store runs the callback when offset is written, timeout is scheduled on the channel's event loop,
+	 * and whichever comes first decides partial or full sync in the event loop
 	 */
 	private void waitForoffset(final String[] args, final RedisSlave redisSlave, final Long offsetRequest) {
 		
-		new Thread(new Runnable() {
-			@Override
-			public void run() {
+		ReplicationStore replicationStore = redisSlave.getRedisKeeperServer().getReplicationStore();
+		OffsetWaiter offsetWaiter = new OffsetWaiter(redisSlave, replicationStore, offsetRequest);
+		offsetWaiter.start(offsetRequest - replicationStore.getMetaStore().getKeeperBeginOffset() - 1);
+	}
+
+	class OffsetWaiter implements Runnable{
+		
+		private final RedisSlave redisSlave;
+		
+		private final ReplicationStore replicationStore;
+		
+		private final Long offsetRequest;
+		
+		private final EventLoop eventLoop;
+		
+		private final AtomicBoolean done = new AtomicBoolean(false);
+		
+		private volatile ScheduledFuture<?> timeoutFuture;
+		
+		public OffsetWaiter(RedisSlave redisSlave, ReplicationStore replicationStore, Long offsetRequest) {
+			this.redisSlave = redisSlave;
+			this.replicationStore = replicationStore;
+			this.offsetRequest = offsetRequest;
+			this.eventLoop = redisSlave.channel().eventLoop();
+		}
+		
+		public void start(long commandsOffset) {
+			
+			timeoutFuture = eventLoop.schedule(new Runnable() {
 				
+				@Override
+				public void run() {
+					if(done.compareAndSet(false, true)){
+						replicationStore.removeCommandsOffsetCallback(OffsetWaiter.this);
+						logger.info("[run][offset wait failed]{}", redisSlave);
+						sync(false);
+					}
+				}
+			}, waitOffsetTimeMilli, TimeUnit.MILLISECONDS);
+			
+			try{
+				replicationStore.addCommandsOffsetCallback(commandsOffset, this);
+			}catch(Exception e){
+				logger.error("[waitForoffset][failed]", e);
+				done.set(true);
+				timeoutFuture.cancel(false);
 				try {
-					ReplicationStore replicationStore = redisSlave.getRedisKeeperServer().getReplicationStore();
-					boolean result = replicationStore.awaitCommandsOffset(offsetRequest - replicationStore.getMetaStore().getKeeperBeginOffset() - 1, WAIT_OFFSET_TIME_MILLI);
-					if(result){
+					redisSlave.close();
+				} catch (IOException e1) {
+					logger.error("[waitForoffset][close slave]" + redisSlave, e);
+				}
+			}
+		}
+
+		/**
+		 * offset reached, called in thread writing commands
+		 */
+		@Override
+		public void run() {
+			
+			eventLoop.execute(new Runnable() {
+				
+				@Override
+				public void run() {
+					if(done.compareAndSet(false, true)){
+						timeoutFuture.cancel(false);
 						logger.info("[waitForoffset][wait succeed]{}", redisSlave);
-						doPartialSync(redisSlave, offsetRequest);
-						return;
+						sync(true);
 					}
-				} catch (InterruptedException e) {
-				}catch(Exception e){
-					logger.error("[waitForoffset][failed]", e);
-					try {
-						redisSlave.close();
-					} catch (IOException e1) {
-						logger.error("[waitForoffset][close slave]" + redisSlave, e);
-					}
-					return;
 				}
-				logger.info("[run][offset wait failed]{}", redisSlave);
-				doFullSync(redisSlave);
+			});
+		}
+		
+		private void sync(final boolean partial) {
+			
+			try{
+				redisSlave.processPsyncSequentially(new AbstractExceptionLogTask() {
+					
+					@Override
+					protected void doRun() throws Exception {
+						if(partial){
+							doPartialSync(redisSlave, offsetRequest);
+						}else{
+							doFullSync(redisSlave);
+						}
+					}
+				});
+			}catch(RejectedExecutionException e){
+				logger.info("[sync][slave closed]{}", redisSlave);
 			}
-		}).start();;
+		}
 	}
 
 	private void doPartialSync(RedisSlave redisSlave, Long offset) {
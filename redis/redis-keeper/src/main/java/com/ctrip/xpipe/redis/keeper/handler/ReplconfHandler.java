@@ -5,8 +5,13 @@ import com.ctrip.xpipe.redis.core.protocal.protocal.RedisErrorParser;
 import com.ctrip.xpipe.redis.core.protocal.protocal.SimpleStringParser;
 import com.ctrip.xpipe.redis.keeper.RedisClient;
 import com.ctrip.xpipe.redis.keeper.RedisSlave;
+import com.ctrip.xpipe.redis.keeper.netty.CompressFrames;
 import com.ctrip.xpipe.utils.StringUtil;
 
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+
 /**
  * @author wenchao.meng
  *
@@ -29,7 +34,12 @@ public class ReplconfHandler extends AbstractCommandHandler{
 		if("listening-port".equalsIgnoreCase(args[0])){
 			redisClient.setSlaveListeningPort(Integer.valueOf(args[1]));
 		}else if("capa".equalsIgnoreCase(args[0])){
-			redisClient.capa(CAPA.of(args[1]));
+			CAPA capa = CAPA.of(args[1]);
+			redisClient.capa(capa);
+			if(capa == CAPA.XCOMPRESS){
+				acceptCompress(redisClient);
+				return;
+			}
 		}else if("ack".equalsIgnoreCase(args[0])){
 			
 			if(redisClient instanceof RedisSlave){
@@ -48,6 +58,27 @@ public class ReplconfHandler extends AbstractCommandHandler{
 		
 		redisClient.sendMessage(SimpleStringParser.OK);
 	}
+
+	/**
+	 * answer with codec name, data after the answer is compressed
+	 */
+	private void acceptCompress(final RedisClient redisClient) {
+
+		final Channel channel = redisClient.channel();
+		channel.writeAndFlush(new SimpleStringParser(CompressFrames.codecName()).format()).addListener(new ChannelFutureListener() {
+
+			@Override
+			public void operationComplete(ChannelFuture future) throws Exception {
+
+				if(!future.isSuccess()){
+					logger.error("[acceptCompress][fail]" + redisClient, future.cause());
+					return;
+				}
+				logger.info("[acceptCompress]{}, {}", redisClient, CompressFrames.codecName());
+				CompressFrames.installEncoder(channel);
+			}
+		});
+	}
 	
 
 	@Override
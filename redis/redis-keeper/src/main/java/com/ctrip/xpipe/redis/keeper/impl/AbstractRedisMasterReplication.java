@@ -30,6 +30,7 @@ import com.ctrip.xpipe.redis.keeper.RdbDumper;
 import com.ctrip.xpipe.redis.keeper.RedisKeeperServer;
 import com.ctrip.xpipe.redis.keeper.RedisMaster;
 import com.ctrip.xpipe.redis.keeper.RedisMasterReplication;
+import com.ctrip.xpipe.redis.keeper.netty.CompressFrames;
 import com.ctrip.xpipe.redis.keeper.netty.NettySlaveHandler;
 import com.ctrip.xpipe.utils.ChannelUtil;
 import com.ctrip.xpipe.utils.ClusterShardAwareThreadFactory;
@@ -64,6 +65,8 @@ public abstract class AbstractRedisMasterReplication extends AbstractLifecycle i
 
 	public static int DEFAULT_REPLICATION_TIMEOUT = Integer.parseInt(System.getProperty(KEY_REPLICATION_TIMEOUT, "60"));
 
+	public static String KEY_REPLICATION_COMPRESS = "KEY_REPLICATION_COMPRESS";
+
 	private final int replTimeoutSeconds;
 
 	private long repl_transfer_lastio;
@@ -196,7 +199,7 @@ public abstract class AbstractRedisMasterReplication extends AbstractLifecycle i
 				@Override
 				public void operationComplete(CommandFuture commandFuture) throws Exception {
 					if(commandFuture.isSuccess()){
-						sendReplicationCommand();
+						negotiateCompress();
 					}else{
 						logger.error("[operationComplete][listeningPortCommand]", commandFuture.cause());
 					}
@@ -207,6 +210,35 @@ public abstract class AbstractRedisMasterReplication extends AbstractLifecycle i
 		}
 	}
 
+	/**
+	 * masters not supporting compress(redis, old keepers) answer OK or error, replicate without compression then
+	 */
+	private void negotiateCompress() throws CommandExecutionException {
+
+		if(!Boolean.parseBoolean(System.getProperty(KEY_REPLICATION_COMPRESS, "false"))){
+			sendReplicationCommand();
+			return;
+		}
+
+		final Channel channel = masterChannel;
+		Replconf replconf = new Replconf(clientPool, ReplConfType.CAPA, CAPA.XCOMPRESS.toString(), scheduled);
+		executeCommand(replconf).addListener(new CommandFutureListener<Object>() {
+
+			@Override
+			public void operationComplete(CommandFuture<Object> commandFuture) throws Exception {
+
+				if(commandFuture.isSuccess() && CompressFrames.codecName().equalsIgnoreCase(String.valueOf(commandFuture.get()))){
+					logger.info("[negotiateCompress][compress enabled]{}, {}", CompressFrames.codecName(), AbstractRedisMasterReplication.this);
+					CompressFrames.installDecoder(channel);
+				}else{
+					logger.info("[negotiateCompress][compress not supported by master]{}, {}", 
+							commandFuture.isSuccess() ? commandFuture.get() : commandFuture.cause(), AbstractRedisMasterReplication.this);
+				}
+				sendReplicationCommand();
+			}
+		});
+	}
+
 	private void checkTimeout(final Channel channel) {
 
 		logger.info("[checkTimeout]{}s, {}", replTimeoutSeconds, ChannelUtil.getDesc(channel));
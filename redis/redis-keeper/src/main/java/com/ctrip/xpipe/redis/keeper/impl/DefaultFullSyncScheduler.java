@@ -0,0 +1,247 @@
+package com.ctrip.xpipe.redis.keeper.impl;
+
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.ctrip.xpipe.redis.keeper.FullSyncScheduler;
+import com.ctrip.xpipe.redis.keeper.RedisSlave;
+
+/**
+ * shared by all keepers in one container.<br/>
+ * waiters are admitted in queue order, high priority first; low priority waiters waiting longer than aging time go first,
+ * so they are never starved. byte budgets always admit one waiter if nothing is running
+ * @author wenchao.meng
+ *
+ * Jan 11, 2017
+ */
+@Component
+public class DefaultFullSyncScheduler implements FullSyncScheduler{
+
+	private static Logger logger = LoggerFactory.getLogger(DefaultFullSyncScheduler.class);
+
+	public static final int MAX_CONCURRENT_FULL_SYNC = Integer.parseInt(System.getProperty("MAX_CONCURRENT_FULL_SYNC", "8"));
+
+	public static final int MAX_CONCURRENT_RDB_DUMP = Integer.parseInt(System.getProperty("MAX_CONCURRENT_RDB_DUMP", "4"));
+
+	public static final long MAX_FULL_SYNC_BYTES = Long.parseLong(System.getProperty("MAX_FULL_SYNC_BYTES", String.valueOf(8L << 30)));
+
+	public static final long MAX_RDB_DUMP_BYTES = Long.parseLong(System.getProperty("MAX_RDB_DUMP_BYTES", String.valueOf(8L << 30)));
+
+	public static final int PRIORITY_AGING_MILLI = Integer.parseInt(System.getProperty("FULL_SYNC_PRIORITY_AGING_MILLI", "30000"));
+
+	private static final int CHECK_CLOSED_INTERVAL_MILLI = 1000;
+
+	private final AdmissionQueue fullSyncs;
+
+	private final AdmissionQueue rdbDumps;
+
+	private final int priorityAgingMilli;
+
+	private long waitCount, totalWaitMilli, maxWaitMilli;
+
+	public DefaultFullSyncScheduler() {
+		this(MAX_CONCURRENT_FULL_SYNC, MAX_FULL_SYNC_BYTES, MAX_CONCURRENT_RDB_DUMP, MAX_RDB_DUMP_BYTES, PRIORITY_AGING_MILLI);
+	}
+
+	public DefaultFullSyncScheduler(int maxFullSyncs, long maxFullSyncBytes, int maxRdbDumps, long maxRdbDumpBytes, int priorityAgingMilli) {
+		this.fullSyncs = new AdmissionQueue("fullsync", maxFullSyncs, maxFullSyncBytes);
+		this.rdbDumps = new AdmissionQueue("rdbdump", maxRdbDumps, maxRdbDumpBytes);
+		this.priorityAgingMilli = priorityAgingMilli;
+	}
+
+	public static DefaultFullSyncScheduler unlimited(){
+		return new DefaultFullSyncScheduler(Integer.MAX_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE, Long.MAX_VALUE, PRIORITY_AGING_MILLI);
+	}
+
+	@Override
+	public Permit acquireFullSync(RedisSlave redisSlave, Priority priority, long estimatedBytes) throws InterruptedException {
+		return acquire(fullSyncs, redisSlave, priority, estimatedBytes);
+	}
+
+	@Override
+	public Permit acquireRdbDump(RedisSlave redisSlave, Priority priority, long estimatedBytes) throws InterruptedException {
+		return acquire(rdbDumps, redisSlave, priority, estimatedBytes);
+	}
+
+	private synchronized Permit acquire(AdmissionQueue queue, RedisSlave redisSlave, Priority priority, long estimatedBytes) throws InterruptedException {
+
+		if(queue.holders.contains(redisSlave)){
+			logger.debug("[acquire][already hold]{}, {}", queue, redisSlave);
+			return new NestedPermit();
+		}
+
+		Waiter waiter = new Waiter(redisSlave, priority, Math.max(0, estimatedBytes));
+		queue.enqueue(waiter);
+		boolean admitted = false;
+		boolean logged = false;
+		try{
+			while(true){
+
+				if(queue.next(priorityAgingMilli) == waiter && queue.canRun(waiter)){
+					queue.run(waiter);
+					admitted = true;
+					recordWait(System.currentTimeMillis() - waiter.enqueueTime);
+					if(logged){
+						logger.info("[acquire][admitted after wait]{}, {}, {}ms", queue, redisSlave, System.currentTimeMillis() - waiter.enqueueTime);
+					}
+					return new DefaultPermit(queue, waiter);
+				}
+				if(!redisSlave.isOpen()){
+					logger.info("[acquire][slave closed while waiting]{}, {}", queue, redisSlave);
+					return null;
+				}
+				if(!logged){
+					logger.info("[acquire][wait]{}, {}, {}, {}", queue, redisSlave, priority, estimatedBytes);
+					logged = true;
+				}
+				wait(CHECK_CLOSED_INTERVAL_MILLI);
+			}
+		}finally{
+			if(!admitted){
+				queue.remove(waiter);
+				notifyAll();
+			}
+		}
+	}
+
+	private synchronized void release(AdmissionQueue queue, Waiter waiter) {
+
+		queue.finish(waiter);
+		notifyAll();
+	}
+
+	private void recordWait(long waitMilli) {
+
+		waitCount++;
+		totalWaitMilli += waitMilli;
+		if(waitMilli > maxWaitMilli){
+			maxWaitMilli = waitMilli;
+		}
+	}
+
+	@Override
+	public synchronized Snapshot snapshot() {
+		return new Snapshot(fullSyncs.queueDepth() + rdbDumps.queueDepth(), fullSyncs.running, fullSyncs.runningBytes,
+				rdbDumps.running, rdbDumps.runningBytes, waitCount, totalWaitMilli, maxWaitMilli);
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("%s, %s, wait(count:%d, total:%dms, max:%dms)", fullSyncs, rdbDumps, waitCount, totalWaitMilli, maxWaitMilli);
+	}
+
+	private static class Waiter{
+
+		private final RedisSlave redisSlave;
+		private final Priority priority;
+		private final long estimatedBytes;
+		private final long enqueueTime = System.currentTimeMillis();
+
+		public Waiter(RedisSlave redisSlave, Priority priority, long estimatedBytes) {
+			this.redisSlave = redisSlave;
+			this.priority = priority;
+			this.estimatedBytes = estimatedBytes;
+		}
+	}
+
+	private static class AdmissionQueue{
+
+		private final String name;
+		private final int maxRunning;
+		private final long maxBytes;
+
+		private final LinkedList<Waiter> high = new LinkedList<>();
+		private final LinkedList<Waiter> low = new LinkedList<>();
+		private final Set<RedisSlave> holders = new HashSet<>();
+		private int running;
+		private long runningBytes;
+
+		public AdmissionQueue(String name, int maxRunning, long maxBytes) {
+			this.name = name;
+			this.maxRunning = maxRunning;
+			this.maxBytes = maxBytes;
+		}
+
+		public void enqueue(Waiter waiter) {
+			(waiter.priority == Priority.HIGH ? high : low).add(waiter);
+		}
+
+		public void remove(Waiter waiter) {
+			(waiter.priority == Priority.HIGH ? high : low).remove(waiter);
+		}
+
+		public Waiter next(int priorityAgingMilli) {
+
+			Waiter lowHead = low.peek();
+			if(lowHead != null && System.currentTimeMillis() - lowHead.enqueueTime >= priorityAgingMilli){
+				return lowHead;
+			}
+			Waiter highHead = high.peek();
+			return highHead != null ? highHead : lowHead;
+		}
+
+		public boolean canRun(Waiter waiter) {
+
+			if(running == 0){
+				return true;
+			}
+			return running < maxRunning && runningBytes + waiter.estimatedBytes <= maxBytes;
+		}
+
+		public void run(Waiter waiter) {
+
+			remove(waiter);
+			holders.add(waiter.redisSlave);
+			running++;
+			runningBytes += waiter.estimatedBytes;
+		}
+
+		public void finish(Waiter waiter) {
+
+			holders.remove(waiter.redisSlave);
+			running--;
+			runningBytes -= waiter.estimatedBytes;
+		}
+
+		public int queueDepth() {
+			return high.size() + low.size();
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s(running:%d/%d, bytes:%d/%d, queue:%d)", name, running, maxRunning, runningBytes, maxBytes, queueDepth());
+		}
+	}
+
+	private class DefaultPermit implements Permit{
+
+		private final AdmissionQueue queue;
+		private final Waiter waiter;
+		private final AtomicBoolean released = new AtomicBoolean(false);
+
+		public DefaultPermit(AdmissionQueue queue, Waiter waiter) {
+			this.queue = queue;
+			this.waiter = waiter;
+		}
+
+		@Override
+		public void release() {
+			if(released.compareAndSet(false, true)){
+				DefaultFullSyncScheduler.this.release(queue, waiter);
+			}
+		}
+	}
+
+	private static class NestedPermit implements Permit{
+
+		@Override
+		public void release() {
+		}
+	}
+}
@@ -2,6 +2,7 @@ package com.ctrip.xpipe.redis.keeper.impl;
 
 import com.ctrip.xpipe.redis.core.store.ReplicationStore;
 import com.ctrip.xpipe.redis.keeper.KeeperRepl;
+import com.ctrip.xpipe.redis.keeper.store.DefaultReplicationStore;
 
 /**
  * @author wenchao.meng
@@ -19,6 +20,11 @@ public class DefaultKeeperRepl implements KeeperRepl {
 
 	@Override
 	public long getKeeperBeginOffset() {
+		
+		if(replicationStore instanceof DefaultReplicationStore){
+			//corrupted commands can not be partial synced
+			return ((DefaultReplicationStore) replicationStore).firstValidKeeperOffset();
+		}
 		return replicationStore.getMetaStore().getKeeperBeginOffset();
 	}
 
@@ -16,6 +16,8 @@ import java.util.concurrent.atomic.AtomicReference;
 
 import com.ctrip.xpipe.api.cluster.LeaderElector;
 import com.ctrip.xpipe.api.cluster.LeaderElectorManager;
+import com.ctrip.xpipe.api.command.CommandFuture;
+import com.ctrip.xpipe.api.command.CommandFutureListener;
 import com.ctrip.xpipe.api.endpoint.Endpoint;
 import com.ctrip.xpipe.api.monitor.Task;
 import com.ctrip.xpipe.api.monitor.TransactionMonitor;
@@ -37,6 +39,7 @@ import com.ctrip.xpipe.redis.core.protocal.protocal.EofType;
 import com.ctrip.xpipe.redis.core.store.FullSyncListener;
 import com.ctrip.xpipe.redis.core.store.ReplicationStore;
 import com.ctrip.xpipe.redis.core.store.ReplicationStoreManager;
+import com.ctrip.xpipe.redis.keeper.FullSyncScheduler;
 import com.ctrip.xpipe.redis.keeper.KeeperRepl;
 import com.ctrip.xpipe.redis.keeper.RdbDumper;
 import com.ctrip.xpipe.redis.keeper.RedisClient;
@@ -44,6 +47,7 @@ import com.ctrip.xpipe.redis.keeper.RedisKeeperServer;
 import com.ctrip.xpipe.redis.keeper.RedisKeeperServerState;
 import com.ctrip.xpipe.redis.keeper.RedisMaster;
 import com.ctrip.xpipe.redis.keeper.RedisSlave;
+import com.ctrip.xpipe.redis.keeper.SLAVE_STATE;
 import com.ctrip.xpipe.redis.keeper.config.KeeperConfig;
 import com.ctrip.xpipe.redis.keeper.exception.RedisSlavePromotionException;
 import com.ctrip.xpipe.redis.keeper.handler.CommandHandlerManager;
@@ -51,6 +55,7 @@ import com.ctrip.xpipe.redis.keeper.monitor.KeeperMonitorManager;
 import com.ctrip.xpipe.redis.keeper.netty.NettyMasterHandler;
 import com.ctrip.xpipe.redis.keeper.store.DefaultFullSyncListener;
 import com.ctrip.xpipe.redis.keeper.store.DefaultReplicationStoreManager;
+import com.ctrip.xpipe.redis.keeper.store.ReplicationStoreQuota;
 import com.ctrip.xpipe.utils.ClusterShardAwareThreadFactory;
 import com.ctrip.xpipe.utils.OsUtils;
 
@@ -115,22 +120,53 @@ public class DefaultRedisKeeperServer extends AbstractRedisServer implements Red
 	@SuppressWarnings("unused")
 	private KeeperMonitorManager keeperMonitorManager;
 	
+	private FullSyncScheduler fullSyncScheduler;
+	
+	private final ReplicationStats replicationStats = new ReplicationStats();
+	
 	public DefaultRedisKeeperServer(KeeperMeta currentKeeperMeta, KeeperConfig keeperConfig, File baseDir, 
 			MetaServerKeeperService metaService, LeaderElectorManager leaderElectorManager, KeeperMonitorManager keeperMonitorManager){
 		this(currentKeeperMeta, keeperConfig, baseDir, metaService, null, leaderElectorManager, keeperMonitorManager);
 	}
 
+	public DefaultRedisKeeperServer(KeeperMeta currentKeeperMeta, KeeperConfig keeperConfig, File baseDir, 
+			MetaServerKeeperService metaService, LeaderElectorManager leaderElectorManager, KeeperMonitorManager keeperMonitorManager,
+			FullSyncScheduler fullSyncScheduler){
+		this(currentKeeperMeta, keeperConfig, baseDir, metaService, null, leaderElectorManager, keeperMonitorManager, fullSyncScheduler, 
+				ReplicationStoreQuota.unlimited());
+	}
+
+	public DefaultRedisKeeperServer(KeeperMeta currentKeeperMeta, KeeperConfig keeperConfig, File baseDir, 
+			MetaServerKeeperService metaService, LeaderElectorManager leaderElectorManager, KeeperMonitorManager keeperMonitorManager,
+			FullSyncScheduler fullSyncScheduler, ReplicationStoreQuota replicationStoreQuota){
+		this(currentKeeperMeta, keeperConfig, baseDir, metaService, null, leaderElectorManager, keeperMonitorManager, fullSyncScheduler, 
+				replicationStoreQuota);
+	}
+
 	public DefaultRedisKeeperServer(KeeperMeta currentKeeperMeta, KeeperConfig keeperConfig, File baseDir, 
 			MetaServerKeeperService metaService, 
 			ScheduledExecutorService scheduled, 
 			LeaderElectorManager leaderElectorManager,
 			KeeperMonitorManager keeperMonitorManager){
+		this(currentKeeperMeta, keeperConfig, baseDir, metaService, scheduled, leaderElectorManager, keeperMonitorManager, DefaultFullSyncScheduler.unlimited(), 
+				ReplicationStoreQuota.unlimited());
+	}
+
+	public DefaultRedisKeeperServer(KeeperMeta currentKeeperMeta, KeeperConfig keeperConfig, File baseDir, 
+			MetaServerKeeperService metaService, 
+			ScheduledExecutorService scheduled, 
+			LeaderElectorManager leaderElectorManager,
+			KeeperMonitorManager keeperMonitorManager,
+			FullSyncScheduler fullSyncScheduler,
+			ReplicationStoreQuota replicationStoreQuota){
 		this.clusterId = currentKeeperMeta.parent().parent().getId();
 		this.shardId = currentKeeperMeta.parent().getId();
 		this.currentKeeperMeta = currentKeeperMeta;
 		this.keeperConfig = keeperConfig;
 		this.keeperMonitorManager = keeperMonitorManager;
-		this.replicationStoreManager = new DefaultReplicationStoreManager(keeperConfig, clusterId, shardId, currentKeeperMeta.getId(), baseDir, keeperMonitorManager);
+		DefaultReplicationStoreManager defaultReplicationStoreManager = new DefaultReplicationStoreManager(keeperConfig, clusterId, shardId, currentKeeperMeta.getId(), baseDir, 
+				keeperMonitorManager, replicationStoreQuota);
+		this.replicationStoreManager = defaultReplicationStoreManager;
 		replicationStoreManager.addObserver(new ReplicationStoreManagerListener());
 		this.metaService = metaService;
 		this.leaderElectorManager = leaderElectorManager;
@@ -138,6 +174,9 @@ public class DefaultRedisKeeperServer extends AbstractRedisServer implements Red
 			scheduled = Executors.newScheduledThreadPool(OsUtils.getCpuCount(), ClusterShardAwareThreadFactory.create(clusterId, shardId, String.format("keeper:%s-%s", clusterId, shardId)));
 		}
 		this.scheduled = scheduled;
+		this.fullSyncScheduler = fullSyncScheduler;
+		defaultReplicationStoreManager.setBlockRepairer(new MasterCommandBlockRepairer(this, scheduled));
+		defaultReplicationStoreManager.setReplicationStats(replicationStats);
 	}
 	
 	private LeaderElector createLeaderElector(){
@@ -322,7 +361,15 @@ public class DefaultRedisKeeperServer extends AbstractRedisServer implements Red
 	@Override
 	public void clientDisConnected(Channel channel) {
 		
-		redisClients.remove(channel);
+		RedisClient redisClient = redisClients.remove(channel);
+		if(redisClient instanceof RedisSlave){
+			replicationStats.removeSlave(redisClient);
+		}
+	}
+
+	@Override
+	public ReplicationStats getReplicationStats() {
+		return replicationStats;
 	}
 
 	@Override
@@ -503,31 +550,107 @@ public class DefaultRedisKeeperServer extends AbstractRedisServer implements Red
 	public void fullSyncToSlave(final RedisSlave redisSlave) throws IOException {
 		
 		logger.info("[fullSyncToSlave]{}, {}", redisSlave, rdbDumper.get());
-		if(rdbDumper.get() == null){
-			logger.info("[fullSyncToSlave][dumper null]{}", redisSlave);
-			FullSyncListener fullSyncListener = new DefaultFullSyncListener(redisSlave);
-			if(!getCurrentReplicationStore().fullSyncIfPossible(fullSyncListener)){
-				//go dump rdb
-				try{
-					dumpNewRdb();
-					redisSlave.waitForRdbDumping();
-				}catch(AbstractRdbDumperException e){
-					logger.error("[fullSyncToSlave]", e);
-					if(e.isCancelSlave()){
-						logger.info("[fullSyncToSlave][cancel slave]");	
-						redisSlave.close();
-					}
+		final FullSyncScheduler.Permit permit = acquire(redisSlave, false);
+		if(permit == null){
+			return;
+		}
+		//rdb file regions are only queued to the channel here, hold the permit until they are sent
+		boolean transferring = false;
+		try{
+			if(rdbDumper.get() == null){
+				logger.info("[fullSyncToSlave][dumper null]{}", redisSlave);
+				FullSyncListener fullSyncListener = new DefaultFullSyncListener(redisSlave);
+				if(getCurrentReplicationStore().fullSyncIfPossible(fullSyncListener)){
+					transferring = true;
+					return;
 				}
+			}else{
+				rdbDumper.get().tryFullSync(redisSlave);
+				transferring = redisSlave.getSlaveState() != SLAVE_STATE.REDIS_REPL_WAIT_RDB_DUMPING;
+				return;
+			}
+		}finally{
+			if(transferring){
+				redisSlave.onRdbTransferDone(new Runnable() {
+					
+					@Override
+					public void run() {
+						permit.release();
+					}
+				});
+			}else{
+				permit.release();
 			}
-		}else{
-			rdbDumper.get().tryFullSync(redisSlave);
 		}
+		//go dump rdb, slave waits for dump without holding full sync permit
+		dumpNewRdb(redisSlave);
 	}
 	
-	private RdbDumper dumpNewRdb() throws CreateRdbDumperException, SetRdbDumperException {
+	private void dumpNewRdb(RedisSlave redisSlave) throws IOException {
+		
+		FullSyncScheduler.Permit dumpPermit = acquire(redisSlave, true);
+		if(dumpPermit == null){
+			return;
+		}
+		if(rdbDumper.get() != null){
+			logger.info("[dumpNewRdb][dumper created while waiting]{}", redisSlave);
+			dumpPermit.release();
+			fullSyncToSlave(redisSlave);
+			return;
+		}
+		try{
+			dumpNewRdb(dumpPermit);
+			redisSlave.waitForRdbDumping();
+		}catch(AbstractRdbDumperException e){
+			dumpPermit.release();
+			logger.error("[fullSyncToSlave]", e);
+			if(e.isCancelSlave()){
+				logger.info("[fullSyncToSlave][cancel slave]");	
+				redisSlave.close();
+			}
+		}
+	}
+	
+	private FullSyncScheduler.Permit acquire(RedisSlave redisSlave, boolean rdbDump) {
+		
+		//active keepers feed redises and downstream dcs, go first
+		RedisKeeperServerState state = redisKeeperServerState;
+		FullSyncScheduler.Priority priority = (state != null && state.keeperState().isActive()) ? 
+				FullSyncScheduler.Priority.HIGH : FullSyncScheduler.Priority.LOW;
+		long estimatedBytes = estimatedRdbSize();
+		try {
+			if(rdbDump){
+				return fullSyncScheduler.acquireRdbDump(redisSlave, priority, estimatedBytes);
+			}
+			return fullSyncScheduler.acquireFullSync(redisSlave, priority, estimatedBytes);
+		} catch (InterruptedException e) {
+			logger.info("[acquire][interrupted]{}, {}", redisSlave, fullSyncScheduler);
+			Thread.currentThread().interrupt();
+			return null;
+		}
+	}
+	
+	private long estimatedRdbSize() {
+		
+		try{
+			return Math.max(0, getCurrentReplicationStore().getMetaStore().dupReplicationStoreMeta().getRdbFileSize());
+		}catch(Exception e){
+			logger.warn("[estimatedRdbSize]" + this, e);
+			return 0;
+		}
+	}
+	
+	private RdbDumper dumpNewRdb(final FullSyncScheduler.Permit dumpPermit) throws CreateRdbDumperException, SetRdbDumperException {
 		
 		RdbDumper rdbDumper = keeperRedisMaster.createRdbDumper();
 		setRdbDumper(rdbDumper);
+		rdbDumper.future().addListener(new CommandFutureListener<Void>() {
+			
+			@Override
+			public void operationComplete(CommandFuture<Void> commandFuture) throws Exception {
+				dumpPermit.release();
+			}
+		});
 		rdbDumper.execute();
 		return rdbDumper;
 	}
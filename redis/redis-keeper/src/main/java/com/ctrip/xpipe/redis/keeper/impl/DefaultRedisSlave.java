@@ -2,6 +2,8 @@ package com.ctrip.xpipe.redis.keeper.impl;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -20,16 +22,20 @@ import com.ctrip.xpipe.concurrent.AbstractExceptionLogTask;
 import com.ctrip.xpipe.netty.filechannel.ReferenceFileRegion;
 import com.ctrip.xpipe.redis.core.protocal.CAPA;
 import com.ctrip.xpipe.redis.core.protocal.protocal.EofType;
+import com.ctrip.xpipe.redis.core.store.ReplicationStore;
 import com.ctrip.xpipe.redis.keeper.RedisClient;
 import com.ctrip.xpipe.redis.keeper.RedisKeeperServer;
 import com.ctrip.xpipe.redis.keeper.RedisSlave;
 import com.ctrip.xpipe.redis.keeper.SLAVE_STATE;
 import com.ctrip.xpipe.redis.keeper.exception.RedisKeeperRuntimeException;
+import com.ctrip.xpipe.redis.keeper.monitor.ReplicationStats;
+import com.ctrip.xpipe.redis.keeper.store.CommandBlockCorruptedException;
 import com.ctrip.xpipe.utils.ChannelUtil;
 import com.ctrip.xpipe.utils.ClusterShardAwareThreadFactory;
 import com.ctrip.xpipe.utils.IpUtils;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
@@ -47,6 +53,13 @@ public class DefaultRedisSlave implements RedisSlave {
 	
 	private Long replAckOff;
 	
+	/**
+	 * keeper offset of next byte sent to slave, accessed only in command sending thread
+	 */
+	private long nextSendOffset;
+	
+	private volatile ReplicationStats.SlaveStats slaveStats;
+	
 	private Long replAckTime = System.currentTimeMillis();
 
 	private SLAVE_STATE  slaveState;
@@ -80,6 +93,11 @@ public class DefaultRedisSlave implements RedisSlave {
 	
 	private AtomicBoolean closed = new AtomicBoolean(false);
 	
+	private List<Runnable> rdbTransferDoneTasks = new LinkedList<>();
+	
+	//guarded by rdbTransferDoneTasks, tasks registered once the transfer is done run at once
+	private boolean rdbTransferred = false;
+	
 	public DefaultRedisSlave(RedisClient redisClient){
 		this.redisClient = redisClient;
 		this.setSlaveListeningPort(redisClient.getSlaveListeningPort());
@@ -151,6 +169,15 @@ public class DefaultRedisSlave implements RedisSlave {
 		
 		this.replAckOff = ackOff;
 		this.replAckTime = System.currentTimeMillis();
+		ReplicationStats.SlaveStats slaveStats = slaveStats();
+		if(slaveStats != null){
+			slaveStats.acked(ackOff);
+		}
+		
+		ReplicationStore replicationStore = getRedisKeeperServer().getReplicationStore();
+		if(replicationStore != null){
+			replicationStore.slaveOffsetObserved(ackOff);
+		}
 	}
 
 	@Override
@@ -198,6 +225,10 @@ public class DefaultRedisSlave implements RedisSlave {
 		
 		putOnLineOnAck = eofType.putOnLineOnAck();
 		
+		synchronized (rdbTransferDoneTasks) {
+			rdbTransferred = false;
+		}
+		
 		cancelWaitRdb();
 		
     	channel().writeAndFlush(eofType.getStart());
@@ -209,10 +240,17 @@ public class DefaultRedisSlave implements RedisSlave {
 		
 		logger.info("[rdbWriteComplete]{}", this);
 		
+		//writes complete in order, the last one completes after all rdb file regions are sent
 		ByteBuf end = eofType.getEnd();
-		if(end != null){
-			channel().writeAndFlush(end);
-		}
+		ChannelFuture lastWrite = channel().writeAndFlush(end != null ? end : Unpooled.EMPTY_BUFFER);
+		lastWrite.addListener(new ChannelFutureListener() {
+			
+			@Override
+			public void operationComplete(ChannelFuture future) throws Exception {
+				logger.info("[rdbWriteComplete][rdb transfer done]{}, {}", DefaultRedisSlave.this, future.isSuccess());
+				rdbTransferDone();
+			}
+		});
 		
 
 		if(slaveState == SLAVE_STATE.REDIS_REPL_SEND_BULK){
@@ -227,6 +265,35 @@ public class DefaultRedisSlave implements RedisSlave {
 		}
 	}
 
+	@Override
+	public void onRdbTransferDone(Runnable task) {
+		
+		synchronized (rdbTransferDoneTasks) {
+			if(isOpen() && !rdbTransferred){
+				rdbTransferDoneTasks.add(task);
+				return;
+			}
+		}
+		task.run();
+	}
+	
+	private void rdbTransferDone() {
+		
+		List<Runnable> tasks;
+		synchronized (rdbTransferDoneTasks) {
+			rdbTransferred = true;
+			tasks = new LinkedList<>(rdbTransferDoneTasks);
+			rdbTransferDoneTasks.clear();
+		}
+		for(Runnable task : tasks){
+			try{
+				task.run();
+			}catch(Exception e){
+				logger.error("[rdbTransferDone]" + this, e);
+			}
+		}
+	}
+
 	
 	private void cancelWaitRdb() {
 		
@@ -249,7 +316,15 @@ public class DefaultRedisSlave implements RedisSlave {
 			}
 			logger.info("[beginWriteCommands]{}, {}", this, beginOffset);
 			slaveState = SLAVE_STATE.REDIS_REPL_ONLINE;
+			nextSendOffset = beginOffset;
 			getRedisKeeperServer().getReplicationStore().addCommandsListener(beginOffset, this);
+		} catch (CommandBlockCorruptedException e) {
+			logger.error("[beginWriteCommands][corrupted, close slave]" + this, e);
+			try {
+				close();
+			} catch (IOException e1) {
+				logger.error("[beginWriteCommands][close]" + this, e1);
+			}
 		} catch (IOException e) {
 			throw new RedisKeeperRuntimeException("[beginWriteCommands]" + beginOffset + "," + this, e);
 		}
@@ -273,7 +348,55 @@ public class DefaultRedisSlave implements RedisSlave {
 	public ChannelFuture onCommand(ReferenceFileRegion referenceFileRegion) {
 		
 		logger.debug("[onCommand]{}, {}", this, referenceFileRegion);
-		return doWriteFile(referenceFileRegion);
+		return recordFlush(doWriteFile(referenceFileRegion), referenceFileRegion.count());
+	}
+
+	@Override
+	public ChannelFuture onCommand(ByteBuf byteBuf) {
+		
+		logger.debug("[onCommand]{}, {}", this, byteBuf.readableBytes());
+		int length = byteBuf.readableBytes();
+		ChannelFuture future = channel().writeAndFlush(byteBuf);
+		future.addListener(writeExceptionListener);
+		return recordFlush(future, length);
+	}
+
+	@Override
+	public boolean isWritable() {
+		return channel().isWritable();
+	}
+
+	private ChannelFuture recordFlush(ChannelFuture future, final long length) {
+		
+		if(length <= 0){
+			return future;
+		}
+		
+		nextSendOffset += length;
+		final long endOffset = nextSendOffset - 1;
+		future.addListener(new ChannelFutureListener() {
+			
+			@Override
+			public void operationComplete(ChannelFuture future) throws Exception {
+				ReplicationStats.SlaveStats slaveStats = slaveStats();
+				if(future.isSuccess() && slaveStats != null){
+					slaveStats.flushed(endOffset, length);
+				}
+			}
+		});
+		return future;
+	}
+
+	private ReplicationStats.SlaveStats slaveStats() {
+		
+		if(slaveStats == null){
+			ReplicationStats replicationStats = getRedisKeeperServer().getReplicationStats();
+			if(replicationStats == null){
+				return null;
+			}
+			slaveStats = replicationStats.slave(this, String.format("%s:%d", IpUtils.getIp(channel().remoteAddress()), getSlaveListeningPort()));
+		}
+		return slaveStats;
 	}
 
 	@Override
@@ -313,9 +436,14 @@ public class DefaultRedisSlave implements RedisSlave {
 		
 		logger.info("[close]{}", this);
 		closed.set(true);
+		ReplicationStats replicationStats = getRedisKeeperServer().getReplicationStats();
+		if(replicationStats != null){
+			replicationStats.removeSlave(this);
+		}
 		redisClient.close();
 		psyncExecutor.shutdownNow();
 		scheduled.shutdownNow();
+		rdbTransferDone();
 	}
 	
 	@Override
@@ -392,6 +520,7 @@ public class DefaultRedisSlave implements RedisSlave {
 		logger.info("[release]{}", this);
 		closed.set(true);
 		psyncExecutor.shutdownNow();
+		rdbTransferDone();
 	}
 
 }
@@ -0,0 +1,73 @@
+package com.ctrip.xpipe.redis.keeper.impl;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ctrip.xpipe.api.endpoint.Endpoint;
+import com.ctrip.xpipe.api.pool.SimpleObjectPool;
+import com.ctrip.xpipe.netty.NettyPoolUtil;
+import com.ctrip.xpipe.netty.commands.NettyClient;
+import com.ctrip.xpipe.redis.core.protocal.cmd.RangePsync;
+import com.ctrip.xpipe.redis.core.store.MetaStore;
+import com.ctrip.xpipe.redis.core.store.ReplicationStore;
+import com.ctrip.xpipe.redis.keeper.RedisKeeperServer;
+import com.ctrip.xpipe.redis.keeper.RedisMaster;
+import com.ctrip.xpipe.redis.keeper.store.CommandBlockRepairer;
+
+/**
+ * fetch corrupted block again by partial sync from current master, on a separate connection.<br/>
+ * only the block is transferred, replication link and slaves are not touched
+ * @author wenchao.meng
+ *
+ * Jan 18, 2017
+ */
+public class MasterCommandBlockRepairer implements CommandBlockRepairer{
+
+	private static Logger logger = LoggerFactory.getLogger(MasterCommandBlockRepairer.class);
+
+	public static final int REPAIR_TIMEOUT_MILLI = Integer.parseInt(System.getProperty("COMMAND_REPAIR_TIMEOUT_MILLI", "10000"));
+
+	private RedisKeeperServer redisKeeperServer;
+
+	private ScheduledExecutorService scheduled;
+
+	public MasterCommandBlockRepairer(RedisKeeperServer redisKeeperServer, ScheduledExecutorService scheduled) {
+		this.redisKeeperServer = redisKeeperServer;
+		this.scheduled = scheduled;
+	}
+
+	@Override
+	public byte[] repair(long cmdOffset, int length) throws Exception {
+
+		RedisMaster redisMaster = redisKeeperServer.getRedisMaster();
+		ReplicationStore replicationStore = redisKeeperServer.getReplicationStore();
+		if(redisMaster == null || replicationStore == null){
+			logger.info("[repair][no master or store]{}", redisKeeperServer);
+			return null;
+		}
+
+		MetaStore metaStore = replicationStore.getMetaStore();
+		String masterRunid = metaStore.getMasterRunid();
+		Long beginOffset = metaStore.beginOffset();
+		if(masterRunid == null || beginOffset == null){
+			logger.info("[repair][master offset unknown]{}", redisKeeperServer);
+			return null;
+		}
+
+		Endpoint endpoint = redisMaster.masterEndPoint();
+		long masterOffset = beginOffset + cmdOffset;
+		logger.info("[repair]{}, {} {}:{}, length:{}", endpoint, masterRunid, masterOffset, cmdOffset, length);
+
+		SimpleObjectPool<NettyClient> clientPool = NettyPoolUtil.createNettyPool(new InetSocketAddress(endpoint.getHost(), endpoint.getPort()));
+		try{
+			RangePsync rangePsync = new RangePsync(clientPool, masterRunid, masterOffset, length, scheduled);
+			return (byte[]) rangePsync.execute().get(REPAIR_TIMEOUT_MILLI, TimeUnit.MILLISECONDS);
+		}finally{
+			clientPool.clear();
+		}
+	}
+}
@@ -0,0 +1,173 @@
+package com.ctrip.xpipe.redis.keeper.monitor;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * lock free log-linear histogram in the way of HdrHistogram: every power of 2 range is divided into
+ * 32 linear sub buckets, so relative error is at most 1/32(about 3%) and memory is constant.<br/>
+ * values bigger than 2^41 - 1 are recorded as 2^41 - 1, negative values are recorded as 0.<br/>
+ * {@link #snapshotAndReset()} gives the values recorded since last reset, for windowed reporting
+ * @author wenchao.meng
+ *
+ * Jan 20, 2017
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 6;
+
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+	private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT >> 1;
+
+	private static final int MAX_VALUE_BITS = 41;
+
+	public static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+
+	private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (MAX_VALUE_BITS - SUB_BUCKET_BITS) * SUB_BUCKET_HALF;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+	private final AtomicLong totalCount = new AtomicLong();
+
+	private final AtomicLong totalValue = new AtomicLong();
+
+	private final AtomicLong maxValue = new AtomicLong();
+
+	public void record(long value) {
+
+		value = Math.max(0, Math.min(value, MAX_VALUE));
+		counts.incrementAndGet(indexOf(value));
+		totalCount.incrementAndGet();
+		totalValue.addAndGet(value);
+
+		long currentMax;
+		while ((currentMax = maxValue.get()) < value) {
+			if (maxValue.compareAndSet(currentMax, value)) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * copy of current counts, recording is not blocked. counts recorded during copy may be partially seen
+	 */
+	public Snapshot snapshot() {
+
+		long[] copy = new long[BUCKET_COUNT];
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			copy[i] = counts.get(i);
+		}
+		return new Snapshot(copy, totalCount.get(), totalValue.get(), maxValue.get());
+	}
+
+	/**
+	 * copy of current counts and start a new window, recording is not blocked.
+	 * a value recorded during reset is counted in exactly one of the windows, but count, mean and max
+	 * of that value may fall into different windows
+	 */
+	public Snapshot snapshotAndReset() {
+
+		long[] copy = new long[BUCKET_COUNT];
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			copy[i] = counts.getAndSet(i, 0);
+		}
+		return new Snapshot(copy, totalCount.getAndSet(0), totalValue.getAndSet(0), maxValue.getAndSet(0));
+	}
+
+	static int indexOf(long value) {
+
+		if (value < SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS + 1;
+		int subBucket = (int) (value >>> shift);
+		return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF + (subBucket - SUB_BUCKET_HALF);
+	}
+
+	/**
+	 * @return highest value recorded into the bucket
+	 */
+	static long highestValueOf(int index) {
+
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF + 1;
+		long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+		return ((subBucket + 1) << shift) - 1;
+	}
+
+	public static class Snapshot {
+
+		private final long[] counts;
+
+		private final long count;
+
+		private final long total;
+
+		private final long max;
+
+		private Snapshot(long[] counts, long count, long total, long max) {
+			this.counts = counts;
+			this.count = count;
+			this.total = total;
+			this.max = max;
+		}
+
+		/**
+		 * @param percentile 0 ~ 100
+		 */
+		public long percentile(double percentile) {
+
+			long recorded = 0;
+			for (long current : counts) {
+				recorded += current;
+			}
+			if (recorded == 0) {
+				return 0;
+			}
+
+			long target = Math.max(1, (long) Math.ceil(percentile / 100 * recorded));
+			long cumulative = 0;
+			for (int i = 0; i < counts.length; i++) {
+				cumulative += counts[i];
+				if (cumulative >= target) {
+					// max may belong to the next window after a reset
+					long lowest = i == 0 ? 0 : highestValueOf(i - 1) + 1;
+					return max >= lowest ? Math.min(highestValueOf(i), max) : highestValueOf(i);
+				}
+			}
+			return max;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public double getMean() {
+			return count == 0 ? 0 : (double) total / count;
+		}
+
+		public long getMax() {
+			return max;
+		}
+
+		public long getP50() {
+			return percentile(50);
+		}
+
+		public long getP99() {
+			return percentile(99);
+		}
+
+		public long getP999() {
+			return percentile(99.9);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("count=%d,mean=%.1f,p50=%d,p99=%d,p999=%d,max=%d", count, getMean(), getP50(), getP99(), getP999(), max);
+		}
+	}
+}
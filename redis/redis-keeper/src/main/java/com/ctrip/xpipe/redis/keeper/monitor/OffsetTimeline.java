@@ -0,0 +1,66 @@
+package com.ctrip.xpipe.redis.keeper.monitor;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * time when the latest offsets were reached, offsets recorded must be increasing.<br/>
+ * single writer, lock free readers; a slot overwritten while being read may give a wrong time, which is acceptable for metrics
+ * @author wenchao.meng
+ *
+ * Jan 20, 2017
+ */
+public class OffsetTimeline {
+
+	public static final long NOT_FOUND = -1;
+
+	private final int size;
+
+	private final AtomicLongArray offsets;
+
+	private final AtomicLongArray times;
+
+	private final AtomicLong sequence = new AtomicLong();
+
+	public OffsetTimeline(int size) {
+		this.size = size;
+		this.offsets = new AtomicLongArray(size);
+		this.times = new AtomicLongArray(size);
+	}
+
+	public void record(long offset, long timeNanos) {
+
+		long current = sequence.get();
+		int index = (int) (current % size);
+		times.set(index, timeNanos);
+		offsets.set(index, offset);
+		sequence.lazySet(current + 1);
+	}
+
+	/**
+	 * @return time of the first record whose offset is not less than the given one, NOT_FOUND if it is too old or not reached
+	 */
+	public long timeReached(long offset) {
+
+		long end = sequence.get();
+		long begin = Math.max(0, end - size);
+		if (end == begin || offsets.get(index(end - 1)) < offset || (begin > 0 && offsets.get(index(begin)) >= offset)) {
+			return NOT_FOUND;
+		}
+
+		long low = begin, high = end - 1;
+		while (low < high) {
+			long middle = (low + high) >>> 1;
+			if (offsets.get(index(middle)) >= offset) {
+				high = middle;
+			} else {
+				low = middle + 1;
+			}
+		}
+		return times.get(index(low));
+	}
+
+	private int index(long sequence) {
+		return (int) (sequence % size);
+	}
+}
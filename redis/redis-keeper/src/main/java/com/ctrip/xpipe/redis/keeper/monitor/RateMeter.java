@@ -0,0 +1,74 @@
+package com.ctrip.xpipe.redis.keeper.monitor;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * lock free per second counter, rate is the average of the last complete seconds
+ * @author wenchao.meng
+ *
+ * Jan 20, 2017
+ */
+public class RateMeter {
+
+	public static final int DEFAULT_SECONDS = 5;
+
+	private final int seconds;
+
+	private final AtomicLongArray values;
+
+	private final AtomicLongArray bucketSeconds;
+
+	private final AtomicLong total = new AtomicLong();
+
+	public RateMeter() {
+		this(DEFAULT_SECONDS);
+	}
+
+	public RateMeter(int seconds) {
+		this.seconds = seconds;
+		// one more bucket for current second
+		this.values = new AtomicLongArray(seconds + 1);
+		this.bucketSeconds = new AtomicLongArray(seconds + 1);
+	}
+
+	public void mark(long count) {
+		mark(count, System.currentTimeMillis());
+	}
+
+	public void mark(long count, long currentTimeMilli) {
+
+		long second = currentTimeMilli / 1000;
+		int index = (int) (second % values.length());
+		long bucketSecond = bucketSeconds.get(index);
+		if (bucketSecond != second && bucketSeconds.compareAndSet(index, bucketSecond, second)) {
+			values.set(index, 0);
+		}
+		values.addAndGet(index, count);
+		total.addAndGet(count);
+	}
+
+	public double rate() {
+		return rate(System.currentTimeMillis());
+	}
+
+	/**
+	 * @return count per second of last complete seconds
+	 */
+	public double rate(long currentTimeMilli) {
+
+		long currentSecond = currentTimeMilli / 1000;
+		long sum = 0;
+		for (int i = 0; i < values.length(); i++) {
+			long bucketSecond = bucketSeconds.get(i);
+			if (bucketSecond < currentSecond && bucketSecond >= currentSecond - seconds) {
+				sum += values.get(i);
+			}
+		}
+		return (double) sum / seconds;
+	}
+
+	public long total() {
+		return total.get();
+	}
+}
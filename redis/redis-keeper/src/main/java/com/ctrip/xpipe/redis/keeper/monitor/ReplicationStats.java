@@ -0,0 +1,242 @@
+package com.ctrip.xpipe.redis.keeper.monitor;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * replication metrics of one keeper, all in keeper offset:<br/>
+ * append latency(bytes from master written to store), append to flush latency and flush to ack latency of every slave,
+ * bytes per second and offset lag.<br/>
+ * recording never blocks replication, snapshot can be taken from any thread;
+ * latencies are since start, or since last {@link #snapshotAndReset()}
+ * @author wenchao.meng
+ *
+ * Jan 20, 2017
+ */
+public class ReplicationStats {
+
+	public static final int TIMELINE_SIZE = Integer.parseInt(System.getProperty("REPLICATION_STATS_TIMELINE_SIZE", "4096"));
+
+	private final LatencyHistogram appendLatencyMicro = new LatencyHistogram();
+
+	private final OffsetTimeline appendTimeline = new OffsetTimeline(TIMELINE_SIZE);
+
+	private final RateMeter appendBytes = new RateMeter();
+
+	private volatile long appendedOffset = -1;
+
+	private final ConcurrentMap<Object, SlaveStats> slaves = new ConcurrentHashMap<>();
+
+	/**
+	 * @param endOffset last keeper offset written
+	 */
+	public void appended(long endOffset, int bytes, long beginNanos) {
+
+		long now = System.nanoTime();
+		appendLatencyMicro.record((now - beginNanos) / 1000);
+		appendTimeline.record(endOffset, now);
+		appendBytes.mark(bytes);
+		appendedOffset = endOffset;
+	}
+
+	public SlaveStats slave(Object slave, String name) {
+
+		SlaveStats slaveStats = slaves.get(slave);
+		if (slaveStats == null) {
+			slaveStats = new SlaveStats(name);
+			SlaveStats previous = slaves.putIfAbsent(slave, slaveStats);
+			if (previous != null) {
+				slaveStats = previous;
+			}
+		}
+		return slaveStats;
+	}
+
+	public void removeSlave(Object slave) {
+		slaves.remove(slave);
+	}
+
+	public Snapshot snapshot() {
+		return snapshot(false);
+	}
+
+	/**
+	 * latency histograms start a new window after snapshot
+	 */
+	public Snapshot snapshotAndReset() {
+		return snapshot(true);
+	}
+
+	private Snapshot snapshot(boolean reset) {
+
+		List<SlaveSnapshot> slaveSnapshots = new LinkedList<>();
+		for (SlaveStats slaveStats : slaves.values()) {
+			slaveSnapshots.add(slaveStats.snapshot(reset));
+		}
+		return new Snapshot(appendedOffset, appendBytes.rate(), snapshot(appendLatencyMicro, reset), slaveSnapshots);
+	}
+
+	private static LatencyHistogram.Snapshot snapshot(LatencyHistogram histogram, boolean reset) {
+		return reset ? histogram.snapshotAndReset() : histogram.snapshot();
+	}
+
+	public class SlaveStats {
+
+		private final String name;
+
+		private final LatencyHistogram appendToFlushMicro = new LatencyHistogram();
+
+		private final LatencyHistogram flushToAckMicro = new LatencyHistogram();
+
+		private final OffsetTimeline flushTimeline = new OffsetTimeline(TIMELINE_SIZE);
+
+		private final RateMeter sentBytes = new RateMeter();
+
+		private volatile long flushedOffset = -1;
+
+		private volatile long ackedOffset = -1;
+
+		private SlaveStats(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * @param endOffset last keeper offset flushed to slave
+		 */
+		public void flushed(long endOffset, long bytes) {
+
+			long now = System.nanoTime();
+			long appendTime = appendTimeline.timeReached(endOffset);
+			if (appendTime != OffsetTimeline.NOT_FOUND) {
+				appendToFlushMicro.record((now - appendTime) / 1000);
+			}
+			flushTimeline.record(endOffset, now);
+			sentBytes.mark(bytes);
+			flushedOffset = endOffset;
+		}
+
+		public void acked(long offset) {
+
+			if (offset <= ackedOffset) {
+				ackedOffset = offset;
+				return;
+			}
+			long flushTime = flushTimeline.timeReached(offset);
+			if (flushTime != OffsetTimeline.NOT_FOUND) {
+				flushToAckMicro.record((System.nanoTime() - flushTime) / 1000);
+			}
+			ackedOffset = offset;
+		}
+
+		public SlaveSnapshot snapshot() {
+			return snapshot(false);
+		}
+
+		private SlaveSnapshot snapshot(boolean reset) {
+
+			long lag = ackedOffset < 0 ? -1 : Math.max(0, appendedOffset - ackedOffset);
+			return new SlaveSnapshot(name, flushedOffset, ackedOffset, lag, sentBytes.rate(),
+					ReplicationStats.snapshot(appendToFlushMicro, reset), ReplicationStats.snapshot(flushToAckMicro, reset));
+		}
+	}
+
+	public static class Snapshot {
+
+		private final long appendedOffset;
+
+		private final double appendBytesPerSecond;
+
+		private final LatencyHistogram.Snapshot appendLatencyMicro;
+
+		private final List<SlaveSnapshot> slaves;
+
+		public Snapshot(long appendedOffset, double appendBytesPerSecond, LatencyHistogram.Snapshot appendLatencyMicro, List<SlaveSnapshot> slaves) {
+			this.appendedOffset = appendedOffset;
+			this.appendBytesPerSecond = appendBytesPerSecond;
+			this.appendLatencyMicro = appendLatencyMicro;
+			this.slaves = slaves;
+		}
+
+		public long getAppendedOffset() {
+			return appendedOffset;
+		}
+
+		public double getAppendBytesPerSecond() {
+			return appendBytesPerSecond;
+		}
+
+		public LatencyHistogram.Snapshot getAppendLatencyMicro() {
+			return appendLatencyMicro;
+		}
+
+		public List<SlaveSnapshot> getSlaves() {
+			return slaves;
+		}
+	}
+
+	public static class SlaveSnapshot {
+
+		private final String name;
+
+		private final long flushedOffset;
+
+		private final long ackedOffset;
+
+		private final long offsetLag;
+
+		private final double sentBytesPerSecond;
+
+		private final LatencyHistogram.Snapshot appendToFlushMicro;
+
+		private final LatencyHistogram.Snapshot flushToAckMicro;
+
+		public SlaveSnapshot(String name, long flushedOffset, long ackedOffset, long offsetLag, double sentBytesPerSecond,
+				LatencyHistogram.Snapshot appendToFlushMicro, LatencyHistogram.Snapshot flushToAckMicro) {
+			this.name = name;
+			this.flushedOffset = flushedOffset;
+			this.ackedOffset = ackedOffset;
+			this.offsetLag = offsetLag;
+			this.sentBytesPerSecond = sentBytesPerSecond;
+			this.appendToFlushMicro = appendToFlushMicro;
+			this.flushToAckMicro = flushToAckMicro;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getFlushedOffset() {
+			return flushedOffset;
+		}
+
+		public long getAckedOffset() {
+			return ackedOffset;
+		}
+
+		public long getOffsetLag() {
+			return offsetLag;
+		}
+
+		public double getSentBytesPerSecond() {
+			return sentBytesPerSecond;
+		}
+
+		public LatencyHistogram.Snapshot getAppendToFlushMicro() {
+			return appendToFlushMicro;
+		}
+
+		public LatencyHistogram.Snapshot getFlushToAckMicro() {
+			return flushToAckMicro;
+		}
+
+		/**
+		 * one line for keeper INFO
+		 */
+		public String info() {
+			return String.format("name=%s,flushed=%d,acked=%d,lag=%d,bytes_per_sec=%.0f,append_to_flush_micro:%s,flush_to_ack_micro:%s",
+					name, flushedOffset, ackedOffset, offsetLag, sentBytesPerSecond, appendToFlushMicro, flushToAckMicro);
+		}
+	}
+}
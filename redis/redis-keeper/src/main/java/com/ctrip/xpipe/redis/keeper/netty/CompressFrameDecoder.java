@@ -0,0 +1,84 @@
+package com.ctrip.xpipe.redis.keeper.netty;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+
+/**
+ * decode frames written by {@link CompressFrameEncoder}
+ * @author wenchao.meng
+ *
+ * Jan 12, 2017
+ */
+public class CompressFrameDecoder extends ByteToMessageDecoder{
+
+	private static Logger logger = LoggerFactory.getLogger(CompressFrameDecoder.class);
+
+	private final FrameCodec codec;
+
+	private long rawBytes = 0;
+
+	private long compressedBytes = 0;
+
+	public CompressFrameDecoder(FrameCodec codec) {
+		this.codec = codec;
+	}
+
+	@Override
+	protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+
+		while(in.readableBytes() >= CompressFrames.HEADER_LENGTH){
+
+			int readerIndex = in.readerIndex();
+			byte type = in.getByte(readerIndex);
+			int rawLength = in.getInt(readerIndex + 1);
+			int payloadLength = in.getInt(readerIndex + 5);
+
+			if(rawLength < 0 || rawLength > CompressFrames.MAX_FRAME_SIZE || payloadLength < 0 || payloadLength > CompressFrames.MAX_FRAME_SIZE){
+				throw new IOException(String.format("[decode][frame length error]raw:%d, payload:%d", rawLength, payloadLength));
+			}
+			if(in.readableBytes() < CompressFrames.HEADER_LENGTH + payloadLength){
+				return;
+			}
+
+			in.skipBytes(CompressFrames.HEADER_LENGTH);
+			byte[] payload = new byte[payloadLength];
+			in.readBytes(payload);
+
+			switch (type) {
+				case CompressFrames.TYPE_RAW:
+					out.add(Unpooled.wrappedBuffer(payload));
+					break;
+				case CompressFrames.TYPE_COMPRESSED:
+					out.add(Unpooled.wrappedBuffer(codec.decompress(payload, 0, payloadLength, rawLength)));
+					break;
+				default:
+					throw new IOException("[decode][unknown frame type]" + type);
+			}
+			rawBytes += rawLength;
+			compressedBytes += CompressFrames.HEADER_LENGTH + payloadLength;
+		}
+	}
+
+	@Override
+	protected void handlerRemoved0(ChannelHandlerContext ctx) throws Exception {
+
+		logger.info("[handlerRemoved0]{}, raw:{}, compressed:{}", ctx.channel(), rawBytes, compressedBytes);
+		codec.close();
+	}
+
+	public long getRawBytes() {
+		return rawBytes;
+	}
+
+	public long getCompressedBytes() {
+		return compressedBytes;
+	}
+}
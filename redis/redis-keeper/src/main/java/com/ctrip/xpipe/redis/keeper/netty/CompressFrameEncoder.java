@@ -0,0 +1,205 @@
+package com.ctrip.xpipe.redis.keeper.netty;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.FileRegion;
+import io.netty.handler.stream.ChunkedInput;
+import io.netty.util.ReferenceCountUtil;
+
+/**
+ * compress outgoing ByteBuf and FileRegion into frames.<br/>
+ * file regions are compressed lazily frame by frame through {@link io.netty.handler.stream.ChunkedWriteHandler},
+ * so large rdb regions are never loaded into memory at once
+ * @author wenchao.meng
+ *
+ * Jan 12, 2017
+ */
+public class CompressFrameEncoder extends ChannelOutboundHandlerAdapter{
+
+	private static Logger logger = LoggerFactory.getLogger(CompressFrameEncoder.class);
+
+	private final FrameCodec codec;
+
+	private final byte[] frame = new byte[CompressFrames.FRAME_SIZE];
+
+	private AtomicLong rawBytes = new AtomicLong();
+
+	private AtomicLong compressedBytes = new AtomicLong();
+
+	private AtomicLong compressNanos = new AtomicLong();
+
+	public CompressFrameEncoder(FrameCodec codec) {
+		this.codec = codec;
+	}
+
+	@Override
+	public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+
+		if(msg instanceof ByteBuf){
+			ByteBuf byteBuf = (ByteBuf) msg;
+			ByteBuf result;
+			try{
+				result = encode(ctx.alloc(), byteBuf);
+			}finally{
+				byteBuf.release();
+			}
+			ctx.write(result, promise);
+			return;
+		}
+		if(msg instanceof FileRegion){
+			ctx.write(new FileRegionInput((FileRegion) msg), promise);
+			return;
+		}
+		ctx.write(msg, promise);
+	}
+
+	private ByteBuf encode(ByteBufAllocator allocator, ByteBuf byteBuf) {
+
+		ByteBuf result = allocator.buffer(byteBuf.readableBytes() + CompressFrames.HEADER_LENGTH);
+		while(byteBuf.isReadable()){
+			int length = Math.min(frame.length, byteBuf.readableBytes());
+			byteBuf.readBytes(frame, 0, length);
+			writeFrame(result, length);
+		}
+		return result;
+	}
+
+	private void writeFrame(ByteBuf out, int length) {
+
+		long begin = System.nanoTime();
+		byte[] compressed = codec.compress(frame, 0, length);
+		compressNanos.addAndGet(System.nanoTime() - begin);
+
+		if(compressed.length < length){
+			out.writeByte(CompressFrames.TYPE_COMPRESSED);
+			out.writeInt(length);
+			out.writeInt(compressed.length);
+			out.writeBytes(compressed);
+		}else{
+			out.writeByte(CompressFrames.TYPE_RAW);
+			out.writeInt(length);
+			out.writeInt(length);
+			out.writeBytes(frame, 0, length);
+		}
+		rawBytes.addAndGet(length);
+		compressedBytes.addAndGet(CompressFrames.HEADER_LENGTH + Math.min(compressed.length, length));
+	}
+
+	@Override
+	public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+
+		logger.info("[handlerRemoved]{}, raw:{}, compressed:{}, compress:{} ms", ctx.channel(), rawBytes.get(), compressedBytes.get(), compressNanos.get()/1000000);
+		codec.close();
+		super.handlerRemoved(ctx);
+	}
+
+	public long getRawBytes() {
+		return rawBytes.get();
+	}
+
+	public long getCompressedBytes() {
+		return compressedBytes.get();
+	}
+
+	public long getCompressNanos() {
+		return compressNanos.get();
+	}
+
+	private class FileRegionInput implements ChunkedInput<ByteBuf>{
+
+		private final FileRegion fileRegion;
+
+		private final FrameChannel frameChannel = new FrameChannel();
+
+		private long position = 0;
+
+		private boolean closed = false;
+
+		public FileRegionInput(FileRegion fileRegion) {
+			this.fileRegion = fileRegion;
+		}
+
+		@Override
+		public boolean isEndOfInput() throws Exception {
+			return position >= fileRegion.count();
+		}
+
+		@Override
+		public void close() throws Exception {
+
+			if(!closed){
+				closed = true;
+				ReferenceCountUtil.release(fileRegion);
+			}
+		}
+
+		@Override
+		public ByteBuf readChunk(ChannelHandlerContext ctx) throws Exception {
+
+			if(isEndOfInput()){
+				return null;
+			}
+
+			frameChannel.reset((int) Math.min(frame.length, fileRegion.count() - position));
+			while(!frameChannel.isFull()){
+				long transferred = fileRegion.transferTo(frameChannel, position);
+				if(transferred <= 0){
+					throw new IOException(String.format("[readChunk][region truncated]%s, position:%d", fileRegion, position));
+				}
+				position += transferred;
+			}
+
+			ByteBuf out = ctx.alloc().buffer(frameChannel.length + CompressFrames.HEADER_LENGTH);
+			writeFrame(out, frameChannel.length);
+			return out;
+		}
+	}
+
+	/**
+	 * accept bytes into frame buffer until limit reached
+	 */
+	private class FrameChannel implements WritableByteChannel{
+
+		private int length;
+
+		private int limit;
+
+		public void reset(int limit) {
+			this.length = 0;
+			this.limit = limit;
+		}
+
+		public boolean isFull() {
+			return length >= limit;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		@Override
+		public void close() throws IOException {
+		}
+
+		@Override
+		public int write(ByteBuffer src) throws IOException {
+
+			int count = Math.min(src.remaining(), limit - length);
+			src.get(frame, length, count);
+			length += count;
+			return count;
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package com.ctrip.xpipe.redis.keeper.netty;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.stream.ChunkedWriteHandler;
+
+/**
+ * frame: type(1 byte) + raw length(4 bytes) + payload length(4 bytes) + payload.<br/>
+ * compression is negotiated by <code>replconf capa xcompress</code>, master answers with its codec name.
+ * after that, all data from master to slave is framed, data from slave to master is never compressed
+ * @author wenchao.meng
+ *
+ * Jan 12, 2017
+ */
+public class CompressFrames {
+
+	public static final byte TYPE_RAW = 0;
+
+	public static final byte TYPE_COMPRESSED = 1;
+
+	public static final int HEADER_LENGTH = 9;
+
+	public static final int FRAME_SIZE = Integer.parseInt(System.getProperty("KEY_COMPRESS_FRAME_SIZE", String.valueOf(64 << 10)));
+
+	public static final int MAX_FRAME_SIZE = 16 << 20;
+
+	public static final String CHUNKED_HANDLER_NAME = "compressChunked";
+
+	public static final String ENCODER_NAME = "compressEncoder";
+
+	public static final String DECODER_NAME = "compressDecoder";
+
+	public static String codecName(){
+		return DeflateFrameCodec.NAME;
+	}
+
+	public static FrameCodec createCodec(){
+		return new DeflateFrameCodec();
+	}
+
+	/**
+	 * call only when nothing is being written
+	 */
+	public static CompressFrameEncoder installEncoder(Channel channel){
+
+		CompressFrameEncoder encoder = new CompressFrameEncoder(createCodec());
+		ChannelPipeline pipeline = channel.pipeline();
+		pipeline.addFirst(CHUNKED_HANDLER_NAME, new ChunkedWriteHandler());
+		pipeline.addAfter(CHUNKED_HANDLER_NAME, ENCODER_NAME, encoder);
+		return encoder;
+	}
+
+	/**
+	 * call only when no more data is expected until next request
+	 */
+	public static CompressFrameDecoder installDecoder(Channel channel){
+
+		CompressFrameDecoder decoder = new CompressFrameDecoder(createCodec());
+		channel.pipeline().addFirst(DECODER_NAME, decoder);
+		return decoder;
+	}
+}
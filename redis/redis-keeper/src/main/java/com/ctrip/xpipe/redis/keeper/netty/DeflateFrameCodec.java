@@ -0,0 +1,88 @@
+package com.ctrip.xpipe.redis.keeper.netty;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * deflate with best speed, frames are compressed independently
+ * @author wenchao.meng
+ *
+ * Jan 12, 2017
+ */
+public class DeflateFrameCodec implements FrameCodec{
+
+	public static final String NAME = "deflate";
+
+	private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+	private final Inflater inflater = new Inflater();
+
+	private byte[] buffer = new byte[0];
+
+	@Override
+	public String name() {
+		return NAME;
+	}
+
+	@Override
+	public byte[] compress(byte[] src, int offset, int length) {
+
+		int bound = length + (length >> 3) + (length >> 6) + 64;
+		if(buffer.length < bound){
+			buffer = new byte[bound];
+		}
+
+		deflater.reset();
+		deflater.setInput(src, offset, length);
+		deflater.finish();
+
+		int compressed = 0;
+		while(!deflater.finished()){
+			if(compressed == buffer.length){
+				buffer = Arrays.copyOf(buffer, buffer.length * 2);
+			}
+			compressed += deflater.deflate(buffer, compressed, buffer.length - compressed);
+		}
+		return Arrays.copyOf(buffer, compressed);
+	}
+
+	@Override
+	public byte[] decompress(byte[] src, int offset, int length, int rawLength) throws IOException {
+
+		inflater.reset();
+		inflater.setInput(src, offset, length);
+
+		byte[] result = new byte[rawLength];
+		int inflated = 0;
+		try {
+			while(inflated < rawLength){
+				int current = inflater.inflate(result, inflated, rawLength - inflated);
+				if(current == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())){
+					break;
+				}
+				inflated += current;
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("[decompress]" + e.getMessage(), e);
+		}
+
+		if(inflated != rawLength){
+			throw new IOException(String.format("[decompress][length mismatch]expected:%d, real:%d", rawLength, inflated));
+		}
+		return result;
+	}
+
+	@Override
+	public void close() {
+		deflater.end();
+		inflater.end();
+	}
+
+	@Override
+	public String toString() {
+		return NAME;
+	}
+}
@@ -0,0 +1,20 @@
+package com.ctrip.xpipe.redis.keeper.netty;
+
+import java.io.IOException;
+
+/**
+ * compress one frame at a time, not thread safe
+ * @author wenchao.meng
+ *
+ * Jan 12, 2017
+ */
+public interface FrameCodec {
+
+	String name();
+
+	byte[] compress(byte[] src, int offset, int length);
+
+	byte[] decompress(byte[] src, int offset, int length, int rawLength) throws IOException;
+
+	void close();
+}
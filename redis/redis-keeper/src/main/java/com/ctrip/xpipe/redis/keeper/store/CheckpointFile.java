@@ -0,0 +1,54 @@
+package com.ctrip.xpipe.redis.keeper.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.zip.CRC32;
+
+import com.ctrip.xpipe.utils.FileUtils;
+
+/**
+ * small state file written with fsync and atomic rename, content followed by a crc32 line.<br/>
+ * files written before checksum was introduced have no checksum line and are accepted as they are
+ * @author wenchao.meng
+ *
+ * Jan 17, 2017
+ */
+public class CheckpointFile {
+
+	public static final String CHECKSUM_PREFIX = "\n#crc32:";
+
+	private static final Charset UTF8 = Charset.forName("utf-8");
+
+	public static void write(File file, String content) throws IOException {
+		FileUtils.writeAtomically(file, (content + CHECKSUM_PREFIX + checksum(content)).getBytes(UTF8));
+	}
+
+	/**
+	 * @throws IOException if checksum does not match
+	 */
+	public static String read(File file) throws IOException {
+
+		String data = new String(Files.readAllBytes(file.toPath()), UTF8);
+		int index = data.lastIndexOf(CHECKSUM_PREFIX);
+		if(index < 0){
+			return data;
+		}
+
+		String content = data.substring(0, index);
+		String expected = data.substring(index + CHECKSUM_PREFIX.length()).trim();
+		String real = checksum(content);
+		if(!real.equals(expected)){
+			throw new IOException(String.format("[read][checksum mismatch]%s, expected:%s, real:%s", file, expected, real));
+		}
+		return content;
+	}
+
+	private static String checksum(String content) {
+
+		CRC32 crc32 = new CRC32();
+		crc32.update(content.getBytes(UTF8));
+		return Long.toHexString(crc32.getValue());
+	}
+}
@@ -0,0 +1,19 @@
+package com.ctrip.xpipe.redis.keeper.store;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * command block checksum mismatch and can not be repaired
+ * @author wenchao.meng
+ *
+ * Jan 18, 2017
+ */
+public class CommandBlockCorruptedException extends IOException{
+
+	private static final long serialVersionUID = 1L;
+
+	public CommandBlockCorruptedException(File file, long block) {
+		super(String.format("file:%s, block:%d, blockSize:%d", file, block, CommandFileChecksum.BLOCK_SIZE));
+	}
+}
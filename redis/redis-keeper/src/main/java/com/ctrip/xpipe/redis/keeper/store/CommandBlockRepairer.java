@@ -0,0 +1,16 @@
+package com.ctrip.xpipe.redis.keeper.store;
+
+/**
+ * fetch commands of a corrupted block again from master
+ * @author wenchao.meng
+ *
+ * Jan 18, 2017
+ */
+public interface CommandBlockRepairer {
+
+	/**
+	 * @param cmdOffset offset in command store
+	 * @return commands of [cmdOffset, cmdOffset + length), null if master can not give them by partial sync
+	 */
+	byte[] repair(long cmdOffset, int length) throws Exception;
+}
@@ -0,0 +1,144 @@
+package com.ctrip.xpipe.redis.keeper.store;
+
+import java.util.LinkedList;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+
+/**
+ * most recent commands kept in memory, shared by all downstreams reading at the same offset.<br/>
+ * commands are copied once when appended, each reader gets a retained slice instead of reading file again;
+ * readers behind the window read from file as before.<br/>
+ * chunks never cross command file boundary, so a slice always belongs to the file reader is reading
+ * @author wenchao.meng
+ *
+ * Jan 19, 2017
+ */
+public class CommandBroadcastBuffer {
+
+	public static final int CHUNK_SIZE = Integer.parseInt(System.getProperty("SHARED_COMMAND_BUFFER_CHUNK_SIZE", String.valueOf(64 << 10)));
+
+	public static final int DEFAULT_CAPACITY = Integer.parseInt(System.getProperty("SHARED_COMMAND_BUFFER_BYTES", String.valueOf(8 << 20)));
+
+	private final int capacity;
+
+	private final int chunkSize;
+
+	private final LinkedList<Chunk> chunks = new LinkedList<>();
+
+	private long totalBytes = 0;
+
+	public CommandBroadcastBuffer() {
+		this(DEFAULT_CAPACITY, CHUNK_SIZE);
+	}
+
+	public CommandBroadcastBuffer(int capacity, int chunkSize) {
+		this.capacity = capacity;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * @param offset command offset of first byte
+	 * @param segmentStartOffset start offset of the command file bytes are written to
+	 * @param byteBuf indexes are not changed
+	 */
+	public synchronized void append(long offset, long segmentStartOffset, ByteBuf byteBuf, int index, int length) {
+
+		if (capacity <= 0 || length <= 0) {
+			return;
+		}
+
+		Chunk last = chunks.peekLast();
+		if (last != null && last.endOffset() != offset) {
+			// window is not continuous any more
+			clear();
+			last = null;
+		}
+
+		while (length > 0) {
+			if (last == null || last.segmentStartOffset != segmentStartOffset || !last.buffer.isWritable()) {
+				last = new Chunk(offset, segmentStartOffset, PooledByteBufAllocator.DEFAULT.directBuffer(Math.max(chunkSize, 1), Math.max(chunkSize, 1)));
+				chunks.add(last);
+			}
+			int current = Math.min(length, last.buffer.writableBytes());
+			last.buffer.writeBytes(byteBuf, index, current);
+			index += current;
+			length -= current;
+			offset += current;
+			totalBytes += current;
+		}
+
+		while (totalBytes > capacity && chunks.size() > 1) {
+			Chunk first = chunks.removeFirst();
+			totalBytes -= first.buffer.readableBytes();
+			first.buffer.release();
+		}
+	}
+
+	/**
+	 * @return retained slice from offset to end of the chunk containing it, null if offset is not in window
+	 * or chunk is not in the given command file
+	 */
+	public synchronized ByteBuf slice(long offset, long segmentStartOffset) {
+
+		if (chunks.isEmpty() || offset < chunks.peekFirst().startOffset || offset >= chunks.peekLast().endOffset()) {
+			return null;
+		}
+
+		for (Chunk chunk : chunks) {
+			if (offset < chunk.endOffset()) {
+				if (chunk.segmentStartOffset != segmentStartOffset) {
+					return null;
+				}
+				int index = (int) (offset - chunk.startOffset);
+				return chunk.buffer.slice(index, chunk.buffer.writerIndex() - index).retain();
+			}
+		}
+		return null;
+	}
+
+	public synchronized void clear() {
+
+		for (Chunk chunk : chunks) {
+			chunk.buffer.release();
+		}
+		chunks.clear();
+		totalBytes = 0;
+	}
+
+	public synchronized long startOffset() {
+		return chunks.isEmpty() ? -1 : chunks.peekFirst().startOffset;
+	}
+
+	public synchronized long endOffset() {
+		return chunks.isEmpty() ? -1 : chunks.peekLast().endOffset();
+	}
+
+	public synchronized long totalBytes() {
+		return totalBytes;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("[%d, %d), chunks:%d", startOffset(), endOffset(), chunks.size());
+	}
+
+	private static class Chunk {
+
+		private final long startOffset;
+
+		private final long segmentStartOffset;
+
+		private final ByteBuf buffer;
+
+		public Chunk(long startOffset, long segmentStartOffset, ByteBuf buffer) {
+			this.startOffset = startOffset;
+			this.segmentStartOffset = segmentStartOffset;
+			this.buffer = buffer;
+		}
+
+		public long endOffset() {
+			return startOffset + buffer.writerIndex();
+		}
+	}
+}
@@ -0,0 +1,262 @@
+package com.ctrip.xpipe.redis.keeper.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * crc32 of every block of one command file, kept in sidecar file <code>crc_&lt;command file&gt;</code>, 4 bytes per block.<br/>
+ * crc of a block is appended when the block is full, the last partial block is never verified.
+ * command files written before checksum was introduced have no sidecar and are not verified
+ * @author wenchao.meng
+ *
+ * Jan 18, 2017
+ */
+public class CommandFileChecksum {
+
+	private static final Logger logger = LoggerFactory.getLogger(CommandFileChecksum.class);
+
+	public static final String SIDECAR_PREFIX = "crc_";
+
+	public static final int BLOCK_SIZE = Integer.parseInt(System.getProperty("COMMAND_CRC_BLOCK_SIZE", String.valueOf(64 << 10)));
+
+	private final File file;
+
+	private final File sidecar;
+
+	private final long startOffset;
+
+	private volatile long completedBlocks;
+
+	private volatile boolean enabled = true;
+
+	private final BitSet verified = new BitSet();
+
+	private FileChannel sidecarWriter;
+
+	private CRC32 currentCrc;
+
+	private int currentBlockLength;
+
+	public static File sidecarFile(File cmdFile) {
+		return new File(cmdFile.getParentFile(), SIDECAR_PREFIX + cmdFile.getName());
+	}
+
+	/**
+	 * for files only read
+	 */
+	public CommandFileChecksum(File file, long startOffset) {
+		this.file = file;
+		this.startOffset = startOffset;
+		this.sidecar = sidecarFile(file);
+		if (sidecar.isFile()) {
+			completedBlocks = Math.min(sidecar.length() / 4, file.length() / BLOCK_SIZE);
+		} else {
+			enabled = false;
+		}
+	}
+
+	/**
+	 * open for append, crc of blocks written but not recorded(crash before sidecar written) are recomputed
+	 */
+	public synchronized void openForWrite() throws IOException {
+
+		long fileLength = file.length();
+		if (!sidecar.isFile() && fileLength > 0) {
+			logger.info("[openForWrite][no sidecar, checksum disabled]{}", file);
+			enabled = false;
+			return;
+		}
+
+		enabled = true;
+		long fullBlocks = fileLength / BLOCK_SIZE;
+		sidecarWriter = FileChannel.open(sidecar.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		long recorded = Math.min(sidecarWriter.size() / 4, fullBlocks);
+		sidecarWriter.truncate(recorded * 4);
+		sidecarWriter.position(recorded * 4);
+
+		currentBlockLength = (int) (fileLength - fullBlocks * BLOCK_SIZE);
+		currentCrc = new CRC32();
+		if (fileLength > 0) {
+			try (FileChannel data = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				for (long block = recorded; block < fullBlocks; block++) {
+					writeCrc(crcOf(data, block, BLOCK_SIZE));
+				}
+				if (currentBlockLength > 0) {
+					currentCrc.update(readBlock(data, fullBlocks, currentBlockLength));
+				}
+			}
+		}
+		completedBlocks = fullBlocks;
+	}
+
+	/**
+	 * @param byteBuf bytes already written to file, indexes are not changed
+	 */
+	public synchronized void appended(ByteBuf byteBuf, int index, int length) throws IOException {
+
+		if (!enabled || sidecarWriter == null) {
+			return;
+		}
+
+		while (length > 0) {
+			int current = Math.min(length, BLOCK_SIZE - currentBlockLength);
+			for (ByteBuffer buffer : byteBuf.nioBuffers(index, current)) {
+				currentCrc.update(buffer);
+			}
+			index += current;
+			length -= current;
+			currentBlockLength += current;
+			if (currentBlockLength == BLOCK_SIZE) {
+				writeCrc(currentCrc.getValue());
+				currentCrc.reset();
+				currentBlockLength = 0;
+				completedBlocks++;
+			}
+		}
+	}
+
+	/**
+	 * verify completed blocks overlapped with [fromPosition, toPosition) of file, blocks verified before are skipped
+	 * @return first corrupted block, -1 if none
+	 */
+	public long verify(long fromPosition, long toPosition) throws IOException {
+
+		if (!enabled || toPosition <= fromPosition) {
+			return -1;
+		}
+
+		long lastBlock = Math.min((toPosition - 1) / BLOCK_SIZE, completedBlocks - 1);
+		long firstBlock = fromPosition / BLOCK_SIZE;
+		if (lastBlock < firstBlock || allVerified(firstBlock, lastBlock)) {
+			return -1;
+		}
+
+		try (FileChannel data = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+				FileChannel crcs = FileChannel.open(sidecar.toPath(), StandardOpenOption.READ)) {
+			for (long block = firstBlock; block <= lastBlock; block++) {
+				if (isVerified(block)) {
+					continue;
+				}
+				if (crcOf(data, block, BLOCK_SIZE) != expectedCrc(crcs, block)) {
+					logger.error("[verify][block corrupted]{}, block:{}", file, block);
+					return block;
+				}
+				markVerified(block);
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return true if data is the block recorded in sidecar
+	 */
+	public boolean matches(long block, byte[] data) throws IOException {
+
+		if (!enabled || block >= completedBlocks || data.length != BLOCK_SIZE) {
+			return false;
+		}
+
+		CRC32 crc32 = new CRC32();
+		crc32.update(data);
+		try (FileChannel crcs = FileChannel.open(sidecar.toPath(), StandardOpenOption.READ)) {
+			return crc32.getValue() == expectedCrc(crcs, block);
+		}
+	}
+
+	public synchronized void repaired(long block) {
+		verified.set((int) block);
+	}
+
+	private long expectedCrc(FileChannel crcs, long block) throws IOException {
+
+		ByteBuffer buffer = ByteBuffer.allocate(4);
+		while (buffer.hasRemaining()) {
+			if (crcs.read(buffer, block * 4 + buffer.position()) < 0) {
+				throw new IOException("[expectedCrc][sidecar truncated]" + sidecar + ", block:" + block);
+			}
+		}
+		buffer.flip();
+		return buffer.getInt() & 0xFFFFFFFFL;
+	}
+
+	private long crcOf(FileChannel data, long block, int length) throws IOException {
+
+		CRC32 crc32 = new CRC32();
+		crc32.update(readBlock(data, block, length));
+		return crc32.getValue();
+	}
+
+	private ByteBuffer readBlock(FileChannel data, long block, int length) throws IOException {
+
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		long position = block * BLOCK_SIZE;
+		while (buffer.hasRemaining()) {
+			if (data.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("[readBlock][file truncated]" + file + ", block:" + block);
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	private void writeCrc(long crc) throws IOException {
+
+		ByteBuffer buffer = ByteBuffer.allocate(4);
+		buffer.putInt((int) crc);
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			sidecarWriter.write(buffer);
+		}
+	}
+
+	private synchronized boolean allVerified(long firstBlock, long lastBlock) {
+		return verified.nextClearBit((int) firstBlock) > lastBlock;
+	}
+
+	private synchronized boolean isVerified(long block) {
+		return verified.get((int) block);
+	}
+
+	private synchronized void markVerified(long block) {
+		verified.set((int) block);
+	}
+
+	public synchronized void close() throws IOException {
+
+		if (sidecarWriter != null) {
+			sidecarWriter.close();
+			sidecarWriter = null;
+		}
+	}
+
+	public long getStartOffset() {
+		return startOffset;
+	}
+
+	public long getCompletedBlocks() {
+		return completedBlocks;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s, blocks:%d, enabled:%s", file.getName(), completedBlocks, enabled);
+	}
+}
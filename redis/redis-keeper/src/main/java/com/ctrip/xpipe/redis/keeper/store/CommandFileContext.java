@@ -18,15 +18,24 @@ public class CommandFileContext {
 	private final long currentStartOffset;
 
 	private ControllableFile controllableFile;
+	
+	private CommandFileChecksum checksum;
 
 	public CommandFileContext(long currentStartOffset, File currentFile) throws IOException {
 		this.currentStartOffset = currentStartOffset;
 		this.controllableFile = new DefaultControllableFile(currentFile, currentFile.length());
+		this.checksum = new CommandFileChecksum(currentFile, currentStartOffset);
+		this.checksum.openForWrite();
 	}
 	
 
 	public void close() throws IOException {
 		controllableFile.close();
+		checksum.close();
+	}
+	
+	public CommandFileChecksum getChecksum() {
+		return checksum;
 	}
 	
 	
@@ -39,6 +48,10 @@ public class CommandFileContext {
 		}
 	}
 
+	public long getStartOffset() {
+		return currentStartOffset;
+	}
+
 	public long totalLength() {
 		return currentStartOffset + fileLength();
 	}
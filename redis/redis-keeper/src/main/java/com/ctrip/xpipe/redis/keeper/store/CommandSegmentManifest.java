@@ -0,0 +1,145 @@
+package com.ctrip.xpipe.redis.keeper.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alibaba.fastjson.JSON;
+
+/**
+ * start offset and length of each command file, so that command store is recovered without listing directory.<br/>
+ * length of closed segment is recorded when it is rotated, the last segment's length is read from file
+ * @author wenchao.meng
+ *
+ * Jan 17, 2017
+ */
+public class CommandSegmentManifest {
+
+	private static final Logger logger = LoggerFactory.getLogger(CommandSegmentManifest.class);
+
+	public static final String MANIFEST_PREFIX = "manifest_";
+
+	private final File file;
+
+	private final List<Segment> segments = new LinkedList<>();
+
+	public CommandSegmentManifest(File baseDir, String cmdFilePrefix) {
+		this.file = new File(baseDir, MANIFEST_PREFIX + cmdFilePrefix);
+	}
+
+	/**
+	 * @return false if manifest does not exist or is broken
+	 */
+	public synchronized boolean load() {
+
+		if(!file.isFile()){
+			return false;
+		}
+
+		try {
+			List<Segment> loaded = JSON.parseArray(CheckpointFile.read(file), Segment.class);
+			if(loaded == null || loaded.isEmpty()){
+				return false;
+			}
+			segments.clear();
+			segments.addAll(loaded);
+			return true;
+		} catch (Exception e) {
+			logger.error("[load][broken manifest]" + file, e);
+			return false;
+		}
+	}
+
+	public synchronized void reset(List<Segment> newSegments) throws IOException {
+
+		segments.clear();
+		segments.addAll(newSegments);
+		save();
+	}
+
+	/**
+	 * called before writing to new segment
+	 */
+	public synchronized void rotated(long closedStartOffset, long closedLength, long newStartOffset) throws IOException {
+
+		if(!segments.isEmpty() && segments.get(segments.size() - 1).getStartOffset() == closedStartOffset){
+			segments.get(segments.size() - 1).setLength(closedLength);
+		}else{
+			segments.add(new Segment(closedStartOffset, closedLength));
+		}
+		segments.add(new Segment(newStartOffset, 0));
+		save();
+	}
+
+	public synchronized void removeUntil(long startOffset) throws IOException {
+
+		boolean removed = false;
+		for(Iterator<Segment> iterator = segments.iterator(); iterator.hasNext();){
+			Segment segment = iterator.next();
+			if(segment.getStartOffset() <= startOffset && iterator.hasNext()){
+				iterator.remove();
+				removed = true;
+			}
+		}
+		if(removed){
+			save();
+		}
+	}
+
+	public synchronized Segment lastSegment() {
+		return segments.isEmpty() ? null : segments.get(segments.size() - 1);
+	}
+
+	public synchronized Segment previousSegment() {
+		return segments.size() < 2 ? null : segments.get(segments.size() - 2);
+	}
+
+	private void save() throws IOException {
+		CheckpointFile.write(file, JSON.toJSONString(segments));
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public static class Segment{
+
+		private long startOffset;
+
+		private long length;
+
+		public Segment() {
+		}
+
+		public Segment(long startOffset, long length) {
+			this.startOffset = startOffset;
+			this.length = length;
+		}
+
+		public long getStartOffset() {
+			return startOffset;
+		}
+
+		public void setStartOffset(long startOffset) {
+			this.startOffset = startOffset;
+		}
+
+		public long getLength() {
+			return length;
+		}
+
+		public void setLength(long length) {
+			this.length = length;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("start:%d, length:%d", startOffset, length);
+		}
+	}
+}
@@ -3,25 +3,47 @@ package com.ctrip.xpipe.redis.keeper.store;
 import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.io.filefilter.PrefixFileFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.ctrip.xpipe.api.command.CommandFuture;
+import com.ctrip.xpipe.command.DefaultCommandFuture;
 import com.ctrip.xpipe.netty.ByteBufUtils;
 import com.ctrip.xpipe.netty.filechannel.ReferenceFileChannel;
 import com.ctrip.xpipe.netty.filechannel.ReferenceFileRegion;
+import com.ctrip.xpipe.redis.core.store.ByteBufCommandsListener;
 import com.ctrip.xpipe.redis.core.store.CommandReader;
 import com.ctrip.xpipe.redis.core.store.CommandStore;
 import com.ctrip.xpipe.redis.core.store.CommandsListener;
 import com.ctrip.xpipe.redis.keeper.monitor.CommandStoreDelay;
 import com.ctrip.xpipe.redis.keeper.monitor.KeeperMonitorManager;
+import com.ctrip.xpipe.redis.keeper.store.CommandSegmentManifest.Segment;
 import com.ctrip.xpipe.redis.keeper.util.KeeperLogger;
 import com.ctrip.xpipe.utils.DefaultControllableFile;
 import com.ctrip.xpipe.utils.OffsetNotifier;
+import com.ctrip.xpipe.utils.XpipeThreadFactory;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelFuture;
@@ -54,6 +76,52 @@ public class DefaultCommandStore implements CommandStore {
 	private Object cmdFileCtxRefLock = new Object();
 	
 	private CommandStoreDelay commandStoreDelay;
+	
+	private final CommandSegmentManifest manifest;
+	
+	private final ConcurrentMap<Long, CommandFileChecksum> checksums = new ConcurrentHashMap<>();
+	
+	private volatile CommandBlockRepairer blockRepairer;
+	
+	private final Object repairLock = new Object();
+	
+	/**
+	 * commands before this offset are corrupted and can not be repaired
+	 */
+	private volatile long corruptedBefore = 0;
+	
+	private long scrubPosition = 0;
+	
+	private final AtomicLong repairedBlocks = new AtomicLong();
+	
+	private final AtomicLong corruptedBlocks = new AtomicLong();
+	
+	/**
+	 * command offset of block -> repair state, guarded by repairLock, which is never held during repair
+	 */
+	private final Map<Long, CorruptedBlock> knownCorrupted = new HashMap<>();
+	
+	public static final long REPAIR_BACKOFF_MILLI = Long.parseLong(System.getProperty("COMMAND_REPAIR_BACKOFF_MILLI", "10000"));
+	
+	public static final long REPAIR_BACKOFF_MAX_MILLI = Long.parseLong(System.getProperty("COMMAND_REPAIR_BACKOFF_MAX_MILLI", "600000"));
+	
+	public static final long REPAIR_WAIT_MILLI = Long.parseLong(System.getProperty("COMMAND_REPAIR_WAIT_MILLI", "15000"));
+	
+	public static final int REPAIR_THREADS = Integer.parseInt(System.getProperty("COMMAND_REPAIR_THREADS", "2"));
+	
+	private static final ExecutorService repairExecutors = Executors.newFixedThreadPool(REPAIR_THREADS, XpipeThreadFactory.create("CommandBlockRepair", true));
+	
+	public static final int SHARED_BUFFER_MIN_READERS = Integer.parseInt(System.getProperty("SHARED_COMMAND_BUFFER_MIN_READERS", "2"));
+	
+	public static final int ROTATE_THREADS = Integer.parseInt(System.getProperty("COMMAND_ROTATE_THREADS", "2"));
+	
+	private static final ExecutorService rotateExecutors = Executors.newFixedThreadPool(ROTATE_THREADS, XpipeThreadFactory.create("CommandFileRotate", true));
+	
+	private volatile Future<Void> pendingRotation;
+	
+	private final CommandBroadcastBuffer broadcastBuffer = new CommandBroadcastBuffer();
+	
+	private final AtomicLong sharedBytesSent = new AtomicLong();
 
 	public DefaultCommandStore(File file, int maxFileSize, KeeperMonitorManager keeperMonitorManager) throws IOException {
 		
@@ -63,11 +131,13 @@ public class DefaultCommandStore implements CommandStore {
 		this.commandStoreDelay = keeperMonitorManager.createCommandStoreDelay(this);
 		
 		fileFilter = new PrefixFileFilter(fileNamePrefix);
+		manifest = new CommandSegmentManifest(baseDir, fileNamePrefix);
 
-		long currentStartOffset = findMaxStartOffset();
+		long currentStartOffset = recoverCurrentStartOffset();
 		File currentFile = fileForStartOffset(currentStartOffset);
 		logger.info("Write to " + currentFile.getName());
 		CommandFileContext cmdFileCtx = new CommandFileContext(currentStartOffset, currentFile);
+		checksums.put(currentStartOffset, cmdFileCtx.getChecksum());
 		cmdFileCtxRef.set(cmdFileCtx);
 		offsetNotifier = new OffsetNotifier(cmdFileCtx.totalLength() - 1);
 	}
@@ -76,6 +146,51 @@ public class DefaultCommandStore implements CommandStore {
 		return new File(baseDir, fileNamePrefix + startOffset);
 	}
 
+	/**
+	 * read from manifest if possible, otherwise list files and rebuild manifest
+	 */
+	private long recoverCurrentStartOffset() throws IOException {
+		
+		if (manifest.load()) {
+			Segment last = manifest.lastSegment();
+			Segment previous = manifest.previousSegment();
+			long nextStartOffset = last.getStartOffset() + fileForStartOffset(last.getStartOffset()).length();
+			if (fileForStartOffset(nextStartOffset).exists()) {
+				logger.warn("[recoverCurrentStartOffset][rotation not recorded in manifest]{}, next:{}", last, nextStartOffset);
+				return rebuildManifest();
+			}
+			if (previous != null && fileForStartOffset(previous.getStartOffset()).length() != previous.getLength()) {
+				logger.warn("[recoverCurrentStartOffset][segment length not match]{}, real:{}", previous, fileForStartOffset(previous.getStartOffset()).length());
+			}
+			logger.info("[recoverCurrentStartOffset][from manifest]{}", last);
+			return last.getStartOffset();
+		}
+		return rebuildManifest();
+	}
+
+	private long rebuildManifest() throws IOException {
+
+		long maxStartOffset = findMaxStartOffset();
+		List<Segment> segments = new LinkedList<>();
+		File[] files = allFiles();
+		if (files != null) {
+			long[] startOffsets = new long[files.length];
+			for (int i = 0; i < files.length; i++) {
+				startOffsets[i] = extractStartOffset(files[i]);
+			}
+			Arrays.sort(startOffsets);
+			for (long startOffset : startOffsets) {
+				segments.add(new Segment(startOffset, fileForStartOffset(startOffset).length()));
+			}
+		}
+		if (segments.isEmpty()) {
+			segments.add(new Segment(maxStartOffset, 0));
+		}
+		logger.info("[recoverCurrentStartOffset][rebuild manifest]{}", segments);
+		manifest.reset(segments);
+		return maxStartOffset;
+	}
+
 	private long findMaxStartOffset() {
 		
 		long maxStartOffset = 0;
@@ -95,6 +210,231 @@ public class DefaultCommandStore implements CommandStore {
 		return baseDir.listFiles((FilenameFilter) fileFilter);
 	}
 
+	/**
+	 * segments deleted by gc
+	 */
+	public void segmentsDeletedUntil(long startOffset) throws IOException {
+		
+		manifest.removeUntil(startOffset);
+		for (Long checksumStartOffset : checksums.keySet()) {
+			if (checksumStartOffset <= startOffset) {
+				checksums.remove(checksumStartOffset);
+			}
+		}
+	}
+
+	private CommandFileChecksum checksumFor(File file) {
+
+		long startOffset = extractStartOffset(file);
+		CommandFileChecksum checksum = checksums.get(startOffset);
+		if (checksum == null) {
+			checksum = new CommandFileChecksum(file, startOffset);
+			CommandFileChecksum previous = checksums.putIfAbsent(startOffset, checksum);
+			if (previous != null) {
+				checksum = previous;
+			}
+		}
+		return checksum;
+	}
+
+	/**
+	 * verify blocks in [fromPosition, toPosition) of file, corrupted block is fetched again from master if possible.<br/>
+	 * without waitRepair, verification stops at a block being repaired and is done again next time
+	 */
+	private void verifyOrRepair(File file, long fromPosition, long toPosition, boolean waitRepair) throws IOException {
+
+		CommandFileChecksum checksum = checksumFor(file);
+		long block;
+		while ((block = checksum.verify(fromPosition, toPosition)) >= 0) {
+			RepairResult result = repair(checksum, block, waitRepair);
+			if (result == RepairResult.IN_PROGRESS) {
+				return;
+			}
+			if (result == RepairResult.FAILED) {
+				corruptedBefore = Math.max(corruptedBefore, checksum.getStartOffset() + (block + 1) * CommandFileChecksum.BLOCK_SIZE);
+				throw new CommandBlockCorruptedException(file, block);
+			}
+		}
+	}
+
+	/**
+	 * a block known to be corrupted is counted once, repair of it is retried with exponential backoff.<br/>
+	 * repair runs on repairExecutors, repairLock only guards the repair state so readers of other blocks are not blocked;
+	 * readers of the block wait for the repair in flight
+	 */
+	private RepairResult repair(final CommandFileChecksum checksum, final long block, boolean waitRepair) {
+
+		final long blockPosition = block * CommandFileChecksum.BLOCK_SIZE;
+		final long cmdOffset = checksum.getStartOffset() + blockPosition;
+		
+		CommandFuture<Boolean> inFlight;
+		synchronized (repairLock) {
+
+			CorruptedBlock corrupted = knownCorrupted.get(cmdOffset);
+			if (corrupted == null) {
+				corrupted = new CorruptedBlock();
+				knownCorrupted.put(cmdOffset, corrupted);
+				corruptedBlocks.incrementAndGet();
+			}
+
+			inFlight = corrupted.inFlight;
+			if (inFlight == null) {
+				final CommandBlockRepairer repairer = blockRepairer;
+				if (repairer == null) {
+					logger.warn("[repair][no repairer]{}, block:{}", checksum, block);
+					return RepairResult.FAILED;
+				}
+				if (!corrupted.shouldRetry()) {
+					logger.debug("[repair][backoff]{}, block:{}", checksum, block);
+					return RepairResult.FAILED;
+				}
+				inFlight = startRepair(repairer, checksum, block, blockPosition, cmdOffset, corrupted);
+			}
+		}
+		
+		if (!waitRepair) {
+			return RepairResult.IN_PROGRESS;
+		}
+		try {
+			return inFlight.get(REPAIR_WAIT_MILLI, TimeUnit.MILLISECONDS) ? RepairResult.REPAIRED : RepairResult.FAILED;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return RepairResult.FAILED;
+		} catch (ExecutionException | TimeoutException e) {
+			logger.error("[repair][wait]" + checksum + ", block:" + block, e);
+			return RepairResult.FAILED;
+		}
+	}
+
+	private CommandFuture<Boolean> startRepair(final CommandBlockRepairer repairer, final CommandFileChecksum checksum, final long block, 
+			final long blockPosition, final long cmdOffset, final CorruptedBlock corrupted) {
+		
+		final CommandFuture<Boolean> inFlight = new DefaultCommandFuture<>();
+		corrupted.inFlight = inFlight;
+		repairExecutors.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				
+				boolean repaired = repairedByOthers(checksum, block, blockPosition) || doRepair(repairer, checksum, block, blockPosition, cmdOffset);
+				synchronized (repairLock) {
+					corrupted.inFlight = null;
+					if (repaired) {
+						knownCorrupted.remove(cmdOffset);
+					} else {
+						corrupted.failed();
+					}
+				}
+				inFlight.setSuccess(repaired);
+			}
+		});
+		return inFlight;
+	}
+
+	private boolean repairedByOthers(CommandFileChecksum checksum, long block, long blockPosition) {
+		
+		try {
+			return checksum.verify(blockPosition, blockPosition + CommandFileChecksum.BLOCK_SIZE) < 0;
+		} catch (Exception e) {
+			logger.error("[repair]" + checksum + ", block:" + block, e);
+			return false;
+		}
+	}
+
+	private boolean doRepair(CommandBlockRepairer repairer, CommandFileChecksum checksum, long block, long blockPosition, long cmdOffset) {
+
+		try {
+			byte[] data = repairer.repair(cmdOffset, CommandFileChecksum.BLOCK_SIZE);
+			if (data == null || !checksum.matches(block, data)) {
+				logger.warn("[repair][data from master not match]{}, block:{}", checksum, block);
+				return false;
+			}
+
+			try (FileChannel channel = FileChannel.open(checksum.getFile().toPath(), StandardOpenOption.WRITE)) {
+				ByteBuffer buffer = ByteBuffer.wrap(data);
+				while (buffer.hasRemaining()) {
+					channel.write(buffer, blockPosition + buffer.position());
+				}
+				channel.force(false);
+			}
+			checksum.repaired(block);
+			repairedBlocks.incrementAndGet();
+			logger.info("[repair][repaired from master]{}, block:{}", checksum, block);
+			return true;
+		} catch (Exception e) {
+			logger.error("[repair]" + checksum + ", block:" + block, e);
+			return false;
+		}
+	}
+
+	/**
+	 * verify at most maxBytes of completed blocks from last scrub position, wrap to beginning at end
+	 * @return bytes verified
+	 */
+	public long scrub(long maxBytes) {
+
+		File[] files = allFiles();
+		if (files == null || files.length == 0) {
+			return 0;
+		}
+		Arrays.sort(files, new Comparator<File>() {
+
+			@Override
+			public int compare(File o1, File o2) {
+				return Long.compare(extractStartOffset(o1), extractStartOffset(o2));
+			}
+		});
+
+		long scrubbed = 0;
+		for (File file : files) {
+
+			long startOffset = extractStartOffset(file);
+			long endOffset = startOffset + file.length();
+			if (endOffset <= scrubPosition) {
+				continue;
+			}
+
+			long from = Math.max(scrubPosition, startOffset) - startOffset;
+			long to = from + Math.min(file.length() - from, maxBytes - scrubbed);
+			try {
+				verifyOrRepair(file, from, to, false);
+			} catch (IOException e) {
+				logger.error("[scrub]" + file, e);
+			}
+			scrubbed += to - from;
+			scrubPosition = startOffset + to;
+			if (scrubbed >= maxBytes) {
+				return scrubbed;
+			}
+		}
+		scrubPosition = 0;
+		return scrubbed;
+	}
+
+	public void setBlockRepairer(CommandBlockRepairer blockRepairer) {
+		this.blockRepairer = blockRepairer;
+	}
+
+	public long getCorruptedBefore() {
+		return corruptedBefore;
+	}
+
+	public long getRepairedBlocks() {
+		return repairedBlocks.get();
+	}
+
+	public long getCorruptedBlocks() {
+		return corruptedBlocks.get();
+	}
+
+	public long getSharedBytesSent() {
+		return sharedBytesSent.get();
+	}
+
+	public CommandBroadcastBuffer getBroadcastBuffer() {
+		return broadcastBuffer;
+	}
+
 	public long extractStartOffset(File file) {
 		return Long.parseLong(file.getName().substring(fileNamePrefix.length()));
 	}
@@ -109,10 +449,19 @@ public class DefaultCommandStore implements CommandStore {
 		delayTraceLogger.debug("[appendCommands][begin]");
 		commandStoreDelay.beginWrite();
 		
+		int index = byteBuf.readerIndex();
 		int wrote = ByteBufUtils.writeByteBufToFileChannel(byteBuf, cmdFileCtx.getChannel(), delayTraceLogger);
+		cmdFileCtx.getChecksum().appended(byteBuf, index, wrote);
 
 		long offset = cmdFileCtx.totalLength() - 1;
 		
+		// copied only when shared by enough downstreams, window is dropped otherwise
+		if (readers.size() >= SHARED_BUFFER_MIN_READERS) {
+			broadcastBuffer.append(offset + 1 - wrote, cmdFileCtx.getStartOffset(), byteBuf, index, wrote);
+		} else if (broadcastBuffer.totalBytes() > 0) {
+			broadcastBuffer.clear();
+		}
+		
 		//delay monitor
 		delayTraceLogger.debug("[appendCommands][ end ]{}", offset + 1);
 		commandStoreDelay.endWrite(offset + 1);
@@ -129,17 +478,60 @@ public class DefaultCommandStore implements CommandStore {
 		}
 	}
 
+	/**
+	 * appends switch to the new segment at once, the closed segment is forced and recorded in manifest on rotateExecutors.<br/>
+	 * a rotation waits only if the previous one of this store is still being recorded
+	 */
 	private void rotateFileIfNenessary() throws IOException {
 
-		CommandFileContext curCmdFileCtx = cmdFileCtxRef.get();
+		final CommandFileContext curCmdFileCtx = cmdFileCtxRef.get();
 		if (curCmdFileCtx.fileLength() >= maxFileSize) {
-			long newStartOffset = curCmdFileCtx.totalLength();
+			waitRotationRecorded();
+			
+			final long newStartOffset = curCmdFileCtx.totalLength();
+			final long closedLength = curCmdFileCtx.fileLength();
 			File newFile = new File(baseDir, fileNamePrefix + newStartOffset);
 			logger.info("Rotate to {}", newFile.getName());
+			
+			CommandFileContext newCmdFileCtx = new CommandFileContext(newStartOffset, newFile);
+			checksums.put(newStartOffset, newCmdFileCtx.getChecksum());
 			synchronized (cmdFileCtxRefLock) {
-				cmdFileCtxRef.set(new CommandFileContext(newStartOffset, newFile));
-				curCmdFileCtx.close();
+				cmdFileCtxRef.set(newCmdFileCtx);
 			}
+			
+			pendingRotation = rotateExecutors.submit(new Callable<Void>() {
+
+				@Override
+				public Void call() throws Exception {
+					try {
+						// closed segment is durable before manifest points to next one
+						curCmdFileCtx.getChannel().force(true);
+						manifest.rotated(curCmdFileCtx.getStartOffset(), closedLength, newStartOffset);
+					} finally {
+						curCmdFileCtx.close();
+					}
+					return null;
+				}
+			});
+		}
+	}
+
+	private void waitRotationRecorded() throws IOException {
+		
+		Future<Void> pending = pendingRotation;
+		if (pending == null) {
+			return;
+		}
+		try {
+			pending.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("[waitRotationRecorded]interrupted", e);
+		} catch (ExecutionException e) {
+			// manifest is rebuilt from files on recovery if it lags behind
+			logger.error("[waitRotationRecorded]" + this, e.getCause());
+		} finally {
+			pendingRotation = null;
 		}
 	}
 
@@ -190,6 +582,29 @@ public class DefaultCommandStore implements CommandStore {
 		}
 	}
 
+	private enum RepairResult {
+		REPAIRED, FAILED, IN_PROGRESS
+	}
+
+	private static class CorruptedBlock {
+
+		private int failures = 0;
+		
+		private CommandFuture<Boolean> inFlight;
+
+		private long nextRetryTime = 0;
+
+		public boolean shouldRetry() {
+			return System.currentTimeMillis() >= nextRetryTime;
+		}
+
+		public void failed() {
+			failures++;
+			long backoff = REPAIR_BACKOFF_MILLI << Math.min(failures - 1, 16);
+			nextRetryTime = System.currentTimeMillis() + Math.min(backoff, REPAIR_BACKOFF_MAX_MILLI);
+		}
+	}
+
 	private class DefaultCommandReader implements CommandReader {
 
 		private File curFile;
@@ -213,17 +628,45 @@ public class DefaultCommandStore implements CommandStore {
 			referenceFileChannel.close();
 		}
 
+		/**
+		 * @return retained slice of shared buffer if current position is in it, null otherwise and nothing is read
+		 */
+		public ByteBuf readShared() throws IOException {
+			
+			awaitAndSwitchFile();
+			
+			ByteBuf byteBuf = broadcastBuffer.slice(curPosition, extractStartOffset(curFile));
+			if (byteBuf == null) {
+				return null;
+			}
+			
+			referenceFileChannel.skip(byteBuf.readableBytes());
+			curPosition += byteBuf.readableBytes();
+			sharedBytesSent.addAndGet(byteBuf.readableBytes());
+			return byteBuf;
+		}
+
+		/**
+		 * @return true if the window of shared buffer has moved past current position
+		 */
+		public boolean behindShared() {
+			
+			long startOffset = broadcastBuffer.startOffset();
+			return startOffset >= 0 && curPosition < startOffset;
+		}
+
 		@Override
 		public ReferenceFileRegion read() throws IOException {
-			try {
-				offsetNotifier.await(curPosition);
-				readNextFileIfNecessary();
-			} catch (InterruptedException e) {
-				logger.info("[read]", e);
-				Thread.currentThread().interrupt();
-			}
+			
+			awaitAndSwitchFile();
 
 			ReferenceFileRegion referenceFileRegion = referenceFileChannel.readTilEnd();
+			try {
+				verifyOrRepair(curFile, referenceFileRegion.position(), referenceFileRegion.position() + referenceFileRegion.count(), true);
+			} catch (IOException e) {
+				referenceFileRegion.release();
+				throw e;
+			}
 
 			curPosition += referenceFileRegion.count();
 			
@@ -236,6 +679,20 @@ public class DefaultCommandStore implements CommandStore {
 			return referenceFileRegion;
 		}
 
+		private void awaitAndSwitchFile() throws IOException {
+			try {
+				offsetNotifier.await(curPosition);
+				readNextFileIfNecessary();
+			} catch (InterruptedException e) {
+				logger.info("[read]", e);
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		public long getCurPosition() {
+			return curPosition;
+		}
+
 		private void readNextFileIfNecessary() throws IOException {
 
 			if (!referenceFileChannel.hasAnythingToRead()) {
@@ -265,6 +722,16 @@ public class DefaultCommandStore implements CommandStore {
 		return offsetNotifier.await(offset, timeMilli);
 	}
 
+	@Override
+	public void addCommandsOffsetCallback(long offset, Runnable callback) {
+		offsetNotifier.addCallback(offset, callback);
+	}
+
+	@Override
+	public boolean removeCommandsOffsetCallback(Runnable callback) {
+		return offsetNotifier.removeCallback(callback);
+	}
+
 	@Override
 	public long lowestReadingOffset() {
 		long lowestReadingOffset = Long.MAX_VALUE;
@@ -284,10 +751,10 @@ public class DefaultCommandStore implements CommandStore {
 
 		logger.info("[addCommandsListener][begin] from offset {}, {}", offset, listener);
 
-		CommandReader cmdReader = null;
+		DefaultCommandReader cmdReader = null;
 
 		try {
-			cmdReader = beginRead(offset);
+			cmdReader = (DefaultCommandReader) beginRead(offset);
 		} finally {
 			// ensure beforeCommand() is always called
 			listener.beforeCommand();
@@ -295,9 +762,39 @@ public class DefaultCommandStore implements CommandStore {
 
 		logger.info("[addCommandsListener] from offset {}, {}", offset, cmdReader);
 
+		ByteBufCommandsListener byteBufListener = listener instanceof ByteBufCommandsListener ? (ByteBufCommandsListener) listener : null;
+		boolean readingShared = false;
 		try {
 			while (listener.isOpen() && !Thread.currentThread().isInterrupted()) {
 
+				if (byteBufListener != null) {
+					// slices queued on a slow channel keep evicted chunks alive, wait until it drains
+					if (!byteBufListener.isWritable()) {
+						sleepWaitingForWritable();
+						continue;
+					}
+					ByteBuf shared = cmdReader.readShared();
+					if (shared == null && readingShared && cmdReader.behindShared()) {
+						logger.info("[addCommandsListener][behind shared buffer, read from file]{}, {}", listener, cmdReader.getCurPosition());
+						byteBufListener = null;
+					}
+					if (shared != null) {
+						readingShared = true;
+						final long totalPos = cmdReader.getCurPosition();
+						commandStoreDelay.beginSend(listener, totalPos);
+						ChannelFuture future = byteBufListener.onCommand(shared);
+						if (future != null) {
+							future.addListener(new ChannelFutureListener() {
+								@Override
+								public void operationComplete(ChannelFuture future) throws Exception {
+									commandStoreDelay.flushSucceed(listener, totalPos);
+								}
+							});
+						}
+						continue;
+					}
+				}
+
 				final ReferenceFileRegion referenceFileRegion = cmdReader.read();
 
 				logger.debug("[addCommandsListener] {}", referenceFileRegion);
@@ -326,6 +823,9 @@ public class DefaultCommandStore implements CommandStore {
 					}
 				}
 			}
+		} catch (CommandBlockCorruptedException e) {
+			logger.error("[readCommands][exit][corrupted]" + listener, e);
+			throw e;
 		} catch (Throwable th) {
 			logger.error("[readCommands][exit]" + listener, th);
 		} finally {
@@ -334,15 +834,25 @@ public class DefaultCommandStore implements CommandStore {
 		logger.info("[addCommandsListener][end] from offset {}, {}", offset, listener);
 	}
 
+	private void sleepWaitingForWritable() {
+		try {
+			Thread.sleep(1);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
 	@Override
 	public void close() throws IOException {
 		
 		logger.info("[close]{}", this);
 
+		waitRotationRecorded();
 		CommandFileContext commandFileContext = cmdFileCtxRef.get();
 		if (commandFileContext != null) {
 			commandFileContext.close();
 		}
+		broadcastBuffer.clear();
 	}
 
 	@Override
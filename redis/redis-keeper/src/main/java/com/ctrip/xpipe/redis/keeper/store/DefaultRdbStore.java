@@ -15,8 +15,6 @@ import org.slf4j.LoggerFactory;
 import com.ctrip.xpipe.api.utils.ControllableFile;
 import com.ctrip.xpipe.api.utils.FileSize;
 import com.ctrip.xpipe.netty.ByteBufUtils;
-import com.ctrip.xpipe.netty.filechannel.ReferenceFileChannel;
-import com.ctrip.xpipe.netty.filechannel.ReferenceFileRegion;
 import com.ctrip.xpipe.redis.core.protocal.protocal.EofMarkType;
 import com.ctrip.xpipe.redis.core.protocal.protocal.EofType;
 import com.ctrip.xpipe.redis.core.protocal.protocal.LenEofType;
@@ -50,6 +48,8 @@ public class DefaultRdbStore implements RdbStore {
 	
 	private Object truncateLock = new Object();
 	
+	private RdbFileBroadcaster broadcaster = new RdbFileBroadcaster(this);
+	
 	public DefaultRdbStore(File file, long rdbLastKeeperOffset, EofType eofType) throws IOException {
 
 		this.file = file;
@@ -68,6 +68,7 @@ public class DefaultRdbStore implements RdbStore {
 	public int writeRdb(ByteBuf byteBuf) throws IOException {
 		
 		int wrote = ByteBufUtils.writeByteBufToFileChannel(byteBuf, channel);
+		broadcaster.onRdbWrite();
 		return wrote;
 	}
 
@@ -97,6 +98,7 @@ public class DefaultRdbStore implements RdbStore {
 				listener.onEndRdb();
 			}
 			writeFile.close();
+			broadcaster.onRdbWrite();
 		}
 	}
 
@@ -120,8 +122,8 @@ public class DefaultRdbStore implements RdbStore {
 		rdbFileListener.beforeFileData();
 		refCount.incrementAndGet();
 
-		try (ReferenceFileChannel channel = new ReferenceFileChannel(createControllableFile())) {
-			doReadRdbFile(rdbFileListener, channel);
+		try {
+			broadcaster.readRdbFile(rdbFileListener);
 		} catch (Exception e) {
 			logger.error("[readRdbFile]Error read rdb file" + file, e);
 		}finally{
@@ -129,49 +131,12 @@ public class DefaultRdbStore implements RdbStore {
 		}
 	}
 
-	private void doReadRdbFile(RdbFileListener rdbFileListener, ReferenceFileChannel referenceFileChannel) throws IOException {
-		
-		rdbFileListener.setRdbFileInfo(eofType, rdbLastKeeperOffset);
-
-		long lastLogTime = System.currentTimeMillis();
-		while (rdbFileListener.isOpen() && (isRdbWriting(status.get()) || (status.get() == Status.Success && referenceFileChannel.hasAnythingToRead()))) {
-			
-		ReferenceFileRegion referenceFileRegion = referenceFileChannel.readTilEnd();
-		
-		rdbFileListener.onFileData(referenceFileRegion);
-		if(referenceFileRegion.count() <= 0)
-			try {
-				Thread.sleep(1);
-				long currentTime = System.currentTimeMillis();
-				if(currentTime - lastLogTime > 10000){
-					logger.info("[doReadRdbFile]status:{}, referenceFileChannel:{}, count:{}, rdbFileListener:{}", 
-							status.get(), referenceFileChannel, referenceFileRegion.count(), rdbFileListener);
-					lastLogTime = currentTime;
-				}
-			} catch (InterruptedException e) {
-				logger.error("[doReadRdbFile]" + rdbFileListener, e);
-				Thread.currentThread().interrupt();
-			}
-		}
-
-		logger.info("[doReadRdbFile] done with status {}", status.get());
-
-		switch (status.get()) {
-			case Success:
-				rdbFileListener.onFileData(null);
-				break;
-	
-			case Fail:
-				rdbFileListener.exception(new Exception("[rdb error]" + file));
-				break;
-			default:
-				rdbFileListener.exception(new Exception("[status not write]" + file + "," + status));
-				break;
-		}
+	protected Status getStatus() {
+		return status.get();
 	}
-
-	private boolean isRdbWriting(Status status) {
-		return status != Status.Fail && status != Status.Success;
+	
+	protected RdbFileBroadcaster getBroadcaster() {
+		return broadcaster;
 	}
 
 	@Override
@@ -233,7 +198,7 @@ public class DefaultRdbStore implements RdbStore {
 		rdbStoreListeners.remove(rdbStoreListener);
 	}
 
-	private ControllableFile createControllableFile() throws IOException {
+	protected ControllableFile createControllableFile() throws IOException {
 		
 		if(eofType instanceof LenEofType){
 			return new DefaultControllableFile(file);
@@ -3,6 +3,8 @@ package com.ctrip.xpipe.redis.keeper.store;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -11,6 +13,7 @@ import java.util.concurrent.atomic.AtomicReference;
 
 import com.ctrip.xpipe.redis.keeper.exception.RedisKeeperRuntimeException;
 import com.ctrip.xpipe.redis.keeper.monitor.KeeperMonitorManager;
+import com.ctrip.xpipe.redis.keeper.monitor.ReplicationStats;
 import com.ctrip.xpipe.utils.FileUtils;
 
 import org.slf4j.Logger;
@@ -36,6 +39,8 @@ public class DefaultReplicationStore implements ReplicationStore {
 
 	private final static Logger logger = LoggerFactory.getLogger(DefaultReplicationStore.class);
 
+	public static final int GC_MAX_FILES_PER_ROUND = Integer.parseInt(System.getProperty("REPLICATION_STORE_GC_MAX_FILES_PER_ROUND", "10"));
+
 	private final static FileFilter RDB_FILE_FILTER = new FileFilter() {
 
 		@Override
@@ -73,6 +78,22 @@ public class DefaultReplicationStore implements ReplicationStore {
 	private AtomicInteger rdbUpdateCount = new AtomicInteger();
 	
 	private KeeperMonitorManager keeperMonitorManager;
+	
+	private SlaveOffsetWindow slaveOffsetWindow = new SlaveOffsetWindow();
+	
+	private volatile CommandBlockRepairer blockRepairer;
+	
+	private volatile ReplicationStats replicationStats;
+
+	/**
+	 * bytes of finished rdb files on disk, updated when rdb files are ended or deleted
+	 */
+	private ConcurrentMap<File, Long> rdbFileBytes = new ConcurrentHashMap<>();
+
+	/**
+	 * start offset of the oldest command file on disk, advanced when command files are deleted
+	 */
+	private volatile long cmdStartOffset;
 
 	public DefaultReplicationStore(File baseDir, KeeperConfig config, String keeperRunid, KeeperMonitorManager keeperMonitorManager) throws IOException {
 		this.baseDir = baseDir;
@@ -89,6 +110,8 @@ public class DefaultReplicationStore implements ReplicationStore {
 			if (rdb.isFile()) {
 				rdbStoreRef.set(new DefaultRdbStore(rdb, meta.getRdbLastKeeperOffset(), initEofType(meta)));
 				cmdStore = new DefaultCommandStore(new File(baseDir, meta.getCmdFilePrefix()), cmdFileSize, keeperMonitorManager);
+				cmdStartOffset = minCmdKeeperOffset() - metaStore.getKeeperBeginOffset();
+				rdbFileBytes.put(rdb, rdb.length());
 			}
 		}
 
@@ -159,6 +182,8 @@ public class DefaultReplicationStore implements ReplicationStore {
 		rdbStore.addListener(new ReplicationStoreRdbFileListener(rdbStore));
 		rdbStoreRef.set(rdbStore);
 		cmdStore = new DefaultCommandStore(new File(baseDir, newMeta.getCmdFilePrefix()), cmdFileSize, keeperMonitorManager);
+		cmdStore.setBlockRepairer(blockRepairer);
+		cmdStartOffset = 0;
 
 		return rdbStoreRef.get();
 	}
@@ -226,30 +251,168 @@ public class DefaultReplicationStore implements ReplicationStore {
 		return metaStore;
 	}
 
+	/**
+	 * @return whether any rdb or command file is deleted
+	 */
 	@Override
 	public boolean gc() {
+		return gc(Long.MAX_VALUE) > 0;
+	}
+
+	/**
+	 * delete unreferenced previous rdb files and oldest command files which are not needed by slaves observed recently,
+	 * or until store size is under maxStoreBytes. at most {@link #GC_MAX_FILES_PER_ROUND} command files are deleted each round
+	 * @return rdb and command files deleted
+	 */
+	public int gc(long maxStoreBytes) {
 		// delete old rdb files
+		int rdbDeleted = 0;
 		for (RdbStore rdbStore : previousRdbStores.keySet()) {
 			if (rdbStore.refCount() == 0) {
 				File rdbFile = rdbStore.getRdbFile();
 				logger.info("[GC] delete rdb file {}", rdbFile);
-				rdbFile.delete();
+				if (rdbFile.delete() || !rdbFile.exists()) {
+					rdbFileBytes.remove(rdbFile);
+					rdbDeleted++;
+				}
 				previousRdbStores.remove(rdbStore);
 			}
 		}
 
-		// delete old command file
-		if (cmdStore != null) {
-			for (File cmdFile : cmdFilesOnFS()) {
-				long fileStartOffset = cmdStore.extractStartOffset(cmdFile);
-				if (canDeleteCmdFile(cmdStore.lowestReadingOffset(), fileStartOffset, cmdFile.length(), cmdFile.lastModified())) {
-					logger.info("[GC] delete command file {}", cmdFile);
-					cmdFile.delete();
-				}
+		// delete old command file, oldest first so that commands left are continuous
+		if (cmdStore == null) {
+			return rdbDeleted;
+		}
+
+		// files kept by count are never deleted, no need to list files
+		if (cmdStore.totalLength() - cmdStartOffset <= (long) cmdFileSize * config.getReplicationStoreCommandFileNumToKeep()) {
+			return rdbDeleted;
+		}
+
+		File[] cmdFiles = cmdFilesOnFS();
+		Arrays.sort(cmdFiles, new Comparator<File>() {
+
+			@Override
+			public int compare(File o1, File o2) {
+				return Long.compare(cmdStore.extractStartOffset(o1), cmdStore.extractStartOffset(o2));
+			}
+		});
+
+		long storeSize = storeSize();
+		long retainFrom = retainFromCmdOffset();
+		long lowestReadingOffset = cmdStore.lowestReadingOffset();
+		long lastDeletedStartOffset = -1;
+		long lastDeletedEndOffset = -1;
+		int deleted = 0;
+
+		for (File cmdFile : cmdFiles) {
+
+			if (deleted >= GC_MAX_FILES_PER_ROUND) {
+				break;
+			}
+
+			long fileStartOffset = cmdStore.extractStartOffset(cmdFile);
+			long fileSize = cmdFile.length();
+			if (!canDeleteCmdFile(lowestReadingOffset, fileStartOffset, fileSize, cmdFile.lastModified())) {
+				break;
+			}
+
+			boolean overQuota = storeSize > maxStoreBytes;
+			if (fileStartOffset + fileSize > retainFrom && !overQuota) {
+				break;
+			}
+
+			logger.info("[GC] delete command file {}, retainFrom:{}, storeSize:{}, maxStoreBytes:{}", cmdFile, retainFrom, storeSize, maxStoreBytes);
+			if (cmdFile.delete()) {
+				CommandFileChecksum.sidecarFile(cmdFile).delete();
+				storeSize -= fileSize;
+				lastDeletedStartOffset = fileStartOffset;
+				lastDeletedEndOffset = fileStartOffset + fileSize;
+				deleted++;
 			}
 		}
 
-		return true;
+		if (deleted > 0) {
+			cmdStartOffset = lastDeletedEndOffset;
+			try {
+				cmdStore.segmentsDeletedUntil(lastDeletedStartOffset);
+			} catch (IOException e) {
+				logger.error("[gc][update manifest]" + this, e);
+			}
+		}
+		return rdbDeleted + deleted;
+	}
+
+	/**
+	 * command offset from which commands should be kept: the lowest offset recently acked or requested by slaves,
+	 * and the commands after current rdb. commands more than partial sync threshold behind are never retained
+	 */
+	private long retainFromCmdOffset() {
+
+		long keeperBeginOffset = metaStore.getKeeperBeginOffset();
+		long retainFromKeeperOffset = slaveOffsetWindow.minOffset(System.currentTimeMillis());
+
+		RdbStore rdbStore = rdbStoreRef.get();
+		if (rdbStore != null) {
+			retainFromKeeperOffset = Math.min(retainFromKeeperOffset, rdbStore.lastKeeperOffset() + 1);
+		}
+
+		long partialSyncFloor = maxCmdKeeperOffset() - config.getReplicationStoreMaxCommandsToTransferBeforeCreateRdb();
+		retainFromKeeperOffset = Math.max(retainFromKeeperOffset, partialSyncFloor);
+
+		return retainFromKeeperOffset - keeperBeginOffset;
+	}
+
+	/**
+	 * verify checksum of at most maxBytes commands, continue from last round
+	 */
+	public long scrub(long maxBytes) {
+		
+		DefaultCommandStore commandStore = cmdStore;
+		return commandStore == null ? 0 : commandStore.scrub(maxBytes);
+	}
+
+	/**
+	 * commands before are corrupted and can not be sent to slaves
+	 */
+	public long firstValidKeeperOffset() {
+		
+		DefaultCommandStore commandStore = cmdStore;
+		return metaStore.getKeeperBeginOffset() + (commandStore == null ? 0 : commandStore.getCorruptedBefore());
+	}
+
+	public void setReplicationStats(ReplicationStats replicationStats) {
+		this.replicationStats = replicationStats;
+	}
+
+	public void setBlockRepairer(CommandBlockRepairer blockRepairer) {
+		
+		this.blockRepairer = blockRepairer;
+		DefaultCommandStore commandStore = cmdStore;
+		if (commandStore != null) {
+			commandStore.setBlockRepairer(blockRepairer);
+		}
+	}
+
+	@Override
+	public void slaveOffsetObserved(long keeperOffset) {
+		slaveOffsetWindow.observe(keeperOffset, System.currentTimeMillis());
+	}
+
+	/**
+	 * bytes of finished rdb files and command files on disk, kept without listing files
+	 */
+	public long storeSize() {
+
+		long size = 0;
+		for (Long rdbBytes : rdbFileBytes.values()) {
+			size += rdbBytes;
+		}
+		DefaultCommandStore commandStore = cmdStore;
+		if (commandStore != null) {
+			size += commandStore.totalLength() - cmdStartOffset;
+		}
+		return size;
 	}
 
 	private boolean canDeleteCmdFile(long lowestReadingOffset, long fileStartOffset, long fileSize, long lastModified) {
@@ -308,7 +471,8 @@ public class DefaultReplicationStore implements ReplicationStore {
 			 * rdb and cmd is continuous AND not so much cmd after rdb
 			 */
 			long cmdAfterRdbThreshold = config.getReplicationStoreMaxCommandsToTransferBeforeCreateRdb();
-			boolean fullSyncPossible = minCmdKeeperOffset <= rdbLastKeeperOffset + 1 && maxCmdKeeperOffset - rdbLastKeeperOffset <= cmdAfterRdbThreshold;
+			boolean fullSyncPossible = minCmdKeeperOffset <= rdbLastKeeperOffset + 1 && maxCmdKeeperOffset - rdbLastKeeperOffset <= cmdAfterRdbThreshold
+					&& rdbLastKeeperOffset + 1 >= firstValidKeeperOffset();
 
 			logger.info("minCmdKeeperOffset <= rdbLastKeeperOffset + 1 && maxCmdKeeperOffset - rdbLastKeeperOffset <= cmdAfterRdbThreshold");
 			logger.info("[isFullSyncPossible] {}, {} <= {} + 1 && {} - {} <= {}", //
@@ -379,7 +543,15 @@ public class DefaultReplicationStore implements ReplicationStore {
 
 	@Override
 	public int appendCommands(ByteBuf byteBuf) throws IOException {
-		return cmdStore.appendCommands(byteBuf);
+		
+		long begin = System.nanoTime();
+		int wrote = cmdStore.appendCommands(byteBuf);
+		
+		ReplicationStats stats = replicationStats;
+		if (stats != null) {
+			stats.appended(getKeeperEndOffset(), wrote, begin);
+		}
+		return wrote;
 	}
 
 	@Override
@@ -387,6 +559,16 @@ public class DefaultReplicationStore implements ReplicationStore {
 		return cmdStore.awaitCommandsOffset(offset, timeMilli);
 	}
 
+	@Override
+	public void addCommandsOffsetCallback(long offset, Runnable callback) {
+		cmdStore.addCommandsOffsetCallback(offset, callback);
+	}
+
+	@Override
+	public boolean removeCommandsOffsetCallback(Runnable callback) {
+		return cmdStore.removeCommandsOffsetCallback(callback);
+	}
+
 	public int getRdbUpdateCount() {
 		return rdbUpdateCount.get();
 	}
@@ -428,7 +610,9 @@ public class DefaultReplicationStore implements ReplicationStore {
 		public void onEndRdb() {
 			try {
 				logger.info("[onEndRdb]{}, {}", rdbStore, DefaultReplicationStore.this);
-				metaStore.setRdbFileSize(rdbStore.getRdbFile().length());
+				File rdbFile = rdbStore.getRdbFile();
+				metaStore.setRdbFileSize(rdbFile.length());
+				rdbFileBytes.put(rdbFile, rdbFile.length());
 			} catch (Exception e) {
 				logger.error("[onEndRdb]", e);
 			}
@@ -7,6 +7,7 @@ import com.ctrip.xpipe.redis.core.store.ReplicationStore;
 import com.ctrip.xpipe.redis.core.store.ReplicationStoreManager;
 import com.ctrip.xpipe.redis.keeper.config.KeeperConfig;
 import com.ctrip.xpipe.redis.keeper.monitor.KeeperMonitorManager;
+import com.ctrip.xpipe.redis.keeper.monitor.ReplicationStats;
 import com.ctrip.xpipe.utils.FileUtils;
 import com.ctrip.xpipe.utils.XpipeThreadFactory;
 import com.google.common.util.concurrent.MoreExecutors;
@@ -14,12 +15,14 @@ import com.google.common.util.concurrent.MoreExecutors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Properties;
 import java.util.UUID;
 import java.util.concurrent.Executors;
@@ -30,7 +33,6 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import com.ctrip.xpipe.redis.core.util.NonFinalizeFileInputStream;
-import com.ctrip.xpipe.redis.core.util.NonFinalizeFileOutputStream;
 
 /**
  * @author marsqing
@@ -43,6 +45,17 @@ public class DefaultReplicationStoreManager extends AbstractLifecycleObservable
 
 	private static final String LATEST_STORE_DIR = "latest.store.dir";
 
+	public static final int GC_THREADS = Integer.parseInt(System.getProperty("REPLICATION_STORE_GC_THREADS", "2"));
+
+	public static final int SCRUB_INTERVAL_SECONDS = Integer.parseInt(System.getProperty("COMMAND_SCRUB_INTERVAL_SECONDS", "10"));
+
+	public static final long SCRUB_BYTES_PER_ROUND = Long.parseLong(System.getProperty("COMMAND_SCRUB_BYTES_PER_ROUND", String.valueOf(8 << 20)));
+
+	/**
+	 * shared by all managers in container, gc never runs on replication threads
+	 */
+	private static final ScheduledExecutorService gcScheduled = Executors.newScheduledThreadPool(GC_THREADS, XpipeThreadFactory.create("ReplicationStoreGc", true));
+
 	private Logger logger = LoggerFactory.getLogger(getClass());
 
 	private String clusterName;
@@ -65,11 +78,25 @@ public class DefaultReplicationStoreManager extends AbstractLifecycleObservable
 	
 	private ScheduledFuture<?> gcFuture;
 	
-	private ScheduledExecutorService scheduled;
+	private ScheduledFuture<?> scrubFuture;
+	
+	private volatile CommandBlockRepairer blockRepairer;
+	
+	private volatile ReplicationStats replicationStats;
+	
+	private final ReplicationStoreQuota quota;
 
 	private KeeperMonitorManager keeperMonitorManager;
 	
 	public DefaultReplicationStoreManager(KeeperConfig keeperConfig, String clusterName, String shardName, String keeperRunid, File baseDir, KeeperMonitorManager keeperMonitorManager) {
+		this(keeperConfig, clusterName, shardName, keeperRunid, baseDir, keeperMonitorManager, ReplicationStoreQuota.unlimited());
+	}
+
+	/**
+	 * @param quota shared by all stores in the container
+	 */
+	public DefaultReplicationStoreManager(KeeperConfig keeperConfig, String clusterName, String shardName, String keeperRunid, File baseDir, 
+			KeeperMonitorManager keeperMonitorManager, ReplicationStoreQuota quota) {
 		super(MoreExecutors.sameThreadExecutor());
 		this.clusterName = clusterName;
 		this.shardName = shardName;
@@ -78,20 +105,28 @@ public class DefaultReplicationStoreManager extends AbstractLifecycleObservable
 		this.baseDir = new File(baseDir, clusterName + "/" + shardName);
 		metaFile = new File(this.baseDir, META_FILE);
 		this.keeperMonitorManager = keeperMonitorManager;
+		this.quota = quota;
 	}
 	
 	@Override
 	protected void doInitialize() throws Exception {
 		super.doInitialize();
 		
-		scheduled =  Executors.newScheduledThreadPool(1, XpipeThreadFactory.create("gc", true));
-		gcFuture = scheduled.scheduleWithFixedDelay(new AbstractExceptionLogTask() {
+		gcFuture = gcScheduled.scheduleWithFixedDelay(new AbstractExceptionLogTask() {
 			
 			@Override
 			protected void doRun() throws Exception {
 				gc();
 			}
 		}, keeperConfig.getReplicationStoreGcIntervalSeconds(), keeperConfig.getReplicationStoreGcIntervalSeconds(), TimeUnit.SECONDS);
+		
+		scrubFuture = gcScheduled.scheduleWithFixedDelay(new AbstractExceptionLogTask() {
+			
+			@Override
+			protected void doRun() throws Exception {
+				scrub();
+			}
+		}, SCRUB_INTERVAL_SECONDS, SCRUB_INTERVAL_SECONDS, TimeUnit.SECONDS);
 
 	}
 	
@@ -99,8 +134,9 @@ public class DefaultReplicationStoreManager extends AbstractLifecycleObservable
 	protected void doDispose() throws Exception {
 
 		closeCurrentStore();
-		gcFuture.cancel(true);
-		scheduled.shutdownNow();
+		gcFuture.cancel(false);
+		scrubFuture.cancel(false);
+		quota.remove(this);
 		super.doDispose();
 	}
 
@@ -156,7 +192,9 @@ public class DefaultReplicationStoreManager extends AbstractLifecycleObservable
 
 		recrodLatestStore(storeBaseDir.getName());
 
-		ReplicationStore replicationStore = new DefaultReplicationStore(storeBaseDir, keeperConfig, keeperRunid, keeperMonitorManager);
+		DefaultReplicationStore replicationStore = new DefaultReplicationStore(storeBaseDir, keeperConfig, keeperRunid, keeperMonitorManager);
+		replicationStore.setBlockRepairer(blockRepairer);
+		replicationStore.setReplicationStats(replicationStats);
 
 		closeCurrentStore();
 		
@@ -186,9 +224,9 @@ public class DefaultReplicationStoreManager extends AbstractLifecycleObservable
 	 * @throws IOException
 	 */
 	private void saveMeta(Properties meta) throws IOException {
-		try (OutputStream out = new NonFinalizeFileOutputStream(metaFile)) {
-			meta.store(out, null);
-		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		meta.store(out, null);
+		FileUtils.writeAtomically(metaFile, out.toByteArray());
 		logger.info("[saveMeta][before]{}", currentMeta.get());
 		currentMeta.set(meta);
 		logger.info("[saveMeta][after]{}", currentMeta.get());
@@ -234,7 +272,10 @@ public class DefaultReplicationStoreManager extends AbstractLifecycleObservable
 					File latestStoreDir = new File(baseDir, meta.getProperty(LATEST_STORE_DIR));
 					logger.info("[getCurrent][latest]{}", latestStoreDir);
 					if (latestStoreDir.isDirectory()) {
-						currentStore.set(new DefaultReplicationStore(latestStoreDir, keeperConfig, keeperRunid, keeperMonitorManager));
+						DefaultReplicationStore replicationStore = new DefaultReplicationStore(latestStoreDir, keeperConfig, keeperRunid, keeperMonitorManager);
+						replicationStore.setBlockRepairer(blockRepairer);
+						replicationStore.setReplicationStats(replicationStats);
+						currentStore.set(replicationStore);
 					}
 				}
 			}
@@ -258,41 +299,90 @@ public class DefaultReplicationStoreManager extends AbstractLifecycleObservable
 		return shardName;
 	}
 
-	protected synchronized void gc() throws IOException {
+	/**
+	 * old store directories are chosen under lock but deleted outside it, so create and getCurrent are never blocked by disk deletion
+	 */
+	protected void gc() throws IOException {
 		
 		logger.debug("[gc]{}", this);
 
 		gcCount.incrementAndGet();
+		for (File dir : oldStoreDirsToGc()) {
+			logger.info("[GC] directory {}", dir.getCanonicalPath());
+			FileUtils.recursiveDelete(dir);
+		}
+
+		// gc current ReplicationStore
+		ReplicationStore replicationStore = getCurrent();
+		if (replicationStore instanceof DefaultReplicationStore) {
+			DefaultReplicationStore defaultReplicationStore = (DefaultReplicationStore) replicationStore;
+			defaultReplicationStore.gc(quota.allowedBytesPerStore());
+			quota.update(this, defaultReplicationStore.storeSize());
+		} else if (replicationStore != null) {
+			replicationStore.gc();
+		}
+	}
+
+	private synchronized List<File> oldStoreDirsToGc() throws IOException {
+
+		List<File> result = new LinkedList<>();
 		Properties meta = currentMeta(true);
-		final String currentDirName;
-		if (meta != null) {
-			currentDirName = meta.getProperty(LATEST_STORE_DIR);
-			File[] replicationStoreDirs = baseDir.listFiles(new FileFilter() {
-
-				@Override
-				public boolean accept(File path) {
-					return path.isDirectory() && !currentDirName.equals(path.getName());
-				}
-			});
-
-			if (replicationStoreDirs != null && replicationStoreDirs.length > 0) {
-				
-				logger.info("[GC][old replicationstore]newest:{}", currentDirName);
-				for (File dir : replicationStoreDirs) {
-					if(System.currentTimeMillis() - dir.lastModified() > keeperConfig.getReplicationStoreMinTimeMilliToGcAfterCreate()){
-						logger.info("[GC] directory {}", dir.getCanonicalPath());
-						FileUtils.recursiveDelete(dir);
-					}else{
-						logger.warn("[GC][directory is created too short, do not gc]{}, {}", dir, new Date(dir.lastModified()));
-					}
+		if (meta == null) {
+			return result;
+		}
+
+		final String currentDirName = meta.getProperty(LATEST_STORE_DIR);
+		File[] replicationStoreDirs = baseDir.listFiles(new FileFilter() {
+
+			@Override
+			public boolean accept(File path) {
+				return path.isDirectory() && !currentDirName.equals(path.getName());
+			}
+		});
+
+		if (replicationStoreDirs != null && replicationStoreDirs.length > 0) {
+			
+			logger.info("[GC][old replicationstore]newest:{}", currentDirName);
+			for (File dir : replicationStoreDirs) {
+				if(System.currentTimeMillis() - dir.lastModified() > keeperConfig.getReplicationStoreMinTimeMilliToGcAfterCreate()){
+					result.add(dir);
+				}else{
+					logger.warn("[GC][directory is created too short, do not gc]{}, {}", dir, new Date(dir.lastModified()));
 				}
 			}
 		}
+		return result;
+	}
+
+	protected void scrub() throws IOException {
 
-		// gc current ReplicationStore
 		ReplicationStore replicationStore = getCurrent();
-		if (replicationStore != null) {
-			replicationStore.gc();
+		if (replicationStore instanceof DefaultReplicationStore) {
+			((DefaultReplicationStore) replicationStore).scrub(SCRUB_BYTES_PER_ROUND);
+		}
+	}
+
+	/**
+	 * corrupted command blocks of stores are repaired by it
+	 */
+	public synchronized void setBlockRepairer(CommandBlockRepairer blockRepairer) {
+
+		this.blockRepairer = blockRepairer;
+		ReplicationStore replicationStore = currentStore.get();
+		if (replicationStore instanceof DefaultReplicationStore) {
+			((DefaultReplicationStore) replicationStore).setBlockRepairer(blockRepairer);
+		}
+	}
+
+	/**
+	 * commands appended to stores are recorded into it
+	 */
+	public synchronized void setReplicationStats(ReplicationStats replicationStats) {
+
+		this.replicationStats = replicationStats;
+		ReplicationStore replicationStore = currentStore.get();
+		if (replicationStore instanceof DefaultReplicationStore) {
+			((DefaultReplicationStore) replicationStore).setReplicationStats(replicationStats);
 		}
 	}
 
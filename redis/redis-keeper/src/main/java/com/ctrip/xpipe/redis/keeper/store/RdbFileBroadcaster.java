@@ -0,0 +1,322 @@
+package com.ctrip.xpipe.redis.keeper.store;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ctrip.xpipe.concurrent.AbstractExceptionLogTask;
+import com.ctrip.xpipe.netty.filechannel.ReferenceFileChannel;
+import com.ctrip.xpipe.redis.core.store.RdbFileListener;
+import com.ctrip.xpipe.redis.core.store.RdbStore.Status;
+import com.ctrip.xpipe.utils.XpipeThreadFactory;
+
+/**
+ * one reader per rdb file feeds all the slaves reading it at the same time.<br/>
+ * slaves joining late are sent the part already broadcasted from file first, then follow the live broadcast.<br/>
+ * data is sent as file regions of one shared channel, so the file is read once no matter how many slaves.<br/>
+ * the broadcast task is woken up by the writer instead of polling the file
+ * @author wenchao.meng
+ *
+ * Jan 10, 2017
+ */
+public class RdbFileBroadcaster {
+
+	private static Logger logger = LoggerFactory.getLogger(RdbFileBroadcaster.class);
+
+	private static final int WAIT_FOR_WRITE_MAX_MILLI = 100;
+
+	private static ExecutorService executors = Executors.newCachedThreadPool(XpipeThreadFactory.create("RdbFileBroadcaster"));
+
+	private final DefaultRdbStore rdbStore;
+
+	private final List<RdbFileReader> readers = new LinkedList<>();
+
+	private ReferenceFileChannel referenceFileChannel;
+
+	private volatile long broadcastPosition;
+
+	private boolean running = false;
+
+	private AtomicLong broadcastLength = new AtomicLong();
+
+	private AtomicLong catchUpLength = new AtomicLong();
+
+	private final Object writeNotify = new Object();
+
+	private long writeSequence = 0;
+
+	public RdbFileBroadcaster(DefaultRdbStore rdbStore) {
+		this.rdbStore = rdbStore;
+	}
+
+	/**
+	 * return after all data sent to listener, or listener closed
+	 */
+	public void readRdbFile(RdbFileListener rdbFileListener) throws IOException {
+
+		RdbFileReader reader = new RdbFileReader(rdbFileListener);
+
+		synchronized (this) {
+
+			rdbFileListener.setRdbFileInfo(rdbStore.eofType, rdbStore.rdbLastKeeperOffset);
+			if(referenceFileChannel == null){
+				referenceFileChannel = new ReferenceFileChannel(rdbStore.createControllableFile());
+				broadcastPosition = 0;
+			}
+
+			if(broadcastPosition > 0){
+				logger.info("[readRdbFile][catch up]{}, {}", broadcastPosition, rdbFileListener);
+				catchUpLength.addAndGet(broadcastPosition);
+				reader.onData(0, broadcastPosition);
+			}
+			readers.add(reader);
+
+			if(!running){
+				running = true;
+				executors.execute(new BroadcastTask());
+			}
+		}
+
+		reader.waitDone();
+	}
+
+	private void removeFinished() {
+
+		Iterator<RdbFileReader> iterator = readers.iterator();
+		while(iterator.hasNext()){
+			RdbFileReader reader = iterator.next();
+			if(reader.isFinished()){
+				iterator.remove();
+			}else if(!reader.isOpen()){
+				logger.info("[removeFinished][listener closed]{}", reader);
+				reader.finish();
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * @return true if broadcast is over
+	 */
+	private synchronized boolean broadcastOnce() throws IOException {
+
+		removeFinished();
+		if(readers.isEmpty()){
+			stop();
+			return true;
+		}
+
+		//get status before size, file will not grow after success
+		Status status = rdbStore.getStatus();
+		long size = referenceFileChannel.size();
+
+		if(size > broadcastPosition){
+
+			long count = size - broadcastPosition;
+			for(RdbFileReader reader : readers){
+				reader.onData(broadcastPosition, count);
+			}
+			broadcastLength.addAndGet(count);
+			broadcastPosition = size;
+			return false;
+		}
+
+		switch (status) {
+			case Writing:
+				return false;
+			case Success:
+				for(RdbFileReader reader : readers){
+					reader.complete();
+				}
+				break;
+			default:
+				for(RdbFileReader reader : readers){
+					reader.fail(new Exception("[rdb error]" + rdbStore.getRdbFile() + "," + status));
+				}
+				break;
+		}
+		logger.info("[broadcastOnce][done with status]{}, {}", status, rdbStore);
+		readers.clear();
+		stop();
+		return true;
+	}
+
+	private synchronized void broadcastFail(Exception e) {
+
+		for(RdbFileReader reader : readers){
+			reader.fail(e);
+		}
+		readers.clear();
+		stop();
+	}
+
+	private void stop() {
+
+		running = false;
+		if(referenceFileChannel != null){
+			try {
+				referenceFileChannel.close();
+			} catch (IOException e) {
+				logger.error("[stop]" + referenceFileChannel, e);
+			}
+			referenceFileChannel = null;
+		}
+	}
+
+	/**
+	 * called by writer when rdb data is written or rdb state changes
+	 */
+	public void onRdbWrite() {
+
+		synchronized (writeNotify) {
+			writeSequence++;
+			writeNotify.notifyAll();
+		}
+	}
+
+	private long currentWriteSequence() {
+
+		synchronized (writeNotify) {
+			return writeSequence;
+		}
+	}
+
+	/**
+	 * wait for writer, time limited so that closed readers are found even if nothing is written
+	 */
+	private void waitForWrite(long lastSequence) throws InterruptedException {
+
+		synchronized (writeNotify) {
+			if(writeSequence == lastSequence){
+				writeNotify.wait(WAIT_FOR_WRITE_MAX_MILLI);
+			}
+		}
+	}
+
+	public long getBroadcastLength() {
+		return broadcastLength.get();
+	}
+
+	public long getCatchUpLength() {
+		return catchUpLength.get();
+	}
+
+	public synchronized int getReaderCount() {
+		return readers.size();
+	}
+
+	public class BroadcastTask extends AbstractExceptionLogTask{
+
+		@Override
+		protected void doRun() throws Exception {
+
+			long lastLogTime = System.currentTimeMillis();
+			while(true){
+
+				long previousPosition = broadcastPosition;
+				long writeSequence = currentWriteSequence();
+				try{
+					if(broadcastOnce()){
+						return;
+					}
+				}catch(Exception e){
+					logger.error("[doRun]" + rdbStore, e);
+					broadcastFail(e);
+					return;
+				}
+
+				if(previousPosition == broadcastPosition){
+					waitForWrite(writeSequence);
+					long currentTime = System.currentTimeMillis();
+					if(currentTime - lastLogTime > 10000){
+						logger.info("[doRun]status:{}, position:{}, readers:{}", rdbStore.getStatus(), broadcastPosition, getReaderCount());
+						lastLogTime = currentTime;
+					}
+				}
+			}
+		}
+	}
+
+	public class RdbFileReader{
+
+		private RdbFileListener rdbFileListener;
+
+		private CountDownLatch done = new CountDownLatch(1);
+
+		public RdbFileReader(RdbFileListener rdbFileListener) {
+			this.rdbFileListener = rdbFileListener;
+		}
+
+		public void onData(long position, long count) {
+
+			try {
+				rdbFileListener.onFileData(referenceFileChannel.readRegion(position, count));
+			} catch (Exception e) {
+				logger.error("[onData]" + this, e);
+				fail(e);
+			}
+		}
+
+		public void complete() {
+
+			try {
+				rdbFileListener.onFileData(null);
+			} catch (Exception e) {
+				logger.error("[complete]" + this, e);
+				rdbFileListener.exception(e);
+			}finally{
+				finish();
+			}
+		}
+
+		public void fail(Exception e) {
+
+			try{
+				rdbFileListener.exception(e);
+			}finally{
+				finish();
+			}
+		}
+
+		public boolean isOpen() {
+			return rdbFileListener.isOpen();
+		}
+
+		public void finish() {
+			done.countDown();
+		}
+
+		public boolean isFinished() {
+			return done.getCount() == 0;
+		}
+
+		public void waitDone() {
+
+			try {
+				while(!done.await(1, TimeUnit.SECONDS)){
+					if(!rdbFileListener.isOpen()){
+						logger.info("[waitDone][listener closed]{}", this);
+						break;
+					}
+				}
+			} catch (InterruptedException e) {
+				logger.error("[waitDone]" + this, e);
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s", rdbFileListener);
+		}
+	}
+}
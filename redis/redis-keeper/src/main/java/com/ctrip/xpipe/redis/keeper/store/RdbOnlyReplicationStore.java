@@ -169,6 +169,10 @@ public class RdbOnlyReplicationStore implements ReplicationStore {
 		return true;
 	}
 
+	@Override
+	public void slaveOffsetObserved(long keeperOffset) {
+	}
+
 	@Override
 	public boolean fullSyncIfPossible(FullSyncListener fullSyncListener) throws IOException {
 		throw new UnsupportedOperationException();
@@ -199,6 +203,16 @@ public class RdbOnlyReplicationStore implements ReplicationStore {
 		throw new UnsupportedOperationException();
 	}
 
+	@Override
+	public void addCommandsOffsetCallback(long offset, Runnable callback) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean removeCommandsOffsetCallback(Runnable callback) {
+		throw new UnsupportedOperationException();
+	}
+
 	@Override
 	public void addCommandsListener(long offset, CommandsListener commandsListener) throws IOException {
 		throw new UnsupportedOperationException();
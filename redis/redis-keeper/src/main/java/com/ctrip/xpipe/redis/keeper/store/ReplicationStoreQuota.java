@@ -0,0 +1,121 @@
+package com.ctrip.xpipe.redis.keeper.store;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * disk quota shared by all replication stores in one keeper container.<br/>
+ * when total usage exceeds quota, each store is allowed a fair share: stores using less than the share keep
+ * what they use, the rest is divided equally among bigger stores. the share is computed again only when stores come or go,
+ * or after recompute interval
+ * @author wenchao.meng
+ *
+ * Jan 16, 2017
+ */
+@Component
+public class ReplicationStoreQuota {
+
+	public static final long DEFAULT_QUOTA_BYTES = Long.parseLong(System.getProperty("REPLICATION_STORE_DISK_QUOTA_BYTES", String.valueOf(Long.MAX_VALUE)));
+
+	public static final long RECOMPUTE_INTERVAL_MILLI = Long.parseLong(System.getProperty("REPLICATION_STORE_QUOTA_RECOMPUTE_INTERVAL_MILLI", "1000"));
+
+	private final long quotaBytes;
+
+	private final long recomputeIntervalMilli;
+
+	private final Map<Object, Long> usages = new ConcurrentHashMap<>();
+
+	private final AtomicLong totalUsed = new AtomicLong();
+
+	private long cachedShare = Long.MAX_VALUE;
+
+	private long shareComputedAt = -1;
+
+	public ReplicationStoreQuota() {
+		this(DEFAULT_QUOTA_BYTES);
+	}
+
+	public ReplicationStoreQuota(long quotaBytes) {
+		this(quotaBytes, RECOMPUTE_INTERVAL_MILLI);
+	}
+
+	public ReplicationStoreQuota(long quotaBytes, long recomputeIntervalMilli) {
+		this.quotaBytes = quotaBytes;
+		this.recomputeIntervalMilli = recomputeIntervalMilli;
+	}
+
+	public static ReplicationStoreQuota unlimited() {
+		return new ReplicationStoreQuota(Long.MAX_VALUE);
+	}
+
+	public void update(Object owner, long usedBytes) {
+
+		Long previous = usages.put(owner, usedBytes);
+		totalUsed.addAndGet(usedBytes - (previous == null ? 0 : previous));
+		if(previous == null){
+			invalidateShare();
+		}
+	}
+
+	public void remove(Object owner) {
+
+		Long previous = usages.remove(owner);
+		if(previous != null){
+			totalUsed.addAndGet(-previous);
+			invalidateShare();
+		}
+	}
+
+	public long totalUsed() {
+		return totalUsed.get();
+	}
+
+	/**
+	 * @return bytes each store may keep, Long.MAX_VALUE if container is under quota
+	 */
+	public synchronized long allowedBytesPerStore() {
+
+		if(totalUsed() <= quotaBytes){
+			return Long.MAX_VALUE;
+		}
+
+		long current = System.currentTimeMillis();
+		if(shareComputedAt < 0 || current - shareComputedAt >= recomputeIntervalMilli){
+			cachedShare = fairShare();
+			shareComputedAt = current;
+		}
+		return cachedShare;
+	}
+
+	private synchronized void invalidateShare() {
+		shareComputedAt = -1;
+	}
+
+	private long fairShare() {
+
+		List<Long> sorted = new ArrayList<>(usages.values());
+		Collections.sort(sorted);
+
+		long left = quotaBytes;
+		int count = sorted.size();
+		for(int i = 0; i < sorted.size(); i++){
+			long share = left / count;
+			if(sorted.get(i) > share){
+				return share;
+			}
+			left -= sorted.get(i);
+			count--;
+		}
+		return left;
+	}
+
+	public long getQuotaBytes() {
+		return quotaBytes;
+	}
+}
@@ -0,0 +1,68 @@
+package com.ctrip.xpipe.redis.keeper.store;
+
+import java.util.Arrays;
+
+/**
+ * minimum slave offset(acked or requested by psync) observed in recent window.<br/>
+ * window is divided into buckets, so observe is cheap and old observations expire bucket by bucket
+ * @author wenchao.meng
+ *
+ * Jan 16, 2017
+ */
+public class SlaveOffsetWindow {
+
+	public static final long NO_OFFSET = Long.MAX_VALUE;
+
+	public static final long DEFAULT_WINDOW_MILLI = Long.parseLong(System.getProperty("REPLICATION_STORE_RETENTION_WINDOW_MILLI", "3600000"));
+
+	public static final int DEFAULT_BUCKETS = 60;
+
+	private final long bucketMilli;
+
+	private final long[] bucketIndexes;
+
+	private final long[] minOffsets;
+
+	public SlaveOffsetWindow() {
+		this(DEFAULT_WINDOW_MILLI, DEFAULT_BUCKETS);
+	}
+
+	public SlaveOffsetWindow(long windowMilli, int buckets) {
+
+		if(windowMilli <= 0 || buckets <= 0){
+			throw new IllegalArgumentException("windowMilli and buckets should be positive:" + windowMilli + "," + buckets);
+		}
+		this.bucketMilli = Math.max(1, windowMilli / buckets);
+		this.bucketIndexes = new long[buckets];
+		this.minOffsets = new long[buckets];
+		Arrays.fill(bucketIndexes, -1);
+		Arrays.fill(minOffsets, NO_OFFSET);
+	}
+
+	public synchronized void observe(long offset, long currentMilli) {
+
+		long index = currentMilli / bucketMilli;
+		int slot = (int) (index % bucketIndexes.length);
+		if(bucketIndexes[slot] != index){
+			bucketIndexes[slot] = index;
+			minOffsets[slot] = offset;
+		}else{
+			minOffsets[slot] = Math.min(minOffsets[slot], offset);
+		}
+	}
+
+	/**
+	 * @return minimum offset observed in window, {@link #NO_OFFSET} if none
+	 */
+	public synchronized long minOffset(long currentMilli) {
+
+		long index = currentMilli / bucketMilli;
+		long result = NO_OFFSET;
+		for(int i = 0; i < bucketIndexes.length; i++){
+			if(bucketIndexes[i] > index - bucketIndexes.length && bucketIndexes[i] <= index){
+				result = Math.min(result, minOffsets[i]);
+			}
+		}
+		return result;
+	}
+}
@@ -1,7 +1,6 @@
 package com.ctrip.xpipe.redis.keeper.store.meta;
 
 import org.slf4j.LoggerFactory;
-import org.unidal.helper.Files.IO;
 
 import java.io.File;
 import java.io.IOException;
@@ -18,6 +17,7 @@ import com.ctrip.xpipe.redis.core.store.MetaStore;
 import com.ctrip.xpipe.redis.core.store.ReplicationStoreMeta;
 import com.ctrip.xpipe.redis.core.store.exception.BadMetaStoreException;
 import com.ctrip.xpipe.redis.keeper.exception.RedisKeeperRuntimeException;
+import com.ctrip.xpipe.redis.keeper.store.CheckpointFile;
 
 /**
  * @author wenchao.meng
@@ -65,13 +65,13 @@ public abstract class AbstractMetaStore implements MetaStore{
 
 	protected void saveMetaToFile(File file, ReplicationStoreMeta replicationStoreMeta) throws IOException {
 		logger.info("[saveMetaToFile]{}, {}", file, replicationStoreMeta);
-		IO.INSTANCE.writeTo(file, JSON.toJSONString(replicationStoreMeta));
+		CheckpointFile.write(file, JSON.toJSONString(replicationStoreMeta));
 	}
 	
 	protected static ReplicationStoreMeta loadMetaFromFile(File file) throws IOException{
 		
 		if(file.isFile()){
-			return JSON.parseObject(IO.INSTANCE.readFrom(file, "utf-8"), ReplicationStoreMeta.class);
+			return JSON.parseObject(CheckpointFile.read(file), ReplicationStoreMeta.class);
 		}
 		
 		throw new RedisKeeperRuntimeException("[loadMetaFromFile][not file]" + file.getAbsolutePath());
@@ -125,7 +125,6 @@ public abstract class AbstractMetaStore implements MetaStore{
 		
 		logger.info("[Metasaved]\nold:{}\nnew:{}", metaRef.get(), newMeta);
 		metaRef.set(newMeta);
-		// TODO sync with fs?
 		saveMetaToFile(new File(baseDir, META_FILE), metaRef.get());
 	}
 
@@ -4,6 +4,7 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
+import com.ctrip.xpipe.redis.keeper.impl.DefaultFullSyncSchedulerTest;
 import com.ctrip.xpipe.redis.keeper.impl.DefaultRedisKeeperServerTest;
 import com.ctrip.xpipe.redis.keeper.impl.DefaultRedisSlaveTest;
 import com.ctrip.xpipe.redis.keeper.impl.RedisKeeperServerStateActiveTest;
@@ -13,14 +14,19 @@ import com.ctrip.xpipe.redis.keeper.impl.fakeredis.DefaultRedisKeeperServerConne
 import com.ctrip.xpipe.redis.keeper.impl.fakeredis.FakeRedisExceptionTest;
 import com.ctrip.xpipe.redis.keeper.impl.fakeredis.FakeRedisRdbDumpLong;
 import com.ctrip.xpipe.redis.keeper.impl.fakeredis.FakeRedisRdbDumperTest;
+import com.ctrip.xpipe.redis.keeper.monitor.ReplicationStatsTest;
+import com.ctrip.xpipe.redis.keeper.netty.CompressFrameTest;
 import com.ctrip.xpipe.redis.keeper.protocal.cmd.PsyncTest;
 import com.ctrip.xpipe.redis.keeper.store.DefaultCommandStoreTest;
 import com.ctrip.xpipe.redis.keeper.store.DefaultRdbStoreEofMarkTest;
 import com.ctrip.xpipe.redis.keeper.store.DefaultRdbStoreTest;
 import com.ctrip.xpipe.redis.keeper.store.DefaultReplicationStoreManagerTest;
+import com.ctrip.xpipe.redis.keeper.store.DefaultReplicationStoreTest;
+import com.ctrip.xpipe.redis.keeper.store.SlaveOffsetWindowTest;
 import com.ctrip.xpipe.redis.keeper.store.meta.BackupMetaStoreTest;
 import com.ctrip.xpipe.redis.keeper.config.DefaultKeeperConfigTest;
 import com.ctrip.xpipe.redis.keeper.container.KeeperContainerServiceTest;
+import com.ctrip.xpipe.redis.keeper.handler.PsyncHandlerTest;
 import com.ctrip.xpipe.redis.keeper.handler.RoleCommandHandlerTest;
 
 /**
@@ -32,11 +38,15 @@ import com.ctrip.xpipe.redis.keeper.handler.RoleCommandHandlerTest;
 @SuiteClasses({
 	DefaultRedisKeeperServerConnectToFakeRedisTest.class,
 	PsyncTest.class,
+	PsyncHandlerTest.class,
 	RedisKeeperServerStateBackupTest.class,
 	RedisKeeperServerStateActiveTest.class,
 	RedisKeeperServerStateUnknownTest.class,
 	KeeperContainerServiceTest.class,
 	DefaultReplicationStoreManagerTest.class,
+	DefaultReplicationStoreTest.class,
+	SlaveOffsetWindowTest.class,
+	ReplicationStatsTest.class,
 	DefaultRedisKeeperServerTest.class,
 	DefaultRdbStoreTest.class,
 	DefaultRdbStoreEofMarkTest.class,
@@ -47,7 +57,9 @@ import com.ctrip.xpipe.redis.keeper.handler.RoleCommandHandlerTest;
 	FakeRedisExceptionTest.class, 
 	FakeRedisRdbDumperTest.class,
 	FakeRedisRdbDumpLong.class,
-	BackupMetaStoreTest.class
+	BackupMetaStoreTest.class,
+	DefaultFullSyncSchedulerTest.class,
+	CompressFrameTest.class
 })
 public class AllTests {
 
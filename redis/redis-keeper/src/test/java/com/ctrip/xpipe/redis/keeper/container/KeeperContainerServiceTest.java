@@ -10,6 +10,8 @@ import com.ctrip.xpipe.redis.keeper.config.DefaultKeeperConfig;
 import com.ctrip.xpipe.redis.keeper.config.KeeperConfig;
 import com.ctrip.xpipe.redis.keeper.config.KeeperContainerConfig;
 import com.ctrip.xpipe.redis.keeper.exception.RedisKeeperRuntimeException;
+import com.ctrip.xpipe.redis.keeper.impl.DefaultFullSyncScheduler;
+import com.ctrip.xpipe.redis.keeper.store.ReplicationStoreQuota;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -52,6 +54,8 @@ public class KeeperContainerServiceTest {
         ReflectionTestUtils.setField(keeperContainerService, "leaderElectorManager", leaderElectorManager);
         ReflectionTestUtils.setField(keeperContainerService, "keeperContainerConfig", keeperContainerConfig);
         ReflectionTestUtils.setField(keeperContainerService, "keeperConfig", keeperConfig);
+        ReflectionTestUtils.setField(keeperContainerService, "fullSyncScheduler", new DefaultFullSyncScheduler());
+        ReflectionTestUtils.setField(keeperContainerService, "replicationStoreQuota", new ReplicationStoreQuota());
 
         someCluster = "someCluster";
         someShard = "someShard";
@@ -0,0 +1,199 @@
+package com.ctrip.xpipe.redis.keeper.handler;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import com.ctrip.xpipe.redis.core.store.ReplicationStore;
+import com.ctrip.xpipe.redis.keeper.AbstractRedisKeeperTest;
+import com.ctrip.xpipe.redis.keeper.RedisKeeperServer;
+import com.ctrip.xpipe.redis.keeper.RedisSlave;
+import com.ctrip.xpipe.redis.keeper.handler.PsyncHandler.OffsetWaiter;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+
+/**
+ * @author wenchao.meng
+ *
+ * Jan 29, 2017
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class PsyncHandlerTest extends AbstractRedisKeeperTest{
+
+	@Mock
+	private RedisSlave redisSlave;
+
+	@Mock
+	private Channel channel;
+
+	@Mock
+	private RedisKeeperServer redisKeeperServer;
+
+	@Mock
+	private ReplicationStore replicationStore;
+
+	private EventLoopGroup eventLoopGroup;
+
+	private PsyncHandler psyncHandler = new PsyncHandler();
+
+	private long offsetRequest = 1000;
+
+	private AtomicInteger syncCount = new AtomicInteger();
+
+	private AtomicInteger partialCount = new AtomicInteger();
+
+	private AtomicInteger fullCount = new AtomicInteger();
+
+	@Before
+	public void beforePsyncHandlerTest(){
+
+		eventLoopGroup = new NioEventLoopGroup(1);
+
+		when(redisSlave.channel()).thenReturn(channel);
+		when(channel.eventLoop()).thenReturn(eventLoopGroup.next());
+		when(redisSlave.getRedisKeeperServer()).thenReturn(redisKeeperServer);
+
+		doAnswer(new Answer<Void>() {
+
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+
+				syncCount.incrementAndGet();
+				((Runnable) invocation.getArguments()[0]).run();
+				return null;
+			}
+		}).when(redisSlave).processPsyncSequentially(any(Runnable.class));
+
+		doAnswer(new Answer<Void>() {
+
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				partialCount.incrementAndGet();
+				return null;
+			}
+		}).when(redisSlave).partialSync();
+
+		doAnswer(new Answer<Void>() {
+
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				fullCount.incrementAndGet();
+				return null;
+			}
+		}).when(redisKeeperServer).fullSyncToSlave(redisSlave);
+	}
+
+	@Test
+	public void testOffsetReachedBeforeTimeout() throws Exception{
+
+		psyncHandler.waitOffsetTimeMilli = 2000;
+		OffsetWaiter offsetWaiter = psyncHandler.new OffsetWaiter(redisSlave, replicationStore, offsetRequest);
+		offsetWaiter.start(offsetRequest);
+		verify(replicationStore).addCommandsOffsetCallback(offsetRequest, offsetWaiter);
+
+		offsetWaiter.run();
+
+		verify(redisSlave, timeout(1000)).partialSync();
+		verify(redisSlave).beginWriteCommands(offsetRequest);
+		verify(redisSlave).sendMessage(any(ByteBuf.class));
+
+		sleep(psyncHandler.waitOffsetTimeMilli + 500);
+		Assert.assertEquals(1, syncCount.get());
+		verify(redisKeeperServer, never()).fullSyncToSlave(redisSlave);
+		verify(replicationStore, never()).removeCommandsOffsetCallback(offsetWaiter);
+	}
+
+	@Test
+	public void testTimeoutFirst() throws Exception{
+
+		psyncHandler.waitOffsetTimeMilli = 100;
+		OffsetWaiter offsetWaiter = psyncHandler.new OffsetWaiter(redisSlave, replicationStore, offsetRequest);
+		offsetWaiter.start(offsetRequest);
+
+		verify(redisKeeperServer, timeout(1000)).fullSyncToSlave(redisSlave);
+		verify(replicationStore).removeCommandsOffsetCallback(offsetWaiter);
+
+		//offset reached after timeout, callback must not sync again
+		offsetWaiter.run();
+		sleep(100);
+
+		Assert.assertEquals(1, syncCount.get());
+		verify(redisSlave, never()).partialSync();
+	}
+
+	@Test
+	public void testOffsetReachedAndTimeoutRace() throws Exception{
+
+		final int round = 200;
+		psyncHandler.waitOffsetTimeMilli = 1;
+
+		for(int i = 0; i < round; i++){
+
+			final OffsetWaiter offsetWaiter = psyncHandler.new OffsetWaiter(redisSlave, replicationStore, offsetRequest);
+			final CyclicBarrier barrier = new CyclicBarrier(2);
+			final CountDownLatch latch = new CountDownLatch(1);
+
+			new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						barrier.await();
+						offsetWaiter.run();
+					} catch (Exception e) {
+						logger.error("[run]", e);
+					}finally{
+						latch.countDown();
+					}
+				}
+			}).start();
+
+			//callback is registered in start, so offset can only be reached after it
+			offsetWaiter.start(offsetRequest);
+			barrier.await();
+			latch.await();
+		}
+
+		waitConditionUntilTimeout(new BooleanSupplier() {
+
+			@Override
+			public boolean getAsBoolean() {
+				return syncCount.get() >= round;
+			}
+		}, 2000);
+		sleep(100);
+
+		//exactly one sync for each waiter, whichever fires first
+		Assert.assertEquals(round, syncCount.get());
+
+		Assert.assertEquals(round, partialCount.get() + fullCount.get());
+		verify(replicationStore, times(fullCount.get())).removeCommandsOffsetCallback(any(Runnable.class));
+	}
+
+	@After
+	public void afterPsyncHandlerTest(){
+		eventLoopGroup.shutdownGracefully();
+	}
+}
@@ -0,0 +1,172 @@
+package com.ctrip.xpipe.redis.keeper.impl;
+
+import static org.mockito.Mockito.*;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import com.ctrip.xpipe.redis.keeper.AbstractRedisKeeperTest;
+import com.ctrip.xpipe.redis.keeper.FullSyncScheduler.Permit;
+import com.ctrip.xpipe.redis.keeper.FullSyncScheduler.Priority;
+import com.ctrip.xpipe.redis.keeper.RedisSlave;
+
+/**
+ * @author wenchao.meng
+ *
+ * Jan 11, 2017
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class DefaultFullSyncSchedulerTest extends AbstractRedisKeeperTest{
+
+	private int waitMilli = 200;
+
+	@Test
+	public void testMaxConcurrent() throws Exception{
+
+		DefaultFullSyncScheduler scheduler = new DefaultFullSyncScheduler(2, Long.MAX_VALUE, 1, Long.MAX_VALUE, 30000);
+
+		Permit first = scheduler.acquireFullSync(slave(), Priority.HIGH, 0);
+		scheduler.acquireFullSync(slave(), Priority.HIGH, 0);
+		Future<Permit> third = acquireAsync(scheduler, slave(), Priority.HIGH, 0);
+
+		assertNotDone(third);
+		Assert.assertEquals(1, scheduler.snapshot().getQueueDepth());
+		Assert.assertEquals(2, scheduler.snapshot().getRunningFullSyncCount());
+
+		first.release();
+		first.release();
+		Assert.assertNotNull(third.get(waitMilli, TimeUnit.MILLISECONDS));
+		Assert.assertEquals(0, scheduler.snapshot().getQueueDepth());
+		Assert.assertEquals(2, scheduler.snapshot().getRunningFullSyncCount());
+		Assert.assertEquals(3, scheduler.snapshot().getWaitCount());
+		Assert.assertTrue(scheduler.snapshot().getMaxWaitMilli() >= waitMilli);
+
+		//rdb dump counted separately
+		Assert.assertNotNull(scheduler.acquireRdbDump(slave(), Priority.HIGH, 0));
+		Assert.assertEquals(1, scheduler.snapshot().getRunningRdbDumpCount());
+	}
+
+	@Test
+	public void testPriority() throws Exception{
+
+		DefaultFullSyncScheduler scheduler = new DefaultFullSyncScheduler(1, Long.MAX_VALUE, 1, Long.MAX_VALUE, 30000);
+
+		Permit running = scheduler.acquireFullSync(slave(), Priority.HIGH, 0);
+		Future<Permit> low = acquireAsync(scheduler, slave(), Priority.LOW, 0);
+		sleep(50);
+		Future<Permit> high = acquireAsync(scheduler, slave(), Priority.HIGH, 0);
+		assertNotDone(high);
+
+		running.release();
+		high.get(waitMilli, TimeUnit.MILLISECONDS).release();
+		Assert.assertNotNull(low.get(waitMilli, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void testLowPriorityAging() throws Exception{
+
+		int agingMilli = 100;
+		DefaultFullSyncScheduler scheduler = new DefaultFullSyncScheduler(1, Long.MAX_VALUE, 1, Long.MAX_VALUE, agingMilli);
+
+		Permit running = scheduler.acquireFullSync(slave(), Priority.HIGH, 0);
+		Future<Permit> low = acquireAsync(scheduler, slave(), Priority.LOW, 0);
+		sleep(agingMilli * 2);
+		Future<Permit> high = acquireAsync(scheduler, slave(), Priority.HIGH, 0);
+		assertNotDone(high);
+
+		running.release();
+		low.get(waitMilli, TimeUnit.MILLISECONDS).release();
+		Assert.assertNotNull(high.get(waitMilli, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void testByteBudget() throws Exception{
+
+		DefaultFullSyncScheduler scheduler = new DefaultFullSyncScheduler(10, 100, 1, Long.MAX_VALUE, 30000);
+
+		//always admit one
+		Permit big = scheduler.acquireFullSync(slave(), Priority.HIGH, 200);
+		Future<Permit> small = acquireAsync(scheduler, slave(), Priority.HIGH, 10);
+		assertNotDone(small);
+		big.release();
+
+		small.get(waitMilli, TimeUnit.MILLISECONDS);
+		scheduler.acquireFullSync(slave(), Priority.HIGH, 80);
+		Future<Permit> over = acquireAsync(scheduler, slave(), Priority.HIGH, 20);
+		assertNotDone(over);
+		Assert.assertEquals(2, scheduler.snapshot().getRunningFullSyncCount());
+	}
+
+	@Test
+	public void testSlaveClosedWhileWaiting() throws Exception{
+
+		DefaultFullSyncScheduler scheduler = new DefaultFullSyncScheduler(1, Long.MAX_VALUE, 1, Long.MAX_VALUE, 30000);
+
+		scheduler.acquireFullSync(slave(), Priority.HIGH, 0);
+		final AtomicBoolean open = new AtomicBoolean(true);
+		RedisSlave closed = mock(RedisSlave.class);
+		when(closed.isOpen()).thenAnswer(new Answer<Boolean>() {
+			@Override
+			public Boolean answer(InvocationOnMock invocation) throws Throwable {
+				return open.get();
+			}
+		});
+		Future<Permit> waiting = acquireAsync(scheduler, closed, Priority.HIGH, 0);
+		assertNotDone(waiting);
+
+		open.set(false);
+		Assert.assertNull(waiting.get(2000, TimeUnit.MILLISECONDS));
+		Assert.assertEquals(0, scheduler.snapshot().getQueueDepth());
+	}
+
+	@Test
+	public void testNested() throws Exception{
+
+		DefaultFullSyncScheduler scheduler = new DefaultFullSyncScheduler(1, Long.MAX_VALUE, 1, Long.MAX_VALUE, 30000);
+
+		RedisSlave redisSlave = slave();
+		Permit permit = scheduler.acquireFullSync(redisSlave, Priority.HIGH, 0);
+		Permit nested = scheduler.acquireFullSync(redisSlave, Priority.HIGH, 0);
+		nested.release();
+		Assert.assertEquals(1, scheduler.snapshot().getRunningFullSyncCount());
+
+		permit.release();
+		Assert.assertEquals(0, scheduler.snapshot().getRunningFullSyncCount());
+	}
+
+	private RedisSlave slave() {
+
+		RedisSlave redisSlave = mock(RedisSlave.class);
+		when(redisSlave.isOpen()).thenReturn(true);
+		return redisSlave;
+	}
+
+	private Future<Permit> acquireAsync(final DefaultFullSyncScheduler scheduler, final RedisSlave redisSlave, final Priority priority, final long bytes) {
+
+		return executors.submit(new Callable<Permit>() {
+			@Override
+			public Permit call() throws Exception {
+				return scheduler.acquireFullSync(redisSlave, priority, bytes);
+			}
+		});
+	}
+
+	private void assertNotDone(Future<Permit> future) throws Exception {
+
+		try{
+			future.get(waitMilli, TimeUnit.MILLISECONDS);
+			Assert.fail();
+		}catch(TimeoutException e){
+		}
+	}
+}
@@ -7,17 +7,27 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import static org.mockito.Mockito.*;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.mockito.runners.MockitoJUnitRunner;
 
 import com.ctrip.xpipe.redis.core.protocal.protocal.LenEofType;
 import com.ctrip.xpipe.redis.keeper.AbstractRedisKeeperTest;
+import com.ctrip.xpipe.redis.keeper.FullSyncScheduler.Permit;
+import com.ctrip.xpipe.redis.keeper.FullSyncScheduler.Priority;
 import com.ctrip.xpipe.redis.keeper.RedisClient;
 import com.ctrip.xpipe.redis.keeper.RedisKeeperServer;
 
 import io.netty.channel.Channel;
 import io.netty.channel.DefaultChannelPromise;
+import io.netty.util.concurrent.ImmediateEventExecutor;
 
 /**
  * @author wenchao.meng
@@ -81,4 +91,102 @@ public class DefaultRedisSlaveTest extends AbstractRedisKeeperTest{
 		
 	}
 
+	@SuppressWarnings("resource")
+	@Test
+	public void testPermitHeldUntilRdbSent() throws Exception{
+		
+		final DefaultFullSyncScheduler scheduler = new DefaultFullSyncScheduler(1, Long.MAX_VALUE, 1, Long.MAX_VALUE, 30000);
+		DefaultChannelPromise lastWrite = new DefaultChannelPromise(channel, ImmediateEventExecutor.INSTANCE);
+		when(channel.writeAndFlush(any())).thenReturn(new DefaultChannelPromise(channel, ImmediateEventExecutor.INSTANCE).setSuccess(), lastWrite);
+		
+		DefaultRedisSlave defaultRedisSlave = new DefaultRedisSlave(new DefaultRedisClient(channel, redisKeeperServer));
+		final Permit permit = scheduler.acquireFullSync(defaultRedisSlave, Priority.HIGH, 0);
+		defaultRedisSlave.onRdbTransferDone(new Runnable() {
+			
+			@Override
+			public void run() {
+				permit.release();
+			}
+		});
+		
+		defaultRedisSlave.beginWriteRdb(new LenEofType(1000), 2);
+		defaultRedisSlave.rdbWriteComplete();
+		
+		final DefaultRedisSlave another = new DefaultRedisSlave(new DefaultRedisClient(channel, redisKeeperServer));
+		Future<Permit> waiting = Executors.newSingleThreadExecutor().submit(new Callable<Permit>() {
+			
+			@Override
+			public Permit call() throws Exception {
+				return scheduler.acquireFullSync(another, Priority.HIGH, 0);
+			}
+		});
+		
+		try{
+			waiting.get(200, TimeUnit.MILLISECONDS);
+			Assert.fail();
+		}catch(TimeoutException e){
+		}
+		
+		lastWrite.setSuccess();
+		Assert.assertNotNull(waiting.get(200, TimeUnit.MILLISECONDS));
+	}
+
+	@SuppressWarnings("resource")
+	@Test
+	public void testPermitReleasedIfTransferDoneBeforeRegister() throws Exception{
+		
+		final DefaultFullSyncScheduler scheduler = new DefaultFullSyncScheduler(1, Long.MAX_VALUE, 1, Long.MAX_VALUE, 30000);
+		when(channel.writeAndFlush(any())).thenReturn(new DefaultChannelPromise(channel, ImmediateEventExecutor.INSTANCE).setSuccess());
+		
+		DefaultRedisSlave defaultRedisSlave = new DefaultRedisSlave(new DefaultRedisClient(channel, redisKeeperServer));
+		final Permit permit = scheduler.acquireFullSync(defaultRedisSlave, Priority.HIGH, 0);
+		
+		//last write already flushed when the release task is registered
+		defaultRedisSlave.beginWriteRdb(new LenEofType(1000), 2);
+		defaultRedisSlave.rdbWriteComplete();
+		defaultRedisSlave.onRdbTransferDone(new Runnable() {
+			
+			@Override
+			public void run() {
+				permit.release();
+			}
+		});
+		
+		final DefaultRedisSlave another = new DefaultRedisSlave(new DefaultRedisClient(channel, redisKeeperServer));
+		Future<Permit> waiting = Executors.newSingleThreadExecutor().submit(new Callable<Permit>() {
+			
+			@Override
+			public Permit call() throws Exception {
+				return scheduler.acquireFullSync(another, Priority.HIGH, 0);
+			}
+		});
+		Assert.assertNotNull(waiting.get(200, TimeUnit.MILLISECONDS));
+		Assert.assertTrue(defaultRedisSlave.isOpen());
+	}
+
+	@SuppressWarnings("resource")
+	@Test
+	public void testRdbTransferDoneOnClose() throws IOException{
+		
+		final AtomicInteger done = new AtomicInteger();
+		Runnable task = new Runnable() {
+			
+			@Override
+			public void run() {
+				done.incrementAndGet();
+			}
+		};
+		
+		DefaultRedisSlave defaultRedisSlave = new DefaultRedisSlave(new DefaultRedisClient(channel, redisKeeperServer));
+		defaultRedisSlave.onRdbTransferDone(task);
+		Assert.assertEquals(0, done.get());
+		
+		defaultRedisSlave.close();
+		Assert.assertEquals(1, done.get());
+		
+		//slave closed, run at once
+		defaultRedisSlave.onRdbTransferDone(task);
+		Assert.assertEquals(2, done.get());
+	}
+
 }
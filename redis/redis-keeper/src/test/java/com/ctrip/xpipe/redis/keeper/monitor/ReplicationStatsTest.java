@@ -0,0 +1,126 @@
+package com.ctrip.xpipe.redis.keeper.monitor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ctrip.xpipe.redis.keeper.AbstractRedisKeeperTest;
+
+/**
+ * @author wenchao.meng
+ *
+ * Jan 20, 2017
+ */
+public class ReplicationStatsTest extends AbstractRedisKeeperTest{
+
+	@Test
+	public void testHistogramPercentile(){
+
+		LatencyHistogram histogram = new LatencyHistogram();
+		for(int i = 1; i <= 10000; i++){
+			histogram.record(i);
+		}
+
+		LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+		Assert.assertEquals(10000, snapshot.getCount());
+		Assert.assertEquals(10000, snapshot.getMax());
+		Assert.assertEquals(5000.5, snapshot.getMean(), 0.01);
+		assertNear(5000, snapshot.getP50());
+		assertNear(9900, snapshot.getP99());
+		assertNear(9990, snapshot.getP999());
+	}
+
+	@Test
+	public void testHistogramBucketBoundary(){
+
+		for(long value : new long[]{0, 1, 31, 32, 33, 63, 64, 65, 127, 128, 1000, 1L << 30, LatencyHistogram.MAX_VALUE}){
+			int index = LatencyHistogram.indexOf(value);
+			Assert.assertTrue(LatencyHistogram.highestValueOf(index) >= value);
+			if(index > 0){
+				Assert.assertTrue(LatencyHistogram.highestValueOf(index - 1) < value);
+			}
+		}
+	}
+
+	@Test
+	public void testHistogramRelativeError(){
+
+		for(long value = 1; value < (1L << 20); value = value * 3 / 2 + 1){
+			long highest = LatencyHistogram.highestValueOf(LatencyHistogram.indexOf(value));
+			Assert.assertTrue(String.format("value:%d, highest:%d", value, highest), highest - value <= value / 32);
+		}
+	}
+
+	@Test
+	public void testHistogramSnapshotAndReset(){
+
+		LatencyHistogram histogram = new LatencyHistogram();
+		for(int i = 1; i <= 100; i++){
+			histogram.record(10000);
+		}
+
+		LatencyHistogram.Snapshot first = histogram.snapshotAndReset();
+		Assert.assertEquals(100, first.getCount());
+		assertNear(10000, first.getP99());
+
+		for(int i = 1; i <= 10; i++){
+			histogram.record(100);
+		}
+		LatencyHistogram.Snapshot second = histogram.snapshotAndReset();
+		Assert.assertEquals(10, second.getCount());
+		Assert.assertEquals(100, second.getMax());
+		Assert.assertEquals(100, second.getP99());
+
+		LatencyHistogram.Snapshot empty = histogram.snapshot();
+		Assert.assertEquals(0, empty.getCount());
+		Assert.assertEquals(0, empty.getP99());
+	}
+
+	@Test
+	public void testOffsetTimeline(){
+
+		OffsetTimeline timeline = new OffsetTimeline(4);
+		Assert.assertEquals(OffsetTimeline.NOT_FOUND, timeline.timeReached(0));
+
+		timeline.record(10, 100);
+		timeline.record(20, 200);
+		Assert.assertEquals(100, timeline.timeReached(5));
+		Assert.assertEquals(200, timeline.timeReached(11));
+		Assert.assertEquals(OffsetTimeline.NOT_FOUND, timeline.timeReached(21));
+
+		timeline.record(30, 300);
+		timeline.record(40, 400);
+		timeline.record(50, 500);
+		//first record dropped
+		Assert.assertEquals(OffsetTimeline.NOT_FOUND, timeline.timeReached(5));
+		Assert.assertEquals(300, timeline.timeReached(25));
+	}
+
+	@Test
+	public void testSlaveStats(){
+
+		ReplicationStats stats = new ReplicationStats();
+		Object slave = new Object();
+
+		stats.appended(99, 100, System.nanoTime());
+		ReplicationStats.SlaveStats slaveStats = stats.slave(slave, "slave");
+		slaveStats.flushed(99, 100);
+		slaveStats.acked(50);
+
+		ReplicationStats.Snapshot snapshot = stats.snapshot();
+		Assert.assertEquals(99, snapshot.getAppendedOffset());
+		Assert.assertEquals(1, snapshot.getAppendLatencyMicro().getCount());
+		Assert.assertEquals(1, snapshot.getSlaves().size());
+
+		ReplicationStats.SlaveSnapshot slaveSnapshot = snapshot.getSlaves().get(0);
+		Assert.assertEquals(49, slaveSnapshot.getOffsetLag());
+		Assert.assertEquals(1, slaveSnapshot.getAppendToFlushMicro().getCount());
+		Assert.assertEquals(1, slaveSnapshot.getFlushToAckMicro().getCount());
+
+		stats.removeSlave(slave);
+		Assert.assertEquals(0, stats.snapshot().getSlaves().size());
+	}
+
+	private void assertNear(long expected, long real){
+		Assert.assertTrue(String.format("expected:%d, real:%d", expected, real), Math.abs(real - expected) <= expected * 0.04);
+	}
+}
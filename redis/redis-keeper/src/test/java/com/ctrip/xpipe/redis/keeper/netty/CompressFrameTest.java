@@ -0,0 +1,177 @@
+package com.ctrip.xpipe.redis.keeper.netty;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ctrip.xpipe.redis.core.protocal.protocal.RequestStringParser;
+import com.ctrip.xpipe.redis.keeper.AbstractRedisKeeperTest;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.stream.ChunkedWriteHandler;
+
+/**
+ * @author wenchao.meng
+ *
+ * Jan 12, 2017
+ */
+public class CompressFrameTest extends AbstractRedisKeeperTest{
+
+	@Test
+	public void testByteBufAndFileRegion() throws IOException{
+
+		byte[] commands = commands(1 << 20);
+		byte[] fileData = commands(3 * CompressFrames.FRAME_SIZE + 100);
+		File file = writeFile(fileData);
+
+		EmbeddedChannel encoderChannel = encoderChannel();
+		encoderChannel.writeOutbound(Unpooled.wrappedBuffer(commands));
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try{
+			encoderChannel.writeOutbound(new DefaultFileRegion(randomAccessFile.getChannel(), 10, fileData.length - 10));
+			encoderChannel.writeOutbound(new DefaultFileRegion(randomAccessFile.getChannel(), 0, 0));
+		}finally{
+			randomAccessFile.close();
+		}
+
+		byte[] expected = new byte[commands.length + fileData.length - 10];
+		System.arraycopy(commands, 0, expected, 0, commands.length);
+		System.arraycopy(fileData, 10, expected, commands.length, fileData.length - 10);
+
+		ByteBuf decoded = transfer(encoderChannel, new EmbeddedChannel(new CompressFrameDecoder(new DeflateFrameCodec())));
+		Assert.assertArrayEquals(expected, toBytes(decoded));
+	}
+
+	@Test
+	public void testIncompressibleSentRaw(){
+
+		byte[] data = new byte[CompressFrames.FRAME_SIZE * 2];
+		new Random().nextBytes(data);
+
+		CompressFrameEncoder encoder = new CompressFrameEncoder(new DeflateFrameCodec());
+		EmbeddedChannel encoderChannel = new EmbeddedChannel(new ChunkedWriteHandler(), encoder);
+		encoderChannel.writeOutbound(Unpooled.wrappedBuffer(data));
+
+		Assert.assertEquals(data.length + 2 * CompressFrames.HEADER_LENGTH, encoder.getCompressedBytes());
+		ByteBuf decoded = transfer(encoderChannel, new EmbeddedChannel(new CompressFrameDecoder(new DeflateFrameCodec())));
+		Assert.assertArrayEquals(data, toBytes(decoded));
+	}
+
+	@Test
+	public void testCorruptedFrame(){
+
+		ByteBuf frame = Unpooled.buffer();
+		frame.writeByte(CompressFrames.TYPE_COMPRESSED);
+		frame.writeInt(100);
+		frame.writeInt(4);
+		frame.writeBytes(new byte[]{1, 2, 3, 4});
+
+		EmbeddedChannel decoderChannel = new EmbeddedChannel(new CompressFrameDecoder(new DeflateFrameCodec()));
+		try{
+			decoderChannel.writeInbound(frame);
+			Assert.fail();
+		}catch(Exception e){
+		}
+	}
+
+	@Test
+	public void testCompressBenchmark(){
+
+		int total = 64 << 20;
+		byte[] data = commands(total);
+		DeflateFrameCodec codec = new DeflateFrameCodec();
+		int frameSize = CompressFrames.FRAME_SIZE;
+
+		long compressed = 0, compressNanos = 0, decompressNanos = 0;
+		try{
+			for(int offset = 0; offset < data.length; offset += frameSize){
+
+				int length = Math.min(frameSize, data.length - offset);
+				long begin = System.nanoTime();
+				byte[] frame = codec.compress(data, offset, length);
+				long middle = System.nanoTime();
+				byte[] raw = codec.decompress(frame, 0, frame.length, length);
+				decompressNanos += System.nanoTime() - middle;
+				compressNanos += middle - begin;
+				compressed += frame.length + CompressFrames.HEADER_LENGTH;
+				Assert.assertEquals(length, raw.length);
+			}
+		}catch(IOException e){
+			throw new IllegalStateException(e);
+		}finally{
+			codec.close();
+		}
+
+		double gb = (double)total / (1 << 30);
+		logger.info("[testCompressBenchmark][{}]raw:{}, compressed:{}, ratio:{}, compress:{} cpu ms/GB, decompress:{} cpu ms/GB",
+				codec.name(), total, compressed, String.format("%.3f", (double)compressed/total),
+				(long)(compressNanos/1000000/gb), (long)(decompressNanos/1000000/gb));
+	}
+
+	private EmbeddedChannel encoderChannel() {
+		return new EmbeddedChannel(new ChunkedWriteHandler(), new CompressFrameEncoder(new DeflateFrameCodec()));
+	}
+
+	private ByteBuf transfer(EmbeddedChannel encoderChannel, EmbeddedChannel decoderChannel) {
+
+		Object encoded;
+		while((encoded = encoderChannel.readOutbound()) != null){
+			decoderChannel.writeInbound(encoded);
+		}
+
+		ByteBuf result = Unpooled.buffer();
+		Object decoded;
+		while((decoded = decoderChannel.readInbound()) != null){
+			ByteBuf byteBuf = (ByteBuf) decoded;
+			result.writeBytes(byteBuf);
+			byteBuf.release();
+		}
+		return result;
+	}
+
+	private byte[] toBytes(ByteBuf byteBuf) {
+
+		byte[] result = new byte[byteBuf.readableBytes()];
+		byteBuf.readBytes(result);
+		return result;
+	}
+
+	private File writeFile(byte[] data) throws IOException {
+
+		File file = new File(getTestFileDir(), "compress-" + randomString(10));
+		file.getParentFile().mkdirs();
+		FileOutputStream fous = new FileOutputStream(file);
+		try{
+			fous.write(data);
+		}finally{
+			fous.close();
+		}
+		return file;
+	}
+
+	/**
+	 * resp commands like keeper command files
+	 */
+	private byte[] commands(int length) {
+
+		Random random = new Random(length);
+		ByteBuf byteBuf = Unpooled.buffer(length + 1024);
+		int index = 0;
+		while(byteBuf.readableBytes() < length){
+			String key = "key:" + (index++ % 10000);
+			String value = "value-" + random.nextInt(1000000) + "-" + randomString(random.nextInt(20) + 1);
+			byteBuf.writeBytes(new RequestStringParser(false, false, "set", key, value).format());
+		}
+		byte[] result = new byte[length];
+		byteBuf.readBytes(result);
+		return result;
+	}
+}
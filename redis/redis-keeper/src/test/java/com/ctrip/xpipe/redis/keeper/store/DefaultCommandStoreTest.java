@@ -2,14 +2,20 @@ package com.ctrip.xpipe.redis.keeper.store;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
 
 import org.junit.After;
 import org.junit.Assert;
@@ -18,12 +24,17 @@ import org.junit.Test;
 
 import com.ctrip.xpipe.concurrent.AbstractExceptionLogTask;
 import com.ctrip.xpipe.netty.filechannel.ReferenceFileRegion;
+import com.ctrip.xpipe.redis.core.store.ByteBufCommandsListener;
+import com.ctrip.xpipe.redis.core.store.CommandReader;
 import com.ctrip.xpipe.redis.core.store.CommandsListener;
 import com.ctrip.xpipe.redis.keeper.AbstractRedisKeeperTest;
+import com.ctrip.xpipe.redis.keeper.store.CommandSegmentManifest.Segment;
 import com.google.common.util.concurrent.SettableFuture;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelFuture;
+import io.netty.util.CharsetUtil;
 
 /**
  * @author wenchao.meng
@@ -233,6 +244,28 @@ public class DefaultCommandStoreTest extends AbstractRedisKeeperTest {
 		}
 	}
 
+	@Test
+	public void testRecoveredWhenRotationNotRecorded() throws IOException {
+
+		String prefix = getTestName() + "-rotate-";
+		File commandTemplate = new File(getTestFileDir(), prefix);
+		DefaultCommandStore store = new DefaultCommandStore(commandTemplate, maxFileSize, createkeeperMonitorManager());
+		store.appendCommands(Unpooled.wrappedBuffer(randomString(maxFileSize).getBytes()));
+		store.appendCommands(Unpooled.wrappedBuffer(randomString(10).getBytes()));
+		long totalLength = store.totalLength();
+		store.close();
+
+		// switched to the new segment, but stopped before manifest recorded the rotation
+		new CommandSegmentManifest(new File(getTestFileDir()), prefix).reset(Arrays.asList(new Segment(0, 0)));
+
+		store = new DefaultCommandStore(commandTemplate, maxFileSize, createkeeperMonitorManager());
+		try {
+			Assert.assertEquals(totalLength, store.totalLength());
+		} finally {
+			store.close();
+		}
+	}
+
 	@Test
 	public void testReadNotFromZero() throws IOException, InterruptedException {
 
@@ -328,9 +361,332 @@ public class DefaultCommandStoreTest extends AbstractRedisKeeperTest {
 		Assert.assertTrue(sb.toString().equals(result));
 	}
 
+	@Test
+	public void testSharedBufferForDownstreams() throws Exception {
+
+		int downstreams = 3;
+		final CountDownLatch registered = new CountDownLatch(downstreams);
+		final Semaphore semaphore = new Semaphore(0);
+		final StringBuilder []results = new StringBuilder[downstreams];
+
+		for (int i = 0; i < downstreams; i++) {
+
+			final StringBuilder result = results[i] = new StringBuilder();
+			executors.execute(new AbstractExceptionLogTask() {
+
+				@Override
+				protected void doRun() throws Exception {
+					commandStore.addCommandsListener(0, new ByteBufCommandsListener() {
+
+						@Override
+						public ChannelFuture onCommand(ByteBuf byteBuf) {
+
+							int length = byteBuf.readableBytes();
+							result.append(byteBuf.toString(CharsetUtil.UTF_8));
+							byteBuf.release();
+							semaphore.release(length);
+							return null;
+						}
+
+						@Override
+						public ChannelFuture onCommand(ReferenceFileRegion referenceFileRegion) {
+
+							result.append(readFileChannelInfoMessageAsString(referenceFileRegion));
+							semaphore.release((int) referenceFileRegion.count());
+							return null;
+						}
+
+						@Override
+						public boolean isWritable() {
+							return true;
+						}
+
+						@Override
+						public boolean isOpen() {
+							return true;
+						}
+
+						@Override
+						public void beforeCommand() {
+							registered.countDown();
+						}
+					});
+				}
+			});
+		}
+		Assert.assertTrue(registered.await(5, TimeUnit.SECONDS));
+
+		StringBuilder sb = new StringBuilder();
+		while (sb.length() < minWritten) {
+			String random = randomString(randomInt(100, 500));
+			sb.append(random);
+			commandStore.appendCommands(Unpooled.wrappedBuffer(random.getBytes()));
+		}
+
+		Assert.assertTrue(semaphore.tryAcquire(sb.length() * downstreams, 10, TimeUnit.SECONDS));
+		for (StringBuilder result : results) {
+			Assert.assertEquals(sb.toString(), result.toString());
+		}
+		Assert.assertTrue(commandStore.getSharedBytesSent() > 0);
+
+		// listener without shared buffer support reads from file
+		Assert.assertEquals(sb.toString(), readCommandStoreTilNoMessage(commandStore, sb.length()));
+	}
+
+	@Test
+	public void testNotFeedListenerNotWritable() throws Exception {
+
+		final AtomicBoolean writable = new AtomicBoolean(false);
+		final StringBuilder fast = new StringBuilder(), slow = new StringBuilder();
+		final Semaphore fastReceived = new Semaphore(0), slowReceived = new Semaphore(0);
+
+		executors.execute(new AbstractExceptionLogTask() {
+
+			@Override
+			protected void doRun() throws Exception {
+				commandStore.addCommandsListener(0, new TestByteBufCommandsListener(fast, fastReceived, new AtomicBoolean(true)));
+			}
+		});
+		executors.execute(new AbstractExceptionLogTask() {
+
+			@Override
+			protected void doRun() throws Exception {
+				commandStore.addCommandsListener(0, new TestByteBufCommandsListener(slow, slowReceived, writable));
+			}
+		});
+		sleep(100);
+
+		StringBuilder sb = new StringBuilder();
+		while (sb.length() < minWritten) {
+			String random = randomString(randomInt(100, 500));
+			sb.append(random);
+			commandStore.appendCommands(Unpooled.wrappedBuffer(random.getBytes()));
+		}
+
+		Assert.assertTrue(fastReceived.tryAcquire(sb.length(), 10, TimeUnit.SECONDS));
+		sleep(50);
+		Assert.assertEquals(0, slowReceived.availablePermits());
+
+		writable.set(true);
+		Assert.assertTrue(slowReceived.tryAcquire(sb.length(), 10, TimeUnit.SECONDS));
+		Assert.assertEquals(sb.toString(), fast.toString());
+		Assert.assertEquals(sb.toString(), slow.toString());
+	}
+
+	@Test
+	public void testCorruptedBlockRepaired() throws Exception {
+
+		final byte[] data = randomString(CommandFileChecksum.BLOCK_SIZE * 2 + 100).getBytes();
+		DefaultCommandStore store = new DefaultCommandStore(new File(getTestFileDir(), getTestName() + "-crc-"), 1 << 30, createkeeperMonitorManager());
+		try {
+			store.appendCommands(Unpooled.wrappedBuffer(data));
+			File file = corrupt(getTestFileDir(), getTestName() + "-crc-", CommandFileChecksum.BLOCK_SIZE + 10);
+
+			store.setBlockRepairer(new CommandBlockRepairer() {
+
+				@Override
+				public byte[] repair(long cmdOffset, int length) throws Exception {
+					byte[] result = new byte[length];
+					System.arraycopy(data, (int) cmdOffset, result, 0, length);
+					return result;
+				}
+			});
+
+			Assert.assertEquals(data.length, store.scrub(Long.MAX_VALUE));
+			final DefaultCommandStore repairing = store;
+			waitConditionUntilTimeout(new BooleanSupplier() {
+
+				@Override
+				public boolean getAsBoolean() {
+					return repairing.getRepairedBlocks() == 1;
+				}
+			}, 5000);
+			Assert.assertEquals(0, store.getCorruptedBefore());
+			Assert.assertArrayEquals(data, org.apache.commons.io.FileUtils.readFileToByteArray(file));
+		} finally {
+			store.close();
+		}
+	}
+
+	@Test
+	public void testCorruptedBlockNotRepairable() throws Exception {
+
+		byte[] data = randomString(CommandFileChecksum.BLOCK_SIZE * 2 + 100).getBytes();
+		DefaultCommandStore store = new DefaultCommandStore(new File(getTestFileDir(), getTestName() + "-crc-"), 1 << 30, createkeeperMonitorManager());
+		try {
+			store.appendCommands(Unpooled.wrappedBuffer(data));
+			corrupt(getTestFileDir(), getTestName() + "-crc-", CommandFileChecksum.BLOCK_SIZE + 10);
+
+			CommandReader reader = store.beginRead(0);
+			try {
+				reader.read();
+				Assert.fail();
+			} catch (CommandBlockCorruptedException e) {
+			} finally {
+				reader.close();
+			}
+			Assert.assertEquals(CommandFileChecksum.BLOCK_SIZE * 2, store.getCorruptedBefore());
+			Assert.assertEquals(1, store.getCorruptedBlocks());
+		} finally {
+			store.close();
+		}
+	}
+
+	@Test
+	public void testCorruptedBlockCountedOnceAndRepairBackoff() throws Exception {
+
+		byte[] data = randomString(CommandFileChecksum.BLOCK_SIZE * 2 + 100).getBytes();
+		DefaultCommandStore store = new DefaultCommandStore(new File(getTestFileDir(), getTestName() + "-crc-"), 1 << 30, createkeeperMonitorManager());
+		try {
+			store.appendCommands(Unpooled.wrappedBuffer(data));
+			corrupt(getTestFileDir(), getTestName() + "-crc-", CommandFileChecksum.BLOCK_SIZE + 10);
+
+			final AtomicInteger repairCalls = new AtomicInteger();
+			store.setBlockRepairer(new CommandBlockRepairer() {
+
+				@Override
+				public byte[] repair(long cmdOffset, int length) throws Exception {
+					repairCalls.incrementAndGet();
+					throw new IOException("master not reachable");
+				}
+			});
+
+			store.scrub(Long.MAX_VALUE);
+			waitConditionUntilTimeout(new BooleanSupplier() {
+
+				@Override
+				public boolean getAsBoolean() {
+					return repairCalls.get() == 1;
+				}
+			}, 5000);
+			sleep(50);
+			for (int i = 0; i < 5; i++) {
+				store.scrub(Long.MAX_VALUE);
+			}
+			Assert.assertEquals(1, repairCalls.get());
+			Assert.assertEquals(1, store.getCorruptedBlocks());
+			Assert.assertEquals(0, store.getRepairedBlocks());
+		} finally {
+			store.close();
+		}
+	}
+
+	@Test
+	public void testRepairRunsOutsideStoreLock() throws Exception {
+
+		final byte[] data = randomString(CommandFileChecksum.BLOCK_SIZE * 2 + 100).getBytes();
+		DefaultCommandStore store = new DefaultCommandStore(new File(getTestFileDir(), getTestName() + "-crc-"), 1 << 30, createkeeperMonitorManager());
+		try {
+			store.appendCommands(Unpooled.wrappedBuffer(data));
+			corrupt(getTestFileDir(), getTestName() + "-crc-", CommandFileChecksum.BLOCK_SIZE + 10);
+
+			final CountDownLatch masterReplied = new CountDownLatch(1);
+			store.setBlockRepairer(new CommandBlockRepairer() {
+
+				@Override
+				public byte[] repair(long cmdOffset, int length) throws Exception {
+					masterReplied.await();
+					byte[] result = new byte[length];
+					System.arraycopy(data, (int) cmdOffset, result, 0, length);
+					return result;
+				}
+			});
+
+			// scrub does not wait for the slow master
+			long begin = System.currentTimeMillis();
+			store.scrub(Long.MAX_VALUE);
+			store.scrub(Long.MAX_VALUE);
+			Assert.assertTrue(System.currentTimeMillis() - begin < 1000);
+
+			// reader of the block waits for the repair in flight
+			final CommandReader reader = store.beginRead(0);
+			Future<Long> read = Executors.newSingleThreadExecutor().submit(new Callable<Long>() {
+
+				@Override
+				public Long call() throws Exception {
+					ReferenceFileRegion region = reader.read();
+					try {
+						return region.count();
+					} finally {
+						region.release();
+					}
+				}
+			});
+			sleep(100);
+			Assert.assertFalse(read.isDone());
+
+			masterReplied.countDown();
+			Assert.assertEquals(data.length, (long) read.get(5, TimeUnit.SECONDS));
+			reader.close();
+			Assert.assertEquals(1, store.getRepairedBlocks());
+			Assert.assertEquals(1, store.getCorruptedBlocks());
+			Assert.assertEquals(0, store.getCorruptedBefore());
+		} finally {
+			store.close();
+		}
+	}
+
+	private File corrupt(String dir, String prefix, long position) throws IOException {
+
+		File file = new File(dir, prefix + "0");
+		try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+			randomAccessFile.seek(position);
+			byte current = randomAccessFile.readByte();
+			randomAccessFile.seek(position);
+			randomAccessFile.writeByte(current + 1);
+		}
+		return file;
+	}
+
 	@After
 	public void afterDefaultCommandStoreTest() throws IOException {
 		commandStore.close();
 	}
 
+	private class TestByteBufCommandsListener implements ByteBufCommandsListener {
+
+		private StringBuilder result;
+
+		private Semaphore received;
+
+		private AtomicBoolean writable;
+
+		public TestByteBufCommandsListener(StringBuilder result, Semaphore received, AtomicBoolean writable) {
+			this.result = result;
+			this.received = received;
+			this.writable = writable;
+		}
+
+		@Override
+		public ChannelFuture onCommand(ByteBuf byteBuf) {
+
+			int length = byteBuf.readableBytes();
+			result.append(byteBuf.toString(CharsetUtil.UTF_8));
+			byteBuf.release();
+			received.release(length);
+			return null;
+		}
+
+		@Override
+		public ChannelFuture onCommand(ReferenceFileRegion referenceFileRegion) {
+
+			result.append(readFileChannelInfoMessageAsString(referenceFileRegion));
+			received.release((int) referenceFileRegion.count());
+			return null;
+		}
+
+		@Override
+		public boolean isWritable() {
+			return writable.get();
+		}
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		@Override
+		public void beforeCommand() {
+		}
+	}
 }
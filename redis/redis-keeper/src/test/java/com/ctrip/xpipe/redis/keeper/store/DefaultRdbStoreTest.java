@@ -2,6 +2,7 @@ package com.ctrip.xpipe.redis.keeper.store;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.Assert;
@@ -46,7 +47,77 @@ public class DefaultRdbStoreTest extends AbstractRedisKeeperTest{
 		Assert.assertEquals(message.length, readLen.get());
 	}
 
+	@Test
+	public void testBroadcastToConcurrentReaders() throws Exception{
+		
+		File file = new File(String.format("%s/%s.rdb", getTestFileDir(), getTestName()));
+		int chunkSize = 1 << 10, chunkCount = 100;
+		DefaultRdbStore rdbStore = new DefaultRdbStore(file, 1L, new LenEofType(chunkSize * chunkCount));
+		
+		int readerCount = 5;
+		AtomicLong []readLens = new AtomicLong[readerCount + 1];
+		for(int i=0; i < readerCount; i++){
+			readLens[i] = new AtomicLong();
+			readRdbInNewThread(rdbStore, readLens[i]);
+		}
+		
+		for(int i=0; i < chunkCount; i++){
+			rdbStore.writeRdb(Unpooled.wrappedBuffer(randomString(chunkSize).getBytes()));
+			if(i == chunkCount/2){
+				//late joiner
+				readLens[readerCount] = new AtomicLong();
+				readRdbInNewThread(rdbStore, readLens[readerCount]);
+			}
+			sleep(1);
+		}
+		rdbStore.endRdb();
+		
+		sleep(500);
+		for(AtomicLong len : readLens){
+			Assert.assertEquals(chunkSize * chunkCount, len.get());
+		}
+		
+		RdbFileBroadcaster broadcaster = rdbStore.getBroadcaster();
+		logger.info("[testBroadcastToConcurrentReaders]broadcast:{}, catch up:{}", broadcaster.getBroadcastLength(), broadcaster.getCatchUpLength());
+		Assert.assertEquals(chunkSize * chunkCount, broadcaster.getBroadcastLength());
+		Assert.assertTrue(broadcaster.getCatchUpLength() <= chunkSize * chunkCount);
+		Assert.assertEquals(0, broadcaster.getReaderCount());
+	}
+
+	@Test
+	public void testWriteToReaderLag() throws Exception{
+		
+		File file = new File(String.format("%s/%s.rdb", getTestFileDir(), getTestName()));
+		int chunkSize = 128, chunkCount = 200;
+		DefaultRdbStore rdbStore = new DefaultRdbStore(file, 1L, new LenEofType(chunkSize * chunkCount));
+		
+		readRdbInNewThread(rdbStore);
+		sleep(50);
+		
+		long maxLagNanos = 0;
+		for(int i=0; i < chunkCount; i++){
+			
+			long expected = readLen.get() + chunkSize;
+			long begin = System.nanoTime();
+			rdbStore.writeRdb(Unpooled.wrappedBuffer(randomString(chunkSize).getBytes()));
+			while(readLen.get() < expected && System.nanoTime() - begin < TimeUnit.SECONDS.toNanos(5)){
+				Thread.yield();
+			}
+			//every chunk reaches reader before next one is written
+			Assert.assertEquals(expected, readLen.get());
+			maxLagNanos = Math.max(maxLagNanos, System.nanoTime() - begin);
+		}
+		rdbStore.endRdb();
+		
+		Assert.assertEquals(chunkSize * chunkCount, readLen.get());
+		Assert.assertTrue(maxLagNanos < TimeUnit.SECONDS.toNanos(1));
+	}
+
 	private void readRdbInNewThread(final DefaultRdbStore rdbStore) {
+		readRdbInNewThread(rdbStore, readLen);
+	}
+
+	private void readRdbInNewThread(final DefaultRdbStore rdbStore, final AtomicLong readLen) {
 		
 		new Thread(new Runnable() {
 			
@@ -4,13 +4,18 @@ package com.ctrip.xpipe.redis.keeper.store;
 import static org.junit.Assert.assertEquals;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.UUID;
 
+import org.junit.Assert;
 import org.junit.Test;
 
 import com.ctrip.xpipe.redis.core.protocal.protocal.LenEofType;
+import com.ctrip.xpipe.redis.core.store.MetaStore;
+import com.ctrip.xpipe.redis.core.store.RdbStore;
 import com.ctrip.xpipe.redis.keeper.AbstractRedisKeeperTest;
 import com.ctrip.xpipe.redis.keeper.config.DefaultKeeperConfig;
+import com.ctrip.xpipe.redis.keeper.config.TestKeeperConfig;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
@@ -44,4 +49,103 @@ public class DefaultReplicationStoreTest extends AbstractRedisKeeperTest{
 		store.close();
 	}
 
+	@Test
+	public void testGcRetentionAndQuota() throws Exception {
+
+		int cmdFileSize = 100;
+		TestKeeperConfig config = new TestKeeperConfig(cmdFileSize, 1, 100 * cmdFileSize, 0);
+		config.setMinTimeMilliToGcAfterCreate(0);
+
+		DefaultReplicationStore store = new DefaultReplicationStore(new File(getTestFileDir()), config, randomKeeperRunid(), createkeeperMonitorManager());
+		store.beginRdb("master", -1, new LenEofType(-1));
+
+		for (int i = 0; i < 20; i++) {
+			store.getCommandStore().appendCommands(Unpooled.wrappedBuffer(randomString(cmdFileSize).getBytes()));
+		}
+
+		Assert.assertEquals(20 * cmdFileSize, store.storeSize());
+
+		//commands after rdb are kept
+		Assert.assertEquals(0, store.gc(Long.MAX_VALUE));
+		Assert.assertFalse(store.gc());
+
+		//commands more than partial sync threshold are not kept
+		config.setReplicationStoreMaxCommandsToTransferBeforeCreateRdb(10 * cmdFileSize);
+		Assert.assertEquals(9, store.gc(Long.MAX_VALUE));
+		Assert.assertEquals(11 * cmdFileSize, store.storeSize());
+
+		//over quota
+		Assert.assertEquals(6, store.gc(5 * cmdFileSize));
+		Assert.assertEquals(5 * cmdFileSize, store.storeSize());
+		store.close();
+	}
+
+	@Test
+	public void testRecoverAfterCrashMidWrite() throws Exception {
+
+		File baseDir = new File(getTestFileDir());
+		String keeperRunid = randomKeeperRunid();
+		TestKeeperConfig config = new TestKeeperConfig(100, 1, 1 << 20, 0);
+
+		DefaultReplicationStore store = new DefaultReplicationStore(baseDir, config, keeperRunid, createkeeperMonitorManager());
+		byte[] rdb = randomString(100).getBytes();
+		RdbStore rdbStore = store.beginRdb("master", 100, new LenEofType(rdb.length));
+		rdbStore.writeRdb(Unpooled.wrappedBuffer(rdb));
+		rdbStore.endRdb();
+
+		StringBuilder exp = new StringBuilder();
+		for (int i = 0; i < 10; i++) {
+			String cmd = randomString(50);
+			exp.append(cmd);
+			store.appendCommands(Unpooled.wrappedBuffer(cmd.getBytes()));
+		}
+		long keeperEndOffset = store.getKeeperEndOffset();
+
+		//crash while writing meta and manifest: temp files are left half written, store is not closed
+		String cmdFilePrefix = store.getMetaStore().dupReplicationStoreMeta().getCmdFilePrefix();
+		writeHalf(new File(baseDir, MetaStore.META_FILE), new File(baseDir, MetaStore.META_FILE + ".tmp"));
+		writeHalf(new File(baseDir, CommandSegmentManifest.MANIFEST_PREFIX + cmdFilePrefix), 
+				new File(baseDir, CommandSegmentManifest.MANIFEST_PREFIX + cmdFilePrefix + ".tmp"));
+
+		DefaultReplicationStore recovered = new DefaultReplicationStore(baseDir, config, keeperRunid, createkeeperMonitorManager());
+		Assert.assertEquals(keeperEndOffset, recovered.getKeeperEndOffset());
+		Assert.assertTrue(recovered.checkOk());
+
+		//partial sync from middle of commands
+		Assert.assertEquals(exp.substring(120), readCommandFileTilEnd(120, recovered));
+
+		recovered.appendCommands(Unpooled.wrappedBuffer("after-recover".getBytes()));
+		Assert.assertEquals(keeperEndOffset + "after-recover".length(), recovered.getKeeperEndOffset());
+
+		store.close();
+		recovered.close();
+	}
+
+	@Test
+	public void testCorruptedMeta() throws Exception {
+
+		File baseDir = new File(getTestFileDir());
+		String keeperRunid = randomKeeperRunid();
+		DefaultReplicationStore store = new DefaultReplicationStore(baseDir, new DefaultKeeperConfig(), keeperRunid, createkeeperMonitorManager());
+		store.close();
+
+		File metaFile = new File(baseDir, MetaStore.META_FILE);
+		String meta = org.apache.commons.io.FileUtils.readFileToString(metaFile);
+		org.apache.commons.io.FileUtils.writeStringToFile(metaFile, meta.replaceFirst("\\{", "{ "));
+
+		try {
+			new DefaultReplicationStore(baseDir, new DefaultKeeperConfig(), keeperRunid, createkeeperMonitorManager());
+			Assert.fail();
+		} catch (Exception e) {
+			logger.info("[testCorruptedMeta]{}", e.getMessage());
+		}
+	}
+
+	private void writeHalf(File from, File to) throws IOException {
+
+		byte[] data = org.apache.commons.io.FileUtils.readFileToByteArray(from);
+		byte[] half = new byte[data.length / 2];
+		System.arraycopy(data, 0, half, 0, half.length);
+		org.apache.commons.io.FileUtils.writeByteArrayToFile(to, half);
+	}
 }
@@ -0,0 +1,65 @@
+package com.ctrip.xpipe.redis.keeper.store;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ctrip.xpipe.redis.keeper.AbstractRedisKeeperTest;
+
+/**
+ * @author wenchao.meng
+ *
+ * Jan 16, 2017
+ */
+public class SlaveOffsetWindowTest extends AbstractRedisKeeperTest{
+
+	@Test
+	public void testMinOffsetExpire(){
+
+		SlaveOffsetWindow window = new SlaveOffsetWindow(1000, 10);
+		Assert.assertEquals(SlaveOffsetWindow.NO_OFFSET, window.minOffset(0));
+
+		window.observe(100, 0);
+		window.observe(50, 150);
+		window.observe(200, 160);
+
+		Assert.assertEquals(50, window.minOffset(200));
+		Assert.assertEquals(50, window.minOffset(1050));
+		Assert.assertEquals(SlaveOffsetWindow.NO_OFFSET, window.minOffset(1150));
+
+		window.observe(300, 1150);
+		Assert.assertEquals(300, window.minOffset(1150));
+	}
+
+	@Test
+	public void testQuotaFairShare(){
+
+		ReplicationStoreQuota quota = new ReplicationStoreQuota(1000);
+		quota.update("a", 100);
+		quota.update("b", 600);
+		Assert.assertEquals(Long.MAX_VALUE, quota.allowedBytesPerStore());
+
+		quota.update("c", 600);
+		Assert.assertEquals(450, quota.allowedBytesPerStore());
+
+		quota.remove("c");
+		Assert.assertEquals(Long.MAX_VALUE, quota.allowedBytesPerStore());
+	}
+
+	@Test
+	public void testQuotaShareComputedOnlyWhenStoresChange(){
+
+		ReplicationStoreQuota quota = new ReplicationStoreQuota(1000, Long.MAX_VALUE);
+		quota.update("a", 600);
+		quota.update("b", 600);
+		Assert.assertEquals(500, quota.allowedBytesPerStore());
+
+		//usage of known stores changed, share kept
+		quota.update("a", 300);
+		quota.update("b", 800);
+		Assert.assertEquals(1100, quota.totalUsed());
+		Assert.assertEquals(500, quota.allowedBytesPerStore());
+
+		quota.update("c", 600);
+		Assert.assertEquals(350, quota.allowedBytesPerStore());
+	}
+}
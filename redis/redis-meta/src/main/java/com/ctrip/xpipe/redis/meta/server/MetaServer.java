@@ -1,11 +1,15 @@
 package com.ctrip.xpipe.redis.meta.server;
 
+import java.util.List;
+
 import com.ctrip.xpipe.api.lifecycle.TopElement;
 import com.ctrip.xpipe.redis.core.entity.ClusterMeta;
 import com.ctrip.xpipe.redis.core.entity.KeeperMeta;
 import com.ctrip.xpipe.redis.core.entity.RedisMeta;
+import com.ctrip.xpipe.redis.core.metaserver.MetaServerConsoleService.ClusterChangeInfo;
 import com.ctrip.xpipe.redis.core.metaserver.MetaServerConsoleService.PrimaryDcChangeMessage;
 import com.ctrip.xpipe.redis.core.metaserver.MetaServerConsoleService.PrimaryDcCheckMessage;
+import com.ctrip.xpipe.redis.core.metaserver.MetaServerMultiDcService.UpstreamChangeInfo;
 import com.ctrip.xpipe.redis.meta.server.cluster.ClusterServer;
 import com.ctrip.xpipe.redis.meta.server.rest.ForwardInfo;
 
@@ -28,12 +32,16 @@ public interface MetaServer extends ClusterServer, TopElement{
 
 	void updateUpstream(String clusterId, String shardId, String ip, int port, ForwardInfo forwardInfo) throws Exception;
 
+	void upstreamChanges(List<UpstreamChangeInfo> upstreamChanges, ForwardInfo forwardInfo) throws Exception;
+
 	void clusterAdded(ClusterMeta clusterMeta, ForwardInfo forwardInfo);
 
 	void clusterModified(ClusterMeta clusterMeta, ForwardInfo forwardInfo);
 
 	void clusterDeleted(String clusterId, ForwardInfo forwardInfo);
 
+	void clusterChanges(List<ClusterChangeInfo> clusterChanges, ForwardInfo forwardInfo);
+
 	String getCurrentMeta();
 
 }
@@ -7,6 +7,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * steps of primary dc change may run in parallel and log concurrently
  * @author wenchao.meng
  *
  * Dec 9, 2016
@@ -19,17 +20,17 @@ public class ExecutionLog {
     
 	private StringBuilder log = new StringBuilder();
 	
-	public void info(String message){
+	public synchronized void info(String message){
 		log.append(format("info", message));
 		logger.info("{}", message);
 	}
 
-	public void warn(String message){
+	public synchronized void warn(String message){
 		log.append(format("warn", message));
 		logger.warn("{}", message);
 	}
 
-	public void error(String message){
+	public synchronized void error(String message){
 		log.append(format("error", message));
 		logger.error("{}", message);
 	}
@@ -45,7 +46,7 @@ public class ExecutionLog {
 		return sdf.format(new Date());
 	}
 	
-	public String getLog() {
+	public synchronized String getLog() {
 		return log.toString();
 	}
 }
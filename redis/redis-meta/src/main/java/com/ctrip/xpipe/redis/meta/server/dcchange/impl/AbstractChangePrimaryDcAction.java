@@ -1,15 +1,24 @@
 package com.ctrip.xpipe.redis.meta.server.dcchange.impl;
 
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.unidal.tuple.Pair;
 
+import com.ctrip.xpipe.api.command.CommandFuture;
+import com.ctrip.xpipe.api.command.CommandFutureListener;
+import com.ctrip.xpipe.command.AbstractCommand;
+import com.ctrip.xpipe.command.CommandTimeoutException;
+import com.ctrip.xpipe.command.DefaultCommandFuture;
 import com.ctrip.xpipe.pool.XpipeNettyClientKeyedObjectPool;
 import com.ctrip.xpipe.redis.core.entity.KeeperMeta;
 import com.ctrip.xpipe.redis.core.entity.RedisMeta;
@@ -23,6 +32,8 @@ import com.ctrip.xpipe.redis.meta.server.meta.CurrentMetaManager;
 import com.ctrip.xpipe.redis.meta.server.meta.DcMetaCache;
 
 /**
+ * steps of a shard form a graph of command futures: a step is started by listeners of the steps it depends on,
+ * independent steps run in parallel, and the whole change is bounded by one deadline for each shard
  * @author wenchao.meng
  *
  * Dec 9, 2016
@@ -46,32 +57,98 @@ public abstract class AbstractChangePrimaryDcAction implements ChangePrimaryDcAc
 	protected XpipeNettyClientKeyedObjectPool keyedObjectPool;
 	
 	protected ScheduledExecutorService scheduled;
+	
+	protected ExecutorService executors;
+	
+	protected Deadline deadline;
+	
+	private Queue<CommandFuture<?>> steps = new ConcurrentLinkedQueue<>();
 
-	public AbstractChangePrimaryDcAction(DcMetaCache dcMetaCache, CurrentMetaManager currentMetaManager, SentinelManager sentinelManager, XpipeNettyClientKeyedObjectPool keyedObjectPool, ScheduledExecutorService scheduled) {
+	public AbstractChangePrimaryDcAction(DcMetaCache dcMetaCache, CurrentMetaManager currentMetaManager, SentinelManager sentinelManager, XpipeNettyClientKeyedObjectPool keyedObjectPool, 
+			ExecutorService executors, ScheduledExecutorService scheduled) {
 		this.dcMetaCache = dcMetaCache;
 		this.currentMetaManager = currentMetaManager;
 		this.sentinelManager = sentinelManager;
 		this.keyedObjectPool = keyedObjectPool;
+		this.executors = executors;
 		this.scheduled = scheduled;
 	}
 
 	@Override
 	public PrimaryDcChangeMessage changePrimaryDc(String clusterId, String shardId, String newPrimaryDc) {
 		
+		try {
+			return changePrimaryDcAsync(clusterId, shardId, newPrimaryDc).get();
+		} catch (InterruptedException | ExecutionException e) {
+			return failMessage(clusterId, shardId, newPrimaryDc, e);
+		}
+	}
+
+	/**
+	 * never fails, failures and timeout are reported in the message
+	 */
+	public CommandFuture<PrimaryDcChangeMessage> changePrimaryDcAsync(final String clusterId, final String shardId, final String newPrimaryDc) {
+		
+		deadline = new Deadline(TimeUnit.SECONDS.toMillis(waitTimeoutSeconds));
+		final CommandFuture<PrimaryDcChangeMessage> result = new DefaultCommandFuture<>();
+		
+		scheduled.schedule(new Runnable() {
+			
+			@Override
+			public void run() {
+				if(result.isDone()){
+					return;
+				}
+				for(CommandFuture<?> step : steps){
+					step.cancel(true);
+				}
+				complete(result, failMessage(clusterId, shardId, newPrimaryDc, new CommandTimeoutException("deadline:" + waitTimeoutSeconds + "s")));
+			}
+		}, deadline.remainingMilli(), TimeUnit.MILLISECONDS);
+		
+		final CommandFuture<PrimaryDcChangeMessage> changed;
 		try{
-			return doChangePrimaryDc(clusterId, shardId, newPrimaryDc);
+			changed = doChangePrimaryDc(clusterId, shardId, newPrimaryDc);
 		}catch(Exception e){
-			executionLog.error(e.getMessage());
-			logger.error("[changePrimaryDc]" + clusterId + "," + shardId + "," + newPrimaryDc, e);
-			return new PrimaryDcChangeMessage(PRIMARY_DC_CHANGE_RESULT.FAIL, executionLog.getLog());
+			complete(result, failMessage(clusterId, shardId, newPrimaryDc, e));
+			return result;
+		}
+		
+		changed.addListener(new CommandFutureListener<PrimaryDcChangeMessage>() {
+			
+			@Override
+			public void operationComplete(CommandFuture<PrimaryDcChangeMessage> commandFuture) throws Exception {
+				if(commandFuture.isSuccess()){
+					complete(result, commandFuture.getNow());
+				}else{
+					complete(result, failMessage(clusterId, shardId, newPrimaryDc, commandFuture.cause()));
+				}
+			}
+		});
+		return result;
+	}
+
+	private PrimaryDcChangeMessage failMessage(String clusterId, String shardId, String newPrimaryDc, Throwable th) {
+		
+		executionLog.error(th.getMessage());
+		logger.error("[changePrimaryDc]" + clusterId + "," + shardId + "," + newPrimaryDc, th);
+		return new PrimaryDcChangeMessage(PRIMARY_DC_CHANGE_RESULT.FAIL, executionLog.getLog());
+	}
+
+	private void complete(CommandFuture<PrimaryDcChangeMessage> result, PrimaryDcChangeMessage message) {
+		
+		synchronized (result) {
+			if(!result.isDone()){
+				result.setSuccess(message);
+			}
 		}
 	}
 
-	protected abstract PrimaryDcChangeMessage doChangePrimaryDc(String clusterId, String shardId, String newPrimaryDc);
+	protected abstract CommandFuture<PrimaryDcChangeMessage> doChangePrimaryDc(String clusterId, String shardId, String newPrimaryDc);
 
 	protected abstract void changeSentinel(String clusterId, String shardId, Pair<String, Integer> newMaster);
 
-	protected void makeKeepersOk(String clusterId, String shardId, Pair<String, Integer> newMaster) {
+	protected CommandFuture<Void> makeKeepersOk(String clusterId, String shardId, Pair<String, Integer> newMaster) {
 
 		List<KeeperMeta> keepers = currentMetaManager.getSurviveKeepers(clusterId, shardId);
 		executionLog.info("[makeKeepersOk]" + keepers);
@@ -79,16 +156,174 @@ public abstract class AbstractChangePrimaryDcAction implements ChangePrimaryDcAc
 		KeeperStateChangeJob job = new KeeperStateChangeJob(keepers, 
 				new Pair<String, Integer>(newMaster.getKey(), newMaster.getValue()), 
 				keyedObjectPool, 1000, 1, scheduled);
-		try {
-			job.execute().get(waitTimeoutSeconds/2, TimeUnit.SECONDS);
-			executionLog.info("[makeKeepersOk]success");
-		} catch (InterruptedException | ExecutionException | TimeoutException e) {
-			logger.error("[makeKeepersOk]" + e.getMessage());
-			executionLog.info("[makeKeepersOk][fail]" + e.getMessage());
+		return job.execute();
+	}
+	
+	protected CommandFuture<Void> changeSentinelAsync(final String clusterId, final String shardId, final Pair<String, Integer> newMaster) {
+		
+		return new AbstractCommand<Void>() {
+
+			@Override
+			public String getName() {
+				return "changeSentinel";
+			}
+
+			@Override
+			protected void doExecute() throws Exception {
+				changeSentinel(clusterId, shardId, newMaster);
+				future().setSuccess();
+			}
+
+			@Override
+			protected void doReset() {
+				throw new UnsupportedOperationException();
+			}
+		}.execute(executors);
+	}
+
+	/**
+	 * logs the outcome of the step, the step is cancelled if the deadline passes first
+	 */
+	protected <V> CommandFuture<V> step(final String stepName, CommandFuture<V> future) {
+		
+		steps.add(future);
+		future.addListener(new CommandFutureListener<V>() {
+			
+			@Override
+			public void operationComplete(CommandFuture<V> commandFuture) throws Exception {
+				if(commandFuture.isSuccess()){
+					executionLog.info(String.format("[%s]success", stepName));
+				}else{
+					logger.error("[step]" + stepName, commandFuture.cause());
+					executionLog.error(String.format("[%s][fail]%s", stepName, commandFuture.cause().getMessage()));
+				}
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * next is started once previous succeeds, it fails without being started if previous fails
+	 */
+	protected <V> CommandFuture<V> afterSuccess(final CommandFuture<?> previous, final String stepName, final Callable<CommandFuture<V>> next) {
+		
+		final CommandFuture<V> result = new DefaultCommandFuture<>();
+		onComplete(previous, new Runnable() {
+			
+			@Override
+			public void run() {
+				if(result.isDone()){
+					// cancelled by deadline
+					return;
+				}
+				if(!previous.isSuccess()){
+					result.setFailure(new IllegalStateException("previous step fail, skip:" + stepName, previous.cause()));
+					return;
+				}
+				try {
+					propagate(next.call(), result);
+				} catch (Exception e) {
+					result.setFailure(e);
+				}
+			}
+		});
+		return step(stepName, result);
+	}
+
+	/**
+	 * succeeds when all succeed, fails with the first failure once all are done
+	 */
+	protected CommandFuture<Void> allOf(final CommandFuture<?>... futures) {
+		return combine(false, futures);
+	}
+
+	/**
+	 * succeeds once all are done, whatever their outcome
+	 */
+	protected CommandFuture<Void> allDone(final CommandFuture<?>... futures) {
+		return combine(true, futures);
+	}
+
+	protected <V> CommandFuture<PrimaryDcChangeMessage> toMessage(final CommandFuture<V> future, final Callable<PrimaryDcChangeMessage> onSuccess) {
+		
+		final CommandFuture<PrimaryDcChangeMessage> result = new DefaultCommandFuture<>();
+		onComplete(future, new Runnable() {
+			
+			@Override
+			public void run() {
+				if(!future.isSuccess()){
+					result.setFailure(future.cause());
+					return;
+				}
+				try {
+					result.setSuccess(onSuccess.call());
+				} catch (Exception e) {
+					result.setFailure(e);
+				}
+			}
+		});
+		return result;
+	}
+
+	private CommandFuture<Void> combine(final boolean ignoreFailure, final CommandFuture<?>... futures) {
+		
+		final CommandFuture<Void> result = new DefaultCommandFuture<>();
+		final AtomicInteger remaining = new AtomicInteger(futures.length);
+		if(futures.length == 0){
+			result.setSuccess();
+			return result;
+		}
+		for(CommandFuture<?> future : futures){
+			onComplete(future, new Runnable() {
+				
+				@Override
+				public void run() {
+					if(remaining.decrementAndGet() > 0){
+						return;
+					}
+					for(CommandFuture<?> done : futures){
+						if(!ignoreFailure && !done.isSuccess()){
+							result.setFailure(done.cause());
+							return;
+						}
+					}
+					result.setSuccess();
+				}
+			});
 		}
+		return result;
+	}
+
+	private <V> void propagate(final CommandFuture<V> from, final CommandFuture<V> to) {
+		
+		from.addListener(new CommandFutureListener<V>() {
+			
+			@Override
+			public void operationComplete(CommandFuture<V> commandFuture) throws Exception {
+				if(to.isDone()){
+					return;
+				}
+				if(commandFuture.isSuccess()){
+					to.setSuccess(commandFuture.getNow());
+				}else{
+					to.setFailure(commandFuture.cause());
+				}
+			}
+		});
+	}
+
+	private <V> void onComplete(CommandFuture<V> future, final Runnable action) {
+		
+		future.addListener(new CommandFutureListener<V>() {
+			
+			@Override
+			public void operationComplete(CommandFuture<V> commandFuture) throws Exception {
+				action.run();
+			}
+		});
 	}
 
-	protected abstract void makeRedisesOk(Pair<String, Integer> newMaster, List<RedisMeta> slaves);
+	protected abstract CommandFuture<Void> makeRedisesOk(Pair<String, Integer> newMaster, List<RedisMeta> slaves);
 
 	protected abstract List<RedisMeta> getAllSlaves(Pair<String, Integer> newMaster, List<RedisMeta> shardRedises);
 
@@ -1,6 +1,7 @@
 package com.ctrip.xpipe.redis.meta.server.dcchange.impl;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
@@ -11,6 +12,7 @@ import java.util.concurrent.TimeoutException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.ctrip.xpipe.api.command.CommandFuture;
 import com.ctrip.xpipe.api.pool.SimpleObjectPool;
 import com.ctrip.xpipe.api.server.Server.SERVER_ROLE;
 import com.ctrip.xpipe.netty.commands.NettyClient;
@@ -62,29 +64,33 @@ public abstract class AbstractNewMasterChooser implements NewMasterChooser{
 		return newMaster;
 	}
 
+	/**
+	 * role of all redises are probed in parallel, bounded by CHECK_NEW_MASTER_TIMEOUT_SECONDS in total
+	 */
 	protected List<RedisMeta> getMasters(List<RedisMeta> allRedises) {
 		
-		List<RedisMeta> result = new LinkedList<>();
-		
+		List<CommandFuture<Role>> futures = new ArrayList<>(allRedises.size());
 		for(RedisMeta redisMeta : allRedises){
-			if(isMaster(redisMeta)){
-				result.add(redisMeta);
-			}
+			SimpleObjectPool<NettyClient> clientPool = keyedObjectPool.getKeyPool(new InetSocketAddress(redisMeta.getIp(), redisMeta.getPort()));
+			futures.add(new RoleCommand(clientPool, true, scheduled).execute());
 		}
 		
-		return result;
-	}
-
-	protected boolean isMaster(RedisMeta redisMeta) {
-		
-		try {
-			SimpleObjectPool<NettyClient> clientPool = keyedObjectPool.getKeyPool(new InetSocketAddress(redisMeta.getIp(), redisMeta.getPort()));
-			Role role = new RoleCommand(clientPool, true, scheduled).execute().get(CHECK_NEW_MASTER_TIMEOUT_SECONDS, TimeUnit.SECONDS);
-			return SERVER_ROLE.MASTER == role.getServerRole();
-		} catch (InterruptedException | ExecutionException | TimeoutException e) {
-			logger.error("[isMaster]" + redisMeta, e);
+		List<RedisMeta> result = new LinkedList<>();
+		Deadline deadline = new Deadline(TimeUnit.SECONDS.toMillis(CHECK_NEW_MASTER_TIMEOUT_SECONDS));
+		for(int i=0; i < allRedises.size(); i++){
+			
+			RedisMeta redisMeta = allRedises.get(i);
+			try {
+				Role role = deadline.get(futures.get(i));
+				if(SERVER_ROLE.MASTER == role.getServerRole()){
+					result.add(redisMeta);
+				}
+			} catch (InterruptedException | ExecutionException | TimeoutException e) {
+				logger.error("[getMasters]" + redisMeta, e);
+				futures.get(i).cancel(true);
+			}
 		}
-		return false;
+		return result;
 	}
 
 	protected abstract RedisMeta doChoose(List<RedisMeta> redises);
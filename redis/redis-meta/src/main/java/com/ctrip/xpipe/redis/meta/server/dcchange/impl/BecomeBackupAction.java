@@ -1,12 +1,15 @@
 package com.ctrip.xpipe.redis.meta.server.dcchange.impl;
 
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 
 import org.unidal.tuple.Pair;
 
 import com.ctrip.xpipe.api.command.Command;
+import com.ctrip.xpipe.api.command.CommandFuture;
+import com.ctrip.xpipe.command.DefaultCommandFuture;
 import com.ctrip.xpipe.pool.XpipeNettyClientKeyedObjectPool;
 import com.ctrip.xpipe.redis.core.entity.KeeperMeta;
 import com.ctrip.xpipe.redis.core.entity.RedisMeta;
@@ -29,13 +32,13 @@ public class BecomeBackupAction extends AbstractChangePrimaryDcAction{
 	private MultiDcService multiDcService;
 	
 	public BecomeBackupAction(DcMetaCache dcMetaCache, CurrentMetaManager currentMetaManager, SentinelManager sentinelManager, XpipeNettyClientKeyedObjectPool keyedObjectPool, 
-			MultiDcService multiDcService, ScheduledExecutorService scheduled) {
-		super(dcMetaCache, currentMetaManager, sentinelManager, keyedObjectPool, scheduled);
+			MultiDcService multiDcService, ExecutorService executors, ScheduledExecutorService scheduled) {
+		super(dcMetaCache, currentMetaManager, sentinelManager, keyedObjectPool, executors, scheduled);
 		this.multiDcService = multiDcService;
 	}
 	
 	@Override
-	protected PrimaryDcChangeMessage doChangePrimaryDc(String clusterId, String shardId, String newPrimaryDc) {
+	protected CommandFuture<PrimaryDcChangeMessage> doChangePrimaryDc(String clusterId, String shardId, String newPrimaryDc) {
 		
 		doChangeMetaCache(clusterId, shardId, newPrimaryDc);
 
@@ -44,18 +47,32 @@ public class BecomeBackupAction extends AbstractChangePrimaryDcAction{
 		Pair<String, Integer> newMaster = chooseNewMaster(clusterId, shardId);
 		if(newMaster == null){
 			executionLog.error("[doChangePrimaryDc][new master null]");
-			return new PrimaryDcChangeMessage(PRIMARY_DC_CHANGE_RESULT.FAIL, executionLog.getLog());
+			CommandFuture<PrimaryDcChangeMessage> result = new DefaultCommandFuture<>();
+			result.setSuccess(new PrimaryDcChangeMessage(PRIMARY_DC_CHANGE_RESULT.FAIL, executionLog.getLog()));
+			return result;
 		}
 		executionLog.info(String.format("[chooseNewMaster]%s:%d", newMaster.getKey(), newMaster.getValue()));
 		
-		makeKeepersOk(clusterId, shardId, newMaster);
+		final List<RedisMeta> slaves = getAllSlaves(newMaster, dcMetaCache.getShardRedises(clusterId, shardId));
+		final KeeperMeta activeKeeper = currentMetaManager.getKeeperActive(clusterId, shardId);
 
-		List<RedisMeta> slaves = getAllSlaves(newMaster, dcMetaCache.getShardRedises(clusterId, shardId));
+		CommandFuture<Void> keepersOk = step("makeKeepersOk", makeKeepersOk(clusterId, shardId, newMaster));
+		// redises follow the active keeper only once it no longer replicates from them
+		CommandFuture<Void> redisesOk = afterSuccess(keepersOk, "makeRedisesOk", new Callable<CommandFuture<Void>>() {
 
-		KeeperMeta activeKeeper = currentMetaManager.getKeeperActive(clusterId, shardId);
-		makeRedisesOk(new Pair<>(activeKeeper.getIp(), activeKeeper.getPort()), slaves);
+			@Override
+			public CommandFuture<Void> call() throws Exception {
+				return makeRedisesOk(new Pair<>(activeKeeper.getIp(), activeKeeper.getPort()), slaves);
+			}
+		});
 		
-		return new PrimaryDcChangeMessage(PRIMARY_DC_CHANGE_RESULT.SUCCESS, executionLog.getLog());
+		return toMessage(redisesOk, new Callable<PrimaryDcChangeMessage>() {
+
+			@Override
+			public PrimaryDcChangeMessage call() throws Exception {
+				return new PrimaryDcChangeMessage(PRIMARY_DC_CHANGE_RESULT.SUCCESS, executionLog.getLog());
+			}
+		});
 	}
 
 	@Override
@@ -78,16 +95,11 @@ public class BecomeBackupAction extends AbstractChangePrimaryDcAction{
 	}
 
 	@Override
-	protected void makeRedisesOk(Pair<String, Integer> newMaster, List<RedisMeta> slaves) {
+	protected CommandFuture<Void> makeRedisesOk(Pair<String, Integer> newMaster, List<RedisMeta> slaves) {
 		
-		try {
-			executionLog.info("[makeRedisesOk]" + slaves + "->" + newMaster);
-			Command<Void> command = new TransactionalSlaveOfJob(slaves, newMaster.getKey(), newMaster.getValue(), keyedObjectPool, scheduled);
-			command.execute().get();
-		} catch (InterruptedException | ExecutionException e) {
-			logger.error("[makeRedisesOk]" + slaves, e);
-			executionLog.info("[makeRedisesOk][fail]" + e.getMessage());
-		}
+		executionLog.info("[makeRedisesOk]" + slaves + "->" + newMaster);
+		Command<Void> command = new TransactionalSlaveOfJob(slaves, newMaster.getKey(), newMaster.getValue(), keyedObjectPool, scheduled);
+		return command.execute();
 	}
 
 	@Override
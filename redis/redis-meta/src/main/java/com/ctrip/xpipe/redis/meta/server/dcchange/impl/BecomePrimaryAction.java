@@ -4,15 +4,17 @@ import java.net.InetSocketAddress;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 
 import org.unidal.tuple.Pair;
 
 import com.ctrip.xpipe.api.command.Command;
+import com.ctrip.xpipe.api.command.CommandFuture;
+import com.ctrip.xpipe.api.command.CommandFutureListener;
 import com.ctrip.xpipe.api.pool.SimpleObjectPool;
+import com.ctrip.xpipe.command.DefaultCommandFuture;
 import com.ctrip.xpipe.netty.commands.NettyClient;
 import com.ctrip.xpipe.pool.XpipeNettyClientKeyedObjectPool;
 import com.ctrip.xpipe.redis.core.entity.RedisMeta;
@@ -37,31 +39,54 @@ public class BecomePrimaryAction extends AbstractChangePrimaryDcAction{
 
 	private NewMasterChooser newMasterChooser;
 
-	public BecomePrimaryAction(DcMetaCache dcMetaCache, CurrentMetaManager currentMetaManager, SentinelManager sentinelManager, XpipeNettyClientKeyedObjectPool keyedObjectPool, NewMasterChooser newMasterChooser, ScheduledExecutorService scheduled) {
-		super(dcMetaCache, currentMetaManager, sentinelManager, keyedObjectPool, scheduled);
+	public BecomePrimaryAction(DcMetaCache dcMetaCache, CurrentMetaManager currentMetaManager, SentinelManager sentinelManager, XpipeNettyClientKeyedObjectPool keyedObjectPool, 
+			NewMasterChooser newMasterChooser, ExecutorService executors, ScheduledExecutorService scheduled) {
+		super(dcMetaCache, currentMetaManager, sentinelManager, keyedObjectPool, executors, scheduled);
 		this.newMasterChooser = newMasterChooser;
 	}
 
-	protected PrimaryDcChangeMessage doChangePrimaryDc(String clusterId, String shardId, String newPrimaryDc) {
+	protected CommandFuture<PrimaryDcChangeMessage> doChangePrimaryDc(final String clusterId, final String shardId, String newPrimaryDc) {
 		
 		doChangeMetaCache(clusterId, shardId, newPrimaryDc);
 		
 		executionLog.info(String.format("[chooseNewMaster][begin]"));
-		Pair<String, Integer> newMaster = chooseNewMaster(clusterId, shardId);
+		final Pair<String, Integer> newMaster = chooseNewMaster(clusterId, shardId);
 		executionLog.info(String.format("[chooseNewMaster]%s:%d", newMaster.getKey(), newMaster.getValue()));
 		
-		List<RedisMeta> slaves = getAllSlaves(newMaster, dcMetaCache.getShardRedises(clusterId, shardId));
+		final List<RedisMeta> slaves = getAllSlaves(newMaster, dcMetaCache.getShardRedises(clusterId, shardId));
 		
-		makeRedisesOk(newMaster, slaves);
-		
-		makeKeepersOk(clusterId, shardId, newMaster);
-		
-		changeSentinel(clusterId, shardId, newMaster);
-		
-		return new PrimaryDcChangeMessage(executionLog.getLog(), newMaster.getKey(), newMaster.getValue());
-	}
+		CommandFuture<Void> masterOk = step("make redis master", makeRedisMaster(newMaster));
+		CommandFuture<Void> slavesOk = afterSuccess(masterOk, "make slaves slaveof", new Callable<CommandFuture<Void>>() {
 
+			@Override
+			public CommandFuture<Void> call() throws Exception {
+				return makeRedisesOk(newMaster, slaves);
+			}
+		});
+		CommandFuture<Void> keepersOk = afterSuccess(masterOk, "makeKeepersOk", new Callable<CommandFuture<Void>>() {
 
+			@Override
+			public CommandFuture<Void> call() throws Exception {
+				return makeKeepersOk(clusterId, shardId, newMaster);
+			}
+		});
+		// sentinel monitors the new master only after it is promoted and slaves and keepers follow it
+		CommandFuture<Void> sentinelOk = afterSuccess(allOf(masterOk, allDone(slavesOk, keepersOk)), "addSentinel", new Callable<CommandFuture<Void>>() {
+
+			@Override
+			public CommandFuture<Void> call() throws Exception {
+				return changeSentinelAsync(clusterId, shardId, newMaster);
+			}
+		});
+		
+		return toMessage(sentinelOk, new Callable<PrimaryDcChangeMessage>() {
+
+			@Override
+			public PrimaryDcChangeMessage call() throws Exception {
+				return new PrimaryDcChangeMessage(executionLog.getLog(), newMaster.getKey(), newMaster.getValue());
+			}
+		});
+	}
 
 	@Override
 	protected void changeSentinel(String clusterId, String shardId, Pair<String, Integer> newMaster) {
@@ -76,35 +101,62 @@ public class BecomePrimaryAction extends AbstractChangePrimaryDcAction{
 	}
 
 	
-	@Override
-	protected void makeRedisesOk(Pair<String, Integer> newMaster, List<RedisMeta> slaves) {
+	protected CommandFuture<Void> makeRedisMaster(final Pair<String, Integer> newMaster) {
 		
 		executionLog.info("[make redis master]" + newMaster);
 		
 		SimpleObjectPool<NettyClient> masterPool = keyedObjectPool.getKeyPool(new InetSocketAddress(newMaster.getKey(), newMaster.getValue()));
-		Command<Object[]> command = new TransactionalSlaveOfCommand(masterPool, null, 0, scheduled);
-		try {
-			Object[]result = command.execute().get();
-			executionLog.info("[make redis master]" + StringUtil.join(",", result));
-			
-			MinSlavesRedisReadOnly readonly = new MinSlavesRedisReadOnly(newMaster.getKey(), newMaster.getValue(), keyedObjectPool, scheduled);
-			readonly.makeWritable();
-		} catch (Exception e) {
-			logger.error("[makeRedisesOk]" + newMaster, e);
-			executionLog.error("[make redis master fail]" + e.getMessage());
-			throw new MakeRedisMasterFailException("make redis master:" + newMaster, e);
+		final CommandFuture<Object[]> slaveOfNoOne = new TransactionalSlaveOfCommand(masterPool, null, 0, scheduled).execute();
+		final CommandFuture<Void> result = new DefaultCommandFuture<>();
+		
+		slaveOfNoOne.addListener(new CommandFutureListener<Object[]>() {
+
+			@Override
+			public void operationComplete(CommandFuture<Object[]> commandFuture) throws Exception {
+				
+				if(!commandFuture.isSuccess()){
+					makeRedisMasterFail(newMaster, commandFuture.cause(), result);
+					return;
+				}
+				executionLog.info("[make redis master]" + StringUtil.join(",", commandFuture.getNow()));
+				
+				MinSlavesRedisReadOnly readonly = new MinSlavesRedisReadOnly(newMaster.getKey(), newMaster.getValue(), keyedObjectPool, scheduled);
+				readonly.makeWritableAsync().addListener(new CommandFutureListener<Boolean>() {
+
+					@Override
+					public void operationComplete(CommandFuture<Boolean> commandFuture) throws Exception {
+						if(!commandFuture.isSuccess()){
+							makeRedisMasterFail(newMaster, commandFuture.cause(), result);
+							return;
+						}
+						if(!result.isDone()){
+							result.setSuccess();
+						}
+					}
+				});
+			}
+		});
+		return result;
+	}
+
+	private void makeRedisMasterFail(Pair<String, Integer> newMaster, Throwable th, CommandFuture<Void> result) {
+		
+		logger.error("[makeRedisMaster]" + newMaster, th);
+		executionLog.error("[make redis master fail]" + th.getMessage());
+		if(!result.isDone()){
+			result.setFailure(new MakeRedisMasterFailException("make redis master:" + newMaster, th));
 		}
+	}
+
+	/**
+	 * new master is made by {@link #makeRedisMaster(Pair)} first
+	 */
+	@Override
+	protected CommandFuture<Void> makeRedisesOk(Pair<String, Integer> newMaster, List<RedisMeta> slaves) {
 		
 		executionLog.info("[make slaves slaveof]" + newMaster + "," + slaves);
 		Command<Void> slavesJob = new TransactionalSlaveOfJob(slaves, newMaster.getKey(), newMaster.getValue(), keyedObjectPool, scheduled);
-		try {
-			slavesJob.execute().get(waitTimeoutSeconds, TimeUnit.SECONDS);
-			executionLog.info("[make slaves slaveof]success");
-		} catch (InterruptedException | ExecutionException | TimeoutException e) {
-			logger.error("[makeRedisesOk]" + slaves + "->" + newMaster, e);
-			executionLog.error("[make slaves slaveof][fail]" + e.getMessage());
-			//go on
-		}
+		return slavesJob.execute();
 	}
 
 	@Override
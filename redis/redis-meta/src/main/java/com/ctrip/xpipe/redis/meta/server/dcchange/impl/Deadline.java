@@ -0,0 +1,34 @@
+package com.ctrip.xpipe.redis.meta.server.dcchange.impl;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * one time bound shared by several futures running in parallel
+ * @author wenchao.meng
+ *
+ * Jan 9, 2017
+ */
+public class Deadline {
+	
+	private final long deadlineMilli;
+	
+	public Deadline(long timeoutMilli) {
+		this.deadlineMilli = System.currentTimeMillis() + timeoutMilli;
+	}
+	
+	public long remainingMilli(){
+		return Math.max(0, deadlineMilli - System.currentTimeMillis());
+	}
+	
+	public boolean expired(){
+		return remainingMilli() == 0;
+	}
+	
+	public <V> V get(Future<V> future) throws InterruptedException, ExecutionException, TimeoutException{
+		return future.get(remainingMilli(), TimeUnit.MILLISECONDS);
+	}
+
+}
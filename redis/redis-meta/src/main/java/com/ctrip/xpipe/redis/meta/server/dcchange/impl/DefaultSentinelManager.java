@@ -1,9 +1,11 @@
 package com.ctrip.xpipe.redis.meta.server.dcchange.impl;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeoutException;
 
 import javax.annotation.Resource;
 
@@ -12,6 +14,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import com.ctrip.xpipe.api.command.CommandFuture;
 import com.ctrip.xpipe.api.pool.SimpleObjectPool;
 import com.ctrip.xpipe.netty.commands.NettyClient;
 import com.ctrip.xpipe.pool.XpipeNettyClientKeyedObjectPool;
@@ -29,6 +32,7 @@ import com.ctrip.xpipe.utils.IpUtils;
 import com.ctrip.xpipe.utils.StringUtil;
 
 /**
+ * commands to sentinels are sent in parallel and bounded by one timeout
  * @author wenchao.meng
  *
  * Dec 9, 2016
@@ -38,6 +42,8 @@ public class DefaultSentinelManager implements SentinelManager{
 	
 	private static int DEFAULT_SENTINEL_QUORUM = Integer.parseInt(System.getProperty("DEFAULT_SENTINEL_QUORUM", "3"));
 	
+	private static int SENTINEL_CHANGE_TIMEOUT_MILLI = Integer.parseInt(System.getProperty("SENTINEL_CHANGE_TIMEOUT_MILLI", "3000"));
+	
 	private static Logger logger = LoggerFactory.getLogger(DefaultSentinelManager.class);
 	
 	@Resource(name = MetaServerContextConfig.SCHEDULED_EXECUTOR)
@@ -79,18 +85,33 @@ public class DefaultSentinelManager implements SentinelManager{
 		}
 		
 		int addSize = Math.min(sentinels.size(), quorum + 1);
+		List<CommandFuture<String>> futures = new ArrayList<>(addSize);
 		for(int i=0; i < addSize; i++){
 			
-			InetSocketAddress sentinelAddress =  sentinels.get(i);
-			SimpleObjectPool<NettyClient> clientPool = keyedClientPool.getKeyPool(sentinelAddress);
+			SimpleObjectPool<NettyClient> clientPool = keyedClientPool.getKeyPool(sentinels.get(i));
 			SentinelAdd command = new SentinelAdd(clientPool, sentinelMonitorName, redisMaster.getIp(), redisMaster.getPort(), quorum, scheduled);
+			futures.add(command.execute());
+		}
+		
+		AddSentinelException exception = null;
+		Deadline deadline = new Deadline(SENTINEL_CHANGE_TIMEOUT_MILLI);
+		for(int i=0; i < addSize; i++){
+			
+			InetSocketAddress sentinelAddress =  sentinels.get(i);
 			try {
-				String result = command.execute().get();
+				String result = deadline.get(futures.get(i));
 				executionLog.info(String.format("add to sentinel %s : %s", sentinelAddress, result));
-			} catch (InterruptedException | ExecutionException e) {
-				throw new AddSentinelException(sentinelAddress, clusterId, shardId, redisMaster.getIp(), redisMaster.getPort(), e);
+			} catch (InterruptedException | ExecutionException | TimeoutException e) {
+				executionLog.error(String.format("add to sentinel %s : %s", sentinelAddress, e.getMessage()));
+				if(exception == null){
+					exception = new AddSentinelException(sentinelAddress, clusterId, shardId, redisMaster.getIp(), redisMaster.getPort(), e);
+				}
 			}
 		}
+		
+		if(exception != null){
+			throw exception;
+		}
 	}
 
 	private boolean checkEmpty(String sentinelMonitorName, String allSentinels, ExecutionLog executionLog) {
@@ -128,41 +149,59 @@ public class DefaultSentinelManager implements SentinelManager{
 		
 		executionLog.info(String.format("removeSentinel realSentinels:%s", realSentinels));
 		
+		List<CommandFuture<String>> futures = new ArrayList<>(realSentinels.size());
 		for(Sentinel sentinel : realSentinels){
 			
 			SimpleObjectPool<NettyClient> clientPool = keyedClientPool.getKeyPool(new InetSocketAddress(sentinel.getIp(), sentinel.getPort()));
 			SentinelRemove sentinelRemove = new SentinelRemove(clientPool, sentinelMonitorName, scheduled);
+			futures.add(sentinelRemove.execute());
+		}
+		
+		Deadline deadline = new Deadline(SENTINEL_CHANGE_TIMEOUT_MILLI);
+		for(int i=0; i < realSentinels.size(); i++){
+			
+			Sentinel sentinel = realSentinels.get(i);
 			try {
-				String result = sentinelRemove.execute().get();
+				String result = deadline.get(futures.get(i));
 				executionLog.info(String.format("removeSentinel %s from %s : %s", sentinelMonitorName, sentinel, result));
-			} catch (InterruptedException | ExecutionException e) {
+			} catch (InterruptedException | ExecutionException | TimeoutException e) {
 				executionLog.info(String.format("removeSentinel %s from %s : %s", sentinelMonitorName, sentinel, e.getMessage()));
 				logger.warn("[removeSentinel]" + sentinel, e);
 			}
 		}
 	}
 
+	/**
+	 * all sentinels are asked in parallel, the first one in configured order which knows the monitor name wins
+	 */
 	private List<Sentinel> getRealSentinels(List<InetSocketAddress> sentinels, String sentinelMonitorName, ExecutionLog executionLog) {
 		
-		List<Sentinel> realSentinels = null;
+		List<CommandFuture<List<Sentinel>>> futures = new ArrayList<>(sentinels.size());
 		for(InetSocketAddress sentinelAddress: sentinels){
 			
 			SimpleObjectPool<NettyClient> clientPool = keyedClientPool.getKeyPool(sentinelAddress);
 			Sentinels sentinelsCommand = new Sentinels(clientPool, sentinelMonitorName, scheduled);
+			futures.add(sentinelsCommand.execute());
+		}
+		
+		List<Sentinel> realSentinels = null;
+		Deadline deadline = new Deadline(SENTINEL_CHANGE_TIMEOUT_MILLI);
+		for(int i=0; i < sentinels.size(); i++){
+			
+			InetSocketAddress sentinelAddress = sentinels.get(i);
 			try {
-				realSentinels = sentinelsCommand.execute().get();
+				realSentinels = deadline.get(futures.get(i));
 				executionLog.info(String.format("get sentinels from %s : %s", sentinelAddress, realSentinels));
 				if(realSentinels.size() > 0){
 					realSentinels.add(new Sentinel(sentinelAddress.toString(), sentinelAddress.getHostString(), sentinelAddress.getPort()));
 					break;
 				}
-			} catch (InterruptedException | ExecutionException e) {
+			} catch (InterruptedException | ExecutionException | TimeoutException e) {
 				logger.warn("[getRealSentinels]get sentinels from " + sentinelAddress, e);
 				executionLog.warn("[getRealSentinels]get sentinels from " + sentinelAddress + "," + e.getMessage());
 			}
 		}
 		
-		
 		return realSentinels;
 	}
 
@@ -1,10 +1,14 @@
 package com.ctrip.xpipe.redis.meta.server.dcchange.impl;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import com.ctrip.xpipe.api.command.CommandFuture;
 import com.ctrip.xpipe.api.pool.SimpleObjectPool;
 import com.ctrip.xpipe.netty.commands.NettyClient;
 import com.ctrip.xpipe.pool.XpipeNettyClientKeyedObjectPool;
@@ -12,7 +16,7 @@ import com.ctrip.xpipe.redis.core.entity.RedisMeta;
 import com.ctrip.xpipe.redis.core.protocal.cmd.PingCommand;
 
 /**
- * choose first configed alive slave in console
+ * choose first configed alive slave in console, all slaves are pinged in parallel
  * @author wenchao.meng
  *
  * Dec 9, 2016
@@ -27,21 +31,32 @@ public class FirstNewMasterChooser extends AbstractNewMasterChooser{
 	@Override
 	protected RedisMeta doChoose(List<RedisMeta> redises) {
 		
+		List<CommandFuture<String>> futures = new ArrayList<>(redises.size());
 		for(RedisMeta redisMeta : redises){
-			if(isAlive(redisMeta)){
-				return redisMeta;
+			SimpleObjectPool<NettyClient> clientPool = keyedObjectPool.getKeyPool(new InetSocketAddress(redisMeta.getIp(), redisMeta.getPort())); 
+			futures.add(new PingCommand(clientPool, scheduled).execute());
+		}
+		
+		RedisMeta result = null;
+		Deadline deadline = new Deadline(TimeUnit.SECONDS.toMillis(CHECK_NEW_MASTER_TIMEOUT_SECONDS));
+		for(int i=0; i < redises.size(); i++){
+			
+			RedisMeta redisMeta = redises.get(i);
+			if(result == null && isAlive(redisMeta, futures.get(i), deadline)){
+				result = redisMeta;
+				continue;
 			}
+			futures.get(i).cancel(true);
 		}
-		return null;
+		return result;
 	}
 
-	private boolean isAlive(RedisMeta redisMeta) {
+	private boolean isAlive(RedisMeta redisMeta, CommandFuture<String> future, Deadline deadline) {
 		
-		SimpleObjectPool<NettyClient> clientPool = keyedObjectPool.getKeyPool(new InetSocketAddress(redisMeta.getIp(), redisMeta.getPort())); 
 		try {
-			new PingCommand(clientPool, scheduled).execute().get();
+			deadline.get(future);
 			return true;
-		} catch (InterruptedException | ExecutionException e) {
+		} catch (InterruptedException | ExecutionException | TimeoutException e) {
 			logger.info("[isAlive]" + redisMeta, e);
 		}
 		return false;
@@ -6,6 +6,7 @@ import java.util.concurrent.ScheduledExecutorService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.ctrip.xpipe.api.command.CommandFuture;
 import com.ctrip.xpipe.pool.XpipeNettyClientKeyedObjectPool;
 import com.ctrip.xpipe.redis.core.protocal.cmd.ConfigSetCommand.ConfigSetMinSlavesToWrite;
 import com.ctrip.xpipe.redis.meta.server.dcchange.RedisReadonly;
@@ -50,9 +51,14 @@ public class MinSlavesRedisReadOnly implements RedisReadonly{
 	@Override
 	public void makeWritable() throws Exception {
 		
-		ConfigSetMinSlavesToWrite command = new ConfigSetMinSlavesToWrite(keyedObjectPool.getKeyPool(new InetSocketAddress(ip, port)), WRITABLE_NUMBER, scheduled);
-		Boolean result = command.execute().get();
+		Boolean result = makeWritableAsync().get();
 		logger.info("[makeWritable]{}:{}, {}", ip, port, result);
 	}
 
+	public CommandFuture<Boolean> makeWritableAsync() {
+		
+		ConfigSetMinSlavesToWrite command = new ConfigSetMinSlavesToWrite(keyedObjectPool.getKeyPool(new InetSocketAddress(ip, port)), WRITABLE_NUMBER, scheduled);
+		return command.execute();
+	}
+
 }
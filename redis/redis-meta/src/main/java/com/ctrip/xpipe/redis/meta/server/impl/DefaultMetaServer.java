@@ -1,5 +1,6 @@
 package com.ctrip.xpipe.redis.meta.server.impl;
 
+import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.ScheduledExecutorService;
 
@@ -14,9 +15,11 @@ import com.ctrip.xpipe.pool.XpipeNettyClientKeyedObjectPool;
 import com.ctrip.xpipe.redis.core.entity.ClusterMeta;
 import com.ctrip.xpipe.redis.core.entity.KeeperMeta;
 import com.ctrip.xpipe.redis.core.entity.RedisMeta;
+import com.ctrip.xpipe.redis.core.metaserver.MetaServerConsoleService.ClusterChangeInfo;
 import com.ctrip.xpipe.redis.core.metaserver.MetaServerConsoleService.PRIMARY_DC_CHECK_RESULT;
 import com.ctrip.xpipe.redis.core.metaserver.MetaServerConsoleService.PrimaryDcChangeMessage;
 import com.ctrip.xpipe.redis.core.metaserver.MetaServerConsoleService.PrimaryDcCheckMessage;
+import com.ctrip.xpipe.redis.core.metaserver.MetaServerMultiDcService.UpstreamChangeInfo;
 import com.ctrip.xpipe.redis.meta.server.MetaServer;
 import com.ctrip.xpipe.redis.meta.server.cluster.impl.DefaultCurrentClusterServer;
 import com.ctrip.xpipe.redis.meta.server.config.MetaServerConfig;
@@ -154,6 +157,23 @@ public class DefaultMetaServer extends DefaultCurrentClusterServer implements Me
 		dcMetaCache.clusterDeleted(clusterId);
 	}
 
+	@Override
+	public void clusterChanges(List<ClusterChangeInfo> clusterChanges, ForwardInfo forwardInfo) {
+
+		List<ClusterMeta> modified = new LinkedList<>();
+		List<String> deleted = new LinkedList<>();
+		for(ClusterChangeInfo clusterChange : clusterChanges){
+			if(clusterChange.getClusterMeta() == null){
+				deleted.add(clusterChange.getClusterId());
+			}else{
+				modified.add(clusterChange.getClusterMeta());
+			}
+		}
+
+		logger.info("[clusterChanges]modified:{}, deleted:{}", modified.size(), deleted.size());
+		dcMetaCache.clustersChanged(modified, deleted);
+	}
+
 	@Override
 	public void updateUpstream(String clusterId, String shardId, String ip, int port, ForwardInfo forwardInfo)
 			throws Exception {
@@ -168,6 +188,16 @@ public class DefaultMetaServer extends DefaultCurrentClusterServer implements Me
 		}
 	}
 
+	@Override
+	public void upstreamChanges(List<UpstreamChangeInfo> upstreamChanges, ForwardInfo forwardInfo) throws Exception {
+
+		logger.info("[upstreamChanges]{}, {}", upstreamChanges.size(), forwardInfo);
+		for(UpstreamChangeInfo upstreamChange : upstreamChanges){
+			updateUpstream(upstreamChange.getClusterId(), upstreamChange.getShardId(), upstreamChange.getIp(),
+					upstreamChange.getPort(), forwardInfo);
+		}
+	}
+
 	@Override
 	public PrimaryDcCheckMessage changePrimaryDcCheck(String clusterId, String shardId, String newPrimaryDc,
 			ForwardInfo forwardInfo) {
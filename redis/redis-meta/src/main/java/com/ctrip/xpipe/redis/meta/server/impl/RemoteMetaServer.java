@@ -1,17 +1,23 @@
 package com.ctrip.xpipe.redis.meta.server.impl;
 
+import java.util.List;
+
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
 
 import com.ctrip.xpipe.api.codec.Codec;
 import com.ctrip.xpipe.redis.core.entity.ClusterMeta;
 import com.ctrip.xpipe.redis.core.entity.KeeperMeta;
 import com.ctrip.xpipe.redis.core.entity.RedisMeta;
 import com.ctrip.xpipe.redis.core.metaserver.META_SERVER_SERVICE;
+import com.ctrip.xpipe.redis.core.metaserver.MetaServerConsoleService.ClusterChangeInfo;
 import com.ctrip.xpipe.redis.core.metaserver.MetaServerConsoleService.PrimaryDcChangeMessage;
 import com.ctrip.xpipe.redis.core.metaserver.MetaServerConsoleService.PrimaryDcCheckMessage;
+import com.ctrip.xpipe.redis.core.metaserver.MetaServerMultiDcService.UpstreamChangeInfo;
 import com.ctrip.xpipe.redis.core.metaserver.MetaServerService;
 import com.ctrip.xpipe.redis.meta.server.MetaServer;
 import com.ctrip.xpipe.redis.meta.server.cluster.ClusterServerInfo;
@@ -28,7 +34,9 @@ import com.ctrip.xpipe.rest.ForwardType;
 public class RemoteMetaServer extends AbstractRemoteClusterServer implements MetaServer{
 	
 	private String changeClusterPath;
+	private String changeClusterBatchPath;
 	private String upstreamChangePath;
+	private String upstreamChangeBatchPath;
 	private String getActiveKeeperPath;
 	private String changePrimaryDcCheckPath;
 	private String makeMasterReadonlyPath;
@@ -43,7 +51,9 @@ public class RemoteMetaServer extends AbstractRemoteClusterServer implements Met
 				
 		if(getHttpHost() != null){
 			changeClusterPath = META_SERVER_SERVICE.CLUSTER_CHANGE.getRealPath(getHttpHost());
+			changeClusterBatchPath = META_SERVER_SERVICE.CLUSTER_CHANGE_BATCH.getRealPath(getHttpHost());
 			upstreamChangePath = META_SERVER_SERVICE.UPSTREAM_CHANGE.getRealPath(getHttpHost());
+			upstreamChangeBatchPath = META_SERVER_SERVICE.UPSTREAM_CHANGE_BATCH.getRealPath(getHttpHost());
 			getActiveKeeperPath = META_SERVER_SERVICE.GET_ACTIVE_KEEPER.getRealPath(getHttpHost());
 			changePrimaryDcCheckPath = META_SERVER_SERVICE.CHANGE_PRIMARY_DC_CHECK.getRealPath(getHttpHost());
 			makeMasterReadonlyPath = META_SERVER_SERVICE.MAKE_MASTER_READONLY.getRealPath(getHttpHost());
@@ -99,6 +109,33 @@ public class RemoteMetaServer extends AbstractRemoteClusterServer implements Met
 		restTemplate.exchange(changeClusterPath, HttpMethod.DELETE, entity, String.class, clusterId);
 	}
 
+	@Override
+	public void clusterChanges(List<ClusterChangeInfo> clusterChanges, ForwardInfo forwardInfo) {
+
+		ForwardInfo rawForwardInfo = forwardInfo == null ? null : forwardInfo.clone();
+		HttpHeaders headers = checkCircularAndGetHttpHeaders(forwardInfo, META_SERVER_SERVICE.CLUSTER_CHANGE_BATCH.getForwardType());
+		logger.info("[clusterChanges][forward]{},{} --> {}", clusterChanges.size(), forwardInfo, this);
+		
+		HttpEntity<List<ClusterChangeInfo>> entity = new HttpEntity<>(clusterChanges, headers);
+		try{
+			restTemplate.exchange(changeClusterBatchPath, HttpMethod.PUT, entity, String.class);
+		}catch(HttpClientErrorException e){
+			if(e.getStatusCode() != HttpStatus.NOT_FOUND && e.getStatusCode() != HttpStatus.METHOD_NOT_ALLOWED){
+				throw e;
+			}
+			//server not upgraded yet
+			logger.warn("[clusterChanges][batch not supported, fall back to per cluster]{}, {}", this, e.getStatusCode());
+			for(ClusterChangeInfo clusterChange : clusterChanges){
+				ForwardInfo clusterForwardInfo = rawForwardInfo == null ? null : rawForwardInfo.clone();
+				if(clusterChange.getClusterMeta() == null){
+					clusterDeleted(clusterChange.getClusterId(), clusterForwardInfo);
+				}else{
+					clusterModified(clusterChange.getClusterMeta(), clusterForwardInfo);
+				}
+			}
+		}
+	}
+
 	@Override
 	public void updateUpstream(String clusterId, String shardId, String ip, int port, ForwardInfo forwardInfo)
 			throws Exception {
@@ -111,6 +148,16 @@ public class RemoteMetaServer extends AbstractRemoteClusterServer implements Met
 		
 	}
 	
+	@Override
+	public void upstreamChanges(List<UpstreamChangeInfo> upstreamChanges, ForwardInfo forwardInfo) throws Exception {
+
+		HttpHeaders headers = checkCircularAndGetHttpHeaders(forwardInfo, META_SERVER_SERVICE.UPSTREAM_CHANGE_BATCH.getForwardType());
+		logger.info("[upstreamChanges][forward]{}, {} --> {}", upstreamChanges.size(), forwardInfo, this);
+
+		HttpEntity<List<UpstreamChangeInfo>> entity = new HttpEntity<>(upstreamChanges, headers);
+		restTemplate.exchange(upstreamChangeBatchPath, HttpMethod.PUT, entity, String.class);
+	}
+
 	@Override
 	public PrimaryDcCheckMessage changePrimaryDcCheck(String clusterId, String shardId, String newPrimaryDc,
 			ForwardInfo forwardInfo) {
@@ -1,7 +1,12 @@
 package com.ctrip.xpipe.redis.meta.server.keeper.manager;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -10,6 +15,7 @@ import java.util.concurrent.TimeUnit;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.ResourceAccessException;
+import org.unidal.tuple.Pair;
 
 import com.ctrip.xpipe.api.lifecycle.TopElement;
 import com.ctrip.xpipe.redis.core.entity.ClusterMeta;
@@ -21,19 +27,21 @@ import com.ctrip.xpipe.redis.core.meta.MetaComparator;
 import com.ctrip.xpipe.redis.core.meta.MetaComparatorVisitor;
 import com.ctrip.xpipe.redis.core.meta.comparator.ClusterMetaComparator;
 import com.ctrip.xpipe.redis.core.meta.comparator.ShardMetaComparator;
+import com.ctrip.xpipe.redis.meta.server.MetaServerStateChangeHandler;
 import com.ctrip.xpipe.redis.meta.server.keeper.KeeperManager;
 import com.ctrip.xpipe.redis.meta.server.keeper.KeeperStateController;
 import com.ctrip.xpipe.redis.meta.server.keeper.impl.AbstractCurrentMetaObserver;
-import com.ctrip.xpipe.utils.ObjectUtils;
 import com.ctrip.xpipe.utils.XpipeThreadFactory;
 
 /**
+ * dead keepers are only checked for shards whose keepers or survive keepers changed,
+ * shards with dead keepers are checked again until all keepers alive
  * @author wenchao.meng
  *
  *         Sep 4, 2016
  */
 @Component
-public class DefaultKeeperManager extends AbstractCurrentMetaObserver implements KeeperManager, TopElement {
+public class DefaultKeeperManager extends AbstractCurrentMetaObserver implements KeeperManager, MetaServerStateChangeHandler, TopElement {
 
 	private int deadKeeperCheckIntervalMilli = Integer
 			.parseInt(System.getProperty("deadKeeperCheckIntervalMilli", "30000"));
@@ -45,6 +53,8 @@ public class DefaultKeeperManager extends AbstractCurrentMetaObserver implements
 
 	private ScheduledFuture<?> deadCheckFuture;
 
+	private Set<Pair<String, String>> toCheckShards = Collections.newSetFromMap(new ConcurrentHashMap<Pair<String, String>, Boolean>());
+
 	@Override
 	protected void doInitialize() throws Exception {
 		super.doInitialize();
@@ -57,6 +67,9 @@ public class DefaultKeeperManager extends AbstractCurrentMetaObserver implements
 	protected void doStart() throws Exception {
 		super.doStart();
 
+		for (String clusterId : currentMetaManager.allClusters()) {
+			markClusterToCheck(currentMetaManager.getClusterMeta(clusterId));
+		}
 		deadCheckFuture = scheduled.scheduleWithFixedDelay(new DeadKeeperChecker(), deadKeeperCheckIntervalMilli,
 				deadKeeperCheckIntervalMilli, TimeUnit.MILLISECONDS);
 
@@ -87,12 +100,38 @@ public class DefaultKeeperManager extends AbstractCurrentMetaObserver implements
 	protected void handleClusterDeleted(ClusterMeta clusterMeta) {
 
 		for (ShardMeta shardMeta : clusterMeta.getShards().values()) {
+			toCheckShards.remove(new Pair<>(clusterMeta.getId(), shardMeta.getId()));
 			for (KeeperMeta keeperMeta : shardMeta.getKeepers()) {
 				removeKeeper(clusterMeta.getId(), shardMeta.getId(), keeperMeta);
 			}
 		}
 	}
 
+	@Override
+	public void keeperActiveElected(String clusterId, String shardId, KeeperMeta activeKeeper) throws Exception {
+		//survive keepers changed
+		markShardToCheck(clusterId, shardId);
+	}
+
+	@Override
+	public void keeperMasterChanged(String clusterId, String shardId, Pair<String, Integer> newMaster) {
+		//nothing to do
+	}
+
+	protected void markShardToCheck(String clusterId, String shardId) {
+		toCheckShards.add(new Pair<>(clusterId, shardId));
+	}
+
+	protected void markClusterToCheck(ClusterMeta clusterMeta) {
+
+		if (clusterMeta == null) {
+			return;
+		}
+		for (ShardMeta shardMeta : clusterMeta.getShards().values()) {
+			markShardToCheck(clusterMeta.getId(), shardMeta.getId());
+		}
+	}
+
 	private void removeKeeper(String clusterId, String shardId, KeeperMeta keeperMeta) {
 		try {
 			keeperStateController.removeKeeper(new KeeperTransMeta(clusterId, shardId, keeperMeta));
@@ -112,6 +151,7 @@ public class DefaultKeeperManager extends AbstractCurrentMetaObserver implements
 	@Override
 	protected void handleClusterAdd(ClusterMeta clusterMeta) {
 
+		markClusterToCheck(clusterMeta);
 		for (ShardMeta shardMeta : clusterMeta.getShards().values()) {
 			for (KeeperMeta keeperMeta : shardMeta.getKeepers()) {
 				addKeeper(clusterMeta.getId(), shardMeta.getId(), keeperMeta);
@@ -121,23 +161,28 @@ public class DefaultKeeperManager extends AbstractCurrentMetaObserver implements
 
 	protected List<KeeperMeta> getDeadKeepers(List<KeeperMeta> allKeepers, List<KeeperMeta> aliveKeepers) {
 
+		Set<Pair<String, Integer>> alives = new HashSet<>();
+		for (KeeperMeta aliveOne : aliveKeepers) {
+			alives.add(new Pair<>(aliveOne.getIp(), aliveOne.getPort()));
+		}
+
 		List<KeeperMeta> result = new LinkedList<>();
 		for (KeeperMeta allOne : allKeepers) {
-			boolean alive = false;
-			for (KeeperMeta aliveOne : aliveKeepers) {
-				if (ObjectUtils.equals(aliveOne.getIp(), allOne.getIp())
-						&& ObjectUtils.equals(aliveOne.getPort(), allOne.getPort())) {
-					alive = true;
-					break;
-				}
-			}
-			if (!alive) {
+			if (!alives.contains(new Pair<>(allOne.getIp(), allOne.getPort()))) {
 				result.add(allOne);
 			}
 		}
 		return result;
 	}
 
+	public void setKeeperStateController(KeeperStateController keeperStateController) {
+		this.keeperStateController = keeperStateController;
+	}
+
+	protected Set<Pair<String, String>> getToCheckShards() {
+		return toCheckShards;
+	}
+
 	public class DeadKeeperChecker implements Runnable {
 
 		@Override
@@ -151,29 +196,45 @@ public class DefaultKeeperManager extends AbstractCurrentMetaObserver implements
 
 		}
 
-		private void doCheck() {
+		protected void doCheck() {
 
-			for (String clusterId : currentMetaManager.allClusters()) {
+			List<Pair<String, String>> shards = new LinkedList<>();
+			Iterator<Pair<String, String>> iterator = toCheckShards.iterator();
+			while (iterator.hasNext()) {
+				shards.add(iterator.next());
+				iterator.remove();
+			}
+
+			for (Pair<String, String> shard : shards) {
+
+				String clusterId = shard.getKey();
+				String shardId = shard.getValue();
+				if (!currentMetaManager.hasCluster(clusterId)) {
+					continue;
+				}
 				ClusterMeta clusterMeta = currentMetaManager.getClusterMeta(clusterId);
-				for (ShardMeta shardMeta : clusterMeta.getShards().values()) {
+				ShardMeta shardMeta = clusterMeta == null ? null : clusterMeta.getShards().get(shardId);
+				if (shardMeta == null) {
+					continue;
+				}
 
-					String shardId = shardMeta.getId();
-					List<KeeperMeta> allKeepers = shardMeta.getKeepers();
-					List<KeeperMeta> aliveKeepers = currentMetaManager.getSurviveKeepers(clusterId, shardId);
-					List<KeeperMeta> deadKeepers = getDeadKeepers(allKeepers, aliveKeepers);
+				List<KeeperMeta> allKeepers = shardMeta.getKeepers();
+				List<KeeperMeta> aliveKeepers = currentMetaManager.getSurviveKeepers(clusterId, shardId);
+				List<KeeperMeta> deadKeepers = getDeadKeepers(allKeepers, aliveKeepers);
 
-					if (deadKeepers.size() > 0) {
-						logger.info("[doCheck][dead keepers]{}", deadKeepers);
-					}
-					for (KeeperMeta deadKeeper : deadKeepers) {
-						try {
-							keeperStateController.addKeeper(new KeeperTransMeta(clusterId, shardId, deadKeeper));
-						} catch (ResourceAccessException e) {
-							logger.error(String.format("cluster:%s,shard:%s, keeper:%s, error:%s", clusterId, shardId,
-									deadKeeper, e.getMessage()));
-						} catch (Throwable th) {
-							logger.error("[doCheck]", th);
-						}
+				if (deadKeepers.size() > 0) {
+					logger.info("[doCheck][dead keepers]{}", deadKeepers);
+					//check again until keepers alive
+					markShardToCheck(clusterId, shardId);
+				}
+				for (KeeperMeta deadKeeper : deadKeepers) {
+					try {
+						keeperStateController.addKeeper(new KeeperTransMeta(clusterId, shardId, deadKeeper));
+					} catch (ResourceAccessException e) {
+						logger.error(String.format("cluster:%s,shard:%s, keeper:%s, error:%s", clusterId, shardId,
+								deadKeeper, e.getMessage()));
+					} catch (Throwable th) {
+						logger.error("[doCheck]", th);
 					}
 				}
 			}
@@ -191,6 +252,7 @@ public class DefaultKeeperManager extends AbstractCurrentMetaObserver implements
 		@Override
 		public void visitAdded(ShardMeta added) {
 			logger.info("[visitAdded][add shard]{}", added);
+			markShardToCheck(clusterId, added.getId());
 			for (KeeperMeta keeperMeta : added.getKeepers()) {
 				addKeeper(clusterId, added.getId(), keeperMeta);
 			}
@@ -227,6 +289,7 @@ public class DefaultKeeperManager extends AbstractCurrentMetaObserver implements
 		public void visitAdded(Redis added) {
 
 			if (added instanceof KeeperMeta) {
+				markShardToCheck(clusterId, shardId);
 				addKeeper(clusterId, shardId, (KeeperMeta) added);
 			} else {
 				logger.debug("[visitAdded][do nothng]{}", added);
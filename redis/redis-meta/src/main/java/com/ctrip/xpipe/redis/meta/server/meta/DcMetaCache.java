@@ -47,6 +47,13 @@ public interface DcMetaCache extends Observable {
 	void clusterModified(ClusterMeta clusterMeta);
 
 	void clusterDeleted(String clusterId);
+
+	/**
+	 * apply all changes and notify observers once
+	 * @param modified clusters added or modified
+	 * @param deleted
+	 */
+	void clustersChanged(List<ClusterMeta> modified, List<String> deleted);
 	
 	void primaryDcChanged(String clusterId, String shardId, String newPrimaryDc);
 }
@@ -1,6 +1,7 @@
 package com.ctrip.xpipe.redis.meta.server.meta.impl;
 
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Executors;
@@ -188,6 +189,34 @@ public class DefaultDcMetaCache extends AbstractLifecycleObservable implements D
 		notifyObservers(dcMetaComparator);
 	}
 
+	@Override
+	public void clustersChanged(List<ClusterMeta> modified, List<String> deleted) {
+
+		DcMetaManager metaManager = dcMetaManager.get();
+		List<ClusterMeta> currents = new ArrayList<>();
+		List<ClusterMeta> futures = new ArrayList<>();
+
+		for(ClusterMeta clusterMeta : modified){
+			currents.add(metaManager.getClusterMeta(clusterMeta.getId()));
+			metaManager.update(clusterMeta);
+			futures.add(clusterMeta);
+		}
+
+		for(String clusterId : deleted){
+			ClusterMeta clusterMeta = metaManager.removeCluster(clusterId);
+			if(clusterMeta == null){
+				logger.info("[clustersChanged][cluster already deleted]{}", clusterId);
+				continue;
+			}
+			currents.add(clusterMeta);
+			futures.add(null);
+		}
+
+		logger.info("[clustersChanged]modified:{}, deleted:{}", modified.size(), deleted);
+		DcMetaComparator dcMetaComparator = DcMetaComparator.buildClustersChanged(currents, futures);
+		notifyObservers(dcMetaComparator);
+	}
+
 	@Override
 	public String getCurrentDc() {
 		return currentDc;
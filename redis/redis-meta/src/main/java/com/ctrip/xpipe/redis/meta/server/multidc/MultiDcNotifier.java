@@ -1,9 +1,19 @@
 package com.ctrip.xpipe.redis.meta.server.multidc;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Resource;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,13 +24,17 @@ import com.ctrip.xpipe.concurrent.AbstractExceptionLogTask;
 import com.ctrip.xpipe.redis.core.entity.KeeperMeta;
 import com.ctrip.xpipe.redis.core.meta.DcInfo;
 import com.ctrip.xpipe.redis.core.metaserver.MetaServerMultiDcService;
+import com.ctrip.xpipe.redis.core.metaserver.MetaServerMultiDcService.UpstreamChangeInfo;
 import com.ctrip.xpipe.redis.core.metaserver.MetaServerMultiDcServiceManager;
 import com.ctrip.xpipe.redis.meta.server.MetaServerStateChangeHandler;
 import com.ctrip.xpipe.redis.meta.server.config.MetaServerConfig;
 import com.ctrip.xpipe.redis.meta.server.meta.DcMetaCache;
+import com.ctrip.xpipe.redis.meta.server.spring.MetaServerContextConfig;
 import com.ctrip.xpipe.utils.XpipeThreadFactory;
 
 /**
+ * upstream changes are queued per backup dc, coalesced per shard(only the latest one is sent),
+ * and sent to backup dc in batch; after failures the next flush backs off exponentially
  * @author wenchao.meng
  *
  *         Nov 3, 2016
@@ -29,17 +43,45 @@ public class MultiDcNotifier implements MetaServerStateChangeHandler {
 
 	protected Logger logger = LoggerFactory.getLogger(getClass());
 
+	private int flushIntervalMilli = Integer.parseInt(System.getProperty("MULTI_DC_NOTIFY_FLUSH_INTERVAL_MILLI", "100"));
+
+	private int maxBatchSize = Integer.parseInt(System.getProperty("MULTI_DC_NOTIFY_MAX_BATCH_SIZE", "500"));
+
+	private int maxRetryTimes = Integer.parseInt(System.getProperty("MULTI_DC_NOTIFY_MAX_RETRY_TIMES", "5"));
+
+	private int maxRetryIntervalMilli = Integer.parseInt(System.getProperty("MULTI_DC_NOTIFY_MAX_RETRY_INTERVAL_MILLI", "10000"));
+
 	@Autowired
 	private MetaServerConfig metaServerConfig;
 
 	private ExecutorService executors = Executors.newCachedThreadPool(XpipeThreadFactory.create("MultiDcNotifier"));
 
+	@Resource(name = MetaServerContextConfig.SCHEDULED_EXECUTOR)
+	private ScheduledExecutorService scheduled;
+
 	@Autowired
 	private MetaServerMultiDcServiceManager metaServerMultiDcServiceManager;
 
 	@Autowired
 	public DcMetaCache dcMetaCache;
 
+	private Map<String, BackupDcNotifier> backupDcNotifiers = new ConcurrentHashMap<>();
+
+	public MultiDcNotifier(){
+		
+	}
+
+	public MultiDcNotifier(MetaServerConfig metaServerConfig, MetaServerMultiDcServiceManager metaServerMultiDcServiceManager, 
+			DcMetaCache dcMetaCache, ScheduledExecutorService scheduled, int flushIntervalMilli, int maxRetryTimes, int maxRetryIntervalMilli){
+		this.metaServerConfig = metaServerConfig;
+		this.metaServerMultiDcServiceManager = metaServerMultiDcServiceManager;
+		this.dcMetaCache = dcMetaCache;
+		this.scheduled = scheduled;
+		this.flushIntervalMilli = flushIntervalMilli;
+		this.maxRetryTimes = maxRetryTimes;
+		this.maxRetryIntervalMilli = maxRetryIntervalMilli;
+	}
+
 	@Override
 	public void keeperActiveElected(String clusterId, String shardId, KeeperMeta activeKeeper) throws Exception {
 
@@ -47,7 +89,7 @@ public class MultiDcNotifier implements MetaServerStateChangeHandler {
 			logger.info("[keeperActiveElected][current dc backup, do nothing]{}, {}", clusterId, shardId, activeKeeper);
 			return;
 		}
-		
+
 		if(activeKeeper == null){
 			return;
 		}
@@ -64,42 +106,156 @@ public class MultiDcNotifier implements MetaServerStateChangeHandler {
 				logger.error("[keeperActiveElected][backup dc, but can not find dcinfo]{}, {}", backupDcName, dcInfos);
 				continue;
 			}
-			MetaServerMultiDcService metaServerMultiDcService = metaServerMultiDcServiceManager
-					.getOrCreate(dcInfo.getMetaServerAddress());
-			executors.execute(new BackupDcNotifyTask(metaServerMultiDcService, clusterId, shardId, activeKeeper));
+			getOrCreateBackupDcNotifier(dcInfo.getMetaServerAddress())
+				.offer(new UpstreamChangeInfo(clusterId, shardId, activeKeeper.getIp(), activeKeeper.getPort()));
 		}
 
 	}
 
+	private BackupDcNotifier getOrCreateBackupDcNotifier(String metaServerAddress) {
+
+		BackupDcNotifier backupDcNotifier = backupDcNotifiers.get(metaServerAddress);
+		if(backupDcNotifier == null){
+			synchronized (backupDcNotifiers) {
+				backupDcNotifier = backupDcNotifiers.get(metaServerAddress);
+				if(backupDcNotifier == null){
+					backupDcNotifier = new BackupDcNotifier(metaServerMultiDcServiceManager.getOrCreate(metaServerAddress));
+					backupDcNotifiers.put(metaServerAddress, backupDcNotifier);
+				}
+			}
+		}
+		return backupDcNotifier;
+	}
+
 	@Override
 	public void keeperMasterChanged(String clusterId, String shardId, Pair<String, Integer> newMaster) {
 
 	}
 
-	public class BackupDcNotifyTask extends AbstractExceptionLogTask {
+	public class BackupDcNotifier {
 
 		private MetaServerMultiDcService metaServerMultiDcService;
 
-		private String clusterId;
+		private Map<Pair<String, String>, UpstreamChange> pending = new ConcurrentHashMap<>();
 
-		private String shardId;
+		private AtomicBoolean flushScheduled = new AtomicBoolean(false);
 
-		private KeeperMeta activeKeeper;
+		private volatile int continuousFailures = 0;
 
-		public BackupDcNotifyTask(MetaServerMultiDcService metaServerMultiDcService, String clusterId, String shardId,
-				KeeperMeta activeKeeper) {
+		public BackupDcNotifier(MetaServerMultiDcService metaServerMultiDcService) {
 			this.metaServerMultiDcService = metaServerMultiDcService;
-			this.clusterId = clusterId;
-			this.shardId = shardId;
-			this.activeKeeper = activeKeeper;
+		}
+
+		public void offer(UpstreamChangeInfo upstreamChangeInfo) {
+
+			Pair<String, String> key = new Pair<>(upstreamChangeInfo.getClusterId(), upstreamChangeInfo.getShardId());
+			pending.put(key, new UpstreamChange(upstreamChangeInfo));
+			scheduleFlush();
+		}
+
+		private void scheduleFlush() {
+
+			if(flushScheduled.compareAndSet(false, true)){
+				scheduled.schedule(new Runnable() {
+					@Override
+					public void run() {
+						executors.execute(new BackupDcNotifyTask(BackupDcNotifier.this));
+					}
+				}, nextFlushDelayMilli(), TimeUnit.MILLISECONDS);
+			}
+		}
+
+		protected long nextFlushDelayMilli() {
+
+			long delay = (long)flushIntervalMilli << Math.min(continuousFailures, 20);
+			return Math.min(delay, Math.max(flushIntervalMilli, maxRetryIntervalMilli));
+		}
+
+		protected List<UpstreamChange> drain() {
+
+			List<UpstreamChange> result = new ArrayList<>();
+			Iterator<Entry<Pair<String, String>, UpstreamChange>> iterator = pending.entrySet().iterator();
+			while(iterator.hasNext() && result.size() < maxBatchSize){
+				Entry<Pair<String, String>, UpstreamChange> entry = iterator.next();
+				if(pending.remove(entry.getKey(), entry.getValue())){
+					result.add(entry.getValue());
+				}
+			}
+			return result;
+		}
+
+		protected void flushDone(List<UpstreamChange> sent, Throwable th) {
+
+			if(th == null){
+				continuousFailures = 0;
+			}else{
+				continuousFailures++;
+				for(UpstreamChange upstreamChange : sent){
+
+					if(upstreamChange.retryTimes >= maxRetryTimes){
+						logger.error("[flushDone][retry too many times, give up]{}, {}", metaServerMultiDcService, upstreamChange.upstreamChangeInfo);
+						continue;
+					}
+					upstreamChange.retryTimes++;
+					UpstreamChangeInfo info = upstreamChange.upstreamChangeInfo;
+					//newer change wins
+					pending.putIfAbsent(new Pair<>(info.getClusterId(), info.getShardId()), upstreamChange);
+				}
+			}
+
+			flushScheduled.set(false);
+			if(!pending.isEmpty()){
+				scheduleFlush();
+			}
+		}
+
+		public MetaServerMultiDcService getMetaServerMultiDcService() {
+			return metaServerMultiDcService;
+		}
+	}
+
+	public static class UpstreamChange {
+
+		private UpstreamChangeInfo upstreamChangeInfo;
+
+		private int retryTimes = 0;
+
+		public UpstreamChange(UpstreamChangeInfo upstreamChangeInfo) {
+			this.upstreamChangeInfo = upstreamChangeInfo;
+		}
+	}
+
+	public class BackupDcNotifyTask extends AbstractExceptionLogTask {
+
+		private BackupDcNotifier backupDcNotifier;
+
+		public BackupDcNotifyTask(BackupDcNotifier backupDcNotifier) {
+			this.backupDcNotifier = backupDcNotifier;
 		}
 
 		@Override
 		protected void doRun() throws Exception {
 
-			logger.info("[doRun]{}, {}, {}, {}, {}", metaServerMultiDcService, clusterId, shardId, activeKeeper);
-			metaServerMultiDcService.upstreamChange(clusterId, shardId, activeKeeper.getIp(), activeKeeper.getPort());
+			List<UpstreamChange> upstreamChanges = backupDcNotifier.drain();
+			if(upstreamChanges.isEmpty()){
+				backupDcNotifier.flushDone(upstreamChanges, null);
+				return;
+			}
 
+			List<UpstreamChangeInfo> infos = new ArrayList<>(upstreamChanges.size());
+			for(UpstreamChange upstreamChange : upstreamChanges){
+				infos.add(upstreamChange.upstreamChangeInfo);
+			}
+
+			MetaServerMultiDcService metaServerMultiDcService = backupDcNotifier.getMetaServerMultiDcService();
+			logger.info("[doRun]{}, {}", metaServerMultiDcService, infos);
+			try{
+				metaServerMultiDcService.upstreamChanges(infos);
+				backupDcNotifier.flushDone(upstreamChanges, null);
+			}catch(Throwable th){
+				logger.error("[doRun]" + metaServerMultiDcService, th);
+				backupDcNotifier.flushDone(upstreamChanges, th);
+			}
 		}
 
 	}
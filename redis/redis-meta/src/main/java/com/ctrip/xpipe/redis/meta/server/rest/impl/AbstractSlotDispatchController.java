@@ -0,0 +1,79 @@
+package com.ctrip.xpipe.redis.meta.server.rest.impl;
+
+import java.util.LinkedList;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.ctrip.xpipe.redis.meta.server.MetaServer;
+import com.ctrip.xpipe.redis.meta.server.cluster.ClusterServers;
+import com.ctrip.xpipe.redis.meta.server.cluster.SLOT_STATE;
+import com.ctrip.xpipe.redis.meta.server.cluster.SlotInfo;
+import com.ctrip.xpipe.redis.meta.server.cluster.SlotManager;
+import com.ctrip.xpipe.redis.meta.server.impl.MultiMetaServer;
+import com.ctrip.xpipe.redis.meta.server.rest.ForwardInfo;
+import com.ctrip.xpipe.redis.meta.server.rest.exception.MovingTargetException;
+import com.ctrip.xpipe.rest.ForwardType;
+import com.ctrip.xpipe.spring.AbstractController;
+
+/**
+ * find the server responsible for a cluster by its slot
+ * @author wenchao.meng
+ *
+ * Jan 29, 2017
+ */
+public class AbstractSlotDispatchController extends AbstractController{
+
+	@Autowired
+	public MetaServer currentMetaServer;
+
+	@Autowired
+	protected SlotManager slotManager;
+
+	@Autowired
+	public ClusterServers<MetaServer> servers;
+
+	/**
+	 * @param forwardType forward type of the service called
+	 */
+	protected MetaServer getMetaServer(String clusterId, ForwardInfo forwardInfo, ForwardType forwardType) {
+
+		int slotId = slotManager.getSlotIdByKey(clusterId);
+		SlotInfo slotInfo = slotManager.getSlotInfo(slotId);
+
+		if(forwardInfo != null && forwardInfo.getType() == ForwardType.MOVING){
+
+			if(!(slotInfo.getSlotState() == SLOT_STATE.MOVING  && slotInfo.getToServerId() == currentMetaServer.getServerId())){
+				throw new MovingTargetException(forwardInfo, currentMetaServer.getServerId(), slotInfo, clusterId, slotId);
+			}
+			logger.info("[getMetaServer][use current server]");
+			return currentMetaServer;
+		}
+
+		if(forwardInfo != null && forwardInfo.getType() == ForwardType.MULTICASTING){
+			logger.info("[multicast message][do now]");
+			return currentMetaServer;
+		}
+
+		Integer serverId = slotManager.getServerIdByKey(clusterId);
+		if(serverId == null){
+			throw new IllegalStateException("clusterId:" + clusterId + ", unfound server");
+		}
+
+		if(forwardType == ForwardType.MULTICASTING){
+
+			logger.info("[getMetaServer][multi casting]{}, {}", clusterId, forwardInfo);
+			Set<MetaServer> allServers =  servers.allClusterServers();
+			MetaServer current = servers.getClusterServer(serverId);
+			allServers.remove(current);
+
+			return MultiMetaServer.newProxy(current, new LinkedList<>(allServers));
+		}else if(forwardType == ForwardType.FORWARD || forwardType == ForwardType.DISPATCHING){
+
+			return servers.getClusterServer(serverId);
+		}else{
+			throw new IllegalStateException("service type can not be:" + forwardType);
+		}
+	}
+
+}
@@ -0,0 +1,55 @@
+package com.ctrip.xpipe.redis.meta.server.rest.impl;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.ctrip.xpipe.redis.core.metaserver.META_SERVER_SERVICE;
+import com.ctrip.xpipe.redis.core.metaserver.MetaServerConsoleService.ClusterChangeInfo;
+import com.ctrip.xpipe.redis.core.metaserver.MetaServerService;
+import com.ctrip.xpipe.redis.meta.server.MetaServer;
+import com.ctrip.xpipe.redis.meta.server.cluster.ClusterServers;
+import com.ctrip.xpipe.redis.meta.server.impl.MultiMetaServer;
+import com.ctrip.xpipe.redis.meta.server.rest.ForwardInfo;
+import com.ctrip.xpipe.rest.ForwardType;
+import com.ctrip.xpipe.spring.AbstractController;
+
+/**
+ * batch requests from console, every meta server in current dc applies the whole batch in one pass
+ * @author wenchao.meng
+ *
+ * Jan 22, 2017
+ */
+@RestController
+@RequestMapping(META_SERVER_SERVICE.PATH.PATH_PREFIX)
+public class ConsoleBatchMetaServerController extends AbstractController{
+
+	@Autowired
+	public ClusterServers<MetaServer> servers;
+
+	@RequestMapping(path = META_SERVER_SERVICE.PATH.PATH_CLUSTER_CHANGE_BATCH, method = RequestMethod.PUT, consumes = MediaType.APPLICATION_JSON_UTF8_VALUE)
+	public void clusterChanges(@RequestBody List<ClusterChangeInfo> clusterChanges,
+			@RequestHeader(name = MetaServerService.HTTP_HEADER_FOWRARD, required = false) ForwardInfo forwardInfo) {
+
+		logger.info("[clusterChanges]{}, {}", clusterChanges.size(), forwardInfo);
+
+		MetaServer currentMetaServer = servers.currentClusterServer();
+		if(forwardInfo != null && forwardInfo.getType() == ForwardType.MULTICASTING){
+			currentMetaServer.clusterChanges(clusterChanges, forwardInfo.clone());
+			return;
+		}
+
+		Set<MetaServer> allServers = servers.allClusterServers();
+		allServers.remove(currentMetaServer);
+		MetaServer metaServer = MultiMetaServer.newProxy(currentMetaServer, new LinkedList<>(allServers));
+		metaServer.clusterChanges(clusterChanges, null);
+	}
+}
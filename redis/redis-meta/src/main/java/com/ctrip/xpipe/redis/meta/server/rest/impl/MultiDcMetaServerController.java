@@ -0,0 +1,73 @@
+package com.ctrip.xpipe.redis.meta.server.rest.impl;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.ctrip.xpipe.redis.core.metaserver.META_SERVER_SERVICE;
+import com.ctrip.xpipe.redis.core.metaserver.MetaServerMultiDcService.UpstreamChangeInfo;
+import com.ctrip.xpipe.redis.core.metaserver.MetaServerService;
+import com.ctrip.xpipe.redis.meta.server.MetaServer;
+import com.ctrip.xpipe.redis.meta.server.rest.ForwardInfo;
+
+/**
+ * batch requests from other dcs, entries are grouped by the server responsible for their cluster,
+ * each group is sent to its server in one request
+ * @author wenchao.meng
+ *
+ * Jan 4, 2017
+ */
+@RestController
+@RequestMapping(META_SERVER_SERVICE.PATH.PATH_PREFIX)
+public class MultiDcMetaServerController extends AbstractSlotDispatchController{
+
+	@RequestMapping(path = META_SERVER_SERVICE.PATH.PATH_UPSTREAM_CHANGE_BATCH, method = RequestMethod.PUT, consumes = MediaType.APPLICATION_JSON_UTF8_VALUE)
+	public void upstreamChanges(@RequestBody List<UpstreamChangeInfo> upstreamChanges, 
+			@RequestHeader(name = MetaServerService.HTTP_HEADER_FOWRARD, required = false) ForwardInfo forwardInfo) throws Exception {
+
+		logger.info("[upstreamChanges]{}, {}", upstreamChanges.size(), forwardInfo);
+
+		List<UpstreamChangeInfo> fails = new LinkedList<>();
+		Map<MetaServer, List<UpstreamChangeInfo>> groups = new LinkedHashMap<>();
+		for(UpstreamChangeInfo upstreamChange : upstreamChanges){
+			try{
+				MetaServer metaServer = getMetaServer(upstreamChange.getClusterId(), forwardInfo, 
+						META_SERVER_SERVICE.UPSTREAM_CHANGE_BATCH.getForwardType());
+				if(metaServer == null){
+					throw new IllegalStateException("clusterId:" + upstreamChange.getClusterId() + ", unfound alive server");
+				}
+				List<UpstreamChangeInfo> group = groups.get(metaServer);
+				if(group == null){
+					group = new LinkedList<>();
+					groups.put(metaServer, group);
+				}
+				group.add(upstreamChange);
+			}catch(Exception e){
+				logger.error("[upstreamChanges]" + upstreamChange, e);
+				fails.add(upstreamChange);
+			}
+		}
+
+		for(Entry<MetaServer, List<UpstreamChangeInfo>> entry : groups.entrySet()){
+			try{
+				entry.getKey().upstreamChanges(entry.getValue(), forwardInfo == null ? null : forwardInfo.clone());
+			}catch(Exception e){
+				logger.error("[upstreamChanges]" + entry.getKey(), e);
+				fails.addAll(entry.getValue());
+			}
+		}
+
+		if(fails.size() > 0){
+			throw new IllegalStateException(String.format("[upstreamChanges][fail]%d/%d, %s", fails.size(), upstreamChanges.size(), fails));
+		}
+	}
+}
@@ -1,7 +1,10 @@
 package com.ctrip.xpipe.redis.meta.server.spring;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
@@ -12,6 +15,7 @@ import com.ctrip.xpipe.redis.core.metaserver.MetaServerMultiDcServiceManager;
 import com.ctrip.xpipe.redis.core.metaserver.impl.DefaultMetaServerMultiDcServiceManager;
 import com.ctrip.xpipe.redis.core.spring.AbstractRedisConfigContext;
 import com.ctrip.xpipe.utils.OsUtils;
+import com.ctrip.xpipe.utils.XpipeThreadFactory;
 import com.google.common.util.concurrent.MoreExecutors;
 
 /**
@@ -25,6 +29,7 @@ public class MetaServerContextConfig extends AbstractRedisConfigContext{
 	
 	public static final String CLIENT_POOL = "clientPool";
 	public static final String SCHEDULED_EXECUTOR = "scheduledExecutor";
+	public static final String GLOBAL_EXECUTOR = "globalExecutor";
 	public static final int maxScheduledCorePoolSize = 8; 
 	
 	@Bean(name = CLIENT_POOL)
@@ -43,6 +48,12 @@ public class MetaServerContextConfig extends AbstractRedisConfigContext{
 		return MoreExecutors.getExitingScheduledExecutorService(new ScheduledThreadPoolExecutor(corePoolSize));
 	}
 
+	@Bean(name = GLOBAL_EXECUTOR)
+	public ExecutorService getGlobalExecutorService(){
+		
+		return MoreExecutors.getExitingExecutorService((ThreadPoolExecutor) Executors.newCachedThreadPool(XpipeThreadFactory.create(GLOBAL_EXECUTOR)));
+	}
+
 	@Bean
 	public MetaServerMultiDcServiceManager getMetaServerMultiDcServiceManager(){
 		
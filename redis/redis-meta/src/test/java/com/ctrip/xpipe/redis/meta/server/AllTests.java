@@ -22,12 +22,17 @@ import com.ctrip.xpipe.redis.meta.server.keeper.keepermaster.impl.BackupDcKeeper
 import com.ctrip.xpipe.redis.meta.server.keeper.keepermaster.impl.DefaultDcKeeperMasterChooserTest;
 import com.ctrip.xpipe.redis.meta.server.keeper.keepermaster.impl.PrimaryDcKeeperMasterChooserAlgorithmTest;
 import com.ctrip.xpipe.redis.meta.server.keeper.manager.AddKeeperCommandTest;
+import com.ctrip.xpipe.redis.meta.server.keeper.manager.DefaultKeeperManagerTest;
 import com.ctrip.xpipe.redis.meta.server.keeper.manager.DefaultKeeperStateControllerTest;
 import com.ctrip.xpipe.redis.meta.server.keeper.manager.DeleteKeeperCommandTest;
 import com.ctrip.xpipe.redis.meta.server.meta.CurrentMetaTest;
 import com.ctrip.xpipe.redis.meta.server.meta.impl.DefaultCurrentMetaManagerTest;
+import com.ctrip.xpipe.redis.meta.server.meta.impl.DefaultDcMetaCacheTest;
+import com.ctrip.xpipe.redis.meta.server.multidc.MultiDcNotifierTest;
 import com.ctrip.xpipe.redis.meta.server.rest.ForwardInfoEditorTest;
 import com.ctrip.xpipe.redis.meta.server.rest.ForwardInfoTest;
+import com.ctrip.xpipe.redis.meta.server.rest.impl.ConsoleBatchMetaServerControllerTest;
+import com.ctrip.xpipe.redis.meta.server.rest.impl.MultiDcMetaServerControllerTest;
 import com.ctrip.xpipe.redis.meta.server.cluster.impl.DefaultClusterServersTest;
 
 
@@ -62,7 +67,12 @@ import com.ctrip.xpipe.redis.meta.server.cluster.impl.DefaultClusterServersTest;
 	TransactionalSlaveOfJobTest.class,
 	DefaultKeeperStateControllerTest.class,
 	KeeperStateChangeJobTest.class,
-	DefaultKeeperStateChangeHandlerTest.class
+	DefaultKeeperStateChangeHandlerTest.class,
+	MultiDcNotifierTest.class,
+	DefaultKeeperManagerTest.class,
+	DefaultDcMetaCacheTest.class,
+	ConsoleBatchMetaServerControllerTest.class,
+	MultiDcMetaServerControllerTest.class
 })
 public class AllTests {
 
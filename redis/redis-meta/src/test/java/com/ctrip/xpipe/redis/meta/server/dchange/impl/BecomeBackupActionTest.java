@@ -2,15 +2,23 @@ package com.ctrip.xpipe.redis.meta.server.dchange.impl;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import static org.mockito.Mockito.*;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.unidal.tuple.Pair;
 
+import com.ctrip.xpipe.api.command.CommandFuture;
+import com.ctrip.xpipe.command.DefaultCommandFuture;
+import com.ctrip.xpipe.redis.core.entity.KeeperMeta;
 import com.ctrip.xpipe.redis.core.entity.RedisMeta;
+import com.ctrip.xpipe.redis.core.metaserver.MetaServerConsoleService.PRIMARY_DC_CHANGE_RESULT;
 import com.ctrip.xpipe.redis.core.metaserver.MetaServerConsoleService.PrimaryDcChangeMessage;
 import com.ctrip.xpipe.redis.meta.server.AbstractMetaServerTest;
 import com.ctrip.xpipe.redis.meta.server.dcchange.SentinelManager;
@@ -54,10 +62,65 @@ public class BecomeBackupActionTest extends AbstractMetaServerTest{
 	@Test
 	public void test() throws Exception{
 		
-		BecomeBackupAction becomeBackupAction = new BecomeBackupAction(dcMetaCache, currentMetaManager, sentinelManager, getXpipeNettyClientKeyedObjectPool(), multiDcService, scheduled);
+		BecomeBackupAction becomeBackupAction = new BecomeBackupAction(dcMetaCache, currentMetaManager, sentinelManager, getXpipeNettyClientKeyedObjectPool(), multiDcService, executors, scheduled);
 		
 		PrimaryDcChangeMessage message = becomeBackupAction.changePrimaryDc(getClusterId(), getShardId(), newPrimaryDc);
 		
 		logger.info("{}", message);
 	}
+
+	@Test
+	public void testRedisesMadeOkAfterKeepers() throws Exception{
+		
+		CommandFuture<Void> keepersOk = new DefaultCommandFuture<>();
+		AtomicInteger redisesOkCount = new AtomicInteger();
+		
+		CommandFuture<PrimaryDcChangeMessage> future = createAction(keepersOk, redisesOkCount).changePrimaryDcAsync(getClusterId(), getShardId(), newPrimaryDc);
+		sleep(50);
+		Assert.assertEquals(0, redisesOkCount.get());
+		Assert.assertFalse(future.isDone());
+		
+		keepersOk.setSuccess();
+		Assert.assertEquals(1, redisesOkCount.get());
+		Assert.assertEquals(PRIMARY_DC_CHANGE_RESULT.SUCCESS, future.get(1, TimeUnit.SECONDS).getErrorType());
+	}
+
+	@Test
+	public void testRedisesNotMadeOkIfKeepersFail() throws Exception{
+		
+		CommandFuture<Void> keepersOk = new DefaultCommandFuture<>();
+		AtomicInteger redisesOkCount = new AtomicInteger();
+		
+		CommandFuture<PrimaryDcChangeMessage> future = createAction(keepersOk, redisesOkCount).changePrimaryDcAsync(getClusterId(), getShardId(), newPrimaryDc);
+		keepersOk.setFailure(new Exception("keeper fail"));
+		
+		Assert.assertEquals(PRIMARY_DC_CHANGE_RESULT.FAIL, future.get(1, TimeUnit.SECONDS).getErrorType());
+		Assert.assertEquals(0, redisesOkCount.get());
+	}
+
+	private BecomeBackupAction createAction(final CommandFuture<Void> keepersOk, final AtomicInteger redisesOkCount) {
+		
+		when(currentMetaManager.getKeeperActive(getClusterId(), getShardId())).thenReturn(new KeeperMeta().setIp("localhost").setPort(6000));
+		
+		return new BecomeBackupAction(dcMetaCache, currentMetaManager, sentinelManager, getXpipeNettyClientKeyedObjectPool(), multiDcService, executors, scheduled){
+			
+			@Override
+			protected Pair<String, Integer> chooseNewMaster(String clusterId, String shardId) {
+				return new Pair<>("localhost", 7000);
+			}
+			
+			@Override
+			protected CommandFuture<Void> makeKeepersOk(String clusterId, String shardId, Pair<String, Integer> newMaster) {
+				return keepersOk;
+			}
+			
+			@Override
+			protected CommandFuture<Void> makeRedisesOk(Pair<String, Integer> newMaster, List<RedisMeta> slaves) {
+				redisesOkCount.incrementAndGet();
+				CommandFuture<Void> future = new DefaultCommandFuture<>();
+				future.setSuccess();
+				return future;
+			}
+		};
+	}
 }
@@ -1,7 +1,10 @@
 package com.ctrip.xpipe.redis.meta.server.dchange.impl;
 
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -61,6 +64,39 @@ public class FirstNewMasterChooserTest extends AbstractMetaServerTest{
 		Assert.assertEquals(chosen, firstNewMasterChooser.choose(redises));
 	}
 	
+	@Test
+	public void testProbeInParallel() throws Exception{
+
+		final int delayMilli = 500;
+		int count = 4;
+		
+		redises.clear();
+		Set<Integer> ports = new HashSet<>();
+		for(int i=0; i < count; i++){
+			
+			int port = randomPort(ports);
+			ports.add(port);
+			redises.add(new RedisMeta().setIp("localhost").setPort(port));
+			
+			SERVER_ROLE serverRole = (i == count - 1) ? SERVER_ROLE.MASTER : SERVER_ROLE.SLAVE;
+			final SlaveRole role = new SlaveRole(serverRole, "localhost", randomPort(), MASTER_STATE.REDIS_REPL_CONNECTED, 0L);
+			startServer(port, new Callable<String>() {
+				@Override
+				public String call() throws Exception {
+					sleep(delayMilli);
+					return ByteBufUtils.readToString(role.format());
+				}
+			});
+		}
+		
+		long begin = System.currentTimeMillis();
+		Assert.assertEquals(redises.get(count - 1), firstNewMasterChooser.choose(redises));
+		long cost = System.currentTimeMillis() - begin;
+		
+		logger.info("[testProbeInParallel]{} redises, {} ms", count, cost);
+		Assert.assertTrue(cost < delayMilli * count);
+	}
+	
 	//run with real redis
 //	@Test
 	public void testRedis(){
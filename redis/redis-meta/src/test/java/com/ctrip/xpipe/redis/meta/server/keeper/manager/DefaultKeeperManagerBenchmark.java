@@ -0,0 +1,145 @@
+package com.ctrip.xpipe.redis.meta.server.keeper.manager;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.ctrip.xpipe.redis.core.entity.ClusterMeta;
+import com.ctrip.xpipe.redis.core.entity.KeeperMeta;
+import com.ctrip.xpipe.redis.core.entity.ShardMeta;
+import com.ctrip.xpipe.redis.meta.server.AbstractMetaServerTest;
+import com.ctrip.xpipe.redis.meta.server.keeper.KeeperStateController;
+import com.ctrip.xpipe.redis.meta.server.meta.CurrentMetaManager;
+
+/**
+ * dead keeper check cost at production scale, run by hand, not included in AllTests
+ * @author wenchao.meng
+ *
+ * Jan 29, 2017
+ */
+public class DefaultKeeperManagerBenchmark extends AbstractMetaServerTest{
+
+	private int clusterCount = Integer.parseInt(System.getProperty("KEEPER_MANAGER_BENCHMARK_CLUSTERS", "100"));
+
+	private int shardCount = Integer.parseInt(System.getProperty("KEEPER_MANAGER_BENCHMARK_SHARDS", "100"));
+
+	private int keeperCount = Integer.parseInt(System.getProperty("KEEPER_MANAGER_BENCHMARK_KEEPERS", "2"));
+
+	private int changedShards = Integer.parseInt(System.getProperty("KEEPER_MANAGER_BENCHMARK_CHANGED", "10"));
+
+	private int rounds = Integer.parseInt(System.getProperty("KEEPER_MANAGER_BENCHMARK_ROUNDS", "50"));
+
+	private DefaultKeeperManager keeperManager;
+
+	private Map<String, ClusterMeta> clusters = new ConcurrentHashMap<>();
+
+	@Before
+	public void beforeDefaultKeeperManagerBenchmark(){
+
+		//stub only, invocations are not recorded
+		CurrentMetaManager currentMetaManager = mock(CurrentMetaManager.class, withSettings().stubOnly());
+		keeperManager = new DefaultKeeperManager();
+		keeperManager.setCurrentMetaManager(currentMetaManager);
+		keeperManager.setKeeperStateController(mock(KeeperStateController.class, withSettings().stubOnly()));
+
+		when(currentMetaManager.allClusters()).thenReturn(clusters.keySet());
+		when(currentMetaManager.hasCluster(anyString())).thenAnswer(new Answer<Boolean>() {
+			@Override
+			public Boolean answer(InvocationOnMock invocation) throws Throwable {
+				return clusters.containsKey(invocation.getArguments()[0]);
+			}
+		});
+		when(currentMetaManager.getClusterMeta(anyString())).thenAnswer(new Answer<ClusterMeta>() {
+			@Override
+			public ClusterMeta answer(InvocationOnMock invocation) throws Throwable {
+				return clusters.get(invocation.getArguments()[0]);
+			}
+		});
+		when(currentMetaManager.getSurviveKeepers(anyString(), anyString())).thenAnswer(new Answer<List<KeeperMeta>>() {
+			@Override
+			public List<KeeperMeta> answer(InvocationOnMock invocation) throws Throwable {
+				//all alive
+				return clusters.get(invocation.getArguments()[0]).getShards().get(invocation.getArguments()[1]).getKeepers();
+			}
+		});
+
+		addClusters();
+	}
+
+	@Test
+	public void testCheckCost() throws Exception{
+
+		//warm up
+		runFullCheck(rounds);
+		runChangedCheck(rounds);
+
+		long fullNanos = runFullCheck(rounds);
+		long changedNanos = runChangedCheck(rounds);
+
+		logger.info("[testCheckCost][{} keepers]all shards:{} micros/tick, {} changed shards:{} micros/tick",
+				clusterCount * shardCount * keeperCount, fullNanos/rounds/1000, changedShards, changedNanos/rounds/1000);
+		Assert.assertEquals(0, keeperManager.getToCheckShards().size());
+	}
+
+	/**
+	 * every shard checked each tick, as before only changed shards were tracked
+	 */
+	private long runFullCheck(int rounds) {
+
+		long total = 0;
+		for(int i=0; i < rounds; i++){
+			for(ClusterMeta clusterMeta : clusters.values()){
+				keeperManager.markClusterToCheck(clusterMeta);
+			}
+			long begin = System.nanoTime();
+			checker().doCheck();
+			total += System.nanoTime() - begin;
+		}
+		return total;
+	}
+
+	private long runChangedCheck(int rounds) throws Exception {
+
+		long total = 0;
+		for(int i=0; i < rounds; i++){
+			for(int j=0; j < changedShards; j++){
+				keeperManager.keeperActiveElected("cluster" + (j % clusterCount), "shard" + (j % shardCount), null);
+			}
+			long begin = System.nanoTime();
+			checker().doCheck();
+			total += System.nanoTime() - begin;
+		}
+		return total;
+	}
+
+	private DefaultKeeperManager.DeadKeeperChecker checker() {
+		return keeperManager.new DeadKeeperChecker();
+	}
+
+	private void addClusters() {
+
+		int port = 10000;
+		for(int i=0; i < clusterCount; i++){
+			ClusterMeta clusterMeta = new ClusterMeta().setId("cluster" + i);
+			for(int j=0; j < shardCount; j++){
+				ShardMeta shardMeta = new ShardMeta().setId("shard" + j);
+				for(int k=0; k < keeperCount; k++){
+					shardMeta.addKeeper(new KeeperMeta().setIp("127.0.0.1").setPort(port++));
+				}
+				clusterMeta.addShard(shardMeta);
+			}
+			clusters.put(clusterMeta.getId(), clusterMeta);
+		}
+	}
+}
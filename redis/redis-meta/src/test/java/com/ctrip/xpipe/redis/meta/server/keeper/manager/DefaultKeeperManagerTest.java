@@ -0,0 +1,163 @@
+package com.ctrip.xpipe.redis.meta.server.keeper.manager;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import com.ctrip.xpipe.redis.core.entity.ClusterMeta;
+import com.ctrip.xpipe.redis.core.entity.KeeperMeta;
+import com.ctrip.xpipe.redis.core.entity.KeeperTransMeta;
+import com.ctrip.xpipe.redis.core.entity.ShardMeta;
+import com.ctrip.xpipe.redis.meta.server.AbstractMetaServerTest;
+import com.ctrip.xpipe.redis.meta.server.keeper.KeeperStateController;
+import com.ctrip.xpipe.redis.meta.server.meta.CurrentMetaManager;
+
+/**
+ * @author wenchao.meng
+ *
+ * Jan 5, 2017
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class DefaultKeeperManagerTest extends AbstractMetaServerTest{
+
+	@Mock
+	private CurrentMetaManager currentMetaManager;
+
+	@Mock
+	private KeeperStateController keeperStateController;
+
+	private DefaultKeeperManager keeperManager;
+
+	private Map<String, ClusterMeta> clusters = new ConcurrentHashMap<>();
+
+	private Set<String> deadKeepers = new HashSet<>();
+
+	@Before
+	public void beforeDefaultKeeperManagerTest(){
+
+		keeperManager = new DefaultKeeperManager();
+		keeperManager.setCurrentMetaManager(currentMetaManager);
+		keeperManager.setKeeperStateController(keeperStateController);
+
+		when(currentMetaManager.allClusters()).thenReturn(clusters.keySet());
+		when(currentMetaManager.hasCluster(anyString())).thenAnswer(new Answer<Boolean>() {
+			@Override
+			public Boolean answer(InvocationOnMock invocation) throws Throwable {
+				return clusters.containsKey(invocation.getArguments()[0]);
+			}
+		});
+		when(currentMetaManager.getClusterMeta(anyString())).thenAnswer(new Answer<ClusterMeta>() {
+			@Override
+			public ClusterMeta answer(InvocationOnMock invocation) throws Throwable {
+				return clusters.get(invocation.getArguments()[0]);
+			}
+		});
+		when(currentMetaManager.getSurviveKeepers(anyString(), anyString())).thenAnswer(new Answer<List<KeeperMeta>>() {
+			@Override
+			public List<KeeperMeta> answer(InvocationOnMock invocation) throws Throwable {
+
+				ShardMeta shardMeta = clusters.get(invocation.getArguments()[0]).getShards().get(invocation.getArguments()[1]);
+				List<KeeperMeta> result = new LinkedList<>();
+				for(KeeperMeta keeperMeta : shardMeta.getKeepers()){
+					if(!deadKeepers.contains(keeperMeta.getIp() + ":" + keeperMeta.getPort())){
+						result.add(keeperMeta);
+					}
+				}
+				return result;
+			}
+		});
+	}
+
+	@Test
+	public void testOnlyChangedShardsChecked() throws Exception{
+
+		addClusters(1, 10, 2);
+		keeperManager.handleClusterAdd(clusters.get("cluster0"));
+		checker().doCheck();
+		Assert.assertEquals(0, keeperManager.getToCheckShards().size());
+
+		reset(keeperStateController);
+		checker().doCheck();
+		verify(currentMetaManager, times(10)).getSurviveKeepers(anyString(), anyString());
+
+		KeeperMeta dead = clusters.get("cluster0").getShards().get("shard1").getKeepers().get(0);
+		deadKeepers.add(dead.getIp() + ":" + dead.getPort());
+		keeperManager.keeperActiveElected("cluster0", "shard1", null);
+
+		checker().doCheck();
+		verify(keeperStateController).addKeeper(any(KeeperTransMeta.class));
+		verify(currentMetaManager, times(11)).getSurviveKeepers(anyString(), anyString());
+		//dead keeper checked again
+		Assert.assertEquals(1, keeperManager.getToCheckShards().size());
+
+		deadKeepers.clear();
+		checker().doCheck();
+		Assert.assertEquals(0, keeperManager.getToCheckShards().size());
+		verify(keeperStateController, times(1)).addKeeper(any(KeeperTransMeta.class));
+	}
+
+	@Test
+	public void testCheckedShardsPerTick() throws Exception{
+
+		int clusterCount = 10, shardCount = 100, keeperCount = 2;
+		addClusters(clusterCount, shardCount, keeperCount);
+		for(ClusterMeta clusterMeta : clusters.values()){
+			keeperManager.markClusterToCheck(clusterMeta);
+		}
+
+		checker().doCheck();
+		verify(currentMetaManager, times(clusterCount * shardCount)).getSurviveKeepers(anyString(), anyString());
+		Assert.assertEquals(0, keeperManager.getToCheckShards().size());
+
+		int changed = 10;
+		for(int i=0; i < changed; i++){
+			keeperManager.keeperActiveElected("cluster" + i, "shard" + i, null);
+		}
+		Assert.assertEquals(changed, keeperManager.getToCheckShards().size());
+		checker().doCheck();
+		verify(currentMetaManager, times(clusterCount * shardCount + changed)).getSurviveKeepers(anyString(), anyString());
+		verify(currentMetaManager, times(2)).getSurviveKeepers("cluster9", "shard9");
+		Assert.assertEquals(0, keeperManager.getToCheckShards().size());
+
+		//nothing changed, nothing checked
+		checker().doCheck();
+		verify(currentMetaManager, times(clusterCount * shardCount + changed)).getSurviveKeepers(anyString(), anyString());
+		verify(keeperStateController, never()).addKeeper(any(KeeperTransMeta.class));
+	}
+
+	private DefaultKeeperManager.DeadKeeperChecker checker() {
+		return keeperManager.new DeadKeeperChecker();
+	}
+
+	private void addClusters(int clusterCount, int shardCount, int keeperCount) {
+
+		int port = 10000;
+		for(int i=0; i < clusterCount; i++){
+			ClusterMeta clusterMeta = new ClusterMeta().setId("cluster" + i);
+			for(int j=0; j < shardCount; j++){
+				ShardMeta shardMeta = new ShardMeta().setId("shard" + j);
+				for(int k=0; k < keeperCount; k++){
+					shardMeta.addKeeper(new KeeperMeta().setIp("127.0.0.1").setPort(port++));
+				}
+				clusterMeta.addShard(shardMeta);
+			}
+			clusters.put(clusterMeta.getId(), clusterMeta);
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package com.ctrip.xpipe.redis.meta.server.meta.impl;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ctrip.xpipe.api.observer.Observable;
+import com.ctrip.xpipe.api.observer.Observer;
+import com.ctrip.xpipe.redis.core.entity.ClusterMeta;
+import com.ctrip.xpipe.redis.core.meta.DcMetaManager;
+import com.ctrip.xpipe.redis.core.meta.MetaClone;
+import com.ctrip.xpipe.redis.core.meta.comparator.DcMetaComparator;
+import com.ctrip.xpipe.redis.core.meta.impl.DefaultDcMetaManager;
+import com.ctrip.xpipe.redis.meta.server.AbstractMetaServerTest;
+
+/**
+ * @author wenchao.meng
+ *
+ *         Jan 29, 2017
+ */
+public class DefaultDcMetaCacheTest extends AbstractMetaServerTest {
+
+	private DefaultDcMetaCache dcMetaCache;
+
+	private List<Object> notified = new LinkedList<>();
+
+	@Before
+	public void beforeDefaultDcMetaCacheTest() throws Exception {
+
+		dcMetaCache = new DefaultDcMetaCache() {
+			@Override
+			protected DcMetaManager loadMetaManager() {
+				return DefaultDcMetaManager.buildFromDcMeta(MetaClone.clone(getDcMeta(getDc())));
+			}
+		};
+		dcMetaCache.initialize();
+		dcMetaCache.addObserver(new Observer() {
+
+			@Override
+			public void update(Object args, Observable observable) {
+				notified.add(args);
+			}
+		});
+	}
+
+	@Test
+	public void testClustersModifiedAndAdded() {
+
+		ClusterMeta modified = MetaClone.clone(dcMetaCache.getClusterMeta(getClusterId()));
+		modified.setActiveDc("fq");
+		ClusterMeta added = new ClusterMeta().setId("cluster-added").setActiveDc(getDc());
+
+		dcMetaCache.clustersChanged(Arrays.asList(modified, added), new LinkedList<String>());
+
+		Assert.assertEquals("fq", dcMetaCache.getClusterMeta(getClusterId()).getActiveDc());
+		Assert.assertNotNull(dcMetaCache.getClusterMeta("cluster-added"));
+
+		Assert.assertEquals(1, notified.size());
+		DcMetaComparator comparator = (DcMetaComparator) notified.get(0);
+		Assert.assertEquals(1, comparator.getMofified().size());
+		Assert.assertEquals(1, comparator.getAdded().size());
+		Assert.assertEquals("cluster-added", comparator.getAdded().iterator().next().getId());
+		Assert.assertEquals(0, comparator.getRemoved().size());
+	}
+
+	@Test
+	public void testClustersDeleted() {
+
+		dcMetaCache.clustersChanged(new LinkedList<ClusterMeta>(), Arrays.asList(getClusterId(), "cluster-not-exist"));
+
+		Assert.assertNull(dcMetaCache.getClusterMeta(getClusterId()));
+
+		Assert.assertEquals(1, notified.size());
+		DcMetaComparator comparator = (DcMetaComparator) notified.get(0);
+		Assert.assertEquals(1, comparator.getRemoved().size());
+		Assert.assertEquals(getClusterId(), comparator.getRemoved().iterator().next().getId());
+		Assert.assertEquals(0, comparator.getAdded().size());
+		Assert.assertEquals(0, comparator.getMofified().size());
+	}
+
+	@Test
+	public void testClustersUnchanged() {
+
+		ClusterMeta same = MetaClone.clone(dcMetaCache.getClusterMeta(getClusterId()));
+
+		dcMetaCache.clustersChanged(Arrays.asList(same), new LinkedList<String>());
+
+		Assert.assertEquals(1, notified.size());
+		Assert.assertEquals(0, ((DcMetaComparator) notified.get(0)).totalChangedCount());
+	}
+
+}
@@ -0,0 +1,205 @@
+package com.ctrip.xpipe.redis.meta.server.multidc;
+
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.*;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import com.ctrip.xpipe.redis.core.entity.KeeperMeta;
+import com.ctrip.xpipe.redis.core.meta.DcInfo;
+import com.ctrip.xpipe.redis.core.metaserver.MetaServerMultiDcService;
+import com.ctrip.xpipe.redis.core.metaserver.MetaServerMultiDcService.UpstreamChangeInfo;
+import com.ctrip.xpipe.redis.core.metaserver.MetaServerMultiDcServiceManager;
+import com.ctrip.xpipe.redis.meta.server.AbstractMetaServerTest;
+import com.ctrip.xpipe.redis.meta.server.config.MetaServerConfig;
+import com.ctrip.xpipe.redis.meta.server.meta.DcMetaCache;
+import com.ctrip.xpipe.redis.meta.server.multidc.MultiDcNotifier.BackupDcNotifier;
+import com.ctrip.xpipe.redis.meta.server.multidc.MultiDcNotifier.UpstreamChange;
+
+/**
+ * @author wenchao.meng
+ *
+ * Jan 4, 2017
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class MultiDcNotifierTest extends AbstractMetaServerTest{
+
+	@Mock
+	private MetaServerConfig metaServerConfig;
+
+	@Mock
+	private MetaServerMultiDcServiceManager metaServerMultiDcServiceManager;
+
+	@Mock
+	private MetaServerMultiDcService metaServerMultiDcService;
+
+	@Mock
+	private DcMetaCache dcMetaCache;
+
+	private ScheduledExecutorService scheduled;
+
+	private MultiDcNotifier multiDcNotifier;
+
+	private String backupDc = "oy";
+
+	private int flushIntervalMilli = 50;
+
+	private int maxRetryTimes = 2;
+
+	private int maxRetryIntervalMilli = 200;
+
+	private Queue<List<UpstreamChangeInfo>> sent = new ConcurrentLinkedQueue<>();
+
+	private AtomicBoolean failing = new AtomicBoolean(false);
+
+	@Before
+	public void beforeMultiDcNotifierTest(){
+
+		scheduled = Executors.newScheduledThreadPool(1);
+		multiDcNotifier = new MultiDcNotifier(metaServerConfig, metaServerMultiDcServiceManager, dcMetaCache, scheduled, 
+				flushIntervalMilli, maxRetryTimes, maxRetryIntervalMilli);
+
+		Map<String, DcInfo> dcInfos = new HashMap<>();
+		dcInfos.put(backupDc, new DcInfo("http://localhost:9747"));
+		Set<String> backupDcs = new HashSet<>();
+		backupDcs.add(backupDc);
+
+		when(metaServerConfig.getDcInofs()).thenReturn(dcInfos);
+		when(dcMetaCache.isCurrentDcPrimary(anyString(), anyString())).thenReturn(true);
+		when(dcMetaCache.getBakupDcs(anyString(), anyString())).thenReturn(backupDcs);
+		when(metaServerMultiDcServiceManager.getOrCreate(anyString())).thenReturn(metaServerMultiDcService);
+		doAnswer(new Answer<Void>() {
+			@SuppressWarnings("unchecked")
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				sent.add(new LinkedList<>((List<UpstreamChangeInfo>) invocation.getArguments()[0]));
+				if(failing.get()){
+					throw new IllegalStateException("unit test");
+				}
+				return null;
+			}
+		}).when(metaServerMultiDcService).upstreamChanges(anyListOf(UpstreamChangeInfo.class));
+	}
+
+	@Test
+	public void testCoalesceAndBatch() throws Exception{
+
+		final int shardCount = 100;
+		for(int i=0; i < shardCount; i++){
+			multiDcNotifier.keeperActiveElected(getClusterId(), "shard" + i, new KeeperMeta().setIp("127.0.0.1").setPort(6000));
+			multiDcNotifier.keeperActiveElected(getClusterId(), "shard" + i, new KeeperMeta().setIp("127.0.0.1").setPort(6001));
+		}
+
+		waitConditionUntilTimeout(new BooleanSupplier() {
+			@Override
+			public boolean getAsBoolean() {
+				return sentCount() >= shardCount;
+			}
+		}, 5000);
+
+		verify(metaServerMultiDcService, never()).upstreamChange(anyString(), anyString(), anyString(), anyInt());
+		Assert.assertEquals(shardCount, sentCount());
+		for(List<UpstreamChangeInfo> batch : sent){
+			for(UpstreamChangeInfo info : batch){
+				Assert.assertEquals(6001, info.getPort());
+			}
+		}
+	}
+
+	@Test
+	public void testRetryAndGiveUp() throws Exception{
+
+		failing.set(true);
+		multiDcNotifier.keeperActiveElected(getClusterId(), getShardId(), new KeeperMeta().setIp("127.0.0.1").setPort(6000));
+
+		waitConditionUntilTimeout(new BooleanSupplier() {
+			@Override
+			public boolean getAsBoolean() {
+				return sent.size() >= maxRetryTimes + 1;
+			}
+		}, 5000);
+
+		//a new change after giving up, the failed one is not sent with it
+		failing.set(false);
+		multiDcNotifier.keeperActiveElected(getClusterId(), "newShard", new KeeperMeta().setIp("127.0.0.1").setPort(6001));
+
+		waitConditionUntilTimeout(new BooleanSupplier() {
+			@Override
+			public boolean getAsBoolean() {
+				for(List<UpstreamChangeInfo> batch : sent){
+					for(UpstreamChangeInfo info : batch){
+						if(info.getShardId().equals("newShard")){
+							return true;
+						}
+					}
+				}
+				return false;
+			}
+		}, 5000);
+
+		int oldShardSent = 0;
+		for(List<UpstreamChangeInfo> batch : sent){
+			for(UpstreamChangeInfo info : batch){
+				if(info.getShardId().equals(getShardId())){
+					oldShardSent++;
+				}
+			}
+		}
+		Assert.assertEquals(maxRetryTimes + 1, oldShardSent);
+	}
+
+	@Test
+	public void testBackoff(){
+
+		BackupDcNotifier backupDcNotifier = multiDcNotifier.new BackupDcNotifier(metaServerMultiDcService);
+		List<UpstreamChange> empty = new LinkedList<>();
+
+		Assert.assertEquals(flushIntervalMilli, backupDcNotifier.nextFlushDelayMilli());
+		backupDcNotifier.flushDone(empty, new IllegalStateException("unit test"));
+		Assert.assertEquals(flushIntervalMilli * 2, backupDcNotifier.nextFlushDelayMilli());
+		backupDcNotifier.flushDone(empty, new IllegalStateException("unit test"));
+		Assert.assertEquals(flushIntervalMilli * 4, backupDcNotifier.nextFlushDelayMilli());
+		for(int i=0; i < 100; i++){
+			backupDcNotifier.flushDone(empty, new IllegalStateException("unit test"));
+		}
+		Assert.assertEquals(maxRetryIntervalMilli, backupDcNotifier.nextFlushDelayMilli());
+
+		backupDcNotifier.flushDone(empty, null);
+		Assert.assertEquals(flushIntervalMilli, backupDcNotifier.nextFlushDelayMilli());
+	}
+
+	private int sentCount() {
+
+		int total = 0;
+		for(List<UpstreamChangeInfo> batch : sent){
+			total += batch.size();
+		}
+		return total;
+	}
+
+	@After
+	public void afterMultiDcNotifierTest(){
+		scheduled.shutdownNow();
+	}
+}
@@ -0,0 +1,91 @@
+package com.ctrip.xpipe.redis.meta.server.rest.impl;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.ctrip.xpipe.redis.core.entity.ClusterMeta;
+import com.ctrip.xpipe.redis.core.metaserver.MetaServerConsoleService.ClusterChangeInfo;
+import com.ctrip.xpipe.redis.meta.server.AbstractMetaServerTest;
+import com.ctrip.xpipe.redis.meta.server.MetaServer;
+import com.ctrip.xpipe.redis.meta.server.cluster.ClusterServers;
+import com.ctrip.xpipe.redis.meta.server.rest.ForwardInfo;
+import com.ctrip.xpipe.rest.ForwardType;
+
+/**
+ * @author wenchao.meng
+ *
+ *         Jan 29, 2017
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class ConsoleBatchMetaServerControllerTest extends AbstractMetaServerTest {
+
+	@Mock
+	private ClusterServers<MetaServer> servers;
+
+	@Mock
+	private MetaServer currentServer;
+
+	@Mock
+	private MetaServer otherServer;
+
+	private ConsoleBatchMetaServerController controller = new ConsoleBatchMetaServerController();
+
+	private List<ClusterChangeInfo> clusterChanges = new LinkedList<>();
+
+	@Before
+	public void beforeConsoleBatchMetaServerControllerTest() {
+
+		controller.servers = servers;
+
+		when(servers.currentClusterServer()).thenReturn(currentServer);
+		when(servers.allClusterServers()).thenReturn(allServers());
+
+		clusterChanges.add(new ClusterChangeInfo("cluster1", new ClusterMeta().setId("cluster1")));
+		clusterChanges.add(new ClusterChangeInfo("cluster2", null));
+	}
+
+	private Set<MetaServer> allServers() {
+
+		Set<MetaServer> allServers = new HashSet<>();
+		allServers.add(currentServer);
+		allServers.add(otherServer);
+		return allServers;
+	}
+
+	@Test
+	public void testFromConsoleSentToAllServers() {
+
+		controller.clusterChanges(clusterChanges, null);
+
+		verify(currentServer).clusterChanges(eq(clusterChanges), (ForwardInfo) isNull());
+		verify(otherServer).clusterChanges(eq(clusterChanges), (ForwardInfo) isNull());
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testMulticastingAppliedOnlyOnCurrent() {
+
+		ForwardInfo forwardInfo = new ForwardInfo(ForwardType.MULTICASTING);
+		controller.clusterChanges(clusterChanges, forwardInfo);
+
+		verify(currentServer).clusterChanges(eq(clusterChanges), any(ForwardInfo.class));
+		verify(otherServer, never()).clusterChanges(any(List.class), any(ForwardInfo.class));
+		verify(servers, never()).allClusterServers();
+	}
+
+}
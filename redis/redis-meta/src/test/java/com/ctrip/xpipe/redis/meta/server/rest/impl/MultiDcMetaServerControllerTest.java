@@ -0,0 +1,121 @@
+package com.ctrip.xpipe.redis.meta.server.rest.impl;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.ctrip.xpipe.redis.core.metaserver.MetaServerMultiDcService.UpstreamChangeInfo;
+import com.ctrip.xpipe.redis.meta.server.AbstractMetaServerTest;
+import com.ctrip.xpipe.redis.meta.server.MetaServer;
+import com.ctrip.xpipe.redis.meta.server.cluster.ClusterServers;
+import com.ctrip.xpipe.redis.meta.server.cluster.SlotManager;
+import com.ctrip.xpipe.redis.meta.server.rest.ForwardInfo;
+
+/**
+ * @author wenchao.meng
+ *
+ *         Jan 29, 2017
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class MultiDcMetaServerControllerTest extends AbstractMetaServerTest {
+
+	@Mock
+	private SlotManager slotManager;
+
+	@Mock
+	private ClusterServers<MetaServer> servers;
+
+	@Mock
+	private MetaServer currentServer;
+
+	@Mock
+	private MetaServer otherServer;
+
+	private MultiDcMetaServerController controller = new MultiDcMetaServerController();
+
+	private List<UpstreamChangeInfo> upstreamChanges = new LinkedList<>();
+
+	@Before
+	public void beforeMultiDcMetaServerControllerTest() {
+
+		controller.currentMetaServer = currentServer;
+		controller.slotManager = slotManager;
+		controller.servers = servers;
+
+		when(servers.getClusterServer(1)).thenReturn(currentServer);
+		when(servers.getClusterServer(2)).thenReturn(otherServer);
+		when(slotManager.getServerIdByKey("cluster1")).thenReturn(1);
+		when(slotManager.getServerIdByKey("cluster2")).thenReturn(1);
+		when(slotManager.getServerIdByKey("cluster3")).thenReturn(2);
+
+		upstreamChanges.add(new UpstreamChangeInfo("cluster1", "shard1", "127.0.0.1", 6000));
+		upstreamChanges.add(new UpstreamChangeInfo("cluster3", "shard1", "127.0.0.1", 6001));
+		upstreamChanges.add(new UpstreamChangeInfo("cluster2", "shard1", "127.0.0.1", 6002));
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Test
+	public void testGroupedByServer() throws Exception {
+
+		controller.upstreamChanges(upstreamChanges, null);
+
+		ArgumentCaptor<List> current = ArgumentCaptor.forClass(List.class);
+		ArgumentCaptor<List> other = ArgumentCaptor.forClass(List.class);
+		verify(currentServer, times(1)).upstreamChanges(current.capture(), (ForwardInfo) isNull());
+		verify(otherServer, times(1)).upstreamChanges(other.capture(), (ForwardInfo) isNull());
+
+		List<UpstreamChangeInfo> currentChanges = current.getValue();
+		Assert.assertEquals(2, currentChanges.size());
+		Assert.assertEquals("cluster1", currentChanges.get(0).getClusterId());
+		Assert.assertEquals("cluster2", currentChanges.get(1).getClusterId());
+
+		List<UpstreamChangeInfo> otherChanges = other.getValue();
+		Assert.assertEquals(1, otherChanges.size());
+		Assert.assertEquals("cluster3", otherChanges.get(0).getClusterId());
+	}
+
+	@Test
+	public void testOneGroupFail() throws Exception {
+
+		doThrow(new IllegalStateException("unit test")).when(otherServer)
+				.upstreamChanges(anyListOf(UpstreamChangeInfo.class), any(ForwardInfo.class));
+
+		try {
+			controller.upstreamChanges(upstreamChanges, null);
+			Assert.fail();
+		} catch (IllegalStateException e) {
+			Assert.assertTrue(e.getMessage().contains("1/3"));
+		}
+		verify(currentServer).upstreamChanges(anyListOf(UpstreamChangeInfo.class), (ForwardInfo) isNull());
+	}
+
+	@Test
+	public void testServerNotFound() throws Exception {
+
+		when(slotManager.getServerIdByKey("cluster3")).thenReturn(3);
+
+		try {
+			controller.upstreamChanges(upstreamChanges, null);
+			Assert.fail();
+		} catch (IllegalStateException e) {
+			Assert.assertTrue(e.getMessage().contains("1/3"));
+		}
+		verify(currentServer).upstreamChanges(anyListOf(UpstreamChangeInfo.class), (ForwardInfo) isNull());
+	}
+
+}
@@ -0,0 +1,87 @@
+package com.ctrip.xpipe.service.hickwall;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.thrift.TByteArrayOutputStream;
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.transport.TIOStreamTransport;
+
+import com.ctrip.hickwall.protocol.BinDataPoint;
+import com.ctrip.hickwall.protocol.BinMultiDataPoint;
+import com.ctrip.hickwall.protocol.DataPoint;
+import com.ctrip.xpipe.metric.MetricDataPoint;
+
+/**
+ * encode points of a batch into one BinMultiDataPoint.<br/>
+ * protocol, buffer and thrift objects are reused between batches, so it is not thread safe
+ * and the result is only valid until next encode
+ * @author wenchao.meng
+ *
+ * Jan 23, 2017
+ */
+public class BinMultiDataPointEncoder {
+
+	public static final String ENDPOINT = "fx";
+
+	private TByteArrayOutputStream buffer = new TByteArrayOutputStream(64 * 1024);
+
+	private TProtocol protocol = new TCompactProtocol(new TIOStreamTransport(buffer));
+
+	private DataPoint dataPoint = new DataPoint();
+
+	private List<BinDataPoint> binDataPointPool = new ArrayList<>();
+
+	private List<BinDataPoint> points = new ArrayList<>();
+
+	private BinMultiDataPoint bmp = new BinMultiDataPoint();
+
+	private int[] offsets = new int[1024];
+
+	public BinMultiDataPoint encode(List<MetricDataPoint> metricPoints) throws TException {
+
+		buffer.reset();
+		if (offsets.length < metricPoints.size() + 1) {
+			offsets = Arrays.copyOf(offsets, metricPoints.size() + 1);
+		}
+
+		int count = 0;
+		for (MetricDataPoint mp : metricPoints) {
+			offsets[count++] = buffer.len();
+
+			dataPoint.clear();
+			dataPoint.setMetric(mp.getMetric());
+			dataPoint.setValue(mp.getValue());
+			dataPoint.setTimestamp(mp.getTimestamp());
+			dataPoint.setTags(mp.getTags());
+			dataPoint.setMeta(mp.getMeta());
+			dataPoint.write(protocol);
+		}
+		offsets[count] = buffer.len();
+
+		// buffer may grow while writing, get the array after all points are written
+		byte[] encoded = buffer.get();
+		points.clear();
+		for (int i = 0; i < count; i++) {
+			BinDataPoint bdp = binDataPoint(i);
+			bdp.setEncoded(ByteBuffer.wrap(encoded, offsets[i], offsets[i + 1] - offsets[i]));
+			bdp.setEndpoint(ENDPOINT);
+			points.add(bdp);
+		}
+		bmp.setPoints(points);
+		return bmp;
+	}
+
+	private BinDataPoint binDataPoint(int index) {
+
+		while (binDataPointPool.size() <= index) {
+			binDataPointPool.add(new BinDataPoint());
+		}
+		return binDataPointPool.get(index);
+	}
+
+}
@@ -13,14 +13,43 @@ import com.ctrip.xpipe.config.AbstractConfigBean;
 public class HickwallConfig extends AbstractConfigBean {
 
 	public static final String KEY_HICKWALL_HOST_PORT = "hickwall.host.port";
+	/**
+	 * number of queued samples, each sample of a shard has points of its master and slaves
+	 */
+	@Deprecated
 	public static final String KEY_HICKWALL_QUEUE_SIZE = "hickwall.queue.size";
+	public static final String KEY_HICKWALL_QUEUE_POINTS = "hickwall.queue.points";
+	public static final String KEY_HICKWALL_BATCH_SIZE = "hickwall.batch.size";
+	public static final String KEY_HICKWALL_BATCH_INTERVAL_MILLI = "hickwall.batch.interval.milli";
+
+	public static final int POINTS_PER_SAMPLE = 4;
 
 	public String getHickwallHostPort() {
 		return getProperty(KEY_HICKWALL_HOST_PORT, "");
 	}
 
-	public int getHickwallQueueSize() {
-		return getIntProperty(KEY_HICKWALL_QUEUE_SIZE, 100 * 1000);
+	/**
+	 * hickwall.queue.size configured before is converted to points if hickwall.queue.points is absent
+	 */
+	public int getHickwallQueuePoints() {
+
+		Integer points = getIntProperty(KEY_HICKWALL_QUEUE_POINTS, null);
+		if (points != null) {
+			return points;
+		}
+		Integer samples = getIntProperty(KEY_HICKWALL_QUEUE_SIZE, null);
+		if (samples != null) {
+			return (int) Math.min(Integer.MAX_VALUE, (long) samples * POINTS_PER_SAMPLE);
+		}
+		return 100 * 1000 * POINTS_PER_SAMPLE;
+	}
+
+	public int getHickwallBatchSize() {
+		return getIntProperty(KEY_HICKWALL_BATCH_SIZE, 500);
+	}
+
+	public int getHickwallBatchIntervalMilli() {
+		return getIntProperty(KEY_HICKWALL_BATCH_INTERVAL_MILLI, 1000);
 	}
 
 }
@@ -1,11 +1,13 @@
 package com.ctrip.xpipe.service.hickwall;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.thrift.TException;
-import org.apache.thrift.TSerializer;
 import org.apache.thrift.protocol.TCompactProtocol;
 import org.apache.thrift.protocol.TProtocol;
 import org.apache.thrift.transport.TFramedTransport;
@@ -15,9 +17,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.ctrip.hickwall.protocol.API;
-import com.ctrip.hickwall.protocol.BinDataPoint;
-import com.ctrip.hickwall.protocol.BinMultiDataPoint;
-import com.ctrip.hickwall.protocol.DataPoint;
 import com.ctrip.xpipe.api.lifecycle.Ordered;
 import com.ctrip.xpipe.metric.HostPort;
 import com.ctrip.xpipe.metric.MetricBinMultiDataPoint;
@@ -27,6 +26,8 @@ import com.ctrip.xpipe.utils.StringUtil;
 import com.ctrip.xpipe.utils.XpipeThreadFactory;
 
 /**
+ * points are queued and sent by one thread in batches bounded by size and time, over one framed connection.<br/>
+ * points are dropped and counted if queue is full, writers never block
  * @author marsqing
  *
  *         Dec 5, 2016 1:34:27 PM
@@ -35,11 +36,27 @@ public class ThriftHickwallProxy implements MetricProxy {
 
 	private static Logger log = LoggerFactory.getLogger(ThriftHickwallProxy.class);
 
+	private static final long REPORT_INTERVAL_MILLI = TimeUnit.MINUTES.toMillis(1);
+
+	private static final long DROP_LOG_EVERY = 10000;
+
 	private HickwallConfig config = new HickwallConfig();
 
 	private API.Iface client;
 
-	private BlockingQueue<BinMultiDataPoint> datas;
+	private TTransport connectedTransport;
+
+	private BlockingQueue<MetricDataPoint> datas;
+
+	private BinMultiDataPointEncoder encoder = new BinMultiDataPointEncoder();
+
+	private AtomicLong sentPoints = new AtomicLong();
+
+	private AtomicLong droppedPoints = new AtomicLong();
+
+	private AtomicLong sentBatches = new AtomicLong();
+
+	private long lastReportTime = System.currentTimeMillis();
 
 	public ThriftHickwallProxy() {
 		start();
@@ -48,7 +65,7 @@ public class ThriftHickwallProxy implements MetricProxy {
 	private void start() {
 		log.info("Hickwall proxy started");
 
-		datas = new ArrayBlockingQueue<>(config.getHickwallQueueSize());
+		datas = new ArrayBlockingQueue<>(config.getHickwallQueuePoints());
 
 		XpipeThreadFactory.create("HickwallSender", true).newThread(new Runnable() {
 
@@ -56,40 +73,100 @@ public class ThriftHickwallProxy implements MetricProxy {
 			public void run() {
 				tryUntilConnected();
 
-				BinMultiDataPoint data = null;
+				List<MetricDataPoint> batch = new ArrayList<>(config.getHickwallBatchSize());
 				while (!Thread.currentThread().isInterrupted()) {
-					if (data == null) {
+					if (batch.isEmpty()) {
 						try {
-							data = datas.take();
+							fillBatch(batch);
 						} catch (InterruptedException e) {
 							Thread.currentThread().interrupt();
 							break;
 						}
 					}
 
-					try {
-						client.WriteBinMultiDataPoint(data);
-						data = null;
-					} catch (TException e) {
-						log.error("Error write data to hickwall server {}", config.getHickwallHostPort(), e);
-						tryUntilConnected();
-					} catch (Exception e) {
-						log.error("Unexpected error when write data to hickwall server {}", config.getHickwallHostPort(), e);
+					if (!batch.isEmpty()) {
 						try {
-							TimeUnit.SECONDS.sleep(5);
-						} catch (InterruptedException ie) {
-							Thread.currentThread().interrupt();
-							break;
+							client.WriteBinMultiDataPoint(encoder.encode(batch));
+							sentPoints.addAndGet(batch.size());
+							sentBatches.incrementAndGet();
+							batch.clear();
+						} catch (TException e) {
+							log.error("Error write data to hickwall server {}", config.getHickwallHostPort(), e);
+							tryUntilConnected();
+						} catch (Exception e) {
+							log.error("Unexpected error when write data to hickwall server {}, drop {} points", config.getHickwallHostPort(), batch.size(), e);
+							droppedPoints.addAndGet(batch.size());
+							batch.clear();
+							try {
+								TimeUnit.SECONDS.sleep(5);
+							} catch (InterruptedException ie) {
+								Thread.currentThread().interrupt();
+								break;
+							}
 						}
 					}
+					reportIfNecessary();
 				}
 			}
 
 		}).start();
 	}
 
+	/**
+	 * wait for the first point at most one batch interval, then collect until batch is full or batch interval passed
+	 */
+	private void fillBatch(List<MetricDataPoint> batch) throws InterruptedException {
+
+		int batchSize = config.getHickwallBatchSize();
+		long batchIntervalMilli = config.getHickwallBatchIntervalMilli();
+
+		MetricDataPoint first = datas.poll(batchIntervalMilli, TimeUnit.MILLISECONDS);
+		if (first == null) {
+			return;
+		}
+		batch.add(first);
+
+		long deadline = System.currentTimeMillis() + batchIntervalMilli;
+		while (batch.size() < batchSize) {
+			datas.drainTo(batch, batchSize - batch.size());
+			if (batch.size() >= batchSize) {
+				break;
+			}
+			long waitMilli = deadline - System.currentTimeMillis();
+			if (waitMilli <= 0) {
+				break;
+			}
+			MetricDataPoint point = datas.poll(waitMilli, TimeUnit.MILLISECONDS);
+			if (point == null) {
+				break;
+			}
+			batch.add(point);
+		}
+	}
+
+	private void reportIfNecessary() {
+
+		long current = System.currentTimeMillis();
+		if (current - lastReportTime < REPORT_INTERVAL_MILLI) {
+			return;
+		}
+		lastReportTime = current;
+		log.info("[hickwall]sent points:{}, sent batches:{}, dropped points:{}, queued:{}", sentPoints.get(), sentBatches.get(),
+				droppedPoints.get(), datas.size());
+	}
+
 	private void tryUntilConnected() {
 
+		if (connectedTransport != null) {
+			// the broken connection is replaced
+			try {
+				connectedTransport.close();
+			} catch (Exception e) {
+				// ignore
+			}
+			connectedTransport = null;
+		}
+
 		while (!Thread.currentThread().isInterrupted()) {
 			TTransport transport = null;
 			try {
@@ -99,6 +176,7 @@ public class ThriftHickwallProxy implements MetricProxy {
 				transport.open();
 				TProtocol protocol = new TCompactProtocol(transport);
 				client = new API.Client(protocol);
+				connectedTransport = transport;
 				log.info("Connected to hickwall server {}", hostPort);
 				break;
 			} catch (Exception e) {
@@ -121,36 +199,27 @@ public class ThriftHickwallProxy implements MetricProxy {
 
 	@Override
 	public void writeBinMultiDataPoint(MetricBinMultiDataPoint mbmp) throws TException {
-		BinMultiDataPoint bmp = convertToThriftFormat(mbmp);
 
-		if (!datas.offer(bmp)) {
-			log.error("Hickwall queue overflow, will drop data");
+		for (MetricDataPoint point : mbmp.getPoints()) {
+			if (!datas.offer(point)) {
+				long dropped = droppedPoints.getAndIncrement();
+				if (dropped % DROP_LOG_EVERY == 0) {
+					log.error("Hickwall queue overflow, will drop data, dropped points:{}", dropped + 1);
+				}
+			}
 		}
 	}
 
-	private BinMultiDataPoint convertToThriftFormat(MetricBinMultiDataPoint mbmp) throws TException {
-		BinMultiDataPoint bmp = new BinMultiDataPoint();
-
-		for (MetricDataPoint mp : mbmp.getPoints()) {
-
-			DataPoint dataPoint = new DataPoint();
-			dataPoint.setMetric(mp.getMetric());
-			dataPoint.setValue(mp.getValue());
-			dataPoint.setTimestamp(mp.getTimestamp());
-
-			dataPoint.setTags(mp.getTags());
-			dataPoint.setMeta(mp.getMeta());
-
-			BinDataPoint bdp = new BinDataPoint();
-			TSerializer serializer = new TSerializer(new TCompactProtocol.Factory());
-			byte[] data = serializer.serialize(dataPoint);
-			bdp.setEncoded(data);
-			bdp.setEndpoint("fx");
+	public long getSentPoints() {
+		return sentPoints.get();
+	}
 
-			bmp.addToPoints(bdp);
-		}
+	public long getDroppedPoints() {
+		return droppedPoints.get();
+	}
 
-		return bmp;
+	public int getQueuedPoints() {
+		return datas.size();
 	}
 
 	private HostPort parseHostPortFromConfig(String hickwallHostPort) {
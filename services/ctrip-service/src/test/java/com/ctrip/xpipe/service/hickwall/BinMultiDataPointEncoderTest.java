@@ -0,0 +1,115 @@
+package com.ctrip.xpipe.service.hickwall;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.thrift.TDeserializer;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ctrip.hickwall.protocol.BinDataPoint;
+import com.ctrip.hickwall.protocol.BinMultiDataPoint;
+import com.ctrip.hickwall.protocol.DataPoint;
+import com.ctrip.xpipe.AbstractServiceTest;
+import com.ctrip.xpipe.metric.MetricDataPoint;
+
+/**
+ * @author wenchao.meng
+ *
+ * Jan 23, 2017
+ */
+public class BinMultiDataPointEncoderTest extends AbstractServiceTest {
+
+	private int batchSize = Integer.parseInt(System.getProperty("HICKWALL_ENCODER_TEST_BATCH_SIZE", "500"));
+
+	private int rounds = Integer.parseInt(System.getProperty("HICKWALL_ENCODER_TEST_ROUNDS", "20"));
+
+	private BinMultiDataPointEncoder encoder = new BinMultiDataPointEncoder();
+
+	@Test
+	public void testEncode() throws Exception {
+
+		List<MetricDataPoint> points = createPoints(10);
+		BinMultiDataPoint bmp = encoder.encode(points);
+
+		Assert.assertEquals(points.size(), bmp.getPointsSize());
+		for (int i = 0; i < points.size(); i++) {
+			BinDataPoint bdp = bmp.getPoints().get(i);
+			Assert.assertEquals(BinMultiDataPointEncoder.ENDPOINT, bdp.getEndpoint());
+
+			DataPoint dataPoint = decode(bdp);
+			Assert.assertEquals(points.get(i).getMetric(), dataPoint.getMetric());
+			Assert.assertEquals(points.get(i).getValue(), dataPoint.getValue(), 0.0);
+			Assert.assertEquals(points.get(i).getTimestamp(), dataPoint.getTimestamp());
+			Assert.assertEquals(points.get(i).getTags(), dataPoint.getTags());
+			Assert.assertEquals(points.get(i).getMeta(), dataPoint.getMeta());
+		}
+	}
+
+	@Test
+	public void testEncodeReuse() throws Exception {
+
+		encoder.encode(createPoints(100));
+
+		List<MetricDataPoint> points = createPoints(3);
+		BinMultiDataPoint bmp = encoder.encode(points);
+
+		Assert.assertEquals(3, bmp.getPointsSize());
+		Assert.assertEquals(points.get(2).getMetric(), decode(bmp.getPoints().get(2)).getMetric());
+	}
+
+	@Test
+	public void testEncodeBatchesRepeatedly() throws Exception {
+
+		for (int i = 0; i < rounds; i++) {
+			List<MetricDataPoint> points = createPoints(Math.max(1, batchSize - i));
+			BinMultiDataPoint bmp = encoder.encode(points);
+
+			Assert.assertEquals(points.size(), bmp.getPointsSize());
+			DataPoint first = decode(bmp.getPoints().get(0));
+			DataPoint last = decode(bmp.getPoints().get(points.size() - 1));
+			Assert.assertEquals(points.get(0).getMetric(), first.getMetric());
+			Assert.assertEquals(points.get(points.size() - 1).getMetric(), last.getMetric());
+			Assert.assertEquals(points.get(points.size() - 1).getValue(), last.getValue(), 0.0);
+		}
+	}
+
+	private DataPoint decode(BinDataPoint bdp) throws Exception {
+
+		ByteBuffer encoded = bdp.bufferForEncoded().duplicate();
+		byte[] bytes = new byte[encoded.remaining()];
+		encoded.get(bytes);
+
+		DataPoint dataPoint = new DataPoint();
+		new TDeserializer(new TCompactProtocol.Factory()).deserialize(dataPoint, bytes);
+		return dataPoint;
+	}
+
+	private List<MetricDataPoint> createPoints(int count) {
+
+		Map<String, String> meta = new HashMap<>();
+		meta.put("stype", "fx");
+		meta.put("dtype", "float64");
+		meta.put("interval", "15s");
+
+		List<MetricDataPoint> points = new LinkedList<>();
+		for (int i = 0; i < count; i++) {
+			Map<String, String> tags = new HashMap<>();
+			tags.put("cluster", "cluster" + (i % 10));
+			tags.put("shard", "shard" + (i % 3));
+
+			MetricDataPoint point = new MetricDataPoint();
+			point.setMetric("fx.xpipe.delay.cluster" + (i % 10) + ".shard" + (i % 3) + ".127.0.0.1." + (6379 + i));
+			point.setValue(i);
+			point.setTimestamp(System.currentTimeMillis() * 1000000);
+			point.setTags(tags);
+			point.setMeta(meta);
+			points.add(point);
+		}
+		return points;
+	}
+}